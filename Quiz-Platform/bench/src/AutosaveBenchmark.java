@@ -0,0 +1,102 @@
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * AutosaveBenchmark - what QuizAutosave costs an answer click, against writing every click
+ * through to disk.
+ *
+ * Q sessions of 50 questions are tracked in a journal with the default 500 ms interval; N
+ * random clicks (answer, then answered()) are timed one by one while the writer runs, and
+ * the number of journal lines and syncs is compared with the number of clicks. The baseline
+ * appends and syncs one line per click, as a write-through autosave on the EDT would. Last,
+ * the journal is reopened as after a crash and every session's answers must come back.
+ *
+ * Usage: java AutosaveBenchmark [clicks] [sessions]
+ */
+public class AutosaveBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int clicks = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int sessions = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        Repositories.useInMemory(new InMemoryDataStore()); // answer telemetry goes somewhere harmless
+        File file = File.createTempFile("autosave", ".journal");
+        file.deleteOnExit();
+
+        List<Question> bank = new ArrayList<>();
+        for (int q = 0; q < 50; q++) {
+            List<Option> options = new ArrayList<>(4);
+            for (int o = 0; o < 4; o++)
+                options.add(new Option(4 * q + o + 1, "Option " + o, o == 0));
+            bank.add(new Question(q + 1, "Question " + q, options));
+        }
+        QuizAutosave autosave = new QuizAutosave(file, new QuizAutosave.Config());
+        QuizSession[] open = new QuizSession[sessions];
+        for (int i = 0; i < sessions; i++) {
+            open[i] = new QuizSession(i + 1, 100 + i, 1, bank);
+            autosave.track(open[i]);
+        }
+
+        SplittableRandom rnd = new SplittableRandom(3);
+        long[] nanos = new long[clicks];
+        long start = System.nanoTime();
+        for (int c = 0; c < clicks; c++) {
+            QuizSession s = open[rnd.nextInt(sessions)];
+            int q = rnd.nextInt(s.size());
+            s.answer(q, rnd.nextInt(4));
+            long t0 = System.nanoTime();
+            autosave.answered(s, q);
+            nanos[c] = System.nanoTime() - t0;
+            if ((c & 1023) == 0)
+                Thread.sleep(1); // let the interval pass a few times, as real clicking would
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        autosave.flush();
+        Arrays.sort(nanos);
+        System.out.println("mode,clicks,mean_ns,p50_ns,p99_ns,p999_ns,max_us");
+        System.out.printf("autosave,%d,%.0f,%d,%d,%d,%.1f%n", clicks, Arrays.stream(nanos).average().orElse(0),
+                nanos[clicks / 2], nanos[(int) (clicks * 0.99)], nanos[(int) (clicks * 0.999)], nanos[clicks - 1] / 1e3);
+        System.out.printf("autosave: %s over %.1f s, journal %d bytes%n", autosave.stats(), seconds, file.length());
+
+        writeThrough(Math.min(clicks, 2_000));
+
+        // crash: reopen without closing, everything flushed must come back
+        QuizAutosave reopened = new QuizAutosave(file, new QuizAutosave.Config());
+        int wrong = 0;
+        for (QuizSession s : open) {
+            QuizAutosave.Saved saved = reopened.unfinished(s.getUserId()).get(0);
+            for (int q = 0; q < s.size(); q++) {
+                int expected = s.selected(q) < 0 ? 0 : s.question(q).getOptions().get(s.selected(q)).getId();
+                if (saved.optionIds[q] != expected)
+                    wrong++;
+            }
+        }
+        System.out.println("recovered " + sessions + " sessions, wrong answers: " + wrong);
+        if (wrong > 0)
+            throw new AssertionError("autosave lost answers");
+        System.exit(0);
+    }
+
+    private static void writeThrough(int clicks) throws Exception {
+        File file = File.createTempFile("writethrough", ".journal");
+        file.deleteOnExit();
+        long[] nanos = new long[clicks];
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            for (int c = 0; c < clicks; c++) {
+                long t0 = System.nanoTime();
+                ch.write(ByteBuffer.wrap(("A,1," + (c % 50) + "," + c + "\n").getBytes(StandardCharsets.UTF_8)));
+                ch.force(false);
+                nanos[c] = System.nanoTime() - t0;
+            }
+        }
+        Arrays.sort(nanos);
+        System.out.printf("writeThrough,%d,%.0f,%d,%d,%d,%.1f%n", clicks, Arrays.stream(nanos).average().orElse(0),
+                nanos[clicks / 2], nanos[(int) (clicks * 0.99)], nanos[(int) (clicks * 0.999)], nanos[clicks - 1] / 1e3);
+    }
+}
@@ -0,0 +1,141 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * BatchGradingBenchmark - attempts scored per second by BatchGrader against scoring the same
+ * attempts as Question/Option objects (QuizSession.computeScore), then a full regrade of a
+ * category stored in embedded H2.
+ *
+ * In memory: A attempts of 20 questions drawn from a bank of 2,000, one answer in ten left
+ * blank. Scores the lot as objects, packed on one thread, and packed with fork-join on the
+ * common pool, checking that all three agree. Run with enough heap, e.g. -Xmx3g for 2M.
+ * In H2: saves R results with their sheets, changes the correct option of 10% of the
+ * questions, and times BatchGrader.regrade (read, score, batched write-back).
+ *
+ * Usage: java BatchGradingBenchmark [attempts] [storedResults]
+ */
+public class BatchGradingBenchmark {
+    private static final int BANK = 2_000;
+    private static final int PER_QUIZ = 20;
+
+    public static void main(String[] args) throws Exception {
+        int attempts = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int stored = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        System.out.println("parallelism=" + ForkJoinPool.getCommonPoolParallelism()
+                + " cpus=" + Runtime.getRuntime().availableProcessors());
+        inMemory(attempts);
+        database(stored);
+        System.exit(0);
+    }
+
+    private static void inMemory(int attempts) {
+        List<Question> bank = bank(BANK, 0);
+        SplittableRandom rnd = new SplittableRandom(42);
+        List<List<Question>> quizzes = new ArrayList<>(attempts);
+        List<int[]> selections = new ArrayList<>(attempts);
+        for (int a = 0; a < attempts; a++) {
+            Question[] quiz = new Question[PER_QUIZ];
+            int[] selected = new int[PER_QUIZ];
+            for (int i = 0; i < PER_QUIZ; i++) {
+                quiz[i] = bank.get(rnd.nextInt(BANK));
+                selected[i] = rnd.nextInt(10) == 0 ? -1 : rnd.nextInt(4);
+            }
+            quizzes.add(Arrays.asList(quiz));
+            selections.add(selected);
+        }
+
+        BatchGrader.AnswerKey key = BatchGrader.AnswerKey.of(bank);
+        long t0 = System.nanoTime();
+        BatchGrader.PackedSheets packed = new BatchGrader.PackedSheets(attempts, attempts * PER_QUIZ);
+        for (int a = 0; a < attempts; a++)
+            packed.add(a, 0, AnswerSheet.of(quizzes.get(a), selections.get(a)), key);
+        System.out.printf("pack: %.0f ms for %d attempts%n", (System.nanoTime() - t0) / 1e6, attempts);
+
+        int[] expected = new int[attempts];
+        int[] sequential = new int[attempts];
+        int[] parallel = new int[attempts];
+        System.out.println("round,form,attempts,ms,attempts_per_sec");
+        for (int round = 1; round <= 3; round++) {
+            t0 = System.nanoTime();
+            for (int a = 0; a < attempts; a++)
+                expected[a] = QuizSession.computeScore(quizzes.get(a), selections.get(a));
+            report(round, "objects", attempts, t0);
+
+            t0 = System.nanoTime();
+            BatchGrader.score(key, packed, sequential, 0, attempts);
+            report(round, "packed", attempts, t0);
+
+            t0 = System.nanoTime();
+            BatchGrader.scoreParallel(key, packed, parallel, ForkJoinPool.commonPool(), 4_096);
+            report(round, "packed+forkjoin", attempts, t0);
+        }
+        if (!Arrays.equals(expected, sequential) || !Arrays.equals(expected, parallel))
+            throw new AssertionError("packed scores differ from computeScore");
+    }
+
+    private static void database(int stored) throws Exception {
+        EmbeddedDb.use("gradingbench");
+        Repositories.useJdbc();
+        int catId = Repositories.categories().create("grading");
+        Repositories.questions().createAll(catId, bank(BANK, 0));
+        List<Question> bank = Repositories.questions().loadCategory(catId);
+
+        SplittableRandom rnd = new SplittableRandom(7);
+        List<ResultRecord> batch = new ArrayList<>(1_000);
+        long t0 = System.nanoTime();
+        for (int r = 0; r < stored; r++) {
+            Question[] quiz = new Question[PER_QUIZ];
+            int[] selected = new int[PER_QUIZ];
+            for (int i = 0; i < PER_QUIZ; i++) {
+                quiz[i] = bank.get(rnd.nextInt(BANK));
+                selected[i] = rnd.nextInt(10) == 0 ? -1 : rnd.nextInt(4);
+            }
+            List<Question> questions = Arrays.asList(quiz);
+            batch.add(new ResultRecord(r % 5_000, catId, QuizSession.computeScore(questions, selected),
+                    AnswerSheet.of(questions, selected)));
+            if (batch.size() == 1_000) {
+                Repositories.results().saveBatch(batch);
+                batch.clear();
+            }
+        }
+        Repositories.results().saveBatch(batch);
+        System.out.printf("stored %d results with sheets in %.0f ms%n", stored, (System.nanoTime() - t0) / 1e6);
+
+        BatchGrader grader = new BatchGrader(new BatchGrader.Config());
+        BatchGrader.Report unchanged = grader.regrade(catId);
+        System.out.println("regrade (key unchanged): " + unchanged);
+
+        // the key was wrong for every tenth question: option 1 is the correct one, not option 0
+        for (int i = 0; i < BANK; i += 10) {
+            Question q = bank.get(i);
+            List<Option> fixed = new ArrayList<>();
+            for (int o = 0; o < q.getOptions().size(); o++)
+                fixed.add(new Option(0, q.getOptions().get(o).getText(), o == 1));
+            Repositories.questions().update(q.getId(), q.getText(), fixed);
+        }
+        BatchGrader.Report report = grader.regrade(catId);
+        System.out.println("regrade (10% of the key fixed): " + report);
+        System.out.printf("regrade throughput: %.0f attempts/s%n", report.attempts * 1000.0 / Math.max(1, report.millis));
+        if (grader.regrade(catId).changed != 0)
+            throw new AssertionError("second regrade changed scores again");
+    }
+
+    private static List<Question> bank(int n, int firstId) {
+        List<Question> list = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            List<Option> options = new ArrayList<>(4);
+            for (int o = 0; o < 4; o++)
+                options.add(new Option(firstId + 4 * i + o + 1, "Option " + o + " of question " + i, o == 0));
+            list.add(new Question(firstId + i + 1, "Question " + i, options));
+        }
+        return list;
+    }
+
+    private static void report(int round, String form, int attempts, long t0) {
+        double ms = (System.nanoTime() - t0) / 1e6;
+        System.out.printf("%d,%s,%d,%.1f,%.0f%n", round, form, attempts, ms, attempts * 1000 / ms);
+    }
+}
@@ -0,0 +1,175 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BenchmarkHarness - a small JMH-style runner for the benchmarks in this module.
+ *
+ * Each benchmark runs warm-up iterations, then measured iterations of a fixed wall time,
+ * reporting average time per operation with a 99.9% confidence interval. Results are
+ * written as JSON in the same shape as JMH's -rf json output (benchmark, mode, params,
+ * primaryMetric.score/scoreError/rawData) and can be compared against a previous run.
+ *
+ * JMH itself cannot be used here: its generated code must import the benchmark classes,
+ * and the application classes live in the default package.
+ */
+public class BenchmarkHarness {
+
+    public interface Op {
+        Object run() throws Exception;
+    }
+
+    public static class Result {
+        final String benchmark;
+        final Map<String, String> params;
+        final double[] samples; // us/op per measured iteration
+        final double score, error;
+
+        Result(String benchmark, Map<String, String> params, double[] samples) {
+            this.benchmark = benchmark;
+            this.params = params;
+            this.samples = samples;
+            double sum = 0;
+            for (double v : samples)
+                sum += v;
+            score = sum / samples.length;
+            double var = 0;
+            for (double v : samples)
+                var += (v - score) * (v - score);
+            double sd = samples.length > 1 ? Math.sqrt(var / (samples.length - 1)) : 0;
+            error = samples.length > 1 ? T_999[Math.min(samples.length - 1, T_999.length) - 1] * sd / Math.sqrt(samples.length) : 0;
+        }
+
+        String key() {
+            return benchmark + params;
+        }
+    }
+
+    // two-sided 99.9% Student t quantiles for 1..12 degrees of freedom
+    private static final double[] T_999 = { 636.62, 31.60, 12.92, 8.61, 6.87, 5.96, 5.41, 5.04, 4.78, 4.59, 4.44, 4.32 };
+
+    private final int warmupIterations;
+    private final int measurementIterations;
+    private final long iterationMillis;
+    private final String filter;
+    private final List<Result> results = new ArrayList<>();
+    private volatile int sink; // results are folded in here so the JIT cannot drop the work
+
+    public BenchmarkHarness(int warmupIterations, int measurementIterations, long iterationMillis, String filter) {
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        this.iterationMillis = iterationMillis;
+        this.filter = filter;
+    }
+
+    public void run(String benchmark, Map<String, String> params, Op op) throws Exception {
+        if (filter != null && !benchmark.contains(filter))
+            return;
+        for (int i = 0; i < warmupIterations; i++)
+            iteration(op);
+        double[] samples = new double[measurementIterations];
+        for (int i = 0; i < measurementIterations; i++)
+            samples[i] = iteration(op);
+        Result r = new Result(benchmark, params, samples);
+        results.add(r);
+        System.out.printf("%-40s %-20s %12.3f +- %9.3f us/op%n", benchmark, params, r.score, r.error);
+    }
+
+    public static Map<String, String> params(String... kv) {
+        Map<String, String> m = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < kv.length; i += 2)
+            m.put(kv[i], kv[i + 1]);
+        return m;
+    }
+
+    private double iteration(Op op) throws Exception {
+        long deadline = System.nanoTime() + iterationMillis * 1_000_000L;
+        long start = System.nanoTime();
+        long ops = 0;
+        int acc = 0;
+        long now;
+        do {
+            Object o = op.run();
+            acc += o == null ? 0 : System.identityHashCode(o);
+            ops++;
+            now = System.nanoTime();
+        } while (now < deadline);
+        sink += acc;
+        return (now - start) / 1e3 / ops;
+    }
+
+    public void writeJson(Path file) throws IOException {
+        StringBuilder sb = new StringBuilder("[\n");
+        for (int i = 0; i < results.size(); i++) {
+            Result r = results.get(i);
+            sb.append("  {\n");
+            sb.append("    \"benchmark\": ").append(Json.quote(r.benchmark)).append(",\n");
+            sb.append("    \"mode\": \"avgt\",\n");
+            sb.append("    \"threads\": 1,\n");
+            sb.append("    \"forks\": 1,\n");
+            sb.append("    \"warmupIterations\": ").append(warmupIterations).append(",\n");
+            sb.append("    \"warmupTime\": \"").append(iterationMillis).append(" ms\",\n");
+            sb.append("    \"measurementIterations\": ").append(measurementIterations).append(",\n");
+            sb.append("    \"measurementTime\": \"").append(iterationMillis).append(" ms\",\n");
+            sb.append("    \"params\": {");
+            int p = 0;
+            for (Map.Entry<String, String> e : r.params.entrySet())
+                sb.append(p++ == 0 ? "" : ", ").append(Json.quote(e.getKey())).append(": ").append(Json.quote(e.getValue()));
+            sb.append("},\n");
+            sb.append("    \"primaryMetric\": {\n");
+            sb.append("      \"score\": ").append(r.score).append(",\n");
+            sb.append("      \"scoreError\": ").append(r.error).append(",\n");
+            sb.append("      \"scoreUnit\": \"us/op\",\n");
+            sb.append("      \"rawData\": [[");
+            for (int j = 0; j < r.samples.length; j++)
+                sb.append(j == 0 ? "" : ", ").append(r.samples[j]);
+            sb.append("]]\n    }\n  }").append(i + 1 < results.size() ? ",\n" : "\n");
+        }
+        sb.append("]\n");
+        Files.write(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+        System.out.println("Results written to " + file);
+    }
+
+    /**
+     * Prints each benchmark's change against a previous results file and returns how many
+     * got slower by more than thresholdPercent (and by more than the combined error).
+     */
+    @SuppressWarnings("unchecked")
+    public int compare(Path baselineFile, double thresholdPercent) throws IOException {
+        Map<String, double[]> baseline = new LinkedHashMap<>();
+        List<Object> entries = (List<Object>) Json.parse(new String(Files.readAllBytes(baselineFile), StandardCharsets.UTF_8));
+        for (Object o : entries) {
+            Map<String, Object> e = (Map<String, Object>) o;
+            Map<String, String> params = new LinkedHashMap<>();
+            Object rawParams = e.get("params");
+            if (rawParams instanceof Map) {
+                for (Map.Entry<String, Object> pe : ((Map<String, Object>) rawParams).entrySet())
+                    params.put(pe.getKey(), String.valueOf(pe.getValue()));
+            }
+            Map<String, Object> metric = (Map<String, Object>) e.get("primaryMetric");
+            baseline.put(e.get("benchmark") + params.toString(),
+                    new double[] { (Double) metric.get("score"), (Double) metric.get("scoreError") });
+        }
+
+        int regressions = 0;
+        System.out.println("Compared with " + baselineFile + ":");
+        for (Result r : results) {
+            double[] b = baseline.get(r.key());
+            if (b == null) {
+                System.out.printf("  %-60s new%n", r.key());
+                continue;
+            }
+            double change = (r.score - b[0]) / b[0] * 100;
+            boolean worse = change > thresholdPercent && r.score - b[0] > r.error + b[1];
+            if (worse)
+                regressions++;
+            System.out.printf("  %-60s %+7.1f%%%s%n", r.key(), change, worse ? "  REGRESSION" : "");
+        }
+        return regressions;
+    }
+}
@@ -0,0 +1,96 @@
+import java.io.BufferedWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * BulkImportBenchmark - questions/second for bulk import and export against embedded H2.
+ *
+ * Generates a CSV and a JSON-lines bank of N questions (4 options each), imports them with
+ * QuestionTransfer at several chunk sizes, exports a category back out, and compares with
+ * the dialog's path (QuestionRepository.create, one transaction per question) on a sample.
+ *
+ * Usage: java BulkImportBenchmark [questions]
+ */
+public class BulkImportBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        EmbeddedDb.use("importbench");
+        Repositories.useJdbc();
+        Path dir = Files.createTempDirectory("bulk-import");
+        Path csv = dir.resolve("bank.csv");
+        Path jsonl = dir.resolve("bank.jsonl");
+        generate(csv, n, QuestionTransfer.Format.CSV);
+        generate(jsonl, n, QuestionTransfer.Format.JSON_LINES);
+
+        System.out.println("operation,chunk,questions,seconds,questions_per_s");
+        int sample = Math.min(n, 5_000);
+        int singleCat = Repositories.categories().create("single");
+        long t0 = System.nanoTime();
+        for (int i = 0; i < sample; i++)
+            Repositories.questions().create(singleCat, "Question " + i, options(i));
+        report("create_each", 1, sample, t0);
+
+        int lastCat = 0;
+        for (int chunk : new int[] { 100, 1000, 5000 }) {
+            lastCat = Repositories.categories().create("csv-" + chunk);
+            t0 = System.nanoTime();
+            long imported;
+            try (Reader in = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+                imported = new QuestionTransfer(chunk).importQuestions(in, QuestionTransfer.Format.CSV, lastCat, null);
+            }
+            report("import_csv", chunk, imported, t0);
+        }
+        int jsonCat = Repositories.categories().create("jsonl");
+        t0 = System.nanoTime();
+        long imported;
+        try (Reader in = Files.newBufferedReader(jsonl, StandardCharsets.UTF_8)) {
+            imported = new QuestionTransfer(1000).importQuestions(in, QuestionTransfer.Format.JSON_LINES, jsonCat, null);
+        }
+        report("import_jsonl", 1000, imported, t0);
+
+        Path out = dir.resolve("export.csv");
+        t0 = System.nanoTime();
+        long exported;
+        try (Writer w = Files.newBufferedWriter(out, StandardCharsets.UTF_8)) {
+            exported = new QuestionTransfer(1000).exportCategory(lastCat, w, QuestionTransfer.Format.CSV, null);
+        }
+        report("export_csv", 1000, exported, t0);
+        if (!Files.readAllLines(out).equals(Files.readAllLines(csv)))
+            throw new IllegalStateException("Exported CSV differs from the imported file");
+        System.exit(0);
+    }
+
+    private static void report(String op, int chunk, long count, long t0) {
+        double secs = (System.nanoTime() - t0) / 1e9;
+        System.out.printf("%s,%d,%d,%.2f,%.0f%n", op, chunk, count, secs, count / secs);
+    }
+
+    private static void generate(Path file, int n, QuestionTransfer.Format format) throws Exception {
+        // build the file through an in-memory category and the exporter, so it is in export form
+        InMemoryDataStore store = new InMemoryDataStore();
+        int catId = store.categories().create("gen");
+        List<Question> batch = new ArrayList<>();
+        for (int i = 0; i < n; i++)
+            batch.add(new Question(0, i % 10 == 0 ? "Question " + i + ", with \"quotes\"" : "Question " + i, options(i)));
+        store.questions().createAll(catId, batch);
+        Repositories.useInMemory(store);
+        try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            new QuestionTransfer().exportCategory(catId, w, format, null);
+        } finally {
+            Repositories.useJdbc();
+        }
+    }
+
+    private static List<Option> options(int i) {
+        List<Option> list = new ArrayList<>(4);
+        for (int o = 0; o < 4; o++)
+            list.add(new Option(0, "Option " + o + " of " + i, o == i % 4));
+        return list;
+    }
+}
@@ -0,0 +1,134 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * DeadlineSchedulerBenchmark - cost of tracking many quiz deadlines at once.
+ *
+ * Schedules N deadlines spread over S seconds on a DeadlineScheduler (timing wheel) and on a
+ * ScheduledThreadPoolExecutor (binary heap), times insert and cancel per deadline, cancels
+ * half, then waits for the rest and reports how late they fired and that no cancelled one
+ * did. Last, N timed quiz sessions on QuizEngine (in-memory store) are left to run out and
+ * must all be auto-submitted and saved.
+ *
+ * Usage: java DeadlineSchedulerBenchmark [deadlines] [spreadSeconds]
+ */
+public class DeadlineSchedulerBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int spread = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        long[] delays = new long[n];
+        SplittableRandom rnd = new SplittableRandom(1);
+        for (int i = 0; i < n; i++)
+            delays[i] = 1_000 + rnd.nextLong(spread * 1_000L);
+
+        System.out.println("scheduler,deadlines,insert_ns,cancel_ns");
+        for (int round = 0; round < 2; round++)
+            heap(delays, round == 1);
+        wheel(delays, false);
+        wheel(delays, true);
+        sessions(n / 10, spread);
+        System.exit(0);
+    }
+
+    private static void wheel(long[] delays, boolean report) throws Exception {
+        int n = delays.length;
+        DeadlineScheduler scheduler = new DeadlineScheduler(new DeadlineScheduler.Config().tickMillis(10));
+        long[] due = new long[n];
+        long[] firedAt = new long[n];
+        AtomicInteger fired = new AtomicInteger();
+        List<DeadlineScheduler.Timeout> timeouts = new ArrayList<>(n);
+        long t0 = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            int id = i;
+            due[i] = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delays[i]);
+            timeouts.add(scheduler.schedule(delays[i], () -> {
+                firedAt[id] = System.nanoTime();
+                fired.incrementAndGet();
+            }));
+        }
+        long insert = System.nanoTime() - t0;
+        t0 = System.nanoTime();
+        for (int i = 0; i < n; i += 2)
+            timeouts.get(i).cancel();
+        long cancel = System.nanoTime() - t0;
+        if (report)
+            System.out.printf("wheel(10ms tick),%d,%.0f,%.0f%n", n, (double) insert / n, cancel / (n / 2.0));
+
+        while (scheduler.pending() > 0)
+            Thread.sleep(50);
+        Thread.sleep(200); // let the expiry pool drain
+        long[] late = new long[n / 2];
+        int k = 0, wrong = 0;
+        for (int i = 0; i < n; i++) {
+            if (i % 2 == 0 && firedAt[i] != 0)
+                wrong++;
+            else if (i % 2 == 1)
+                late[k++] = firedAt[i] == 0 ? Long.MAX_VALUE : firedAt[i] - due[i];
+        }
+        Arrays.sort(late, 0, k);
+        long early = Arrays.stream(late, 0, k).filter(l -> l < 0).count();
+        if (report) {
+            System.out.printf("wheel fired=%d cancelledButFired=%d late_ms p50=%.1f p99=%.1f max=%.1f early=%d%n",
+                    fired.get(), wrong, late[k / 2] / 1e6, late[(int) (k * 0.99)] / 1e6, late[k - 1] / 1e6, early);
+            System.out.println("wheel stats: " + scheduler.stats());
+        }
+        scheduler.shutdown();
+        if (wrong > 0 || early > 0 || fired.get() != n / 2)
+            throw new AssertionError("wrong set of deadlines fired");
+    }
+
+    private static void heap(long[] delays, boolean report) {
+        int n = delays.length;
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        executor.setRemoveOnCancelPolicy(true);
+        List<ScheduledFuture<?>> futures = new ArrayList<>(n);
+        long t0 = System.nanoTime();
+        for (int i = 0; i < n; i++)
+            futures.add(executor.schedule(() -> { }, delays[i], TimeUnit.MILLISECONDS));
+        long insert = System.nanoTime() - t0;
+        t0 = System.nanoTime();
+        for (int i = 0; i < n; i += 2)
+            futures.get(i).cancel(false);
+        long cancel = System.nanoTime() - t0;
+        if (report)
+            System.out.printf("heap(ScheduledThreadPoolExecutor),%d,%.0f,%.0f%n", n, (double) insert / n, cancel / (n / 2.0));
+        executor.shutdownNow();
+    }
+
+    private static void sessions(int count, int spread) throws Exception {
+        InMemoryDataStore store = new InMemoryDataStore();
+        Repositories.useInMemory(store);
+        int catId = Repositories.categories().create("timed");
+        for (int q = 0; q < 50; q++) {
+            List<Option> options = new ArrayList<>(4);
+            for (int o = 0; o < 4; o++)
+                options.add(new Option(0, "Option " + o, o == 0));
+            Repositories.questions().create(catId, "Question " + q, options);
+        }
+        QuizEngine engine = new QuizEngine(QuestionBankCache.shared());
+        engine.timeLimits(1_000 + spread * 100L, 0);
+        AtomicInteger timedOut = new AtomicInteger();
+        long t0 = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            QuizSession s = engine.start(i, catId);
+            s.answer(0, 0);
+            s.onTimeout(timedOut::incrementAndGet);
+        }
+        System.out.printf("started %d timed sessions in %.0f ms%n", count, (System.nanoTime() - t0) / 1e6);
+        while (engine.openSessions() > 0 || timedOut.get() < count)
+            Thread.sleep(50);
+        ResultSink.shared().flush(30_000);
+        System.out.printf("auto-submitted %d sessions, %d results saved, %.0f ms after start%n", timedOut.get(),
+                store.savedResults().size(), (System.nanoTime() - t0) / 1e6);
+        System.out.println("shared scheduler: " + DeadlineScheduler.shared().stats());
+        if (store.savedResults().size() != count)
+            throw new AssertionError("expected " + count + " saved results");
+    }
+}
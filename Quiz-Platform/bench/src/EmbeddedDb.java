@@ -0,0 +1,15 @@
+import java.sql.SQLException;
+
+/**
+ * EmbeddedDb - points DBConnection at an in-memory H2 database (MySQL mode) with the quiz schema.
+ * Call use() before anything touches DBConnection.
+ */
+public class EmbeddedDb {
+
+    public static void use(String name) throws SQLException {
+        System.setProperty("quiz.db.url", "jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        System.setProperty("quiz.db.user", "sa");
+        System.setProperty("quiz.db.password", "");
+        SchemaMigrator.migrate(); // the same schema the application creates at startup
+    }
+}
@@ -0,0 +1,156 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HttpLoadGenerator - simulated quiz takers against QuizServer, reporting p50/p99 and requests/s.
+ *
+ * With no URL it starts an in-process server on a free port over InMemoryDataStore, seeded
+ * with users and categories, so it runs without MySQL. Each client logs in, lists categories,
+ * starts a quiz, answers every question and submits, repeating until the time is up.
+ *
+ * Usage: java HttpLoadGenerator [clients] [seconds] [baseUrl]
+ *        (against a real server the users load-user-0..N-1 / "secret" must exist)
+ */
+public class HttpLoadGenerator {
+    private static final String[] ENDPOINTS = { "login", "categories", "start", "answer", "submit" };
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        String baseUrl = args.length > 2 ? args[2] : null;
+
+        QuizServer server = null;
+        if (baseUrl == null) {
+            Repositories.useInMemory(new InMemoryDataStore());
+            seed(clients);
+            server = new QuizServer(QuizEngine.shared());
+            server.start(0);
+            baseUrl = "http://localhost:" + server.port();
+        }
+
+        ExecutorService executor = VirtualThreads.newPerTaskExecutor("load");
+        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(VirtualThreads.newPerTaskExecutor("http-client"))
+                .connectTimeout(Duration.ofSeconds(5)).build();
+        LatencyLog[] logs = new LatencyLog[ENDPOINTS.length];
+        for (int i = 0; i < logs.length; i++)
+            logs[i] = new LatencyLog();
+        AtomicInteger errors = new AtomicInteger();
+        AtomicLong quizzes = new AtomicLong();
+
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        long start = System.nanoTime();
+        String url = baseUrl;
+        for (int c = 0; c < clients; c++) {
+            int client = c;
+            executor.execute(() -> {
+                Random rnd = new Random(client);
+                try {
+                    while (System.nanoTime() < end) {
+                        runQuiz(http, url, client, rnd, logs);
+                        quizzes.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    if (errors.incrementAndGet() == 1)
+                        e.printStackTrace();
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(seconds + 60L, TimeUnit.SECONDS);
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        System.out.println("endpoint,requests,requests_per_s,p50_ms,p99_ms,max_ms");
+        long total = 0;
+        for (int i = 0; i < logs.length; i++) {
+            long[] l = logs[i].sorted();
+            total += l.length;
+            if (l.length > 0)
+                System.out.printf("%s,%d,%.0f,%.3f,%.3f,%.3f%n", ENDPOINTS[i], l.length, l.length / elapsed,
+                        l[l.length / 2] / 1e6, l[(int) (l.length * 0.99)] / 1e6, l[l.length - 1] / 1e6);
+        }
+        System.out.printf("all,%d,%.0f,,,%n", total, total / elapsed);
+        System.out.println("clients=" + clients + " quizzes=" + quizzes.get() + " errors=" + errors.get()
+                + " virtual_threads=" + VirtualThreads.available());
+        if (server != null)
+            server.stop();
+        System.exit(errors.get() == 0 ? 0 : 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void runQuiz(HttpClient http, String url, int client, Random rnd, LatencyLog[] logs)
+            throws Exception {
+        Map<String, Object> login = (Map<String, Object>) call(http, url + "/api/login", null,
+                Json.write(Json.object("username", "load-user-" + client, "password", "secret")), logs[0]);
+        String token = (String) login.get("token");
+        List<Object> categories = (List<Object>) call(http, url + "/api/categories", token, null, logs[1]);
+        Map<String, Object> cat = (Map<String, Object>) categories.get(rnd.nextInt(categories.size()));
+        Map<String, Object> quiz = (Map<String, Object>) call(http, url + "/api/quiz/start", token,
+                Json.write(Json.object("categoryId", cat.get("id"))), logs[2]);
+        Object sessionId = quiz.get("sessionId");
+        List<Object> questions = (List<Object>) quiz.get("questions");
+        for (int i = 0; i < questions.size(); i++) {
+            call(http, url + "/api/quiz/answer", token, Json.write(Json.object("sessionId", sessionId,
+                    "questionIndex", i, "optionIndex", rnd.nextInt(4))), logs[3]);
+        }
+        call(http, url + "/api/quiz/submit", token, Json.write(Json.object("sessionId", sessionId)), logs[4]);
+    }
+
+    private static Object call(HttpClient http, String url, String token, String body, LatencyLog log)
+            throws Exception {
+        HttpRequest.Builder b = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(30));
+        if (token != null)
+            b.header("Authorization", "Bearer " + token);
+        if (body != null)
+            b.POST(HttpRequest.BodyPublishers.ofString(body)).header("Content-Type", "application/json");
+        long t0 = System.nanoTime();
+        HttpResponse<String> resp = http.send(b.build(), HttpResponse.BodyHandlers.ofString());
+        log.add(System.nanoTime() - t0);
+        if (resp.statusCode() != 200)
+            throw new IllegalStateException(url + " -> " + resp.statusCode() + " " + resp.body());
+        return Json.parse(resp.body());
+    }
+
+    private static void seed(int users) throws Exception {
+        for (int u = 0; u < users; u++)
+            Repositories.users().create("load-user-" + u, "secret", "user");
+        for (int c = 0; c < 5; c++) {
+            int catId = Repositories.categories().create("Category " + c);
+            for (int q = 0; q < 10; q++) {
+                List<Option> options = new ArrayList<>(4);
+                for (int o = 0; o < 4; o++)
+                    options.add(new Option(0, "Option " + o, o == 0));
+                Repositories.questions().create(catId, "Question " + q, options);
+            }
+        }
+    }
+
+    // Append-only latency samples (nanoseconds) shared by all clients
+    private static class LatencyLog {
+        private long[] samples = new long[1 << 16];
+        private int size;
+
+        synchronized void add(long nanos) {
+            if (size == samples.length)
+                samples = Arrays.copyOf(samples, size * 2);
+            samples[size++] = nanos;
+        }
+
+        synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(samples, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+import java.sql.SQLTransientException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LoginBenchmark - logins per second through Authenticator at several hash costs.
+ *
+ * Users live in InMemoryDataStore so only the lookup cache and PBKDF2 are measured. For each
+ * iteration count, C concurrent clients log in repeatedly for a fixed time (with a few wrong
+ * passwords and unknown users mixed in); reports logins/s, p50/p99 latency and how many
+ * attempts the bounded verify pool refused.
+ *
+ * Usage: java LoginBenchmark [clients] [seconds] [iterations,iterations,...]
+ */
+public class LoginBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        String[] costs = (args.length > 2 ? args[2] : "10000,50000,100000,200000").split(",");
+        int users = 200;
+
+        System.out.println("iterations,verify_threads,clients,logins,logins_per_s,p50_ms,p99_ms,rejected");
+        for (String cost : costs) {
+            InMemoryDataStore store = new InMemoryDataStore();
+            Authenticator.Config config = new Authenticator.Config().iterations(Integer.parseInt(cost));
+            Authenticator auth = new Authenticator(config, store.users());
+            for (int u = 0; u < users; u++)
+                auth.register("user-" + u, ("pw-" + u).toCharArray(), "user");
+            run(auth, clients, 1, users, false);    // warm-up
+            run(auth, clients, seconds, users, true);
+            System.err.println("iterations=" + cost + ": " + auth.stats());
+        }
+        System.exit(0);
+    }
+
+    private static void run(Authenticator auth, int clients, int seconds, int users, boolean print) throws Exception {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        long[][] latencies = new long[clients][];
+        int[] counts = new int[clients];
+        AtomicLong rejected = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(clients);
+        ExecutorService executor = VirtualThreads.newPerTaskExecutor("login");
+        for (int c = 0; c < clients; c++) {
+            int client = c;
+            latencies[c] = new long[1 << 16];
+            executor.execute(() -> {
+                try {
+                    for (int i = 0; System.nanoTime() < end; i++) {
+                        int u = (client * 7919 + i) % users;
+                        // every 10th attempt is a wrong password, every 20th an unknown user
+                        String name = i % 20 == 19 ? "nobody-" + u : "user-" + u;
+                        char[] pw = (i % 10 == 9 ? "wrong" : "pw-" + u).toCharArray();
+                        long t0 = System.nanoTime();
+                        try {
+                            auth.authenticate(name, pw);
+                        } catch (SQLTransientException full) {
+                            rejected.incrementAndGet();
+                            continue;
+                        }
+                        if (counts[client] < latencies[client].length)
+                            latencies[client][counts[client]] = System.nanoTime() - t0;
+                        counts[client]++;
+                    }
+                } catch (Exception e) {
+                    e.printStackTrace();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        executor.shutdown();
+        if (!print)
+            return;
+        int total = 0;
+        for (int n : counts)
+            total += n;
+        long[] all = new long[total];
+        int k = 0;
+        for (int c = 0; c < clients; c++)
+            for (int i = 0; i < Math.min(counts[c], latencies[c].length); i++)
+                all[k++] = latencies[c][i];
+        Arrays.sort(all, 0, k);
+        System.out.printf("%d,%d,%d,%d,%.1f,%.2f,%.2f,%d%n", auth.iterations(), auth.verifyThreads(), clients, total,
+                total / (double) seconds, k == 0 ? 0 : all[k / 2] / 1e6, k == 0 ? 0 : all[(int) (k * 0.99)] / 1e6,
+                rejected.get());
+    }
+}
@@ -0,0 +1,133 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * QuestionEditContentionTest - many admins editing the same few questions at once.
+ *
+ * E editor threads each make S edits to random questions out of Q (embedded H2, or the
+ * in-memory store with "memory"). An edit reads the question, bumps the counter in its text
+ * and rewrites one option, like an admin changing a word in the dialog. With versioned saves
+ * a StaleQuestionException means re-read and try again; afterwards every question's counter
+ * must equal the edits saved to it and its version, and its option ids must be the ones it
+ * was created with. The same run with unversioned (last save wins) updates reports how many
+ * edits were silently lost.
+ *
+ * Usage: java QuestionEditContentionTest [memory|jdbc] [editors] [questions] [editsPerEditor]
+ */
+public class QuestionEditContentionTest {
+
+    public static void main(String[] args) throws Exception {
+        String backend = args.length > 0 ? args[0] : "jdbc";
+        int editors = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+        int questions = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        int edits = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+        if ("memory".equals(backend)) {
+            Repositories.useInMemory(new InMemoryDataStore());
+        } else {
+            EmbeddedDb.use("contentiontest");
+            Repositories.useJdbc();
+        }
+
+        System.out.println("mode,editors,questions,saves,conflicts,lost,saves_per_s,errors");
+        boolean ok = run(backend, true, editors, questions, edits);
+        run(backend, false, editors, questions, edits);
+        System.exit(ok ? 0 : 1);
+    }
+
+    private static boolean run(String backend, boolean versioned, int editors, int questions, int edits)
+            throws Exception {
+        int catId = Repositories.categories().create("contention-" + versioned + "-" + System.nanoTime());
+        int[] ids = new int[questions];
+        List<List<Integer>> optionIds = new ArrayList<>();
+        for (int q = 0; q < questions; q++) {
+            List<Option> options = new ArrayList<>(4);
+            for (int o = 0; o < 4; o++)
+                options.add(new Option(0, "Option " + o, o == 0));
+            ids[q] = Repositories.questions().create(catId, text(q, 0), options);
+            optionIds.add(optionIds(Repositories.questions().findById(ids[q])));
+        }
+
+        AtomicIntegerArray saved = new AtomicIntegerArray(questions);
+        LongAdder conflicts = new LongAdder(), errors = new LongAdder();
+        ExecutorService pool = Executors.newFixedThreadPool(editors);
+        long t0 = System.nanoTime();
+        for (int t = 0; t < editors; t++) {
+            int seed = t;
+            pool.execute(() -> {
+                SplittableRandom rnd = new SplittableRandom(seed);
+                for (int e = 0; e < edits; e++) {
+                    int q = rnd.nextInt(questions);
+                    try {
+                        while (true) {
+                            Question current = Repositories.questions().findById(ids[q]);
+                            int count = counter(current) + 1;
+                            List<Option> options = new ArrayList<>(current.getOptions());
+                            int o = count % 4;
+                            options.set(o, new Option(0, "Option " + o + " rev " + count, options.get(o).isCorrect()));
+                            if (!versioned) {
+                                Repositories.questions().update(ids[q], text(q, count), options);
+                                break;
+                            }
+                            try {
+                                Repositories.questions().update(ids[q], current.getVersion(), text(q, count), options);
+                                break;
+                            } catch (StaleQuestionException stale) {
+                                conflicts.increment();
+                            }
+                        }
+                        saved.incrementAndGet(q);
+                    } catch (Exception ex) {
+                        errors.increment();
+                        ex.printStackTrace();
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.MINUTES);
+        double seconds = (System.nanoTime() - t0) / 1e9;
+
+        long total = 0, lost = 0;
+        boolean ok = errors.sum() == 0;
+        for (int q = 0; q < questions; q++) {
+            Question stored = Repositories.questions().findById(ids[q]);
+            total += saved.get(q);
+            lost += saved.get(q) - counter(stored);
+            if (!optionIds(stored).equals(optionIds.get(q))) {
+                System.out.println("question " + ids[q] + ": option ids changed " + optionIds.get(q) + " -> "
+                        + optionIds(stored));
+                ok = false;
+            }
+            if (versioned && (counter(stored) != saved.get(q) || stored.getVersion() != saved.get(q))) {
+                System.out.println("question " + ids[q] + ": " + saved.get(q) + " edits saved, counter "
+                        + counter(stored) + ", version " + stored.getVersion());
+                ok = false;
+            }
+        }
+        System.out.printf("%s %s,%d,%d,%d,%d,%d,%.0f,%d%n", backend, versioned ? "versioned" : "lastWriteWins", editors,
+                questions, total, conflicts.sum(), lost, total / seconds, errors.sum());
+        Repositories.categories().delete(catId);
+        return ok;
+    }
+
+    private static String text(int q, int count) {
+        return "Question " + q + " edit " + count;
+    }
+
+    private static int counter(Question q) {
+        return Integer.parseInt(q.getText().substring(q.getText().lastIndexOf(' ') + 1));
+    }
+
+    private static List<Integer> optionIds(Question q) {
+        List<Integer> list = new ArrayList<>();
+        for (Option o : q.getOptions())
+            list.add(o.getId());
+        return list;
+    }
+}
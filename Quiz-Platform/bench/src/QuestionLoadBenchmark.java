@@ -0,0 +1,132 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * QuestionLoadBenchmark - compares the old per-question options query (N+1) against
+ * QuestionLoader's single JOIN, for growing category sizes.
+ *
+ * Needs the quizdb schema reachable through DBConnection. Each run seeds a throw-away
+ * category with N questions x 4 options, measures both loaders and deletes it again.
+ * Output is one CSV line per (loader, questionCount).
+ *
+ * Usage: java QuestionLoadBenchmark [warmupRounds] [measuredRounds]
+ */
+public class QuestionLoadBenchmark {
+    private static final int[] SIZES = { 10, 50, 200, 1000 };
+
+    public static void main(String[] args) throws SQLException {
+        int warmup = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        System.out.println("loader,questions,round_trips,avg_ms,min_ms");
+        for (int n : SIZES) {
+            int catId = seedCategory(n);
+            try {
+                run("n_plus_one", n, warmup, rounds, c -> loadNPlusOne(c, catId));
+                run("join", n, warmup, rounds, c -> {
+                    QuestionLoader.loadCategory(c, catId);
+                    return 1;
+                });
+            } finally {
+                dropCategory(catId);
+            }
+        }
+        System.err.println("Pool: " + DBConnection.poolStats());
+    }
+
+    interface Loader {
+        // returns the number of statements executed (round trips)
+        int load(Connection c) throws SQLException;
+    }
+
+    private static void run(String name, int n, int warmup, int rounds, Loader loader) throws SQLException {
+        int trips = 0;
+        long total = 0, min = Long.MAX_VALUE;
+        for (int i = 0; i < warmup + rounds; i++) {
+            try (Connection c = DBConnection.getConnection()) {
+                long t0 = System.nanoTime();
+                trips = loader.load(c);
+                long dt = System.nanoTime() - t0;
+                if (i >= warmup) {
+                    total += dt;
+                    min = Math.min(min, dt);
+                }
+            }
+        }
+        System.out.printf("%s,%d,%d,%.3f,%.3f%n", name, n, trips, total / 1e6 / rounds, min / 1e6);
+    }
+
+    // The loading code QuizWindow used before QuestionLoader, kept here as the baseline
+    static int loadNPlusOne(Connection c, int categoryId) throws SQLException {
+        int trips = 0;
+        List<Question> questions = new ArrayList<>();
+        try (PreparedStatement qp = c.prepareStatement("SELECT id, text FROM questions WHERE category_id = ?");
+             PreparedStatement op = c.prepareStatement("SELECT id, text, is_correct FROM options WHERE question_id = ?")) {
+            qp.setInt(1, categoryId);
+            trips++;
+            try (ResultSet qrs = qp.executeQuery()) {
+                while (qrs.next()) {
+                    int qid = qrs.getInt("id");
+                    List<Option> options = new ArrayList<>();
+                    op.setInt(1, qid);
+                    trips++;
+                    try (ResultSet ors = op.executeQuery()) {
+                        while (ors.next())
+                            options.add(new Option(ors.getInt("id"), ors.getString("text"), ors.getInt("is_correct") == 1));
+                    }
+                    questions.add(new Question(qid, qrs.getString("text"), options));
+                }
+            }
+        }
+        return trips;
+    }
+
+    private static int seedCategory(int n) throws SQLException {
+        try (Connection c = DBConnection.getConnection()) {
+            c.setAutoCommit(false);
+            int catId;
+            try (PreparedStatement ps = c.prepareStatement("INSERT INTO categories(name) VALUES(?)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                ps.setString(1, "bench-" + n + "-" + System.nanoTime());
+                ps.executeUpdate();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    keys.next();
+                    catId = keys.getInt(1);
+                }
+            }
+            try (PreparedStatement psQ = c.prepareStatement("INSERT INTO questions(category_id, text) VALUES(?, ?)",
+                    Statement.RETURN_GENERATED_KEYS);
+                 PreparedStatement psO = c.prepareStatement(
+                    "INSERT INTO options(question_id, text, is_correct) VALUES(?, ?, ?)")) {
+                for (int i = 0; i < n; i++) {
+                    psQ.setInt(1, catId);
+                    psQ.setString(2, "Benchmark question " + i);
+                    psQ.executeUpdate();
+                    int qid;
+                    try (ResultSet keys = psQ.getGeneratedKeys()) {
+                        keys.next();
+                        qid = keys.getInt(1);
+                    }
+                    for (int o = 0; o < 4; o++) {
+                        psO.setInt(1, qid);
+                        psO.setString(2, "Option " + o);
+                        psO.setInt(3, o == 0 ? 1 : 0);
+                        psO.addBatch();
+                    }
+                }
+                psO.executeBatch();
+            }
+            c.commit();
+            return catId;
+        }
+    }
+
+    private static void dropCategory(int catId) throws SQLException {
+        try (Connection c = DBConnection.getConnection();
+             PreparedStatement ps = c.prepareStatement("DELETE FROM categories WHERE id = ?")) {
+            ps.setInt(1, catId);
+            ps.executeUpdate();
+        }
+    }
+}
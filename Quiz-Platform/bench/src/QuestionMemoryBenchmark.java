@@ -0,0 +1,79 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * QuestionMemoryBenchmark - heap retained by a large question bank as Question/Option objects
+ * and as a CompactQuestionBank, plus the cost of reading it back.
+ *
+ * Builds N questions of 4 options (unique question texts; option texts mixing stock answers
+ * such as "True"/"False" with question-specific ones) and measures the live heap after a
+ * full GC with each form held. Run with enough heap for both, e.g. -Xmx3g for the default 1M.
+ *
+ * Usage: java QuestionMemoryBenchmark [questions]
+ */
+public class QuestionMemoryBenchmark {
+    private static final String[] STOCK = { "True", "False", "All of the above", "None of the above" };
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        long base = usedHeap();
+        List<Question> objects = build(n);
+        long objectBytes = usedHeap() - base;
+
+        long t0 = System.nanoTime();
+        CompactQuestionBank compact = CompactQuestionBank.of(objects);
+        double buildMs = (System.nanoTime() - t0) / 1e6;
+        objects = null;
+        long compactBytes = usedHeap() - base;
+
+        System.out.println("form,questions,heap_mb,bytes_per_question");
+        System.out.printf("objects,%d,%.1f,%.0f%n", n, objectBytes / 1e6, (double) objectBytes / n);
+        System.out.printf("compact,%d,%.1f,%.0f%n", n, compactBytes / 1e6, (double) compactBytes / n);
+        System.out.printf("compact arrays: %.1f MB, built in %.0f ms%n", compact.footprintBytes() / 1e6, buildMs);
+
+        // reading back: what a quiz start costs per question drawn
+        List<Question> plain = build(Math.min(n, 100_000));
+        CompactQuestionBank small = CompactQuestionBank.of(plain);
+        for (int round = 0; round < 3; round++) {
+            System.out.printf("get ns/question: objects=%.0f compact=%.0f%n", readNanos(plain), readNanos(small));
+        }
+        System.exit(0);
+    }
+
+    private static List<Question> build(int n) {
+        List<Question> list = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            List<Option> options = new ArrayList<>(4);
+            for (int o = 0; o < 4; o++) {
+                String text = (i + o) % 3 == 0 ? STOCK[(i + o) % STOCK.length] : "Answer " + o + " to question " + i;
+                options.add(new Option(4 * i + o + 1, text, o == i % 4));
+            }
+            list.add(new Question(i + 1, "Question " + i + ": which of these statements about topic " + (i % 997)
+                    + " is correct?", options));
+        }
+        return list;
+    }
+
+    private static double readNanos(List<Question> bank) {
+        long sum = 0;
+        long t0 = System.nanoTime();
+        for (int i = 0; i < bank.size(); i++) {
+            Question q = bank.get(i);
+            sum += q.getId() + q.getText().length() + q.getOptions().size();
+        }
+        double ns = (double) (System.nanoTime() - t0) / bank.size();
+        if (sum == 42)
+            System.out.println();
+        return ns;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
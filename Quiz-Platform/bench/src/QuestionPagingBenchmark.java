@@ -0,0 +1,91 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * QuestionPagingBenchmark - time to open a large category in the admin table, against embedded H2.
+ *
+ * Seeds two categories of N questions and switches between them the way AdminWindow does:
+ * before, listQuestions read the whole category; now PagedQuestionModel reads the count and
+ * the first page (listPage), then pages further down on demand. Also times a jump to the
+ * middle of the category (idAfter + listPage) and a text search.
+ *
+ * Usage: java QuestionPagingBenchmark [questionsPerCategory] [switches]
+ */
+public class QuestionPagingBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int switches = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        EmbeddedDb.use("pagingbench");
+        Repositories.useJdbc();
+        int[] cats = { seed("big-a", n), seed("big-b", n) };
+        QuestionRepository repo = Repositories.questions();
+        int page = PagedQuestionModel.PAGE_SIZE;
+
+        System.out.println("operation,questions,switches,avg_ms,max_ms");
+        double[] all = time(switches, i -> repo.listQuestions(cats[i % 2]).size());
+        report("listQuestions", n, switches, all);
+        double[] first = time(switches, i -> {
+            int cat = cats[i % 2];
+            return repo.countQuestions(cat, null) + repo.listPage(cat, null, 0, page).size();
+        });
+        report("count+firstPage", n, switches, first);
+        double[] middle = time(switches, i -> {
+            int cat = cats[i % 2];
+            int after = repo.idAfter(cat, null, 0, n / 2 - 1);
+            return repo.listPage(cat, null, after, page).size();
+        });
+        report("jumpToMiddle", n, switches, middle);
+        double[] search = time(switches, i -> {
+            int cat = cats[i % 2];
+            return repo.countQuestions(cat, "question 4") + repo.listPage(cat, "QUESTION 4", 0, page).size();
+        });
+        report("search+firstPage", n, switches, search);
+
+        if (first[1] >= 100)
+            System.out.printf("WARNING: switching categories took %.1f ms (target < 100 ms)%n", first[1]);
+        System.exit(0);
+    }
+
+    private interface Load {
+        int run(int i) throws Exception;
+    }
+
+    // {avg, max} in milliseconds over the measured switches, after a few warm-up rounds
+    private static double[] time(int switches, Load load) throws Exception {
+        for (int i = 0; i < 3; i++)
+            load.run(i);
+        double total = 0, max = 0;
+        for (int i = 0; i < switches; i++) {
+            long t0 = System.nanoTime();
+            if (load.run(i) == 0)
+                throw new IllegalStateException("No rows loaded");
+            double ms = (System.nanoTime() - t0) / 1e6;
+            total += ms;
+            max = Math.max(max, ms);
+        }
+        return new double[] { total / switches, max };
+    }
+
+    private static void report(String op, int n, int switches, double[] t) {
+        System.out.printf("%s,%d,%d,%.2f,%.2f%n", op, n, switches, t[0], t[1]);
+    }
+
+    private static int seed(String name, int n) throws Exception {
+        int catId = Repositories.categories().create(name);
+        List<Question> batch = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            List<Option> options = new ArrayList<>(4);
+            for (int o = 0; o < 4; o++)
+                options.add(new Option(0, "Option " + o, o == 0));
+            batch.add(new Question(0, "Question " + i + " of " + name, options));
+            if (batch.size() == 5_000) {
+                Repositories.questions().createAll(catId, batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty())
+            Repositories.questions().createAll(catId, batch);
+        return catId;
+    }
+}
@@ -0,0 +1,199 @@
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * QuizBenchmarks - benchmarks for the quiz data and scoring paths.
+ *
+ * JDBC paths run against an embedded in-memory H2 database in MySQL mode (DBConnection
+ * is pointed at it through -Dquiz.db.url), the rest against InMemoryDataStore, so no
+ * MySQL server is needed. Covered: question loading (N+1 vs JOIN), scoring, category
+ * listing, login lookup, the admin question save, ranking a score (SQL COUNT scan vs
+ * the in-memory Leaderboard) and drawing a quiz (ORDER BY RAND() vs QuestionSampler).
+ *
+ * Options: -o results.json   write JMH-format JSON results
+ *          -b previous.json  compare with an earlier run, exit code 2 on regressions
+ *          -f name           only run benchmarks whose name contains this text
+ *          -wi N -i N -t ms  warm-up iterations, measured iterations, iteration time
+ */
+public class QuizBenchmarks {
+    private static final int[] QUESTION_COUNTS = { 50, 200, 1000 };
+    private static final int RANK_RESULTS = 200_000;
+    private static final int QUIZ_SIZE = 20;
+    private static final int SAMPLE_BANK = 100_000;
+
+    public static void main(String[] args) throws Exception {
+        String out = null, baseline = null, filter = null;
+        int warmup = 3, iterations = 5;
+        long iterationMillis = 1000;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-o": out = args[++i]; break;
+                case "-b": baseline = args[++i]; break;
+                case "-f": filter = args[++i]; break;
+                case "-wi": warmup = Integer.parseInt(args[++i]); break;
+                case "-i": iterations = Integer.parseInt(args[++i]); break;
+                case "-t": iterationMillis = Long.parseLong(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        EmbeddedDb.use("quizbench");
+
+        BenchmarkHarness h = new BenchmarkHarness(warmup, iterations, iterationMillis, filter);
+        runJdbc(h);
+        runInMemory(h);
+
+        if (out != null)
+            h.writeJson(Paths.get(out));
+        if (baseline != null) {
+            Path b = Paths.get(baseline);
+            int regressions = h.compare(b, 10.0);
+            if (regressions > 0) {
+                System.out.println(regressions + " benchmark(s) regressed");
+                System.exit(2);
+            }
+        }
+        System.exit(0);
+    }
+
+    private static void runJdbc(BenchmarkHarness h) throws Exception {
+        Repositories.useJdbc();
+        Random rnd = new Random(42);
+        int largest = 0;
+        for (int n : QUESTION_COUNTS) {
+            int catId = seedCategory(n);
+            largest = catId;
+            String size = String.valueOf(n);
+            h.run("questionLoad.nPlusOne", BenchmarkHarness.params("questions", size), () -> {
+                try (Connection c = DBConnection.getConnection()) {
+                    return QuestionLoadBenchmark.loadNPlusOne(c, catId);
+                }
+            });
+            h.run("questionLoad.join", BenchmarkHarness.params("questions", size), () -> {
+                try (Connection c = DBConnection.getConnection()) {
+                    return QuestionLoader.loadCategory(c, catId);
+                }
+            });
+
+            List<Question> questions = Repositories.questions().loadCategory(catId);
+            int[] selected = new int[questions.size()];
+            for (int i = 0; i < selected.length; i++)
+                selected[i] = rnd.nextInt(5) - 1; // -1 = unanswered
+            h.run("scoring", BenchmarkHarness.params("questions", size),
+                    () -> QuizSession.computeScore(questions, selected));
+        }
+        Repositories.users().create("bench-user", "secret", "user");
+        runRepositoryBenchmarks(h, "jdbc");
+        runRankBenchmarks(h, rnd);
+        runSamplingBenchmarks(h, largest);
+    }
+
+    // QUIZ_SIZE random questions of a category: in the database vs from the cached bank
+    private static void runSamplingBenchmarks(BenchmarkHarness h, int catId) throws Exception {
+        String size = String.valueOf(QUESTION_COUNTS[QUESTION_COUNTS.length - 1]);
+        h.run("sample.orderByRand", BenchmarkHarness.params("questions", size), () -> {
+            try (Connection c = DBConnection.getConnection();
+                    PreparedStatement ps = c.prepareStatement(
+                            "SELECT id FROM questions WHERE category_id = ? ORDER BY RAND() LIMIT ?")) {
+                ps.setInt(1, catId);
+                ps.setInt(2, QUIZ_SIZE);
+                List<Integer> ids = new ArrayList<>(QUIZ_SIZE);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next())
+                        ids.add(rs.getInt(1));
+                }
+                return ids;
+            }
+        });
+        QuestionSampler sampler = new QuestionSampler(new QuestionSampler.Config().questionsPerQuiz(QUIZ_SIZE));
+        List<Question> bank = Repositories.questions().loadCategory(catId);
+        long[] seed = { 0 };
+        h.run("sample.sampler", BenchmarkHarness.params("questions", size),
+                () -> sampler.draw((int) (seed[0] % 1000), catId, bank, seed[0]++));
+
+        List<Question> large = new ArrayList<>(SAMPLE_BANK);
+        for (int i = 0; i < SAMPLE_BANK; i++)
+            large.add(bank.get(i % bank.size()));
+        h.run("sample.sampler", BenchmarkHarness.params("questions", String.valueOf(SAMPLE_BANK)),
+                () -> sampler.draw((int) (seed[0] % 1000), -1, large, seed[0]++));
+    }
+
+    // Rank of a score among RANK_RESULTS results of one category
+    private static void runRankBenchmarks(BenchmarkHarness h, Random rnd) throws Exception {
+        List<ResultRecord> batch = new ArrayList<>();
+        for (int i = 0; i < RANK_RESULTS; i++) {
+            batch.add(new ResultRecord(i % 5000, 1, rnd.nextInt(51)));
+            if (batch.size() == 5000) {
+                Repositories.results().saveBatch(batch);
+                batch.clear();
+            }
+        }
+        Leaderboard.reset();
+        Leaderboard board = Leaderboard.shared();
+        String size = String.valueOf(RANK_RESULTS);
+        int[] score = { 0 };
+        h.run("rank.sqlCount", BenchmarkHarness.params("results", size), () -> {
+            try (Connection c = DBConnection.getConnection();
+                    PreparedStatement ps = c.prepareStatement(
+                            "SELECT COUNT(*) FROM results WHERE category_id = ? AND score > ?")) {
+                ps.setInt(1, 1);
+                ps.setInt(2, score[0]++ % 51);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    return rs.getLong(1) + 1;
+                }
+            }
+        });
+        h.run("rank.leaderboard", BenchmarkHarness.params("results", size),
+                () -> board.standing(1, score[0]++ % 51).getRank());
+        h.run("stats.leaderboard", BenchmarkHarness.params("results", size), () -> board.stats(1));
+    }
+
+    private static void runInMemory(BenchmarkHarness h) throws Exception {
+        Repositories.useInMemory(new InMemoryDataStore());
+        for (int n : QUESTION_COUNTS)
+            seedCategory(n);
+        Repositories.users().create("bench-user", "secret", "user");
+        runRepositoryBenchmarks(h, "memory");
+    }
+
+    private static void runRepositoryBenchmarks(BenchmarkHarness h, String backend) throws Exception {
+        List<Category> categories = Repositories.categories().findAll();
+        int catId = categories.get(0).getId();
+        List<Question> existing = Repositories.questions().listQuestions(catId);
+        Question target = existing.get(existing.size() / 2);
+        int[] flip = { 0 };
+
+        h.run("categoryList", BenchmarkHarness.params("backend", backend),
+                () -> Repositories.categories().findAll());
+        h.run("login.lookup", BenchmarkHarness.params("backend", backend),
+                () -> Repositories.users().findByUsername("bench-user"));
+        h.run("admin.questionSave", BenchmarkHarness.params("backend", backend), () -> {
+            // same shape as the dialog's edit path: new text, 4 options, one correct
+            int correct = flip[0]++ & 3;
+            Repositories.questions().update(target.getId(), "Edited " + correct, options(correct));
+            return null;
+        });
+    }
+
+    private static int seedCategory(int n) throws SQLException {
+        int catId = Repositories.categories().create("bench-" + n);
+        for (int q = 0; q < n; q++)
+            Repositories.questions().create(catId, "Benchmark question " + q, options(q & 3));
+        return catId;
+    }
+
+    private static List<Option> options(int correct) {
+        List<Option> list = new ArrayList<>(4);
+        for (int i = 0; i < 4; i++)
+            list.add(new Option(0, "Option " + i, i == correct));
+        return list;
+    }
+}
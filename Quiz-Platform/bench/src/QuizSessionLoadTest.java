@@ -0,0 +1,112 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * QuizSessionLoadTest - drives many simulated quiz takers through QuizEngine at once.
+ *
+ * Every taker runs on its own (virtual, where available) thread: start a session, answer
+ * questions while navigating back and forth, then submit. All sessions share one in-memory
+ * question bank. Each submitted score is checked against an independent recount, and the
+ * number of saved results must match the number of sessions.
+ *
+ * Usage: java QuizSessionLoadTest [sessions] [categories] [questionsPerCategory]
+ */
+public class QuizSessionLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int categories = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int perCategory = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+
+        InMemoryDataStore store = new InMemoryDataStore();
+        Repositories.useInMemory(store);
+        List<Integer> categoryIds = new ArrayList<>();
+        for (int c = 0; c < categories; c++) {
+            int catId = Repositories.categories().create("load-" + c);
+            for (int q = 0; q < perCategory; q++) {
+                List<Option> options = new ArrayList<>(4);
+                for (int o = 0; o < 4; o++)
+                    options.add(new Option(0, "Option " + o, o == q % 4));
+                Repositories.questions().create(catId, "Question " + q, options);
+            }
+            categoryIds.add(catId);
+        }
+
+        QuizEngine engine = new QuizEngine(QuestionBankCache.shared());
+        CountDownLatch ready = new CountDownLatch(sessions);
+        CountDownLatch go = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(sessions);
+        AtomicInteger mismatches = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+        AtomicInteger maxOpen = new AtomicInteger();
+        LongAdder answers = new LongAdder();
+        long[] latencies = new long[sessions];
+
+        ExecutorService executor = VirtualThreads.newPerTaskExecutor("taker");
+        for (int i = 0; i < sessions; i++) {
+            int taker = i;
+            executor.execute(() -> {
+                Random rnd = new Random(taker);
+                ready.countDown();
+                try {
+                    go.await();
+                    long t0 = System.nanoTime();
+                    QuizSession s = engine.start(taker, categoryIds.get(taker % categoryIds.size()));
+                    maxOpen.accumulateAndGet(engine.openSessions(), Math::max);
+                    int[] expected = new int[s.size()];
+                    Arrays.fill(expected, -1);
+                    for (int step = 0; step < s.size() * 2; step++) {
+                        int choice = rnd.nextInt(5) - 1;
+                        s.answerCurrent(choice);
+                        expected[s.cursor()] = choice;
+                        answers.increment();
+                        if (rnd.nextInt(4) == 0)
+                            s.prev();
+                        else if (!s.next())
+                            break;
+                        if (rnd.nextInt(8) == 0)
+                            Thread.yield(); // let other takers interleave
+                    }
+                    int expectedScore = 0;
+                    for (int q = 0; q < s.size(); q++)
+                        if (expected[q] >= 0 && s.question(q).getOptions().get(expected[q]).isCorrect())
+                            expectedScore++;
+                    ResultRecord r = engine.submit(s);
+                    latencies[taker] = System.nanoTime() - t0;
+                    if (r.getScore() != expectedScore)
+                        mismatches.incrementAndGet();
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                    e.printStackTrace();
+                } finally {
+                    finished.countDown();
+                }
+            });
+        }
+        ready.await();
+        long start = System.nanoTime();
+        go.countDown();
+        finished.await(5, TimeUnit.MINUTES);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        executor.shutdown();
+        ResultSink.shared().flush(60_000);
+
+        Arrays.sort(latencies);
+        System.out.println("virtual_threads,sessions,seconds,sessions_per_s,answers_per_s,p50_ms,p99_ms,max_open,"
+                + "mismatches,failures,saved_results,open_after");
+        System.out.printf("%s,%d,%.3f,%.0f,%.0f,%.3f,%.3f,%d,%d,%d,%d,%d%n", VirtualThreads.available(), sessions,
+                seconds, sessions / seconds, answers.sum() / seconds, latencies[sessions / 2] / 1e6,
+                latencies[(int) (sessions * 0.99)] / 1e6, maxOpen.get(), mismatches.get(), failures.get(),
+                store.savedResults().size(), engine.openSessions());
+        if (mismatches.get() > 0 || failures.get() > 0 || store.savedResults().size() != sessions)
+            System.exit(1);
+        System.exit(0);
+    }
+}
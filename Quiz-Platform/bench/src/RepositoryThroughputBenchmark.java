@@ -0,0 +1,84 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * RepositoryThroughputBenchmark - mixed read/write load against the repositories.
+ *
+ * Runs against InMemoryDataStore by default, so it needs no database; pass "jdbc" as
+ * the first argument to drive MySQL through DBConnection instead.
+ * Each thread loops: load a category (90%), save a result (9%), update a question (1%).
+ *
+ * Usage: java RepositoryThroughputBenchmark [memory|jdbc] [threads] [seconds]
+ */
+public class RepositoryThroughputBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        String backend = args.length > 0 ? args[0] : "memory";
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        if ("memory".equals(backend))
+            Repositories.useInMemory(new InMemoryDataStore());
+        List<Integer> categoryIds = seed(5, 200);
+
+        LongAdder reads = new LongAdder(), writes = new LongAdder(), errors = new LongAdder();
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            int seed = t;
+            pool.execute(() -> {
+                java.util.Random rnd = new java.util.Random(seed);
+                while (System.nanoTime() < end) {
+                    int catId = categoryIds.get(rnd.nextInt(categoryIds.size()));
+                    int dice = rnd.nextInt(100);
+                    try {
+                        if (dice < 90) {
+                            Repositories.questions().loadCategory(catId);
+                            reads.increment();
+                        } else if (dice < 99) {
+                            Repositories.results().save(new ResultRecord(seed, catId, rnd.nextInt(10)));
+                            writes.increment();
+                        } else {
+                            List<Question> qs = Repositories.questions().listQuestions(catId);
+                            Question q = qs.get(rnd.nextInt(qs.size()));
+                            Repositories.questions().update(q.getId(), q.getText(), options(rnd.nextInt(4)));
+                            writes.increment();
+                        }
+                    } catch (Exception e) {
+                        errors.increment();
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(seconds + 30L, TimeUnit.SECONDS);
+        for (int catId : categoryIds)
+            Repositories.categories().delete(catId);
+
+        System.out.println("backend,threads,seconds,reads_per_s,writes_per_s,errors");
+        System.out.printf("%s,%d,%d,%.0f,%.0f,%d%n", backend, threads, seconds, reads.sum() / (double) seconds,
+                writes.sum() / (double) seconds, errors.sum());
+    }
+
+    private static List<Integer> seed(int categories, int questionsPerCategory) throws Exception {
+        List<Integer> ids = new ArrayList<>();
+        for (int c = 0; c < categories; c++) {
+            int catId = Repositories.categories().create("bench-" + c + "-" + System.nanoTime());
+            for (int q = 0; q < questionsPerCategory; q++)
+                Repositories.questions().create(catId, "Question " + q, options(q % 4));
+            ids.add(catId);
+        }
+        return ids;
+    }
+
+    private static List<Option> options(int correct) {
+        List<Option> list = new ArrayList<>(4);
+        for (int i = 0; i < 4; i++)
+            list.add(new Option(0, "Option " + i, i == correct));
+        return list;
+    }
+}
@@ -0,0 +1,86 @@
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ResultSinkBenchmark - an end-of-exam burst of submissions, synchronous INSERT vs ResultSink.
+ *
+ * N takers submit at the same instant against an embedded H2 database. "direct" calls
+ * JdbcResultRepository.save (one single-row INSERT per submit, the old path); "sink" calls
+ * ResultSink.submit (journal fsync + queue) and then waits for the flusher to drain.
+ * Reports submit latency percentiles, total drain time and the rows that reached the table.
+ *
+ * Usage: java ResultSinkBenchmark [takers]
+ */
+public class ResultSinkBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int takers = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        EmbeddedDb.use("sinkbench");
+        File dir = Files.createTempDirectory("result-sink").toFile();
+
+        JdbcResultRepository direct = new JdbcResultRepository();
+        System.out.println("mode,takers,p50_submit_ms,p99_submit_ms,total_ms,rows");
+        burst("direct", takers, r -> direct.save(r), () -> { });
+
+        ResultSink sink = new ResultSink(new File(dir, "results.journal"), new ResultSink.Config(), direct);
+        burst("sink", takers, sink::submit, () -> sink.flush(60_000));
+        System.err.println("sink: " + sink.stats());
+        sink.close(1000);
+        System.exit(0);
+    }
+
+    interface Submit {
+        void submit(ResultRecord r) throws Exception;
+    }
+
+    interface Drain {
+        void await() throws Exception;
+    }
+
+    private static void burst(String mode, int takers, Submit submit, Drain drain) throws Exception {
+        long before = rows();
+        long[] latencies = new long[takers];
+        CountDownLatch go = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(takers);
+        ExecutorService executor = VirtualThreads.newPerTaskExecutor(mode);
+        for (int i = 0; i < takers; i++) {
+            int taker = i;
+            executor.execute(() -> {
+                try {
+                    go.await();
+                    long t0 = System.nanoTime();
+                    submit.submit(new ResultRecord(taker, 1 + taker % 10, taker % 20));
+                    latencies[taker] = System.nanoTime() - t0;
+                } catch (Exception e) {
+                    e.printStackTrace();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        long start = System.nanoTime();
+        go.countDown();
+        done.await(5, TimeUnit.MINUTES);
+        drain.await();
+        long total = System.nanoTime() - start;
+        executor.shutdown();
+        Arrays.sort(latencies);
+        System.out.printf("%s,%d,%.3f,%.3f,%.1f,%d%n", mode, takers, latencies[takers / 2] / 1e6,
+                latencies[(int) (takers * 0.99)] / 1e6, total / 1e6, rows() - before);
+    }
+
+    private static long rows() throws Exception {
+        try (Connection c = DBConnection.getConnection(); Statement s = c.createStatement();
+                ResultSet rs = s.executeQuery("SELECT COUNT(*) FROM results")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
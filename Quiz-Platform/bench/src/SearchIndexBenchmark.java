@@ -0,0 +1,203 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * SearchIndexBenchmark - QuestionSearchIndex on a large bank: build time, lookup latency,
+ * incremental updates and duplicate detection.
+ *
+ * N questions (in-memory store, 100 categories) are made of words drawn with a Zipf-like
+ * skew from a synthetic vocabulary, like real text. Queries take 1-3 words of a random
+ * question, the last one cut down to a prefix of 3+ letters, and are timed one by one. Every
+ * hit must contain all query words as prefixes; for whole-word queries with few matches, every
+ * question a scan finds with the exact words must be among the hits. Then put/remove and
+ * similar() are timed, and an edited copy of a question must be reported as a near-duplicate.
+ * Run with -Xmx2g for 500k.
+ *
+ * Usage: java SearchIndexBenchmark [questions] [queries]
+ */
+public class SearchIndexBenchmark {
+    private static final int VOCABULARY = 40_000;
+    private static final int LIMIT = 20;
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        String[] words = vocabulary(new SplittableRandom(1));
+        SplittableRandom rnd = new SplittableRandom(2);
+
+        Repositories.useInMemory(new InMemoryDataStore());
+        List<Question> all = new ArrayList<>(n);
+        Map<Integer, Question> byId = new HashMap<>();
+        int perCategory = Math.max(1, n / 100);
+        for (int c = 0; c < n; c += perCategory) {
+            int catId = Repositories.categories().create("category " + c / perCategory);
+            List<Question> batch = new ArrayList<>(perCategory);
+            for (int i = c; i < Math.min(n, c + perCategory); i++) {
+                List<Option> options = new ArrayList<>(4);
+                for (int o = 0; o < 4; o++)
+                    options.add(new Option(0, sentence(words, rnd, 1 + rnd.nextInt(3)), o == 0));
+                batch.add(new Question(0, "Which " + sentence(words, rnd, 6 + rnd.nextInt(7)) + "?", options));
+            }
+            int[] ids = Repositories.questions().createAll(catId, batch);
+            for (int i = 0; i < ids.length; i++)
+                all.add(new Question(ids[i], batch.get(i).getText(), batch.get(i).getOptions()));
+            for (Question q : all.subList(all.size() - ids.length, all.size()))
+                byId.put(q.getId(), q);
+        }
+
+        QuestionSearchIndex index = new QuestionSearchIndex(new QuestionSearchIndex.Config());
+        long t0 = System.nanoTime();
+        index.sync();
+        System.gc();
+        Runtime rt = Runtime.getRuntime();
+        System.out.printf("built in %.0f ms: %s, heap used %d MB (bank included)%n", (System.nanoTime() - t0) / 1e6,
+                index.stats(), (rt.totalMemory() - rt.freeMemory()) >> 20);
+
+        long[] nanos = new long[queries];
+        long hitsTotal = 0;
+        int checked = 0;
+        for (int round = 0; round < 2; round++) { // the first round warms up
+            SplittableRandom qr = new SplittableRandom(3);
+            for (int i = 0; i < queries; i++) {
+                Question source = all.get(qr.nextInt(all.size()));
+                List<String> text = QuestionSearchIndex.tokens(source.getText());
+                text.removeIf(w -> w.equals("which") || w.equals("of") || w.equals("the"));
+                int count = 1 + qr.nextInt(3);
+                boolean prefix = qr.nextBoolean();
+                StringBuilder query = new StringBuilder();
+                List<String> queryWords = new ArrayList<>();
+                for (int w = 0; w < count; w++) {
+                    String word = text.get(qr.nextInt(text.size()));
+                    if (prefix && w == count - 1)
+                        word = word.substring(0, Math.min(word.length(), 3 + qr.nextInt(3)));
+                    if (word.equals("and"))
+                        continue; // a cut-off word that is a stop word is not searched
+                    queryWords.add(word);
+                    query.append(word).append(' ');
+                }
+                long s = System.nanoTime();
+                List<QuestionSearchIndex.Hit> hits = index.search(query.toString(), LIMIT);
+                nanos[i] = System.nanoTime() - s;
+                if (round == 0)
+                    continue;
+                hitsTotal += hits.size();
+                for (QuestionSearchIndex.Hit hit : hits)
+                    if (!containsAll(byId.get(hit.questionId), queryWords, true))
+                        throw new AssertionError("hit " + hit.questionId + " does not match '" + query + "'");
+                if (!prefix && i % 50 == 0 && checked < 30) {
+                    // with at most LIMIT prefix matches nothing is cut off by ranking, and the exact
+                    // words are always searched (only other prefix terms are capped)
+                    Set<Integer> exact = new HashSet<>();
+                    int prefixMatches = 0;
+                    for (Question q : all) {
+                        if (containsAll(q, queryWords, true)) {
+                            prefixMatches++;
+                            if (containsAll(q, queryWords, false))
+                                exact.add(q.getId());
+                        }
+                    }
+                    if (prefixMatches <= LIMIT) {
+                        Set<Integer> got = new HashSet<>();
+                        for (QuestionSearchIndex.Hit hit : hits)
+                            got.add(hit.questionId);
+                        if (!got.containsAll(exact))
+                            throw new AssertionError("'" + query + "' found " + got + ", a scan finds " + exact);
+                        checked++;
+                    }
+                }
+            }
+        }
+        Arrays.sort(nanos);
+        System.out.println("op,count,mean_us,p50_us,p99_us,max_us");
+        report("search", nanos);
+        System.out.printf("%.1f hits per query (limit %d); %d queries checked against a full scan%n",
+                (double) hitsTotal / queries, LIMIT, checked);
+
+        // incremental: re-put edited questions and remove/restore others, as admin saves would
+        int updates = 2_000;
+        long[] put = new long[updates];
+        long[] remove = new long[updates];
+        long[] similar = new long[updates];
+        int found = 0;
+        for (int i = 0; i < updates; i++) {
+            Question q = all.get(rnd.nextInt(all.size()));
+            Question edited = new Question(q.getId(), q.getText() + " " + words[rnd.nextInt(VOCABULARY)], q.getOptions());
+            long s = System.nanoTime();
+            List<QuestionSearchIndex.Match> matches = index.similar(edited.getText(), edited.getOptions(), -1);
+            similar[i] = System.nanoTime() - s;
+            for (QuestionSearchIndex.Match m : matches)
+                if (m.questionId == q.getId())
+                    found++;
+            s = System.nanoTime();
+            index.put(1, edited);
+            put[i] = System.nanoTime() - s;
+            s = System.nanoTime();
+            index.remove(q.getId());
+            remove[i] = System.nanoTime() - s;
+            index.put(1, q);
+        }
+        Arrays.sort(put);
+        Arrays.sort(remove);
+        Arrays.sort(similar);
+        report("put", put);
+        report("remove", remove);
+        report("similar", similar);
+        System.out.printf("near-duplicates found: %d of %d edited copies%n", found, updates);
+        if (found < updates * 0.95)
+            throw new AssertionError("similar() missed near-duplicates");
+        System.out.println("metrics: " + Metrics.timer("search.query").quantileMillis(0.99) + " ms p99 (timer)");
+        System.exit(0);
+    }
+
+    // Every word is a word (or with asPrefix, starts a word) of the question or its options
+    private static boolean containsAll(Question q, List<String> words, boolean asPrefix) {
+        List<String> text = QuestionSearchIndex.tokens(q.getText());
+        for (Option o : q.getOptions())
+            text.addAll(QuestionSearchIndex.tokens(o.getText()));
+        for (String w : words) {
+            boolean ok = false;
+            for (String t : text)
+                if (asPrefix ? t.startsWith(w) : t.equals(w))
+                    ok = true;
+            if (!ok)
+                return false;
+        }
+        return true;
+    }
+
+    private static String[] vocabulary(SplittableRandom rnd) {
+        String[] syllables = { "ka", "lo", "mi", "ne", "tor", "ra", "sen", "qui", "bel", "dor", "fa", "gri", "hu",
+                "jen", "pol", "ste", "var", "wen", "xo", "zu", "an", "ex", "is", "or" };
+        Set<String> seen = new HashSet<>();
+        String[] words = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY;) {
+            StringBuilder w = new StringBuilder();
+            for (int s = 0, len = 2 + rnd.nextInt(3); s < len; s++)
+                w.append(syllables[rnd.nextInt(syllables.length)]);
+            if (seen.add(w.toString()))
+                words[i++] = w.toString();
+        }
+        return words;
+    }
+
+    // Zipf-like: word rank r is drawn with probability about 1/r
+    private static String sentence(String[] words, SplittableRandom rnd, int length) {
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            int rank = (int) Math.exp(rnd.nextDouble() * Math.log(words.length)) - 1;
+            s.append(i == 0 ? "" : i % 4 == 0 ? " of the " : " ").append(words[rank]);
+        }
+        return s.toString();
+    }
+
+    private static void report(String op, long[] sorted) {
+        System.out.printf("%s,%d,%.1f,%.1f,%.1f,%.1f%n", op, sorted.length, Arrays.stream(sorted).average().orElse(0) / 1e3,
+                sorted[sorted.length / 2] / 1e3, sorted[(int) (sorted.length * 0.99)] / 1e3, sorted[sorted.length - 1] / 1e3);
+    }
+}
@@ -0,0 +1,83 @@
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SnapshotBenchmark - cost of the local question snapshot against embedded H2.
+ *
+ * Seeds C categories of N questions, then times a full snapshot write, a delta refresh after
+ * one question was edited, a refresh with nothing changed, opening (mapping) the file, and
+ * reading one category from the mapping against loading it from the database.
+ *
+ * Usage: java SnapshotBenchmark [categories] [questionsPerCategory]
+ */
+public class SnapshotBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int categories = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int n = args.length > 1 ? Integer.parseInt(args[1]) : 5_000;
+        EmbeddedDb.use("snapshotbench");
+        Repositories.useJdbc();
+        int[] cats = new int[categories];
+        for (int c = 0; c < categories; c++)
+            cats[c] = seed("snap-" + c, n);
+        File dir = Files.createTempDirectory("snapshot").toFile();
+        File file = new File(dir, "questions.snapshot"); // generations are written next to it
+
+        System.out.println("operation,categories,questions,ms");
+        long t0 = System.nanoTime();
+        QuestionSnapshot snapshot = QuestionSnapshot.refresh(file, null);
+        report("fullWrite", categories, n, t0);
+
+        Question q = Repositories.questions().listQuestions(cats[0]).get(0);
+        Repositories.questions().update(q.getId(), "Edited", Repositories.questions().findById(q.getId()).getOptions());
+        t0 = System.nanoTime();
+        snapshot = QuestionSnapshot.refresh(file, snapshot);
+        report("deltaRefresh(1 edited)", categories, n, t0);
+
+        t0 = System.nanoTime();
+        snapshot = QuestionSnapshot.refresh(file, snapshot);
+        report("refresh(unchanged)", categories, n, t0);
+
+        t0 = System.nanoTime();
+        snapshot = QuestionSnapshot.open(file);
+        report("open", categories, n, t0);
+
+        int rounds = 20;
+        for (int i = 0; i < 3; i++) {
+            snapshot.questions(cats[i % categories]);
+            Repositories.questions().loadCategory(cats[i % categories]);
+        }
+        t0 = System.nanoTime();
+        for (int i = 0; i < rounds; i++)
+            snapshot.questions(cats[i % categories]);
+        System.out.printf("readCategory(snapshot),%d,%d,%.2f%n", categories, n, (System.nanoTime() - t0) / 1e6 / rounds);
+        t0 = System.nanoTime();
+        for (int i = 0; i < rounds; i++)
+            Repositories.questions().loadCategory(cats[i % categories]);
+        System.out.printf("readCategory(database),%d,%d,%.2f%n", categories, n, (System.nanoTime() - t0) / 1e6 / rounds);
+        System.err.println("snapshot: " + snapshot);
+        for (File f : dir.listFiles())
+            f.delete();
+        dir.delete();
+        System.exit(0);
+    }
+
+    private static void report(String op, int categories, int n, long t0) {
+        System.out.printf("%s,%d,%d,%.1f%n", op, categories, n, (System.nanoTime() - t0) / 1e6);
+    }
+
+    private static int seed(String name, int n) throws Exception {
+        int catId = Repositories.categories().create(name);
+        List<Question> batch = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            List<Option> options = new ArrayList<>(4);
+            for (int o = 0; o < 4; o++)
+                options.add(new Option(0, "Option " + o, o == 0));
+            batch.add(new Question(0, "Question " + i + " of " + name, options));
+        }
+        Repositories.questions().createAll(catId, batch);
+        return catId;
+    }
+}
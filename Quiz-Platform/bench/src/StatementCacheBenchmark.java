@@ -0,0 +1,91 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * StatementCacheBenchmark - per-call cost of the hot point queries with and without the
+ * pool's prepared statement cache, against embedded H2.
+ *
+ * Each call does what the repositories do: borrow a connection, prepare, bind, execute,
+ * read, close. Runs the same mix through a pool with statementCacheSize 0 (every call
+ * prepares, as before) and one with the default size, then prints both pools' stats
+ * (reuse rate and estimated prepare time saved).
+ *
+ * Usage: java StatementCacheBenchmark [calls] [cacheSize]
+ */
+public class StatementCacheBenchmark {
+    private static final String[] QUERIES = {
+            "SELECT id, role, password FROM users WHERE username = ?",
+            "SELECT id, text, is_correct FROM options WHERE question_id = ? ORDER BY id LIMIT 4",
+            "SELECT COUNT(*) FROM results WHERE category_id = ? AND score > ?",
+            "SELECT category_id, score FROM results WHERE user_id = ?",
+    };
+
+    public static void main(String[] args) throws Exception {
+        int calls = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int cacheSize = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        EmbeddedDb.use("stmtcachebench");
+        Repositories.useJdbc();
+        int[] ids = seed();
+
+        System.out.println("statementCacheSize,calls,avg_us,prepare_saved_ms,reuse");
+        for (int size : new int[] { 0, cacheSize }) {
+            ConnectionPool pool = new ConnectionPool(new ConnectionPool.Config(System.getProperty("quiz.db.url"),
+                    "sa", "").maxSize(1).minIdle(1).statementCacheSize(size));
+            run(pool, calls / 10, ids); // warm-up
+            long t0 = System.nanoTime();
+            long rows = run(pool, calls, ids);
+            double us = (System.nanoTime() - t0) / 1e3 / calls;
+            ConnectionPool.Stats stats = pool.stats();
+            System.out.printf("%d,%d,%.2f,%.1f,%.0f%%%n", size, calls, us, stats.savedMillis(),
+                    100 * stats.statementReuseRate());
+            System.err.println("pool(" + size + "): " + stats + " rows=" + rows);
+            pool.shutdown();
+        }
+        System.exit(0);
+    }
+
+    private static long run(ConnectionPool pool, int calls, int[] ids) throws Exception {
+        long rows = 0;
+        for (int i = 0; i < calls; i++) {
+            int q = i % QUERIES.length;
+            try (Connection c = pool.getConnection(); PreparedStatement ps = c.prepareStatement(QUERIES[q])) {
+                switch (q) {
+                    case 0: ps.setString(1, "user" + (i % 100)); break;
+                    case 1: ps.setInt(1, ids[i % ids.length]); break;
+                    case 2: ps.setInt(1, ids[0]); ps.setInt(2, i % 10); break;
+                    default: ps.setInt(1, i % 100); break;
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next())
+                        rows++;
+                }
+            }
+        }
+        return rows;
+    }
+
+    // 100 users with results in one category of 500 questions; returns the question ids
+    private static int[] seed() throws Exception {
+        int catId = Repositories.categories().create("stmt-cache");
+        List<Question> batch = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            List<Option> options = new ArrayList<>(4);
+            for (int o = 0; o < 4; o++)
+                options.add(new Option(0, "Option " + o, o == 0));
+            batch.add(new Question(0, "Question " + i, options));
+        }
+        Repositories.questions().createAll(catId, batch);
+        for (int u = 0; u < 100; u++) {
+            int userId = Repositories.users().create("user" + u, "secret", "user");
+            Repositories.results().save(new ResultRecord(userId, catId, u % 10));
+        }
+        List<Question> questions = Repositories.questions().listQuestions(catId);
+        int[] ids = new int[questions.size()];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = questions.get(i).getId();
+        return ids;
+    }
+}
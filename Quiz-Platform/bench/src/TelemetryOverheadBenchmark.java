@@ -0,0 +1,104 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TelemetryOverheadBenchmark - what AnswerTelemetry adds to the answer path.
+ *
+ * Measures the ns/op of AnswerTelemetry.record() alone (enabled vs disabled, drained into an
+ * in-memory store) and of a QuizSession answer + Next step, whose events the shared instance
+ * drains into an embedded H2 answer_events table, from 1..N threads. Run it once more with
+ * -Dquiz.telemetry=false for the session baseline. The target is under 1 µs added per answer.
+ *
+ * Usage: java [-Dquiz.telemetry=false] TelemetryOverheadBenchmark [threads] [opsPerThread]
+ */
+public class TelemetryOverheadBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int ops = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+        EmbeddedDb.use("telemetrybench");
+        Repositories.useJdbc();
+
+        List<Question> questions = new ArrayList<>();
+        for (int q = 0; q < 20; q++) {
+            List<Option> options = new ArrayList<>();
+            for (int o = 0; o < 4; o++)
+                options.add(new Option(q * 4 + o + 1, "Option " + o, o == 0));
+            questions.add(new Question(q + 1, "Question " + q, options));
+        }
+
+        InMemoryDataStore store = new InMemoryDataStore();
+        AnswerTelemetry on = new AnswerTelemetry(new AnswerTelemetry.Config(), store.answerEvents(), true);
+        AnswerTelemetry off = new AnswerTelemetry(new AnswerTelemetry.Config(), store.answerEvents(), false);
+
+        System.out.println("case,threads,ns_per_op");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            for (int round = 0; round < 2; round++) { // the first round is warm-up
+                boolean print = round == 1;
+                run("record.on", threads, ops, print, i -> on.record(i, 1, 1 + (int) (i % 20), 1, AnswerEvents.ANSWER, i));
+                on.flush(30_000);
+                run("record.off", threads, ops, print, i -> off.record(i, 1, 1 + (int) (i % 20), 1, AnswerEvents.ANSWER, i));
+                run("session.answerNext", threads, ops / 10, print, new SessionOp(questions));
+                AnswerTelemetry.shared().flush(30_000);
+            }
+        }
+        System.err.println("private: " + on.stats());
+        System.err.println("shared:  " + AnswerTelemetry.shared().stats());
+        System.exit(0);
+    }
+
+    interface Op {
+        void run(long i);
+    }
+
+    // One session per thread: answer the current question, then move on (wrapping round)
+    private static class SessionOp implements Op {
+        private final List<Question> questions;
+        private final ThreadLocal<QuizSession> session;
+
+        SessionOp(List<Question> questions) {
+            this.questions = questions;
+            AtomicLong ids = new AtomicLong();
+            this.session = ThreadLocal.withInitial(() -> new QuizSession(ids.incrementAndGet(), 1, 1, this.questions));
+        }
+
+        @Override
+        public void run(long i) {
+            QuizSession s = session.get();
+            s.answerCurrent((int) (i & 3));
+            if (!s.next())
+                s.goTo(0);
+        }
+    }
+
+    private static void run(String name, int threads, int ops, boolean print, Op op) throws InterruptedException {
+        CountDownLatch go = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        long[] nanos = new long[threads];
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            workers[t] = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException ie) {
+                    return;
+                }
+                long t0 = System.nanoTime();
+                for (long i = 0; i < ops; i++)
+                    op.run(i);
+                nanos[worker] = System.nanoTime() - t0;
+            });
+            workers[t].start();
+        }
+        go.countDown();
+        for (Thread w : workers)
+            w.join();
+        long total = 0;
+        for (long n : nanos)
+            total += n;
+        if (print)
+            System.out.printf("%s,%d,%.1f%n", name, threads, (double) total / ((long) ops * threads));
+    }
+}
@@ -1,19 +1,32 @@
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
-import java.sql.*;
+import java.io.File;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * AdminWindow - full CRUD panel for categories and questions (4 options each).
- * Requires DB tables: categories, questions, options, and a valid DBConnection.
+ * Reads and writes through Repositories (MySQL via DBConnection by default).
  */
 public class AdminWindow extends JFrame {
     private JTable categoryTable, questionTable;
-    private DefaultTableModel categoryModel, questionModel;
-    private JButton addCatBtn, renameCatBtn, deleteCatBtn;
+    private DefaultTableModel categoryModel;
+    private PagedQuestionModel questionModel;
+    private JTextField searchField;
+    private JButton searchAllBtn;
+    private JButton addCatBtn, renameCatBtn, deleteCatBtn, regradeBtn;
     private JButton addQBtn, editQBtn, deleteQBtn;
+    private JButton importBtn, exportBtn;
+    private JButton statsBtn;
     private JTextArea statusArea;
 
     // --- Data Models ---
@@ -41,11 +54,17 @@ public class AdminWindow extends JFrame {
     public static class QuestionDetails {
         private Integer id; // Null if adding a new question
         private String questionText;
+        private int version; // What an edit of these details expects to overwrite
         private List<OptionDetails> options = new ArrayList<>();
 
         public QuestionDetails(Integer id, String questionText) {
+            this(id, questionText, 0);
+        }
+
+        public QuestionDetails(Integer id, String questionText, int version) {
             this.id = id;
             this.questionText = questionText;
+            this.version = version;
         }
 
         public Integer getId() {
@@ -56,6 +75,10 @@ public class AdminWindow extends JFrame {
             return questionText;
         }
 
+        public int getVersion() {
+            return version;
+        }
+
         public List<OptionDetails> getOptions() {
             return options;
         }
@@ -74,6 +97,7 @@ public class AdminWindow extends JFrame {
         setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
         initUI();
         loadCategories();
+        syncSearchIndex();
     }
 
     private void initUI() {
@@ -93,36 +117,46 @@ public class AdminWindow extends JFrame {
         categoryTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         leftPanel.add(new JScrollPane(categoryTable), BorderLayout.CENTER);
 
-        JPanel catBtnPanel = new JPanel(new GridLayout(3, 1, 6, 6));
+        JPanel catBtnPanel = new JPanel(new GridLayout(4, 1, 6, 6));
         addCatBtn = new JButton("Add Category");
         renameCatBtn = new JButton("Rename Category");
         deleteCatBtn = new JButton("Delete Category");
+        regradeBtn = new JButton("Regrade Category");
         catBtnPanel.add(addCatBtn);
         catBtnPanel.add(renameCatBtn);
         catBtnPanel.add(deleteCatBtn);
+        catBtnPanel.add(regradeBtn);
         leftPanel.add(catBtnPanel, BorderLayout.SOUTH);
 
         splitPane.setLeftComponent(leftPanel);
 
         // Right panel - questions
         JPanel rightPanel = new JPanel(new BorderLayout(6, 6));
-        questionModel = new DefaultTableModel(new String[] { "ID", "Question" }, 0) {
-            @Override
-            public boolean isCellEditable(int row, int col) {
-                return false;
-            }
-        };
+        // rows are fetched page by page as the table scrolls, so large categories open at once
+        questionModel = new PagedQuestionModel(this);
         questionTable = new JTable(questionModel);
         questionTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         rightPanel.add(new JScrollPane(questionTable), BorderLayout.CENTER);
 
-        JPanel qBtnPanel = new JPanel(new GridLayout(3, 1, 6, 6));
+        JPanel searchPanel = new JPanel(new BorderLayout(6, 6));
+        searchField = new JTextField();
+        searchPanel.add(new JLabel("Search:"), BorderLayout.WEST);
+        searchPanel.add(searchField, BorderLayout.CENTER);
+        searchAllBtn = new JButton("Search All Categories");
+        searchPanel.add(searchAllBtn, BorderLayout.EAST);
+        rightPanel.add(searchPanel, BorderLayout.NORTH);
+
+        JPanel qBtnPanel = new JPanel(new GridLayout(5, 1, 6, 6));
         addQBtn = new JButton("Add Question");
         editQBtn = new JButton("Edit Question");
         deleteQBtn = new JButton("Delete Question");
+        importBtn = new JButton("Import Questions...");
+        exportBtn = new JButton("Export Questions...");
         qBtnPanel.add(addQBtn);
         qBtnPanel.add(editQBtn);
         qBtnPanel.add(deleteQBtn);
+        qBtnPanel.add(importBtn);
+        qBtnPanel.add(exportBtn);
         rightPanel.add(qBtnPanel, BorderLayout.SOUTH);
 
         splitPane.setRightComponent(rightPanel);
@@ -132,6 +166,15 @@ public class AdminWindow extends JFrame {
         statusArea.setEditable(false);
         getContentPane().add(new JScrollPane(statusArea), BorderLayout.SOUTH);
 
+        // Top bar - diagnostics
+        JPanel topPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        statsBtn = new JButton("Cache Stats");
+        topPanel.add(statsBtn);
+        getContentPane().add(topPanel, BorderLayout.NORTH);
+        JProgressBar loading = DbWorker.loadingBar("Loading...");
+        topPanel.add(loading, 0);
+        DbWorker.setLoadingIndicator(this, loading);
+
         // Listeners
         categoryTable.getSelectionModel().addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting())
@@ -141,6 +184,7 @@ public class AdminWindow extends JFrame {
         addCatBtn.addActionListener(e -> addCategory());
         renameCatBtn.addActionListener(e -> renameCategory());
         deleteCatBtn.addActionListener(e -> deleteCategory());
+        regradeBtn.addActionListener(e -> regradeCategory());
 
         addQBtn.addActionListener(e -> openQuestionDialog(null));
         editQBtn.addActionListener(e -> {
@@ -149,100 +193,74 @@ public class AdminWindow extends JFrame {
                 JOptionPane.showMessageDialog(this, "Select a question to edit");
                 return;
             }
-            Integer qid = (Integer) questionModel.getValueAt(row, 0);
+            Integer qid = questionModel.idAt(row);
+            if (qid == null)
+                return; // row still loading
             openQuestionDialog(qid);
         });
         deleteQBtn.addActionListener(e -> deleteQuestion());
+        searchField.addActionListener(e -> loadQuestionsForSelectedCategory());
+        searchAllBtn.addActionListener(e -> searchAllCategories());
+        importBtn.addActionListener(e -> importQuestions());
+        exportBtn.addActionListener(e -> exportQuestions());
+        statsBtn.addActionListener(e -> showCacheStats());
     }
 
     // --- Database Loading Methods ---
+    // All JDBC work runs through DbWorker; the table models are only touched in the callbacks (EDT).
 
     // Load categories into table
     private void loadCategories() {
-        categoryModel.setRowCount(0);
-        try (Connection c = DBConnection.getConnection();
-                Statement s = c.createStatement();
-                ResultSet rs = s.executeQuery("SELECT id, name FROM categories ORDER BY id")) {
-            while (rs.next()) {
-                categoryModel.addRow(new Object[] { rs.getInt("id"), rs.getString("name") });
-            }
-        } catch (SQLException ex) {
+        DbWorker.run(this, () -> Repositories.categories().findAll(), categories -> {
+            categoryModel.setRowCount(0);
+            for (Category cat : categories)
+                categoryModel.addRow(new Object[] { cat.getId(), cat.getName() });
+        }, ex -> {
             status("Error loading categories: " + ex.getMessage());
             ex.printStackTrace();
-        }
+        });
     }
 
-    // Load questions for selected category (Now includes ORDER BY id)
+    // Show questions for selected category (ordered by id, filtered by the search box)
     private void loadQuestionsForSelectedCategory() {
-        questionModel.setRowCount(0);
         int row = categoryTable.getSelectedRow();
-        if (row < 0)
+        if (row < 0) {
+            questionModel.clear();
             return;
-        int catId = (Integer) categoryModel.getValueAt(row, 0);
-
-        // FIX: Added ORDER BY id to ensure sequential question listing
-        String sql = "SELECT id, text FROM questions WHERE category_id = ? ORDER BY id ASC";
-
-        try (Connection c = DBConnection.getConnection();
-                PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setInt(1, catId);
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    questionModel.addRow(new Object[] { rs.getInt("id"), rs.getString("text") });
-                }
-            }
-        } catch (SQLException ex) {
-            status("Error loading questions: " + ex.getMessage());
-            ex.printStackTrace();
         }
+        questionModel.show((Integer) categoryModel.getValueAt(row, 0), searchField.getText());
     }
 
     // --- New Data Loading Helper Method ---
 
-    private QuestionDetails getQuestionDetails(int qid) throws SQLException {
-        QuestionDetails details = null;
-        try (Connection c = DBConnection.getConnection()) {
-
-            // 1. Get question text
-            PreparedStatement psQ = c.prepareStatement("SELECT text FROM questions WHERE id = ?");
-            psQ.setInt(1, qid);
-            try (ResultSet rsQ = psQ.executeQuery()) {
-                if (rsQ.next()) {
-                    details = new QuestionDetails(qid, rsQ.getString("text"));
-                } else {
-                    throw new SQLException("Question not found for ID: " + qid);
-                }
-            }
-
-            // 2. Get options
-            PreparedStatement psO = c.prepareStatement(
-                    "SELECT text, is_correct FROM options WHERE question_id = ? ORDER BY id LIMIT 4");
-            psO.setInt(1, qid);
-            try (ResultSet rsO = psO.executeQuery()) {
-                while (rsO.next()) {
-                    details.addOption(rsO.getString("text"), rsO.getInt("is_correct") == 1);
-                }
-            }
-        }
+    private static QuestionDetails getQuestionDetails(int qid) throws SQLException {
+        Question q = Repositories.questions().findById(qid);
+        if (q == null)
+            throw new SQLException("Question not found for ID: " + qid);
+        QuestionDetails details = new QuestionDetails(qid, q.getText(), q.getVersion());
+        for (Option o : q.getOptions())
+            details.addOption(o.getText(), o.isCorrect());
         return details;
     }
 
-    // --- Category CRUD (No changes) ---
-    // ... (addCategory, renameCategory, deleteCategory methods remain here) ...
+    // Runs a write in the background, then reports and refreshes on the EDT
+    private void runWrite(DbWorker.Task write, Runnable onSuccess, String errorPrefix) {
+        DbWorker.run(this, write, onSuccess, ex -> {
+            status(errorPrefix + ex.getMessage());
+            ex.printStackTrace();
+        });
+    }
+
+    // --- Category CRUD ---
     private void addCategory() {
         String name = JOptionPane.showInputDialog(this, "Enter new category name:");
         if (name == null || name.trim().isEmpty())
             return;
-        try (Connection c = DBConnection.getConnection();
-                PreparedStatement ps = c.prepareStatement("INSERT INTO categories(name) VALUES(?)")) {
-            ps.setString(1, name.trim());
-            ps.executeUpdate();
+        runWrite(() -> Repositories.categories().create(name.trim()), () -> {
             status("Category added: " + name);
+            QuestionBankCache.shared().invalidateCategories();
             loadCategories();
-        } catch (SQLException ex) {
-            status("Error adding category: " + ex.getMessage());
-            ex.printStackTrace();
-        }
+        }, "Error adding category: ");
     }
 
     private void renameCategory() {
@@ -256,17 +274,11 @@ public class AdminWindow extends JFrame {
         String newName = JOptionPane.showInputDialog(this, "Enter new name:", oldName);
         if (newName == null || newName.trim().isEmpty())
             return;
-        try (Connection c = DBConnection.getConnection();
-                PreparedStatement ps = c.prepareStatement("UPDATE categories SET name = ? WHERE id = ?")) {
-            ps.setString(1, newName.trim());
-            ps.setInt(2, id);
-            ps.executeUpdate();
+        runWrite(() -> Repositories.categories().rename(id, newName.trim()), () -> {
             status("Category renamed: " + oldName + " -> " + newName);
+            QuestionBankCache.shared().invalidateCategories();
             loadCategories();
-        } catch (SQLException ex) {
-            status("Error renaming category: " + ex.getMessage());
-            ex.printStackTrace();
-        }
+        }, "Error renaming category: ");
     }
 
     private void deleteCategory() {
@@ -280,17 +292,36 @@ public class AdminWindow extends JFrame {
                 JOptionPane.YES_NO_OPTION);
         if (confirm != JOptionPane.YES_OPTION)
             return;
-        try (Connection c = DBConnection.getConnection();
-                PreparedStatement ps = c.prepareStatement("DELETE FROM categories WHERE id = ?")) {
-            ps.setInt(1, id);
-            ps.executeUpdate();
+        runWrite(() -> {
+            Repositories.categories().delete(id);
+            QuestionSearchIndex.shared().removeCategory(id);
+        }, () -> {
             status("Category deleted");
+            QuestionBankCache.shared().invalidate(id);
+            QuestionBankCache.shared().invalidateCategories();
             loadCategories();
-            questionModel.setRowCount(0);
-        } catch (SQLException ex) {
-            status("Error deleting category: " + ex.getMessage());
-            ex.printStackTrace();
+            questionModel.clear();
+        }, "Error deleting category: ");
+    }
+
+    // Rescores the category's stored attempts after its answers were corrected
+    private void regradeCategory() {
+        int row = categoryTable.getSelectedRow();
+        if (row < 0) {
+            JOptionPane.showMessageDialog(this, "Select a category to regrade");
+            return;
         }
+        int id = (Integer) categoryModel.getValueAt(row, 0);
+        int confirm = JOptionPane.showConfirmDialog(this, "Rescore every saved attempt with the current answers?",
+                "Confirm", JOptionPane.YES_NO_OPTION);
+        if (confirm != JOptionPane.YES_OPTION)
+            return;
+        status("Regrading category " + id + "...");
+        DbWorker.run(this, () -> new BatchGrader(new BatchGrader.Config()).regrade(id),
+                report -> status("Regraded " + report), ex -> {
+                    status("Error regrading category: " + ex.getMessage());
+                    ex.printStackTrace();
+                });
     }
 
     // --- Question CRUD ---
@@ -301,26 +332,30 @@ public class AdminWindow extends JFrame {
             JOptionPane.showMessageDialog(this, "Select a question to delete");
             return;
         }
-        int qid = (Integer) questionModel.getValueAt(row, 0);
+        Integer qid = questionModel.idAt(row);
+        if (qid == null)
+            return; // row still loading
+        int catRow = categoryTable.getSelectedRow();
         int confirm = JOptionPane.showConfirmDialog(this, "Delete question and its options?", "Confirm",
                 JOptionPane.YES_NO_OPTION);
         if (confirm != JOptionPane.YES_OPTION)
             return;
-        try (Connection c = DBConnection.getConnection();
-                PreparedStatement ps = c.prepareStatement("DELETE FROM questions WHERE id = ?")) {
-            ps.setInt(1, qid);
-            ps.executeUpdate();
+        Integer catId = catRow >= 0 ? (Integer) categoryModel.getValueAt(catRow, 0) : null;
+        runWrite(() -> {
+            Repositories.questions().delete(qid);
+            QuestionSearchIndex.shared().remove(qid);
+        }, () -> {
             status("Question deleted");
+            if (catId != null)
+                QuestionBankCache.shared().invalidate(catId);
             loadQuestionsForSelectedCategory();
-        } catch (SQLException ex) {
-            status("Error deleting question: " + ex.getMessage());
-            ex.printStackTrace();
-        }
+        }, "Error deleting question: ");
     }
 
     /**
      * Add / Edit question dialog. If qid == null -> add, else edit
      * FIX: Uses QuestionDetails to load/store data.
+     * In edit mode the question is fetched in the background first, then the dialog opens.
      */
     private void openQuestionDialog(Integer qid) {
         int catRow = categoryTable.getSelectedRow();
@@ -330,6 +365,21 @@ public class AdminWindow extends JFrame {
         }
         int catId = (Integer) categoryModel.getValueAt(catRow, 0);
 
+        if (qid == null) {
+            showQuestionDialog(catId, null, null);
+            return;
+        }
+        DbWorker.run(this, () -> getQuestionDetails(qid), details -> {
+            if (!fitsEditor(this, details))
+                return;
+            showQuestionDialog(catId, qid, details);
+        }, ex -> {
+            status("Error loading question for edit: " + ex.getMessage());
+            ex.printStackTrace();
+        });
+    }
+
+    private void showQuestionDialog(int catId, Integer qid, QuestionDetails details) {
         JDialog dlg = new JDialog(this, (qid == null ? "Add Question" : "Edit Question"), true);
         dlg.setSize(640, 420);
         dlg.setLocationRelativeTo(this);
@@ -353,27 +403,11 @@ public class AdminWindow extends JFrame {
             optPanel.add(row);
         }
 
-        // --- LOAD DATA FOR EDIT MODE (Updated Logic) ---
-        if (qid != null) {
-            try {
-                QuestionDetails details = getQuestionDetails(qid);
-                qText.setText(details.getQuestionText());
-
-                int i = 0;
-                for (OptionDetails opt : details.getOptions()) {
-                    if (i < 4) {
-                        opts[i].setText(opt.getText());
-                        correctBtns[i].setSelected(opt.isCorrect());
-                    }
-                    i++;
-                }
-            } catch (SQLException ex) {
-                status("Error loading question for edit: " + ex.getMessage());
-                ex.printStackTrace();
-                dlg.dispose(); // Close dialog on failure
-                return;
-            }
-        }
+        // --- FILL DATA FOR EDIT MODE ---
+        // the version the edit is based on; a save fails if someone else saved after it
+        int[] version = { details == null ? 0 : details.getVersion() };
+        if (details != null)
+            fillQuestionFields(details, qText, opts, correctBtns);
 
         JPanel center = new JPanel(new BorderLayout(6, 6));
         center.add(new JLabel("Question:"), BorderLayout.NORTH);
@@ -381,8 +415,11 @@ public class AdminWindow extends JFrame {
         center.add(optPanel, BorderLayout.SOUTH);
 
         JButton saveBtn = new JButton("Save");
+        JProgressBar saving = DbWorker.loadingBar("Saving...");
         JPanel south = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        south.add(saving);
         south.add(saveBtn);
+        DbWorker.setLoadingIndicator(dlg, saving);
 
         dlg.add(center, BorderLayout.CENTER);
         dlg.add(south, BorderLayout.SOUTH);
@@ -409,76 +446,308 @@ public class AdminWindow extends JFrame {
                 return;
             }
 
-            Connection conn = null;
-            try {
-                conn = DBConnection.getConnection();
-                conn.setAutoCommit(false);
-                int qIdToUse;
-                if (qid == null) {
-                    // --- INSERT (ADD QUESTION) ---
-                    PreparedStatement ps = conn.prepareStatement(
-                            "INSERT INTO questions(category_id, text) VALUES(?, ?)", Statement.RETURN_GENERATED_KEYS);
-                    ps.setInt(1, catId);
-                    ps.setString(2, qStr);
-                    ps.executeUpdate();
-                    try (ResultSet keys = ps.getGeneratedKeys()) {
-                        if (keys.next())
-                            qIdToUse = keys.getInt(1);
-                        else
-                            throw new SQLException("Failed to retrieve question id");
-                    }
-                } else {
-                    // --- UPDATE (EDIT QUESTION) ---
-                    qIdToUse = qid;
-                    // 1. Update question text
-                    PreparedStatement ps = conn.prepareStatement("UPDATE questions SET text = ? WHERE id = ?");
-                    ps.setString(1, qStr);
-                    ps.setInt(2, qid);
-                    ps.executeUpdate();
-
-                    // 2. Delete old options (since we don't know which options map to which option
-                    // ID)
-                    PreparedStatement psDel = conn.prepareStatement("DELETE FROM options WHERE question_id = ?");
-                    psDel.setInt(1, qid);
-                    psDel.executeUpdate();
-                }
-
-                // 3. Insert 4 new options (for both ADD and EDIT)
-                PreparedStatement psOpt = conn
-                        .prepareStatement("INSERT INTO options(question_id, text, is_correct) VALUES(?, ?, ?)");
-                for (int i = 0; i < 4; i++) {
-                    psOpt.setInt(1, qIdToUse);
-                    psOpt.setString(2, optStr[i]);
-                    psOpt.setInt(3, (i == correctIdx ? 1 : 0));
-                    psOpt.addBatch();
-                }
-                psOpt.executeBatch();
-                conn.commit();
-                status(qid == null ? "Question added" : "Question updated");
-                loadQuestionsForSelectedCategory();
-                dlg.dispose();
-            } catch (SQLException ex) {
-                try {
-                    if (conn != null)
-                        conn.rollback();
-                } catch (SQLException ignore) {
+            List<Option> options = new ArrayList<>(4);
+            for (int i = 0; i < 4; i++)
+                options.add(new Option(0, optStr[i], i == correctIdx));
+            saveBtn.setEnabled(false);
+            // warn about questions already in the bank with (nearly) the same words before saving
+            DbWorker.run(dlg, () -> similarQuestions(qid, qStr, options), similar -> {
+                if (!similar.isEmpty() && !confirmDuplicate(dlg, similar)) {
+                    saveBtn.setEnabled(true);
+                    return;
                 }
-                status("Error saving question: " + ex.getMessage());
-                ex.printStackTrace();
-            } finally {
-                try {
-                    if (conn != null) {
-                        conn.setAutoCommit(true);
-                        conn.close();
+                DbWorker.run(dlg, () -> saveQuestion(catId, qid, version[0], qStr, options), () -> {
+                    QuestionBankCache.shared().invalidate(catId);
+                    status(qid == null ? "Question added" : "Question updated");
+                    loadQuestionsForSelectedCategory();
+                    dlg.dispose();
+                }, ex -> {
+                    saveBtn.setEnabled(true);
+                    if (ex instanceof StaleQuestionException) {
+                        resolveConflict(dlg, qid, version, qText, opts, correctBtns, saveBtn);
+                        return;
                     }
-                } catch (SQLException ignore) {
-                }
+                    status("Error saving question: " + ex.getMessage());
+                    ex.printStackTrace();
+                });
+            }, ex -> {
+                saveBtn.setEnabled(true);
+                status("Error checking for duplicates: " + ex.getMessage());
+            });
+        });
+
+        dlg.setVisible(true);
+    }
+
+    // The dialog has 4 option fields and saves exactly those: a question with more options
+    // (added to the database by hand) would lose the rest, so it is not opened for editing
+    private static boolean fitsEditor(Component parent, QuestionDetails details) {
+        int n = details.getOptions().size();
+        if (n <= QuestionTransfer.MAX_OPTIONS)
+            return true;
+        JOptionPane.showMessageDialog(parent, "This question has " + n + " options; the editor handles at most "
+                + QuestionTransfer.MAX_OPTIONS + ", so it cannot be edited here.", "Cannot Edit",
+                JOptionPane.WARNING_MESSAGE);
+        return false;
+    }
+
+    private static void fillQuestionFields(QuestionDetails details, JTextArea qText, JTextField[] opts,
+            JRadioButton[] correctBtns) {
+        qText.setText(details.getQuestionText());
+        int i = 0;
+        for (OptionDetails opt : details.getOptions()) {
+            if (i < 4) {
+                opts[i].setText(opt.getText());
+                correctBtns[i].setSelected(opt.isCorrect());
             }
+            i++;
+        }
+    }
+
+    /**
+     * The question was saved by someone else while this dialog was open: shows their version and
+     * lets the admin overwrite it with the edits, reload it into the dialog, or keep editing.
+     */
+    private void resolveConflict(JDialog dlg, int qid, int[] version, JTextArea qText, JTextField[] opts,
+            JRadioButton[] correctBtns, JButton saveBtn) {
+        DbWorker.run(dlg, () -> getQuestionDetails(qid), current -> {
+            if (!fitsEditor(dlg, current))
+                return;
+            StringBuilder msg = new StringBuilder("This question was changed by someone else since you opened it.\n\n");
+            msg.append("Their version:\n").append(current.getQuestionText()).append('\n');
+            for (OptionDetails o : current.getOptions())
+                msg.append(o.isCorrect() ? "  * " : "  - ").append(o.getText()).append('\n');
+            Object[] choices = { "Overwrite", "Reload", "Cancel" };
+            int choice = JOptionPane.showOptionDialog(dlg, msg.toString(), "Edit Conflict",
+                    JOptionPane.DEFAULT_OPTION, JOptionPane.WARNING_MESSAGE, null, choices, choices[2]);
+            if (choice == 0) {
+                version[0] = current.getVersion();
+                saveBtn.doClick();
+            } else if (choice == 1) {
+                version[0] = current.getVersion();
+                fillQuestionFields(current, qText, opts, correctBtns);
+                status("Question reloaded");
+            }
+        }, ex -> status("Error loading question: " + ex.getMessage()));
+    }
+
+    // Insert or update one question and its 4 options in a single transaction; an update fails
+    // with StaleQuestionException if the question is no longer at the given version
+    private static void saveQuestion(int catId, Integer qid, int version, String qStr, List<Option> options)
+            throws SQLException {
+        int id;
+        if (qid == null) {
+            id = Repositories.questions().create(catId, qStr, options);
+        } else {
+            id = qid;
+            Repositories.questions().update(id, version, qStr, options);
+        }
+        QuestionSearchIndex.shared().put(catId, new Question(id, qStr, options));
+    }
+
+    // Up to 5 indexed questions nearly the same as the one being saved, with their text
+    private static Map<QuestionSearchIndex.Match, Question> similarQuestions(Integer qid, String qStr,
+            List<Option> options) throws SQLException {
+        List<QuestionSearchIndex.Match> matches = QuestionSearchIndex.shared().similar(qStr, options,
+                qid == null ? -1 : qid);
+        List<Integer> ids = new ArrayList<>();
+        for (QuestionSearchIndex.Match m : matches)
+            ids.add(m.questionId);
+        Map<Integer, Question> texts = Repositories.questions().listByIds(ids);
+        Map<QuestionSearchIndex.Match, Question> similar = new LinkedHashMap<>();
+        for (QuestionSearchIndex.Match m : matches) {
+            Question q = texts.get(m.questionId);
+            if (q != null)
+                similar.put(m, q);
+            if (similar.size() == 5)
+                break;
+        }
+        return similar;
+    }
+
+    private boolean confirmDuplicate(JDialog dlg, Map<QuestionSearchIndex.Match, Question> similar) {
+        StringBuilder msg = new StringBuilder("Similar questions already exist:\n");
+        for (Map.Entry<QuestionSearchIndex.Match, Question> e : similar.entrySet())
+            msg.append(String.format("\n%.0f%% - %s #%d: %s", e.getKey().similarity * 100,
+                    categoryName(e.getKey().categoryId), e.getValue().getId(), e.getValue().getText()));
+        msg.append("\n\nSave anyway?");
+        return JOptionPane.showConfirmDialog(dlg, msg.toString(), "Possible duplicate",
+                JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE) == JOptionPane.YES_OPTION;
+    }
+
+    // --- Full-text search over every category (QuestionSearchIndex) ---
+
+    // Builds the index in the background on first use; later windows only re-read changed categories
+    private void syncSearchIndex() {
+        long start = System.nanoTime();
+        DbWorker.run(this, () -> QuestionSearchIndex.shared().sync(), () -> status(String.format(
+                "Search index ready in %.0f ms: %s", (System.nanoTime() - start) / 1e6,
+                QuestionSearchIndex.shared().stats())), ex -> status("Error building search index: " + ex.getMessage()));
+    }
+
+    private void searchAllCategories() {
+        String query = searchField.getText().trim();
+        if (query.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "Enter words to search for");
+            return;
+        }
+        DbWorker.run(this, () -> {
+            QuestionSearchIndex index = QuestionSearchIndex.shared();
+            if (!index.isReady())
+                index.sync();
+            List<QuestionSearchIndex.Hit> found = index.search(query, 100);
+            List<Integer> ids = new ArrayList<>(found.size());
+            for (QuestionSearchIndex.Hit hit : found)
+                ids.add(hit.questionId);
+            Map<Integer, Question> texts = Repositories.questions().listByIds(ids); // one query, not one per hit
+            Map<QuestionSearchIndex.Hit, Question> hits = new LinkedHashMap<>();
+            for (QuestionSearchIndex.Hit hit : found) {
+                Question q = texts.get(hit.questionId);
+                if (q != null)
+                    hits.put(hit, q);
+            }
+            return hits;
+        }, hits -> showSearchResults(query, hits), ex -> {
+            status("Error searching: " + ex.getMessage());
+            ex.printStackTrace();
         });
+    }
 
+    // Ranked hits; double-click opens the question in its category
+    private void showSearchResults(String query, Map<QuestionSearchIndex.Hit, Question> hits) {
+        DefaultTableModel model = new DefaultTableModel(new String[] { "Category", "ID", "Question", "Score" }, 0) {
+            @Override
+            public boolean isCellEditable(int row, int col) {
+                return false;
+            }
+        };
+        List<QuestionSearchIndex.Hit> rows = new ArrayList<>(hits.keySet());
+        for (QuestionSearchIndex.Hit hit : rows)
+            model.addRow(new Object[] { categoryName(hit.categoryId), hit.questionId, hits.get(hit).getText(),
+                    String.format("%.2f", hit.score) });
+        JTable table = new JTable(model);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.getColumnModel().getColumn(2).setPreferredWidth(400);
+
+        JDialog dlg = new JDialog(this, "Search: " + query + " (" + rows.size() + " shown)", false);
+        dlg.setSize(760, 420);
+        dlg.setLocationRelativeTo(this);
+        dlg.add(new JScrollPane(table), BorderLayout.CENTER);
+        table.addMouseListener(new java.awt.event.MouseAdapter() {
+            @Override
+            public void mouseClicked(java.awt.event.MouseEvent e) {
+                int row = table.getSelectedRow();
+                if (e.getClickCount() == 2 && row >= 0 && selectCategory(rows.get(row).categoryId))
+                    openQuestionDialog(rows.get(row).questionId);
+            }
+        });
         dlg.setVisible(true);
     }
 
+    private boolean selectCategory(int categoryId) {
+        for (int row = 0; row < categoryModel.getRowCount(); row++) {
+            if ((Integer) categoryModel.getValueAt(row, 0) == categoryId) {
+                categoryTable.setRowSelectionInterval(row, row);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String categoryName(int categoryId) {
+        for (int row = 0; row < categoryModel.getRowCount(); row++)
+            if ((Integer) categoryModel.getValueAt(row, 0) == categoryId)
+                return (String) categoryModel.getValueAt(row, 1);
+        return "category " + categoryId;
+    }
+
+    // --- Bulk import / export (CSV or JSON lines, streamed; see QuestionTransfer) ---
+
+    private void importQuestions() {
+        int catRow = categoryTable.getSelectedRow();
+        if (catRow < 0) {
+            JOptionPane.showMessageDialog(this, "Select a category first");
+            return;
+        }
+        int catId = (Integer) categoryModel.getValueAt(catRow, 0);
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION)
+            return;
+        Path file = chooser.getSelectedFile().toPath();
+        long start = System.nanoTime();
+        importBtn.setEnabled(false);
+        DbWorker.run(this, () -> {
+            long count;
+            try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                count = new QuestionTransfer().importQuestions(in, QuestionTransfer.Format.forFile(file.toString()),
+                        catId, progress("Imported"));
+            }
+            QuestionSearchIndex.shared().reindexCategory(catId);
+            return count;
+        }, count -> {
+            importBtn.setEnabled(true);
+            status(String.format("Imported %d questions from %s (%.0f questions/s)", count, file.getFileName(),
+                    count / Math.max(1e-9, (System.nanoTime() - start) / 1e9)));
+            QuestionBankCache.shared().invalidate(catId);
+            loadQuestionsForSelectedCategory();
+        }, ex -> {
+            importBtn.setEnabled(true);
+            // chunks committed before the failure stay imported
+            status("Import stopped: " + ex.getMessage());
+            QuestionBankCache.shared().invalidate(catId);
+            loadQuestionsForSelectedCategory();
+        });
+    }
+
+    private void exportQuestions() {
+        int catRow = categoryTable.getSelectedRow();
+        if (catRow < 0) {
+            JOptionPane.showMessageDialog(this, "Select a category first");
+            return;
+        }
+        int catId = (Integer) categoryModel.getValueAt(catRow, 0);
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File(categoryModel.getValueAt(catRow, 1) + ".csv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION)
+            return;
+        Path file = chooser.getSelectedFile().toPath();
+        exportBtn.setEnabled(false);
+        DbWorker.run(this, () -> {
+            try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                return new QuestionTransfer().exportCategory(catId, out,
+                        QuestionTransfer.Format.forFile(file.toString()), progress("Exported"));
+            }
+        }, count -> {
+            exportBtn.setEnabled(true);
+            status("Exported " + count + " questions to " + file);
+        }, ex -> {
+            exportBtn.setEnabled(true);
+            status("Export failed: " + ex.getMessage());
+        });
+    }
+
+    // Progress callback for a background transfer: a status line at most once a second
+    private QuestionTransfer.Progress progress(String verb) {
+        long[] last = { System.nanoTime() };
+        return n -> {
+            long now = System.nanoTime();
+            if (now - last[0] >= 1_000_000_000L) {
+                last[0] = now;
+                SwingUtilities.invokeLater(() -> status(verb + " " + n + " questions..."));
+            }
+        };
+    }
+
+    // Cache counters, printed to the status area to help size quiz.cache.maxQuestions
+    private void showCacheStats() {
+        status("Question cache: " + QuestionBankCache.shared().stats());
+        status("Connection pool: " + DBConnection.poolStats());
+        status("Offline bank: " + OfflineBank.shared().stats());
+        status("Search index: " + QuestionSearchIndex.shared().stats());
+        for (String line : Metrics.summary())
+            status("Metrics: " + line);
+    }
+
     private void status(String msg) {
         statusArea.append(msg + "\n");
         statusArea.setCaretPosition(statusArea.getDocument().getLength());
@@ -0,0 +1,8 @@
+import java.sql.SQLException;
+
+/**
+ * AnswerEventRepository - storage for per-answer telemetry (the answer_events table).
+ */
+public interface AnswerEventRepository {
+    void saveBatch(AnswerEvents events) throws SQLException;
+}
@@ -0,0 +1,51 @@
+/**
+ * AnswerEvents - a reusable batch of per-answer telemetry events in parallel primitive arrays.
+ * Filled by AnswerTelemetry's drainer and handed to an AnswerEventRepository; not thread-safe.
+ */
+public class AnswerEvents {
+    public static final byte ANSWER = 1;
+    public static final byte NEXT = 2;
+    public static final byte PREV = 3;
+    public static final byte SUBMIT = 4;
+
+    final long[] sessionId; // QuizSession.getAttemptId(), unique across processes
+    final int[] userId;
+    final int[] questionId;
+    final int[] optionId;   // 0 when no option is selected
+    final byte[] type;
+    final long[] timeSpentNanos; // time on the question before this event
+    final long[] timestampMillis;
+    int size;
+
+    public AnswerEvents(int capacity) {
+        sessionId = new long[capacity];
+        userId = new int[capacity];
+        questionId = new int[capacity];
+        optionId = new int[capacity];
+        type = new byte[capacity];
+        timeSpentNanos = new long[capacity];
+        timestampMillis = new long[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long sessionId(int i) { return sessionId[i]; }
+    public int userId(int i) { return userId[i]; }
+    public int questionId(int i) { return questionId[i]; }
+    public int optionId(int i) { return optionId[i]; }
+    public byte type(int i) { return type[i]; }
+    public long timeSpentNanos(int i) { return timeSpentNanos[i]; }
+    public long timestampMillis(int i) { return timestampMillis[i]; }
+
+    public static String typeName(byte type) {
+        switch (type) {
+            case ANSWER: return "answer";
+            case NEXT: return "next";
+            case PREV: return "prev";
+            case SUBMIT: return "submit";
+            default: return "unknown";
+        }
+    }
+}
@@ -0,0 +1,80 @@
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * AnswerSheet - what one attempt answered, stored with its result so it can be regraded.
+ *
+ * For each question drawn: its id, and one byte with the chosen option's position among the
+ * question's options in id order (not in the shuffled order the taker saw), or UNANSWERED.
+ * Positions survive option shuffling, and edits that keep the options' order. Kept in the
+ * results table as two BLOBs (ids as big-endian ints, answers as raw bytes).
+ */
+public class AnswerSheet {
+    public static final byte UNANSWERED = -1;
+    // positions from here up are stored as unanswered; BatchGrader relies on it
+    static final int MAX_POSITION = 62;
+
+    private final int[] questionIds;
+    private final byte[] answers;
+
+    public AnswerSheet(int[] questionIds, byte[] answers) {
+        if (questionIds.length != answers.length)
+            throw new IllegalArgumentException(questionIds.length + " questions but " + answers.length + " answers");
+        this.questionIds = questionIds;
+        this.answers = answers;
+    }
+
+    // selected[i] = index into questions.get(i).getOptions() (as shown), -1 = unanswered
+    public static AnswerSheet of(List<Question> questions, int[] selected) {
+        int[] ids = new int[questions.size()];
+        byte[] answers = new byte[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            List<Option> options = questions.get(i).getOptions();
+            ids[i] = questions.get(i).getId();
+            answers[i] = UNANSWERED;
+            if (selected[i] < 0 || selected[i] >= options.size())
+                continue;
+            int chosen = options.get(selected[i]).getId();
+            int position = 0; // options with a smaller id come before it in id order
+            for (Option o : options) {
+                if (o.getId() < chosen)
+                    position++;
+            }
+            if (position <= MAX_POSITION)
+                answers[i] = (byte) position;
+        }
+        return new AnswerSheet(ids, answers);
+    }
+
+    public static AnswerSheet decode(byte[] questionIds, byte[] answers) {
+        ByteBuffer b = ByteBuffer.wrap(questionIds);
+        int[] ids = new int[questionIds.length / 4];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = b.getInt();
+        return new AnswerSheet(ids, answers);
+    }
+
+    public int size() {
+        return questionIds.length;
+    }
+
+    public int questionId(int i) {
+        return questionIds[i];
+    }
+
+    // Position of the chosen option in id order, or UNANSWERED
+    public byte answer(int i) {
+        return answers[i];
+    }
+
+    public byte[] encodedQuestionIds() {
+        ByteBuffer b = ByteBuffer.allocate(4 * questionIds.length);
+        for (int id : questionIds)
+            b.putInt(id);
+        return b.array();
+    }
+
+    public byte[] encodedAnswers() {
+        return answers.clone();
+    }
+}
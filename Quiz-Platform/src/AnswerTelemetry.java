@@ -0,0 +1,212 @@
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * AnswerTelemetry - per-answer events (answer, Prev/Next, submit) captured off the answer path.
+ *
+ * Producers claim a sequence number with a CAS and write the event into preallocated parallel
+ * arrays, so record() allocates nothing and never blocks: when the ring is full the event is
+ * dropped and counted. A single drainer thread copies published events into a reusable
+ * AnswerEvents batch and writes it to the answer_events table through AnswerEventRepository.
+ * Telemetry is best-effort: a batch that fails to save is logged and dropped.
+ */
+public class AnswerTelemetry {
+
+    public static class Config {
+        int capacity = 1 << 16; // rounded up to a power of two
+        int batchSize = 500;
+        long drainIntervalMillis = 250;
+
+        public Config capacity(int v) { capacity = v; return this; }
+        public Config batchSize(int v) { batchSize = v; return this; }
+        public Config drainIntervalMillis(long v) { drainIntervalMillis = v; return this; }
+    }
+
+    private static volatile AnswerTelemetry shared;
+
+    // -Dquiz.telemetry=false turns capture off; -Dquiz.telemetry.capacity sizes the ring
+    public static AnswerTelemetry shared() {
+        AnswerTelemetry t = shared;
+        if (t == null) {
+            synchronized (AnswerTelemetry.class) {
+                t = shared;
+                if (t == null) {
+                    Config config = new Config().capacity(Integer.getInteger("quiz.telemetry.capacity", 1 << 16));
+                    t = new AnswerTelemetry(config, null, Boolean.parseBoolean(System.getProperty("quiz.telemetry", "true")));
+                    shared = t;
+                    AnswerTelemetry started = t;
+                    DBConnection.beforeShutdown(() -> started.close(2_000));
+                }
+            }
+        }
+        return t;
+    }
+
+    private final boolean enabled;
+    private final AnswerEventRepository target; // null = whatever Repositories.answerEvents() is at drain time
+    private final int capacity;
+    private final int mask;
+    private final long drainIntervalNanos;
+
+    // the ring: slot = seq & mask
+    private final long[] sessionId;
+    private final int[] userId;
+    private final int[] questionId;
+    private final int[] optionId;
+    private final byte[] type;
+    private final long[] timeSpentNanos;
+    private final long[] timestampMillis;
+    private final AtomicLongArray published; // seq + 1 once the slot's event is fully written
+
+    private final AtomicLong claimed = new AtomicLong(); // next sequence to hand out
+    private volatile long consumed = 0;                 // next sequence the drainer reads
+    private volatile long written = 0;                  // events before this sequence are saved or dropped
+
+    private final AnswerEvents batch;
+    private final Thread drainer;
+    private volatile boolean running = true;
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong saved = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    public AnswerTelemetry(Config config, AnswerEventRepository target, boolean enabled) {
+        this.enabled = enabled;
+        this.target = target;
+        int cap = Integer.highestOneBit(Math.max(2, config.capacity - 1)) << 1;
+        this.capacity = cap;
+        this.mask = cap - 1;
+        this.drainIntervalNanos = config.drainIntervalMillis * 1_000_000L;
+        sessionId = new long[cap];
+        userId = new int[cap];
+        questionId = new int[cap];
+        optionId = new int[cap];
+        type = new byte[cap];
+        timeSpentNanos = new long[cap];
+        timestampMillis = new long[cap];
+        published = new AtomicLongArray(cap);
+        batch = new AnswerEvents(Math.min(config.batchSize, cap));
+        drainer = new Thread(this::drainLoop, "answer-telemetry-drainer");
+        drainer.setDaemon(true);
+        if (enabled)
+            drainer.start();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Records one event; returns false if it was dropped (telemetry off, ring full or closed)
+    public boolean record(long session, int user, int question, int option, byte eventType, long spentNanos) {
+        if (!enabled || !running)
+            return false;
+        long seq;
+        do {
+            seq = claimed.get();
+            if (seq - consumed >= capacity) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        } while (!claimed.compareAndSet(seq, seq + 1));
+
+        int slot = (int) seq & mask;
+        sessionId[slot] = session;
+        userId[slot] = user;
+        questionId[slot] = question;
+        optionId[slot] = option;
+        type[slot] = eventType;
+        timeSpentNanos[slot] = spentNanos;
+        timestampMillis[slot] = System.currentTimeMillis();
+        published.lazySet(slot, seq + 1); // release: the fields above are visible before the flag
+        return true;
+    }
+
+    // Waits until every event recorded so far has been saved (or dropped); false on timeout
+    public boolean flush(long timeoutMillis) throws InterruptedException {
+        long target = claimed.get();
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (enabled && written < target) {
+            if (System.currentTimeMillis() > deadline)
+                return false;
+            LockSupport.unpark(drainer);
+            Thread.sleep(5);
+        }
+        return true;
+    }
+
+    public void close(long timeoutMillis) {
+        try {
+            flush(timeoutMillis);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        running = false;
+        LockSupport.unpark(drainer);
+    }
+
+    public String stats() {
+        return String.format("recorded=%d saved=%d dropped=%d failed=%d batches=%d pending=%d",
+                claimed.get(), saved.get(), dropped.get(), failed.get(), batches.get(), claimed.get() - consumed);
+    }
+
+    // --- Drainer ---
+
+    private void drainLoop() {
+        while (running || consumed < claimed.get()) {
+            int n = fillBatch();
+            if (n == 0) {
+                if (!running)
+                    break; // a claimed slot is still being written by a producer we raced with
+                LockSupport.parkNanos(this, drainIntervalNanos);
+                continue;
+            }
+            save();
+            written = consumed;
+            // a full batch means more is probably waiting: go round again without parking
+            if (n < batch.sessionId.length)
+                LockSupport.parkNanos(this, drainIntervalNanos);
+        }
+    }
+
+    // Copies published events in sequence order into the batch and frees their slots
+    private int fillBatch() {
+        long next = consumed;
+        int n = 0;
+        int max = batch.sessionId.length;
+        while (n < max) {
+            int slot = (int) next & mask;
+            if (published.get(slot) != next + 1)
+                break; // not claimed yet, or claimed but still being written
+            batch.sessionId[n] = sessionId[slot];
+            batch.userId[n] = userId[slot];
+            batch.questionId[n] = questionId[slot];
+            batch.optionId[n] = optionId[slot];
+            batch.type[n] = type[slot];
+            batch.timeSpentNanos[n] = timeSpentNanos[slot];
+            batch.timestampMillis[n] = timestampMillis[slot];
+            n++;
+            next++;
+        }
+        batch.size = n;
+        consumed = next;
+        return n;
+    }
+
+    private void save() {
+        try {
+            repository().saveBatch(batch);
+            saved.addAndGet(batch.size);
+            batches.incrementAndGet();
+        } catch (SQLException | RuntimeException ex) {
+            failed.addAndGet(batch.size);
+            System.err.println("Dropping " + batch.size + " answer event(s): " + ex.getMessage());
+        }
+    }
+
+    private AnswerEventRepository repository() {
+        return target != null ? target : Repositories.answerEvents();
+    }
+}
@@ -0,0 +1,283 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Authenticator - login and registration with hashed passwords.
+ *
+ * Users are looked up through a username cache (TTL, with short-lived negative entries for
+ * unknown names) so repeated logins skip the database. Hash verification runs on a small
+ * bounded pool: a login burst queues there instead of taking every core away from the UI,
+ * and is refused with SQLTransientException once the queue is full. Plaintext passwords
+ * left from before hashing, and hashes below the current cost, are rehashed on the next
+ * successful login. Unknown usernames are checked against a dummy hash so they take as
+ * long as wrong passwords.
+ *
+ * With rememberLastLogin(file) (the desktop client) the last user who logged in is kept in a
+ * local file with their password hash, so that user can still log in while the database
+ * cannot be reached and take quizzes from the offline snapshot.
+ */
+public class Authenticator {
+
+    public static class Config {
+        int iterations = Integer.getInteger("quiz.password.iterations", 100_000);
+        int verifyThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        int verifyQueue = 256;
+        long ttlMillis = 5 * 60_000;
+        long negativeTtlMillis = 30_000;
+        int maxCached = 10_000;
+
+        public Config iterations(int v) { iterations = v; return this; }
+        public Config verifyThreads(int v) { verifyThreads = v; return this; }
+        public Config verifyQueue(int v) { verifyQueue = v; return this; }
+        public Config ttlMillis(long v) { ttlMillis = v; return this; }
+        public Config negativeTtlMillis(long v) { negativeTtlMillis = v; return this; }
+        public Config maxCached(int v) { maxCached = v; return this; }
+    }
+
+    // A cached lookup; credentials == null records an unknown username
+    private static class Cached {
+        final UserCredentials credentials;
+        final long expiresAt;
+
+        Cached(UserCredentials credentials, long expiresAt) {
+            this.credentials = credentials;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static volatile Authenticator shared;
+
+    public static Authenticator shared() {
+        Authenticator a = shared;
+        if (a == null) {
+            synchronized (Authenticator.class) {
+                a = shared;
+                if (a == null) {
+                    a = new Authenticator(new Config(), null);
+                    shared = a;
+                }
+            }
+        }
+        return a;
+    }
+
+    // Drops the shared cache (e.g. after switching data stores)
+    public static synchronized void reset() {
+        if (shared != null)
+            shared.invalidateAll();
+    }
+
+    private final Config config;
+    private final UserRepository target; // null = whatever Repositories.users() is at call time
+    private final PasswordHasher hasher;
+    private final String dummyHash;
+    private final ThreadPoolExecutor verifier;
+    private final Map<String, Cached> cache = new ConcurrentHashMap<>();
+    private volatile File lastLoginFile; // null: offline login is off
+    private volatile UserCredentials lastLogin; // as in lastLoginFile
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong verifications = new AtomicLong();
+    private final AtomicLong rehashes = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong offlineLogins = new AtomicLong();
+
+    public Authenticator(Config config, UserRepository target) {
+        this.config = config;
+        this.target = target;
+        this.hasher = new PasswordHasher(config.iterations);
+        this.dummyHash = hasher.hash("not-a-password".toCharArray());
+        AtomicInteger n = new AtomicInteger();
+        this.verifier = new ThreadPoolExecutor(config.verifyThreads, config.verifyThreads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(config.verifyQueue), r -> {
+                    Thread t = new Thread(r, "password-verify-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    t.setPriority(Thread.NORM_PRIORITY - 1); // the EDT wins when both want the CPU
+                    return t;
+                });
+        verifier.allowCoreThreadTimeOut(true);
+    }
+
+    public int iterations() {
+        return hasher.iterations();
+    }
+
+    public int verifyThreads() {
+        return config.verifyThreads;
+    }
+
+    // Keeps the last successful login in file (read now, rewritten when another user logs in)
+    // and accepts it while the database cannot be reached
+    public void rememberLastLogin(File file) {
+        lastLogin = readLastLogin(file);
+        lastLoginFile = file;
+    }
+
+    // The user when the password matches, otherwise null; blocks, so never call it on the EDT
+    public User authenticate(String username, char[] password) throws SQLException {
+        EdtGuard.check("Authenticator.authenticate()");
+        UserCredentials lookedUp;
+        boolean offline = false;
+        try {
+            lookedUp = lookup(username);
+        } catch (SQLException ex) {
+            UserCredentials last = lastLogin;
+            if (last == null || !last.getUser().getUsername().equals(username)
+                    || !OfflineBank.isConnectionFailure(ex))
+                throw ex;
+            lookedUp = last;
+            offline = true;
+        }
+        UserCredentials found = lookedUp;
+        boolean fromDatabase = !offline;
+        Future<Boolean> check;
+        try {
+            check = verifier.submit(() -> fromDatabase ? verify(found, password) : verifyOffline(found, password));
+        } catch (RejectedExecutionException full) {
+            rejected.incrementAndGet();
+            throw new SQLTransientException("Too many logins in progress, try again");
+        }
+        try {
+            return check.get() ? found.getUser() : null;
+        } catch (InterruptedException ie) {
+            check.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted during login", ie);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof SQLException)
+                throw (SQLException) ex.getCause();
+            throw new SQLException("Login failed", ex.getCause());
+        }
+    }
+
+    // Creates a user with a hashed password; throws SQLIntegrityConstraintViolationException if taken
+    public int register(String username, char[] password, String role) throws SQLException {
+        int id = repository().create(username, hasher.hash(password), role);
+        cache.remove(username); // drop any negative entry
+        return id;
+    }
+
+    public void invalidate(String username) {
+        cache.remove(username);
+    }
+
+    public void invalidateAll() {
+        cache.clear();
+    }
+
+    public String stats() {
+        return String.format(
+                "hits=%d misses=%d verifications=%d rehashes=%d rejected=%d offline=%d cached=%d queued=%d",
+                hits.get(), misses.get(), verifications.get(), rehashes.get(), rejected.get(), offlineLogins.get(),
+                cache.size(), verifier.getQueue().size());
+    }
+
+    private UserCredentials lookup(String username) throws SQLException {
+        long now = System.currentTimeMillis();
+        Cached c = cache.get(username);
+        if (c != null && c.expiresAt > now) {
+            hits.incrementAndGet();
+            return c.credentials;
+        }
+        misses.incrementAndGet();
+        UserCredentials found = repository().findByUsername(username);
+        if (cache.size() >= config.maxCached) {
+            cache.values().removeIf(e -> e.expiresAt <= now);
+            if (cache.size() >= config.maxCached)
+                cache.clear(); // crude, but a full cache of live entries only happens under a flood
+        }
+        cache.put(username, new Cached(found, now + (found != null ? config.ttlMillis : config.negativeTtlMillis)));
+        return found;
+    }
+
+    // Runs on the verify pool
+    private boolean verify(UserCredentials found, char[] password) throws SQLException {
+        verifications.incrementAndGet();
+        if (found == null) {
+            hasher.verify(password, dummyHash); // same cost as a real check
+            return false;
+        }
+        String stored = found.getStoredPassword();
+        if (!hasher.verify(password, stored))
+            return false;
+        if (hasher.needsRehash(stored)) {
+            // the password matched: failing to store the upgrade must not fail the login
+            // (it is retried on the next one)
+            stored = hasher.hash(password);
+            try {
+                repository().updatePassword(found.getUser().getId(), stored);
+                cache.remove(found.getUser().getUsername());
+                rehashes.incrementAndGet();
+            } catch (SQLException ex) {
+                System.err.println("Could not rehash the password of user " + found.getUser().getId() + ": "
+                        + ex.getMessage());
+            }
+        }
+        remember(new UserCredentials(found.getUser(), stored));
+        return true;
+    }
+
+    // Runs on the verify pool: the database is down, check against the remembered hash
+    private boolean verifyOffline(UserCredentials last, char[] password) {
+        verifications.incrementAndGet();
+        if (!hasher.verify(password, last.getStoredPassword()))
+            return false;
+        offlineLogins.incrementAndGet();
+        return true;
+    }
+
+    // --- Last login (one line: id,role,hash,username) ---
+
+    // Called on every successful login; writes the file only when the line changes
+    private synchronized void remember(UserCredentials login) {
+        File file = lastLoginFile;
+        UserCredentials last = lastLogin;
+        String line = line(login);
+        if (file == null || (last != null && line(last).equals(line)))
+            return;
+        try {
+            LocalFiles.replace(file, line.getBytes(StandardCharsets.UTF_8));
+            lastLogin = login;
+        } catch (IOException ex) {
+            System.err.println("Could not save the last login: " + ex.getMessage());
+        }
+    }
+
+    private static String line(UserCredentials c) {
+        User u = c.getUser();
+        return u.getId() + "," + u.getRole() + "," + c.getStoredPassword() + "," + u.getUsername() + "\n";
+    }
+
+    private static UserCredentials readLastLogin(File file) {
+        if (!file.exists())
+            return null;
+        try {
+            String[] f = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).trim().split(",", 4);
+            if (f.length < 4 || !PasswordHasher.isHash(f[2]))
+                return null;
+            return new UserCredentials(new User(Integer.parseInt(f[0]), f[3], f[1]), f[2]);
+        } catch (IOException | NumberFormatException ex) {
+            System.err.println("Could not read the last login: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    private UserRepository repository() {
+        return target != null ? target : Repositories.users();
+    }
+}
@@ -0,0 +1,261 @@
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * BatchGrader - regrades a category's stored answer sheets against its current answer key.
+ *
+ * The key is two parallel arrays: question ids (sorted) and a 64-bit mask per question with
+ * bit p set when the option at position p (id order, as AnswerSheet stores it) is correct.
+ * Sheets are packed chunk by chunk into flat arrays - per attempt a range of (key index,
+ * answer byte) entries - so scoring an attempt is a sum of (mask[q] >>> answer) & 1 with no
+ * objects and no branches; unanswered (-1) lands on bit 63, which is never set. Questions
+ * deleted since the attempt point at a trailing empty mask and score nothing. Chunks are
+ * scored with fork-join over ranges of attempts, and only scores that changed are written
+ * back, batchSize per transaction.
+ */
+public class BatchGrader {
+
+    public static class Config {
+        int chunkSize = 100_000; // attempts packed and scored at a time
+        int batchSize = 1_000; // score updates per transaction
+        int leafSize = 4_096; // attempts a fork-join task scores without splitting further
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        public Config chunkSize(int v) { chunkSize = v; return this; }
+        public Config batchSize(int v) { batchSize = v; return this; }
+        public Config leafSize(int v) { leafSize = v; return this; }
+        public Config pool(ForkJoinPool v) { pool = v; return this; }
+    }
+
+    // What one regrade did
+    public static class Report {
+        public final int categoryId;
+        public final long attempts;
+        public final long changed;
+        public final long missingAnswers; // answers to questions no longer in the category
+        public final long millis;
+
+        Report(int categoryId, long attempts, long changed, long missingAnswers, long millis) {
+            this.categoryId = categoryId;
+            this.attempts = attempts;
+            this.changed = changed;
+            this.missingAnswers = missingAnswers;
+            this.millis = millis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("category %d: %d attempts regraded, %d scores changed, %d answers to deleted questions, %d ms",
+                    categoryId, attempts, changed, missingAnswers, millis);
+        }
+    }
+
+    // Correct positions per question, questionIds sorted; mask[questionIds.length] is the empty "missing" entry
+    public static class AnswerKey {
+        final int[] questionIds;
+        final long[] mask;
+
+        private AnswerKey(int[] questionIds, long[] mask) {
+            this.questionIds = questionIds;
+            this.mask = mask;
+        }
+
+        public static AnswerKey of(List<Question> questions) {
+            long[][] pairs = new long[questions.size()][];
+            for (int i = 0; i < pairs.length; i++) {
+                Question q = questions.get(i);
+                pairs[i] = new long[] { q.getId(), correctMask(q.getOptions()) };
+            }
+            Arrays.sort(pairs, (a, b) -> Long.compare(a[0], b[0]));
+            int[] ids = new int[pairs.length];
+            long[] mask = new long[pairs.length + 1];
+            for (int i = 0; i < pairs.length; i++) {
+                ids[i] = (int) pairs[i][0];
+                mask[i] = pairs[i][1];
+            }
+            return new AnswerKey(ids, mask);
+        }
+
+        // Index of the question's mask, or the missing entry
+        int indexOf(int questionId) {
+            int i = Arrays.binarySearch(questionIds, questionId);
+            return i >= 0 ? i : questionIds.length;
+        }
+
+        public int size() {
+            return questionIds.length;
+        }
+
+        private static long correctMask(List<Option> options) {
+            int[] ids = new int[options.size()];
+            for (int i = 0; i < ids.length; i++)
+                ids[i] = options.get(i).getId();
+            Arrays.sort(ids);
+            long mask = 0;
+            for (Option o : options) {
+                int position = Arrays.binarySearch(ids, o.getId());
+                if (o.isCorrect() && position <= AnswerSheet.MAX_POSITION)
+                    mask |= 1L << position;
+            }
+            return mask;
+        }
+    }
+
+    // A chunk of attempts in flat arrays: attempt a owns entries start[a] .. start[a + 1] - 1
+    public static class PackedSheets {
+        int[] resultIds;
+        int[] oldScores;
+        int[] start;
+        int[] questions; // key indexes
+        byte[] answers;
+        int count;
+        long missing;
+
+        public PackedSheets(int attempts, int entries) {
+            resultIds = new int[attempts];
+            oldScores = new int[attempts];
+            start = new int[attempts + 1];
+            questions = new int[entries];
+            answers = new byte[entries];
+        }
+
+        public void add(int resultId, int score, AnswerSheet sheet, AnswerKey key) {
+            if (count == resultIds.length) {
+                resultIds = Arrays.copyOf(resultIds, count * 2 + 16);
+                oldScores = Arrays.copyOf(oldScores, resultIds.length);
+                start = Arrays.copyOf(start, resultIds.length + 1);
+            }
+            int from = start[count], to = from + sheet.size();
+            if (to > questions.length) {
+                questions = Arrays.copyOf(questions, Math.max(questions.length * 2, to));
+                answers = Arrays.copyOf(answers, questions.length);
+            }
+            for (int i = 0; i < sheet.size(); i++) {
+                int q = key.indexOf(sheet.questionId(i));
+                if (q == key.size())
+                    missing++;
+                questions[from + i] = q;
+                answers[from + i] = sheet.answer(i);
+            }
+            resultIds[count] = resultId;
+            oldScores[count] = score;
+            start[++count] = to;
+        }
+
+        public int size() {
+            return count;
+        }
+
+        public void clear() {
+            count = 0;
+        }
+    }
+
+    private final Config config;
+
+    public BatchGrader(Config config) {
+        this.config = config;
+    }
+
+    // Regrades every stored sheet of the category against its questions as they are now
+    public Report regrade(int categoryId) throws SQLException {
+        long t0 = System.nanoTime();
+        AnswerKey key = AnswerKey.of(Repositories.questions().loadCategory(categoryId));
+        PackedSheets chunk = new PackedSheets(Math.min(config.chunkSize, 1024), 16 * 1024);
+        int[] scores = new int[config.chunkSize];
+        // changed scores wait here until the stream is done, so the read and the writes never hold two connections
+        int[][] changes = { new int[1024], new int[1024] };
+        long[] totals = new long[3]; // attempts, changed, missing answers
+        Repositories.results().forEachAnswerSheet(categoryId, (resultId, score, sheet) -> {
+            chunk.add(resultId, score, sheet, key);
+            if (chunk.size() == config.chunkSize)
+                gradeChunk(key, chunk, scores, changes, totals);
+        });
+        gradeChunk(key, chunk, scores, changes, totals);
+
+        int[] ids = changes[0], newScores = changes[1];
+        int changed = (int) totals[1];
+        for (int from = 0; from < changed; from += config.batchSize) {
+            int n = Math.min(config.batchSize, changed - from);
+            if (from > 0) {
+                System.arraycopy(ids, from, ids, 0, n);
+                System.arraycopy(newScores, from, newScores, 0, n);
+            }
+            Repositories.results().updateScores(ids, newScores, n);
+        }
+        if (changed > 0) {
+            Leaderboard.reset(); // its scores came from the table
+            Leaderboard.load(); // rebuilt in the background, not by the next submission
+        }
+        return new Report(categoryId, totals[0], changed, totals[2], (System.nanoTime() - t0) / 1_000_000);
+    }
+
+    private void gradeChunk(AnswerKey key, PackedSheets chunk, int[] scores, int[][] changes, long[] totals) {
+        int n = chunk.size();
+        scoreParallel(key, chunk, scores, config.pool, config.leafSize);
+        int changed = (int) totals[1];
+        for (int a = 0; a < n; a++) {
+            if (scores[a] == chunk.oldScores[a])
+                continue;
+            if (changed == changes[0].length) {
+                changes[0] = Arrays.copyOf(changes[0], changed * 2);
+                changes[1] = Arrays.copyOf(changes[1], changed * 2);
+            }
+            changes[0][changed] = chunk.resultIds[a];
+            changes[1][changed++] = scores[a];
+        }
+        totals[0] += n;
+        totals[1] = changed;
+        totals[2] += chunk.missing;
+        chunk.missing = 0;
+        chunk.clear();
+    }
+
+    // Scores attempts from .. to - 1 of sheets into scores[]
+    public static void score(AnswerKey key, PackedSheets sheets, int[] scores, int from, int to) {
+        long[] mask = key.mask;
+        int[] start = sheets.start;
+        int[] questions = sheets.questions;
+        byte[] answers = sheets.answers;
+        for (int a = from; a < to; a++) {
+            int score = 0;
+            for (int e = start[a], end = start[a + 1]; e < end; e++)
+                score += (int) (mask[questions[e]] >>> answers[e]) & 1; // shift counts are taken mod 64
+            scores[a] = score;
+        }
+    }
+
+    public static void scoreParallel(AnswerKey key, PackedSheets sheets, int[] scores, ForkJoinPool pool, int leafSize) {
+        pool.invoke(new ScoreTask(key, sheets, scores, 0, sheets.size(), Math.max(1, leafSize)));
+    }
+
+    private static class ScoreTask extends RecursiveAction {
+        private final AnswerKey key;
+        private final PackedSheets sheets;
+        private final int[] scores;
+        private final int from, to, leafSize;
+
+        ScoreTask(AnswerKey key, PackedSheets sheets, int[] scores, int from, int to, int leafSize) {
+            this.key = key;
+            this.sheets = sheets;
+            this.scores = scores;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= leafSize) {
+                score(key, sheets, scores, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ScoreTask(key, sheets, scores, from, mid, leafSize),
+                    new ScoreTask(key, sheets, scores, mid, to, leafSize));
+        }
+    }
+}
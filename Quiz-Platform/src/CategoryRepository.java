@@ -0,0 +1,16 @@
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * CategoryRepository - data access for the categories table.
+ */
+public interface CategoryRepository {
+    List<Category> findAll() throws SQLException;
+
+    int create(String name) throws SQLException;
+
+    void rename(int id, String name) throws SQLException;
+
+    // Deletes the category together with its questions and their options
+    void delete(int id) throws SQLException;
+}
@@ -1,6 +1,5 @@
 import javax.swing.*;
 import java.awt.*;
-import java.sql.*;
 
 public class CategoryWindow extends JFrame {
     private int userId;
@@ -27,15 +26,25 @@ public class CategoryWindow extends JFrame {
         p.add(start, BorderLayout.SOUTH);
         add(p);
 
-        // load categories
-        try (Connection c = DBConnection.getConnection();
-                Statement s = c.createStatement();
-                ResultSet rs = s.executeQuery("SELECT id, name FROM categories ORDER BY id ASC")) {
-            while (rs.next())
-                model.addElement(new Category(rs.getInt("id"), rs.getString("name")));
-        } catch (SQLException ex) {
-            ex.printStackTrace();
-        }
+        JProgressBar loading = DbWorker.loadingBar("Loading categories...");
+        p.add(loading, BorderLayout.NORTH);
+        DbWorker.setLoadingIndicator(this, loading);
+
+        // show the local snapshot's categories at once, then the current list when it arrives
+        // (loaded in the background, served from the shared cache after the first window)
+        QuestionSnapshot snapshot = OfflineBank.shared().snapshot();
+        if (snapshot != null)
+            show(model, list, snapshot.categories());
+        DbWorker.run(this, () -> QuestionBankCache.shared().categories(), categories -> {
+            show(model, list, categories);
+            if (OfflineBank.shared().isOffline())
+                setTitle("Select Category - " + username + " (offline)");
+        }, ex -> ex.printStackTrace());
+        // a quiz left unfinished (crash, window closed) is offered first; reading the journal is I/O
+        DbWorker.run(this, () -> QuizAutosave.shared().unfinished(userId), saved -> {
+            if (!saved.isEmpty())
+                offerResume(model, saved.get(0));
+        }, ex -> ex.printStackTrace());
 
         start.addActionListener(e -> {
             Category sel = list.getSelectedValue();
@@ -45,21 +54,35 @@ public class CategoryWindow extends JFrame {
             }
             dispose();
             // open QuizWindow with userId and selected category
-            new QuizWindow(userId, sel.id, sel.name).setVisible(true);
+            new QuizWindow(userId, sel.getId(), sel.getName()).setVisible(true);
         });
     }
 
-    private static class Category {
-        int id;
-        String name;
-
-        Category(int id, String name) {
-            this.id = id;
-            this.name = name;
+    private void offerResume(DefaultListModel<Category> model, QuizAutosave.Saved saved) {
+        String name = "category " + saved.getCategoryId();
+        for (int i = 0; i < model.size(); i++) {
+            if (model.get(i).getId() == saved.getCategoryId())
+                name = model.get(i).getName();
         }
+        int choice = JOptionPane.showConfirmDialog(this, "You have an unfinished quiz in " + name + " ("
+                + saved.answered() + " of " + saved.size() + " answered). Resume it?", "Resume quiz",
+                JOptionPane.YES_NO_OPTION);
+        if (choice == JOptionPane.YES_OPTION) {
+            dispose();
+            new QuizWindow(userId, saved.getCategoryId(), name, saved).setVisible(true);
+        } else if (choice == JOptionPane.NO_OPTION) {
+            DbWorker.run(null, () -> QuizAutosave.shared().discard(saved), () -> {}, ex -> ex.printStackTrace());
+        }
+    }
 
-        public String toString() {
-            return name;
+    // Replaces the list contents, keeping the selected category selected
+    private static void show(DefaultListModel<Category> model, JList<Category> list, java.util.List<Category> categories) {
+        Category selected = list.getSelectedValue();
+        model.clear();
+        for (Category cat : categories) {
+            model.addElement(cat);
+            if (selected != null && cat.getId() == selected.getId())
+                list.setSelectedIndex(model.size() - 1);
         }
     }
 }
@@ -0,0 +1,149 @@
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * CompactQuestionBank - an immutable List<Question> stored column by column in primitive arrays.
+ *
+ * Question i has id questionIds[i] and options optionStart[i] .. optionStart[i + 1] - 1 of a
+ * shared option table (ids, a bitset of correct flags). Every text is an index into one pool
+ * of strings packed as UTF-8 in a single byte array; short texts are deduplicated, so stock
+ * answers ("True", "None of the above") are stored once. get() builds the Question and its
+ * Options on demand; callers that only need ids or flags can use idAt/optionCount/isCorrect
+ * without allocating.
+ * QuestionBankCache keeps large categories in this form.
+ */
+public class CompactQuestionBank extends AbstractList<Question> implements RandomAccess {
+    private static final int DEDUP_MAX_LENGTH = 32;
+
+    private final int[] questionIds;
+    private final int[] questionText;
+    private final int[] optionStart;
+    private final int[] optionIds;
+    private final int[] optionText;
+    private final long[] correct;
+    private final byte[] textBytes;
+    private final int[] textStart;
+
+    private CompactQuestionBank(int[] questionIds, int[] questionText, int[] optionStart, int[] optionIds,
+            int[] optionText, long[] correct, byte[] textBytes, int[] textStart) {
+        this.questionIds = questionIds;
+        this.questionText = questionText;
+        this.optionStart = optionStart;
+        this.optionIds = optionIds;
+        this.optionText = optionText;
+        this.correct = correct;
+        this.textBytes = textBytes;
+        this.textStart = textStart;
+    }
+
+    public static CompactQuestionBank of(List<Question> questions) {
+        int n = questions.size();
+        int options = 0;
+        for (Question q : questions)
+            options += q.getOptions().size();
+        int[] questionIds = new int[n];
+        int[] questionText = new int[n];
+        int[] optionStart = new int[n + 1];
+        int[] optionIds = new int[options];
+        int[] optionText = new int[options];
+        long[] correct = new long[(options + 63) >>> 6];
+        TextPool pool = new TextPool();
+        int o = 0;
+        for (int i = 0; i < n; i++) {
+            Question q = questions.get(i);
+            questionIds[i] = q.getId();
+            questionText[i] = pool.add(q.getText());
+            optionStart[i] = o;
+            for (Option opt : q.getOptions()) {
+                optionIds[o] = opt.getId();
+                optionText[o] = pool.add(opt.getText());
+                if (opt.isCorrect())
+                    correct[o >>> 6] |= 1L << o;
+                o++;
+            }
+        }
+        optionStart[n] = o;
+        return new CompactQuestionBank(questionIds, questionText, optionStart, optionIds, optionText, correct,
+                pool.bytes(), pool.starts());
+    }
+
+    @Override
+    public Question get(int index) {
+        int from = optionStart[index], to = optionStart[index + 1];
+        List<Option> options = new ArrayList<>(to - from);
+        for (int o = from; o < to; o++)
+            options.add(new Option(optionIds[o], text(optionText[o]), (correct[o >>> 6] & (1L << o)) != 0));
+        return new Question(questionIds[index], text(questionText[index]), options);
+    }
+
+    @Override
+    public int size() {
+        return questionIds.length;
+    }
+
+    public int idAt(int index) {
+        return questionIds[index];
+    }
+
+    public int optionCount(int index) {
+        return optionStart[index + 1] - optionStart[index];
+    }
+
+    public boolean isCorrect(int index, int option) {
+        int o = optionStart[index] + option;
+        return (correct[o >>> 6] & (1L << o)) != 0;
+    }
+
+    // Bytes held by the arrays (object headers included), for stats and the footprint benchmark
+    public long footprintBytes() {
+        long ints = questionIds.length + questionText.length + optionStart.length + optionIds.length
+                + optionText.length + textStart.length;
+        return 8 * 16 + 4 * ints + 8L * correct.length + textBytes.length;
+    }
+
+    private String text(int t) {
+        return new String(textBytes, textStart[t], textStart[t + 1] - textStart[t], StandardCharsets.UTF_8);
+    }
+
+    // Strings UTF-8 encoded back to back; index t spans starts[t] .. starts[t + 1]
+    private static class TextPool {
+        private final Map<String, Integer> index = new HashMap<>();
+        private byte[] bytes = new byte[1024];
+        private int[] starts = new int[64];
+        private int size;
+        private int length;
+
+        int add(String s) {
+            // long texts are nearly always unique; only short ones are worth looking up
+            Integer known = s.length() <= DEDUP_MAX_LENGTH ? index.get(s) : null;
+            if (known != null)
+                return known;
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            if (length + b.length > bytes.length)
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + b.length));
+            if (size + 2 > starts.length)
+                starts = Arrays.copyOf(starts, starts.length * 2);
+            System.arraycopy(b, 0, bytes, length, b.length);
+            starts[size] = length;
+            length += b.length;
+            starts[size + 1] = length;
+            if (s.length() <= DEDUP_MAX_LENGTH)
+                index.put(s, size);
+            return size++;
+        }
+
+        byte[] bytes() {
+            return Arrays.copyOf(bytes, length);
+        }
+
+        int[] starts() {
+            return Arrays.copyOf(starts, size + 1);
+        }
+    }
+}
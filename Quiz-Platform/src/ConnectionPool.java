@@ -0,0 +1,712 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ConnectionPool - a small bounded JDBC pool used behind DBConnection.getConnection().
+ *
+ * Connections handed out are proxies: calling close() returns the physical connection
+ * to the pool instead of closing it, so the existing try-with-resources call sites keep working.
+ * Supports warm-up (minIdle), idle eviction, validation on borrow, a max wait timeout
+ * and leak detection for connections held longer than leakThresholdMillis.
+ * Acquiring, statements (wrapped in proxies too), commits and rollbacks are timed in Metrics.
+ * Each physical connection keeps its prepared statements in an LRU keyed by SQL
+ * (statementCacheSize): close() on a cached statement puts it back for the next prepare of
+ * the same SQL, and evicted statements are closed at once.
+ */
+public class ConnectionPool {
+
+    // --- Configuration ---
+
+    public static class Config {
+        String url;
+        String user;
+        String password;
+        int maxSize = 10;
+        int minIdle = 2;
+        long maxWaitMillis = 5_000;
+        long idleTimeoutMillis = 5 * 60_000;
+        long leakThresholdMillis = 60_000;
+        long housekeepingMillis = 30_000;
+        int validationTimeoutSeconds = 2;
+        int statementCacheSize = 64; // prepared statements kept per connection, 0 = no caching
+
+        public Config(String url, String user, String password) {
+            this.url = url;
+            this.user = user;
+            this.password = password;
+        }
+
+        public Config maxSize(int v) { maxSize = v; return this; }
+        public Config minIdle(int v) { minIdle = v; return this; }
+        public Config maxWaitMillis(long v) { maxWaitMillis = v; return this; }
+        public Config idleTimeoutMillis(long v) { idleTimeoutMillis = v; return this; }
+        public Config leakThresholdMillis(long v) { leakThresholdMillis = v; return this; }
+        public Config housekeepingMillis(long v) { housekeepingMillis = v; return this; }
+        public Config statementCacheSize(int v) { statementCacheSize = v; return this; }
+    }
+
+    // Snapshot of pool counters, safe to print or show in the admin status area
+    public static class Stats {
+        public final int active, idle, total, waiting;
+        public final long borrows, timeouts, created, evicted, leaksDetected;
+        public final long totalWaitNanos, maxWaitNanos;
+        public final long statementHits, statementMisses, statementEvictions;
+        public final double prepareMillis; // median time of an uncached prepare (db.prepare)
+
+        Stats(int active, int idle, int waiting, long borrows, long timeouts, long created, long evicted,
+                long leaksDetected, long totalWaitNanos, long maxWaitNanos, long statementHits,
+                long statementMisses, long statementEvictions, double prepareMillis) {
+            this.active = active;
+            this.idle = idle;
+            this.total = active + idle;
+            this.waiting = waiting;
+            this.borrows = borrows;
+            this.timeouts = timeouts;
+            this.created = created;
+            this.evicted = evicted;
+            this.leaksDetected = leaksDetected;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+            this.statementHits = statementHits;
+            this.statementMisses = statementMisses;
+            this.statementEvictions = statementEvictions;
+            this.prepareMillis = prepareMillis;
+        }
+
+        public double avgWaitMillis() {
+            return borrows == 0 ? 0 : totalWaitNanos / 1e6 / borrows;
+        }
+
+        public double statementReuseRate() {
+            long total = statementHits + statementMisses;
+            return total == 0 ? 0 : (double) statementHits / total;
+        }
+
+        // Estimated prepare time avoided by cache hits
+        public double savedMillis() {
+            return statementHits * prepareMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("active=%d idle=%d waiting=%d borrows=%d timeouts=%d created=%d evicted=%d "
+                    + "leaks=%d avgWait=%.3fms maxWait=%.3fms stmtReuse=%.0f%% (%d/%d) stmtEvicted=%d "
+                    + "prepareSaved=%.1fms", active, idle, waiting, borrows, timeouts, created, evicted,
+                    leaksDetected, avgWaitMillis(), maxWaitNanos / 1e6, 100 * statementReuseRate(), statementHits,
+                    statementHits + statementMisses, statementEvictions, savedMillis());
+        }
+    }
+
+    // A physical connection plus the bookkeeping the pool needs for it
+    private static class PooledEntry {
+        final Connection physical;
+        long lastReturnedAt = System.currentTimeMillis();
+        long borrowedAt;
+        Throwable borrowSite; // captured on borrow, reported if the connection leaks
+        boolean leakReported;
+        final StatementCache statements; // null when caching is off
+
+        PooledEntry(Connection physical, StatementCache statements) {
+            this.physical = physical;
+            this.statements = statements;
+        }
+    }
+
+    // Idle prepared statements of one physical connection, least recently used first. A statement
+    // is taken out while in use and put back on close, so two callers never share one. Only the
+    // borrower of the connection touches it (or the pool once the connection is retired).
+    private class StatementCache {
+        private final LinkedHashMap<String, PreparedStatement> idle = new LinkedHashMap<>(16, 0.75f, true);
+
+        PreparedStatement take(String key) {
+            return idle.remove(key);
+        }
+
+        void put(String key, PreparedStatement ps) {
+            PreparedStatement replaced = idle.put(key, ps);
+            if (replaced != null && replaced != ps)
+                closeQuietly(replaced);
+            if (idle.size() > config.statementCacheSize) {
+                Iterator<Map.Entry<String, PreparedStatement>> it = idle.entrySet().iterator();
+                PreparedStatement eldest = it.next().getValue();
+                it.remove();
+                closeQuietly(eldest);
+                statementEvictions.incrementAndGet();
+            }
+        }
+
+        void closeAll() {
+            for (PreparedStatement ps : idle.values())
+                closeQuietly(ps);
+            idle.clear();
+        }
+    }
+
+    private static final Metrics.Timer ACQUIRE = Metrics.timer("db.acquire");
+    private static final Metrics.Timer QUERY = Metrics.timer("db.query");
+    private static final Metrics.Timer UPDATE = Metrics.timer("db.update");
+    private static final Metrics.Timer BATCH = Metrics.timer("db.batch");
+    private static final Metrics.Timer EXECUTE = Metrics.timer("db.execute");
+    private static final Metrics.Timer COMMIT = Metrics.timer("db.commit");
+    private static final Metrics.Timer ROLLBACK = Metrics.timer("db.rollback");
+    private static final Metrics.Timer PREPARE = Metrics.timer("db.prepare");
+    private static final Metrics.Counter ERRORS = Metrics.counter("db.errors");
+    private static final Metrics.Counter ROWS_READ = Metrics.counter("db.rowsRead");
+    // Statement calls that make a statement unfit for reuse by the next caller
+    private static final Set<String> STATEMENT_SETTINGS = Set.of("setFetchSize", "setFetchDirection", "setMaxRows",
+            "setLargeMaxRows", "setMaxFieldSize", "setQueryTimeout", "setEscapeProcessing", "setCursorName",
+            "setPoolable", "closeOnCompletion");
+    private static final Metrics.Counter ROWS_WRITTEN = Metrics.counter("db.rowsWritten");
+    // counting rows read puts every ResultSet getter behind a proxy too (about 2x on large reads)
+    private static final boolean COUNT_ROWS_READ = Boolean.getBoolean("quiz.metrics.countRowsRead");
+
+    private final Config config;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Deque<PooledEntry> idle = new ArrayDeque<>();
+    private final Set<PooledEntry> borrowed = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+    private int totalCount = 0; // idle + borrowed + being created, guarded by lock
+    private int waiters = 0;
+    private boolean closed = false;
+
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong leaks = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong statementHits = new AtomicLong();
+    private final AtomicLong statementMisses = new AtomicLong();
+    private final AtomicLong statementEvictions = new AtomicLong();
+
+    public ConnectionPool(Config config) {
+        this.config = config;
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep, config.housekeepingMillis,
+                config.housekeepingMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Top the pool up to minIdle connections so the first click does not pay the handshake
+    public void warmUp() {
+        while (true) {
+            if (!reserveSlot(config.minIdle))
+                return;
+            try {
+                PooledEntry e = newEntry();
+                lock.lock();
+                try {
+                    idle.addLast(e);
+                    available.signal();
+                } finally {
+                    lock.unlock();
+                }
+            } catch (SQLException ex) {
+                releaseSlot();
+                System.err.println("Connection pool warm-up failed: " + ex.getMessage());
+                return;
+            }
+        }
+    }
+
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            Connection c = acquire(start);
+            ACQUIRE.record(System.nanoTime() - start);
+            return c;
+        } catch (SQLException ex) {
+            ACQUIRE.recordError(System.nanoTime() - start);
+            ERRORS.increment();
+            throw ex;
+        }
+    }
+
+    private Connection acquire(long start) throws SQLException {
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(config.maxWaitMillis);
+        while (true) {
+            PooledEntry e = null;
+            boolean mayCreate = false;
+            lock.lock();
+            try {
+                while (true) {
+                    if (closed)
+                        throw new SQLException("Connection pool is closed");
+                    e = idle.pollFirst(); // LIFO keeps the hottest connections in use
+                    if (e != null)
+                        break;
+                    if (totalCount < config.maxSize) {
+                        totalCount++;
+                        mayCreate = true;
+                        break;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        timeouts.incrementAndGet();
+                        throw new SQLTimeoutException("Timed out after " + config.maxWaitMillis
+                                + " ms waiting for a database connection (" + stats() + ")");
+                    }
+                    waiters++;
+                    try {
+                        available.awaitNanos(remaining);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a database connection", ie);
+                    } finally {
+                        waiters--;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (mayCreate) {
+                try {
+                    e = newEntry();
+                } catch (SQLException ex) {
+                    releaseSlot();
+                    throw ex;
+                }
+            } else if (!isUsable(e)) {
+                discard(e);
+                continue; // try the next idle one (or create a fresh one)
+            }
+            recordWait(System.nanoTime() - start);
+            return lend(e);
+        }
+    }
+
+    public Stats stats() {
+        lock.lock();
+        try {
+            return new Stats(borrowed.size(), idle.size(), waiters, borrows.get(), timeouts.get(),
+                    created.get(), evicted.get(), leaks.get(), totalWaitNanos.get(), maxWaitNanos.get(),
+                    statementHits.get(), statementMisses.get(), statementEvictions.get(),
+                    PREPARE.quantileMillis(0.5));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void shutdown() {
+        housekeeper.shutdownNow();
+        lock.lock();
+        try {
+            closed = true;
+            for (PooledEntry e : idle)
+                close(e);
+            totalCount -= idle.size();
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // --- Internals ---
+
+    private Connection openPhysical() throws SQLException {
+        Connection c = DriverManager.getConnection(config.url, config.user, config.password);
+        created.incrementAndGet();
+        return c;
+    }
+
+    // Validation on borrow: skip the round trip when the connection was returned moments ago
+    private boolean isUsable(PooledEntry e) {
+        try {
+            if (e.physical.isClosed())
+                return false;
+            if (System.currentTimeMillis() - e.lastReturnedAt < 500)
+                return true;
+            return e.physical.isValid(config.validationTimeoutSeconds);
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private Connection lend(PooledEntry e) {
+        e.borrowedAt = System.currentTimeMillis();
+        e.borrowSite = config.leakThresholdMillis > 0 ? new Throwable("Connection borrowed here") : null;
+        e.leakReported = false;
+        borrowed.add(e);
+        borrows.incrementAndGet();
+        return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, new Handle(e));
+    }
+
+    private void giveBack(PooledEntry e, boolean broken) {
+        borrowed.remove(e);
+        if (broken) {
+            discard(e);
+            return;
+        }
+        try {
+            if (!e.physical.getAutoCommit()) {
+                // a caller left a transaction open: undo it so the next borrower starts clean
+                e.physical.rollback();
+                e.physical.setAutoCommit(true);
+            }
+        } catch (SQLException ex) {
+            discard(e);
+            return;
+        }
+        e.lastReturnedAt = System.currentTimeMillis();
+        e.borrowSite = null;
+        lock.lock();
+        try {
+            if (closed) {
+                totalCount--;
+                close(e);
+                return;
+            }
+            idle.addFirst(e);
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private PooledEntry newEntry() throws SQLException {
+        return new PooledEntry(openPhysical(), config.statementCacheSize > 0 ? new StatementCache() : null);
+    }
+
+    private void discard(PooledEntry e) {
+        close(e);
+        releaseSlot();
+    }
+
+    private boolean reserveSlot(int limit) {
+        lock.lock();
+        try {
+            if (closed || totalCount >= Math.min(limit, config.maxSize))
+                return false;
+            totalCount++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void releaseSlot() {
+        lock.lock();
+        try {
+            totalCount--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recordWait(long nanos) {
+        totalWaitNanos.addAndGet(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    // Runs periodically: evict idle connections past idleTimeout (keeping minIdle) and report leaks
+    private void housekeep() {
+        long now = System.currentTimeMillis();
+        lock.lock();
+        try {
+            Iterator<PooledEntry> it = idle.descendingIterator(); // oldest returns first
+            while (it.hasNext() && idle.size() > config.minIdle) {
+                PooledEntry e = it.next();
+                if (now - e.lastReturnedAt > config.idleTimeoutMillis) {
+                    it.remove();
+                    totalCount--;
+                    evicted.incrementAndGet();
+                    close(e);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (config.leakThresholdMillis > 0) {
+            for (PooledEntry e : borrowed) {
+                if (!e.leakReported && now - e.borrowedAt > config.leakThresholdMillis) {
+                    e.leakReported = true;
+                    leaks.incrementAndGet();
+                    System.err.println("Possible connection leak: held for " + (now - e.borrowedAt) + " ms");
+                    if (e.borrowSite != null)
+                        e.borrowSite.printStackTrace();
+                }
+            }
+        }
+
+        warmUp();
+    }
+
+    // Closes the cached statements, then the physical connection
+    private static void close(PooledEntry e) {
+        if (e.statements != null)
+            e.statements.closeAll();
+        closeQuietly(e.physical);
+    }
+
+    private static void closeQuietly(AutoCloseable c) {
+        try {
+            c.close();
+        } catch (Exception ignore) {
+        }
+    }
+
+    // Proxy handler: close() returns to the pool, everything else is delegated
+    private class Handle implements InvocationHandler {
+        private final PooledEntry entry;
+        private final Set<StatementHandle> openStatements = new HashSet<>();
+        private boolean returned = false;
+        private boolean broken = false;
+
+        Handle(PooledEntry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        // statements the caller forgot to close would otherwise pile up on the physical connection
+                        for (StatementHandle st : new ArrayList<>(openStatements))
+                            st.release(false);
+                        giveBack(entry, broken);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || entry.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + entry.physical;
+                default:
+                    break;
+            }
+            if (returned)
+                throw new SQLException("Connection already returned to the pool");
+            String key = entry.statements != null && name.equals("prepareStatement") ? cacheKey(args) : null;
+            if (key != null) {
+                PreparedStatement cached = entry.statements.take(key);
+                if (cached != null) {
+                    statementHits.incrementAndGet();
+                    return open(cached, method, (String) args[0], key);
+                }
+            }
+            Metrics.Timer timer = name.equals("commit") ? COMMIT : name.equals("rollback") ? ROLLBACK
+                    : name.equals("prepareStatement") ? PREPARE : null;
+            long start = System.nanoTime();
+            try {
+                Object result = method.invoke(entry.physical, args);
+                if (timer != null)
+                    timer.record(System.nanoTime() - start);
+                if (key != null)
+                    statementMisses.incrementAndGet();
+                if (result instanceof Statement) {
+                    String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                    return open((Statement) result, method, sql, key);
+                }
+                return result;
+            } catch (InvocationTargetException ite) {
+                Throwable cause = ite.getCause();
+                if (timer != null)
+                    timer.recordError(System.nanoTime() - start);
+                ERRORS.increment();
+                // a communications failure means this physical connection must not be reused
+                if (cause instanceof SQLException) {
+                    String state = ((SQLException) cause).getSQLState();
+                    if (state != null && state.startsWith("08"))
+                        broken = true;
+                }
+                throw cause;
+            }
+        }
+
+        private Object open(Statement st, Method method, String sql, String key) {
+            StatementHandle h = new StatementHandle(this, st, sql, key);
+            openStatements.add(h);
+            return Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class<?>[] { method.getReturnType() }, h);
+        }
+
+        // Cache key for prepareStatement(sql), (sql, autoGeneratedKeys) and (sql, type, concurrency);
+        // null for the variants that are not cached
+        private String cacheKey(Object[] args) {
+            if (args.length == 1)
+                return (String) args[0];
+            if (args.length == 2 && args[1] instanceof Integer)
+                return args[0] + "\0" + args[1];
+            if (args.length == 3 && args[1] instanceof Integer)
+                return args[0] + "\0" + args[1] + "," + args[2];
+            return null;
+        }
+    }
+
+    // Statement proxy: times the execute calls, counts rows and reports slow statements.
+    // close() hands a cacheable statement back to its connection's cache instead of closing it.
+    private class StatementHandle implements InvocationHandler {
+        private final Handle connection;
+        private final Statement target;
+        private final String sql; // null for plain Statements, whose SQL comes with each execute
+        private final String key; // cache key, null if not cacheable
+        private boolean closed;
+        private boolean dirty; // statement-level settings changed, so it must not serve the next caller
+        private boolean batched;
+
+        StatementHandle(Handle connection, Statement target, String sql, String key) {
+            this.connection = connection;
+            this.target = target;
+            this.sql = sql;
+            this.key = key;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    release(true);
+                    return null;
+                case "isClosed":
+                    return closed || target.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "addBatch":
+                    batched = true;
+                    break;
+                default:
+                    if (STATEMENT_SETTINGS.contains(name))
+                        dirty = true;
+                    break;
+            }
+            if (closed)
+                throw new SQLException("Statement already closed");
+            Metrics.Timer timer = timerFor(name);
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException ite) {
+                if (timer != null) {
+                    timer.recordError(System.nanoTime() - start);
+                    ERRORS.increment();
+                }
+                throw ite.getCause();
+            }
+            if (timer != null) {
+                long elapsed = System.nanoTime() - start;
+                timer.record(elapsed);
+                Metrics.slowQuery(args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql,
+                        elapsed);
+                countWritten(result);
+            }
+            if (COUNT_ROWS_READ && result instanceof ResultSet && (name.equals("executeQuery") || name.equals("getResultSet")))
+                return Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+                        new RowCounter((ResultSet) result));
+            return result;
+        }
+
+        // Back to the cache when allowed and the statement is clean, otherwise closed for real
+        void release(boolean reuse) {
+            if (closed)
+                return;
+            closed = true;
+            connection.openStatements.remove(this);
+            StatementCache cache = connection.entry.statements;
+            if (reuse && key != null && !dirty && cache != null) {
+                try {
+                    PreparedStatement ps = (PreparedStatement) target;
+                    ps.clearParameters();
+                    if (batched)
+                        ps.clearBatch();
+                    cache.put(key, ps);
+                    return;
+                } catch (SQLException ignore) {
+                    // not reusable, close it below
+                }
+            }
+            closeQuietly(target);
+        }
+
+        private static Metrics.Timer timerFor(String method) {
+            switch (method) {
+                case "executeQuery": return QUERY;
+                case "executeUpdate": case "executeLargeUpdate": return UPDATE;
+                case "executeBatch": case "executeLargeBatch": return BATCH;
+                case "execute": return EXECUTE;
+                default: return null;
+            }
+        }
+
+        private static void countWritten(Object result) {
+            if (result instanceof Integer || result instanceof Long) {
+                ROWS_WRITTEN.add(((Number) result).longValue());
+            } else if (result instanceof int[]) {
+                for (int n : (int[]) result)
+                    if (n > 0) ROWS_WRITTEN.add(n);
+            } else if (result instanceof long[]) {
+                for (long n : (long[]) result)
+                    if (n > 0) ROWS_WRITTEN.add(n);
+            }
+        }
+    }
+
+    // ResultSet proxy counting the rows read
+    private static class RowCounter implements InvocationHandler {
+        private final ResultSet target;
+
+        RowCounter(ResultSet target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getName().equals("equals"))
+                return proxy == args[0];
+            if (method.getName().equals("hashCode"))
+                return System.identityHashCode(proxy);
+            try {
+                Object result = method.invoke(target, args);
+                if (Boolean.TRUE.equals(result) && method.getName().equals("next"))
+                    ROWS_READ.increment();
+                return result;
+            } catch (InvocationTargetException ite) {
+                throw ite.getCause();
+            }
+        }
+    }
+}
@@ -1,12 +1,113 @@
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
 
 public class DBConnection {
-    private static final String URL = "jdbc:mysql://localhost:3306/quizdb";
-    private static final String USER = "root";
-    private static final String PASS = "arjun@123"; // change this
+    // -Dquiz.db.url/user/password override these (benchmarks point them at an embedded H2)
+    // rewriteBatchedStatements turns JDBC batches into multi-row INSERTs (one round trip per batch);
+    // useServerPrepStmts makes prepareStatement a real server-side prepare, worth it now that the
+    // pool keeps prepared statements per connection (the driver's own cachePrepStmts stays off so
+    // closing an evicted statement really deallocates it on the server)
+    private static final String URL = System.getProperty("quiz.db.url",
+            "jdbc:mysql://localhost:3306/quizdb?rewriteBatchedStatements=true&useServerPrepStmts=true");
+    private static final String USER = System.getProperty("quiz.db.user", "root");
+    private static final String PASS = System.getProperty("quiz.db.password", "arjun@123"); // change this
 
+    // Pool sizing can be tuned with -Dquiz.pool.maxSize=... etc. without touching code
+    private static final ConnectionPool.Config CONFIG = new ConnectionPool.Config(URL, USER, PASS)
+            .maxSize(Integer.getInteger("quiz.pool.maxSize", 10))
+            .minIdle(Integer.getInteger("quiz.pool.minIdle", 2))
+            .maxWaitMillis(Long.getLong("quiz.pool.maxWaitMillis", 5_000L))
+            .idleTimeoutMillis(Long.getLong("quiz.pool.idleTimeoutMillis", 5 * 60_000L))
+            .leakThresholdMillis(Long.getLong("quiz.pool.leakThresholdMillis", 60_000L))
+            .statementCacheSize(Integer.getInteger("quiz.pool.statementCacheSize", 64));
+
+    private static volatile ConnectionPool pool;
+    private static volatile boolean closed; // shutdown() ran: the pool is never rebuilt
+    private static final List<Runnable> beforeShutdown = new ArrayList<>(); // guarded by DBConnection.class
+    private static boolean hookInstalled;
+
+    // Returns a pooled connection; close() hands it back to the pool
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(URL, USER, PASS);
+        EdtGuard.check("DBConnection.getConnection()");
+        if (closed)
+            throw new SQLException("Connection pool is shut down");
+        return pool().getConnection();
+    }
+
+    // Runs task at JVM exit before the pool closes, in registration order, from the one hook that
+    // then shuts the pool down (write-behind sinks flush their queues this way). Separate hooks
+    // would run concurrently with the pool's shutdown.
+    public static synchronized void beforeShutdown(Runnable task) {
+        beforeShutdown.add(task);
+        installHook();
+    }
+
+    // Makes a query on c stream its rows instead of buffering the whole result set
+    // (Connector/J streams only with this magic fetch size; other drivers take it as a hint)
+    public static void streamResults(Connection c, Statement s) throws SQLException {
+        s.setFetchSize(c.getMetaData().getURL().startsWith("jdbc:mysql:") ? Integer.MIN_VALUE : 1000);
+    }
+
+    public static ConnectionPool.Stats poolStats() {
+        return pool().stats();
+    }
+
+    // Open the minimum number of idle connections ahead of the first query
+    public static void warmUp() {
+        pool().warmUp();
+    }
+
+    public static synchronized void shutdown() {
+        closed = true;
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    private static ConnectionPool pool() {
+        ConnectionPool p = pool;
+        if (p == null) {
+            synchronized (DBConnection.class) {
+                p = pool;
+                if (p == null) {
+                    if (closed)
+                        throw new IllegalStateException("Connection pool is shut down");
+                    p = new ConnectionPool(CONFIG);
+                    pool = p;
+                    installHook();
+                }
+            }
+        }
+        return p;
+    }
+
+    // Caller holds the class lock
+    private static void installHook() {
+        if (hookInstalled)
+            return;
+        try {
+            Runtime.getRuntime().addShutdownHook(new Thread(DBConnection::runShutdown, "db-shutdown"));
+            hookInstalled = true;
+        } catch (IllegalStateException exiting) {
+            // first used while the JVM is already shutting down: nothing left to order
+        }
+    }
+
+    private static void runShutdown() {
+        List<Runnable> tasks;
+        synchronized (DBConnection.class) {
+            tasks = new ArrayList<>(beforeShutdown);
+        }
+        for (Runnable task : tasks) {
+            try {
+                task.run();
+            } catch (RuntimeException ex) {
+                System.err.println("Shutdown task failed: " + ex);
+            }
+        }
+        shutdown();
     }
 
     // quick test main (optional)
@@ -16,5 +117,6 @@ public class DBConnection {
         } catch (SQLException e) {
             e.printStackTrace();
         }
+        System.out.println("Pool: " + poolStats());
     }
 }
@@ -0,0 +1,164 @@
+import javax.swing.*;
+import java.awt.Cursor;
+import java.awt.Window;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * DbWorker - runs database work off the Event Dispatch Thread.
+ *
+ * run() executes the task on a SwingWorker background thread and delivers the result
+ * (or the failure) back on the EDT. Work is tied to an owner window: while any task is
+ * pending the window shows a wait cursor and its loading indicator, and when the window
+ * is closed its pending tasks are cancelled and their callbacks skipped.
+ * Pass a null owner for work that must finish even if the window goes away (e.g. saving a score).
+ * Tasks are timed as "ui.task" in Metrics; failures are counted there too.
+ */
+public class DbWorker {
+
+    // Everything below is only touched on the EDT, so plain collections are enough
+    private static final Map<Window, Set<SwingWorker<?, ?>>> pending = new WeakHashMap<>();
+    private static final Map<Window, JComponent> indicators = new WeakHashMap<>();
+    private static final Metrics.Timer TASK = Metrics.timer("ui.task");
+
+    public static <T> SwingWorker<T, Void> run(Window owner, Callable<T> task, Consumer<T> onSuccess,
+            Consumer<Exception> onError) {
+        SwingWorker<T, Void> worker = new SwingWorker<T, Void>() {
+            @Override
+            protected T doInBackground() throws Exception {
+                long start = System.nanoTime();
+                try {
+                    T result = task.call();
+                    TASK.record(System.nanoTime() - start);
+                    return result;
+                } catch (Exception e) {
+                    TASK.recordError(System.nanoTime() - start);
+                    throw e;
+                }
+            }
+
+            @Override
+            protected void done() {
+                finished(owner, this);
+                if (isCancelled())
+                    return;
+                try {
+                    T result = get();
+                    if (onSuccess != null)
+                        onSuccess.accept(result);
+                } catch (CancellationException | InterruptedException ignore) {
+                } catch (ExecutionException ee) {
+                    Throwable cause = ee.getCause();
+                    Exception ex = cause instanceof Exception ? (Exception) cause : new Exception(cause);
+                    if (onError != null)
+                        onError.accept(ex);
+                    else
+                        ex.printStackTrace();
+                }
+            }
+        };
+        started(owner, worker);
+        worker.execute();
+        return worker;
+    }
+
+    // Convenience for writes with no result
+    public static SwingWorker<Void, Void> run(Window owner, Task task, Runnable onSuccess,
+            Consumer<Exception> onError) {
+        return run(owner, () -> {
+            task.run();
+            return null;
+        }, ignore -> {
+            if (onSuccess != null)
+                onSuccess.run();
+        }, onError);
+    }
+
+    public interface Task {
+        void run() throws Exception;
+    }
+
+    // Indeterminate progress bar to pass to setLoadingIndicator
+    public static JProgressBar loadingBar(String text) {
+        JProgressBar bar = new JProgressBar();
+        bar.setIndeterminate(true);
+        bar.setString(text);
+        bar.setStringPainted(true);
+        return bar;
+    }
+
+    // Component shown while the window has work pending (e.g. an indeterminate JProgressBar)
+    public static void setLoadingIndicator(Window owner, JComponent indicator) {
+        indicators.put(owner, indicator);
+        indicator.setVisible(isBusy(owner));
+    }
+
+    public static boolean isBusy(Window owner) {
+        Set<SwingWorker<?, ?>> set = pending.get(owner);
+        return set != null && !set.isEmpty();
+    }
+
+    // Cancel everything still pending for this window (also done automatically on close)
+    public static void cancelAll(Window owner) {
+        Set<SwingWorker<?, ?>> set = pending.remove(owner);
+        if (set != null) {
+            for (SwingWorker<?, ?> w : set)
+                w.cancel(true);
+        }
+        updateIndicator(owner);
+    }
+
+    private static void started(Window owner, SwingWorker<?, ?> worker) {
+        if (owner == null)
+            return;
+        Set<SwingWorker<?, ?>> set = pending.get(owner);
+        if (set == null) {
+            set = new HashSet<>();
+            pending.put(owner, set);
+            if (!hasCloseHook(owner))
+                owner.addWindowListener(new CloseHook());
+        }
+        set.add(worker);
+        updateIndicator(owner);
+    }
+
+    private static void finished(Window owner, SwingWorker<?, ?> worker) {
+        if (owner == null)
+            return;
+        Set<SwingWorker<?, ?>> set = pending.get(owner);
+        if (set != null)
+            set.remove(worker);
+        updateIndicator(owner);
+    }
+
+    private static void updateIndicator(Window owner) {
+        boolean busy = isBusy(owner);
+        owner.setCursor(busy ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : Cursor.getDefaultCursor());
+        JComponent indicator = indicators.get(owner);
+        if (indicator != null)
+            indicator.setVisible(busy);
+    }
+
+    private static boolean hasCloseHook(Window owner) {
+        for (java.awt.event.WindowListener l : owner.getWindowListeners()) {
+            if (l instanceof CloseHook)
+                return true;
+        }
+        return false;
+    }
+
+    private static class CloseHook extends WindowAdapter {
+        @Override
+        public void windowClosed(WindowEvent e) {
+            cancelAll(e.getWindow());
+        }
+    }
+}
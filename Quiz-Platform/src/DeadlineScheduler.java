@@ -0,0 +1,221 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * DeadlineScheduler - runs a task once its deadline has passed, for very many pending deadlines
+ * (quiz and question time limits), on a hierarchical timing wheel.
+ *
+ * Time is counted in ticks of tickMillis. Level 0 has a slot per tick for the next 256 ticks,
+ * level 1 a slot per 256 ticks for the next 65,536, and so on for 4 levels (13 years at 100 ms).
+ * Each slot is an intrusive doubly linked list, so schedule() and Timeout.cancel() are O(1)
+ * whatever the number pending. One ticker thread walks level 0; each time it wraps, the next
+ * level's current slot is re-filed one level down (the classic cascading timer wheel).
+ * Tasks fire at most one tick late and run on a small pool, never on the ticker.
+ */
+public class DeadlineScheduler {
+    private static final int BITS = 8;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_TICKS = (1L << (BITS * LEVELS)) - 1;
+
+    public static class Config {
+        long tickMillis = 100;
+        int expiryThreads = 4;
+
+        public Config tickMillis(long v) { tickMillis = v; return this; }
+        public Config expiryThreads(int v) { expiryThreads = v; return this; }
+    }
+
+    // A scheduled task; cancel() takes it off the wheel if it has not fired yet
+    public final class Timeout {
+        private final Runnable task;
+        private final long deadline; // tick
+        private Timeout prev, next;
+        private Timeout[] bucket; // {head} of the slot holding it, null once fired or cancelled
+        private boolean fired;
+
+        private Timeout(long deadline, Runnable task) {
+            this.deadline = deadline;
+            this.task = task;
+        }
+
+        // True if this call stopped the task from running
+        public boolean cancel() {
+            synchronized (DeadlineScheduler.this) {
+                if (bucket == null)
+                    return false;
+                unlink(this);
+                pending--;
+                cancelled.incrementAndGet();
+                return true;
+            }
+        }
+
+        public boolean hasFired() {
+            synchronized (DeadlineScheduler.this) {
+                return fired;
+            }
+        }
+    }
+
+    private static volatile DeadlineScheduler shared;
+
+    // Started on first use with the default config
+    public static DeadlineScheduler shared() {
+        DeadlineScheduler s = shared;
+        if (s == null) {
+            synchronized (DeadlineScheduler.class) {
+                s = shared;
+                if (s == null)
+                    shared = s = new DeadlineScheduler(new Config());
+            }
+        }
+        return s;
+    }
+
+    private final long tickNanos;
+    private final long origin = System.nanoTime();
+    private final Timeout[][][] wheels = new Timeout[LEVELS][SLOTS][1]; // [level][slot] = {head}
+    private final ExecutorService expiry;
+    private final Thread ticker;
+    private long nextTick; // the tick advance() will process next (guarded by this)
+    private int pending;
+    private volatile boolean running = true;
+
+    private final AtomicLong scheduled = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong cascaded = new AtomicLong();
+
+    public DeadlineScheduler(Config config) {
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(config.tickMillis);
+        AtomicInteger n = new AtomicInteger();
+        this.expiry = Executors.newFixedThreadPool(config.expiryThreads, r -> {
+            Thread t = new Thread(r, "deadline-expiry-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.ticker = new Thread(this::tickLoop, "deadline-ticker");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    // Runs task once delayMillis have passed (never early: the deadline is rounded up to a tick)
+    public Timeout schedule(long delayMillis, Runnable task) {
+        long elapsed = System.nanoTime() - origin;
+        long delay = TimeUnit.MILLISECONDS.toNanos(Math.min(Math.max(0, delayMillis), MAX_TICKS));
+        long deadline = (elapsed + delay + tickNanos - 1) / tickNanos;
+        synchronized (this) {
+            Timeout t = new Timeout(Math.min(deadline, nextTick + MAX_TICKS), task);
+            file(t);
+            pending++;
+            scheduled.incrementAndGet();
+            return t;
+        }
+    }
+
+    public synchronized int pending() {
+        return pending;
+    }
+
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(ticker);
+        expiry.shutdown();
+    }
+
+    public String stats() {
+        return String.format("pending=%d scheduled=%d cancelled=%d expired=%d cascaded=%d tick=%dms", pending(),
+                scheduled.get(), cancelled.get(), expired.get(), cascaded.get(), TimeUnit.NANOSECONDS.toMillis(tickNanos));
+    }
+
+    private void tickLoop() {
+        while (running) {
+            long now = (System.nanoTime() - origin) / tickNanos;
+            List<Timeout> due = advance(now);
+            for (Timeout t : due)
+                expiry.execute(() -> run(t));
+            LockSupport.parkNanos(origin + (now + 1) * tickNanos - System.nanoTime());
+        }
+    }
+
+    // Processes every tick up to and including now; returns what came due
+    private synchronized List<Timeout> advance(long now) {
+        List<Timeout> due = new ArrayList<>();
+        while (nextTick <= now) {
+            int index = (int) (nextTick & MASK);
+            // level 0 wrapped: pull the next slot of each higher level down, as far as the carry goes
+            for (int level = 1; index == 0 && level < LEVELS; level++) {
+                int slot = (int) ((nextTick >>> (BITS * level)) & MASK);
+                cascade(wheels[level][slot]);
+                if (slot != 0)
+                    break;
+            }
+            nextTick++;
+            Timeout[] bucket = wheels[0][index];
+            for (Timeout t = bucket[0]; t != null; t = bucket[0]) {
+                unlink(t);
+                t.fired = true;
+                pending--;
+                due.add(t);
+            }
+        }
+        return due;
+    }
+
+    private void cascade(Timeout[] bucket) {
+        for (Timeout t = bucket[0]; t != null; t = bucket[0]) {
+            unlink(t);
+            file(t);
+            cascaded.incrementAndGet();
+        }
+    }
+
+    // Links t into the slot for its deadline, relative to the tick being processed next
+    private void file(Timeout t) {
+        long delta = t.deadline - nextTick;
+        Timeout[] bucket;
+        if (delta < 0) {
+            bucket = wheels[0][(int) (nextTick & MASK)]; // already due: the next tick runs it
+        } else {
+            int level = 0;
+            while (level < LEVELS - 1 && delta >= 1L << (BITS * (level + 1)))
+                level++;
+            bucket = wheels[level][(int) ((t.deadline >>> (BITS * level)) & MASK)];
+        }
+        t.bucket = bucket;
+        t.prev = null;
+        t.next = bucket[0];
+        if (bucket[0] != null)
+            bucket[0].prev = t;
+        bucket[0] = t;
+    }
+
+    private static void unlink(Timeout t) {
+        if (t.prev != null)
+            t.prev.next = t.next;
+        else
+            t.bucket[0] = t.next;
+        if (t.next != null)
+            t.next.prev = t.prev;
+        t.prev = t.next = null;
+        t.bucket = null;
+    }
+
+    private void run(Timeout t) {
+        expired.incrementAndGet();
+        try {
+            t.task.run();
+        } catch (RuntimeException ex) {
+            System.err.println("Deadline task failed: " + ex);
+            ex.printStackTrace();
+        }
+    }
+}
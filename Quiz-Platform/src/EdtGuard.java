@@ -0,0 +1,41 @@
+import javax.swing.SwingUtilities;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * EdtGuard - detects JDBC work on the Swing Event Dispatch Thread.
+ *
+ * DBConnection.getConnection() calls check() before handing out a connection.
+ * In strict mode (-Dquiz.edtCheck=strict, or whenever the JVM runs with -ea as test and
+ * benchmark runs do) a call from the EDT throws IllegalStateException; otherwise the first
+ * offending call site is logged once so a slow query can never silently freeze the UI.
+ */
+public class EdtGuard {
+    private static final boolean STRICT = "strict".equalsIgnoreCase(System.getProperty("quiz.edtCheck"))
+            || assertionsEnabled();
+    private static final Set<String> reported = ConcurrentHashMap.newKeySet();
+
+    public static void check(String what) {
+        if (!SwingUtilities.isEventDispatchThread())
+            return;
+        IllegalStateException ex = new IllegalStateException(what + " called on the Event Dispatch Thread; "
+                + "run it through DbWorker instead");
+        if (STRICT)
+            throw ex;
+        StackTraceElement[] st = ex.getStackTrace();
+        String site = st.length > 2 ? st[2].toString() : what;
+        if (reported.add(site))
+            ex.printStackTrace();
+    }
+
+    public static boolean isStrict() {
+        return STRICT;
+    }
+
+    @SuppressWarnings("all")
+    private static boolean assertionsEnabled() {
+        boolean on = false;
+        assert on = true; // side effect only happens with -ea
+        return on;
+    }
+}
@@ -0,0 +1,341 @@
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * InMemoryDataStore - all the repositories backed by lock-free concurrent collections.
+ *
+ * Each repository is a view over the same shared state (categories(), questions(), ...).
+ * A stand-in for MySQL so benchmarks and regression checks can run without a database
+ * (select it with -Dquiz.datastore=memory, or Repositories.useInMemory()).
+ * Mirrors the JDBC behaviour the app relies on: generated ids, ordering by id,
+ * unique usernames, and deletes cascading from categories to questions to options.
+ */
+public class InMemoryDataStore {
+
+    private final AtomicInteger categorySeq = new AtomicInteger();
+    private final AtomicInteger questionSeq = new AtomicInteger();
+    private final AtomicInteger optionSeq = new AtomicInteger();
+    private final AtomicInteger userSeq = new AtomicInteger();
+
+    private final ConcurrentSkipListMap<Integer, Category> categories = new ConcurrentSkipListMap<>();
+    // category id -> (question id -> question); the inner map exists exactly while the category does
+    private final Map<Integer, ConcurrentSkipListMap<Integer, Question>> questionsByCategory = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> categoryOfQuestion = new ConcurrentHashMap<>();
+    private final Map<String, UserCredentials> users = new ConcurrentHashMap<>();
+    private final AtomicInteger resultSeq = new AtomicInteger();
+    private final ConcurrentSkipListMap<Integer, ResultRecord> results = new ConcurrentSkipListMap<>();
+    private final AtomicLong answerEventCount = new AtomicLong();
+
+    private final CategoryRepository categoryRepo = new Categories();
+    private final QuestionRepository questionRepo = new Questions();
+    private final UserRepository userRepo = new Users();
+    private final ResultRepository resultRepo = new Results();
+    private final AnswerEventRepository answerEventRepo = events -> answerEventCount.addAndGet(events.size());
+
+    public CategoryRepository categories() {
+        return categoryRepo;
+    }
+
+    public QuestionRepository questions() {
+        return questionRepo;
+    }
+
+    public UserRepository users() {
+        return userRepo;
+    }
+
+    public ResultRepository results() {
+        return resultRepo;
+    }
+
+    public AnswerEventRepository answerEvents() {
+        return answerEventRepo;
+    }
+
+    // Telemetry events are only counted, not kept
+    public long answerEventCount() {
+        return answerEventCount.get();
+    }
+
+    // Snapshot of everything saved through results()
+    public List<ResultRecord> savedResults() {
+        return new ArrayList<>(results.values());
+    }
+
+    private class Categories implements CategoryRepository {
+        @Override
+        public List<Category> findAll() {
+            return new ArrayList<>(categories.values());
+        }
+
+        @Override
+        public int create(String name) {
+            int id = categorySeq.incrementAndGet();
+            questionsByCategory.put(id, new ConcurrentSkipListMap<>());
+            categories.put(id, new Category(id, name));
+            return id;
+        }
+
+        @Override
+        public void rename(int id, String name) {
+            categories.computeIfPresent(id, (k, old) -> new Category(id, name));
+        }
+
+        @Override
+        public void delete(int id) {
+            categories.remove(id);
+            ConcurrentSkipListMap<Integer, Question> qs = questionsByCategory.remove(id);
+            if (qs != null) {
+                for (Integer qid : qs.keySet())
+                    categoryOfQuestion.remove(qid);
+            }
+        }
+    }
+
+    private class Questions implements QuestionRepository {
+        @Override
+        public List<Question> loadCategory(int categoryId) {
+            ConcurrentSkipListMap<Integer, Question> qs = questionsByCategory.get(categoryId);
+            return qs == null ? new ArrayList<>() : new ArrayList<>(qs.values());
+        }
+
+        @Override
+        public List<Question> listQuestions(int categoryId) {
+            List<Question> list = new ArrayList<>();
+            for (Question q : loadCategory(categoryId))
+                list.add(new Question(q.getId(), q.getText(), new ArrayList<>()));
+            return list;
+        }
+
+        @Override
+        public List<Question> listPage(int categoryId, String search, int afterId, int limit) {
+            List<Question> list = new ArrayList<>(limit);
+            for (Question q : page(categoryId, search, afterId)) {
+                if (list.size() == limit)
+                    break;
+                list.add(new Question(q.getId(), q.getText(), new ArrayList<>()));
+            }
+            return list;
+        }
+
+        @Override
+        public int countQuestions(int categoryId, String search) {
+            int n = 0;
+            for (Question ignored : page(categoryId, search, 0))
+                n++;
+            return n;
+        }
+
+        @Override
+        public int idAfter(int categoryId, String search, int afterId, int skip) {
+            for (Question q : page(categoryId, search, afterId)) {
+                if (skip-- == 0)
+                    return q.getId();
+            }
+            return -1;
+        }
+
+        // Questions with id > afterId whose text contains search (ignoring case), in id order
+        private Iterable<Question> page(int categoryId, String search, int afterId) {
+            ConcurrentSkipListMap<Integer, Question> qs = questionsByCategory.get(categoryId);
+            if (qs == null)
+                return new ArrayList<>();
+            Iterable<Question> tail = qs.tailMap(afterId, false).values();
+            if (search == null)
+                return tail;
+            String needle = search.toLowerCase();
+            List<Question> matches = new ArrayList<>();
+            for (Question q : tail) {
+                if (q.getText().toLowerCase().contains(needle))
+                    matches.add(q);
+            }
+            return matches;
+        }
+
+        @Override
+        public Map<Integer, Long> fingerprints() {
+            Map<Integer, Long> result = new HashMap<>();
+            for (Map.Entry<Integer, ConcurrentSkipListMap<Integer, Question>> e : questionsByCategory.entrySet()) {
+                long rows = 0, questionIdSum = 0, versionSum = 0, options = 0, optionIdSum = 0;
+                for (Question q : e.getValue().values()) {
+                    // the same numbers as the JDBC query's LEFT JOIN rows
+                    int joined = Math.max(1, q.getOptions().size());
+                    rows += joined;
+                    questionIdSum += (long) q.getId() * joined;
+                    versionSum += (long) q.getVersion() * joined;
+                    options += q.getOptions().size();
+                    for (Option o : q.getOptions())
+                        optionIdSum += o.getId();
+                }
+                if (rows > 0)
+                    result.put(e.getKey(),
+                            QuestionSnapshot.fingerprint(rows, questionIdSum, versionSum, options, optionIdSum));
+            }
+            return result;
+        }
+
+        @Override
+        public Question findById(int questionId) {
+            ConcurrentSkipListMap<Integer, Question> qs = categoryMapOf(questionId);
+            return qs == null ? null : qs.get(questionId);
+        }
+
+        @Override
+        public Map<Integer, Question> listByIds(List<Integer> questionIds) {
+            Map<Integer, Question> result = new HashMap<>();
+            for (int id : questionIds) {
+                Question q = findById(id);
+                if (q != null)
+                    result.put(id, new Question(id, q.getText(), new ArrayList<>()));
+            }
+            return result;
+        }
+
+        @Override
+        public int create(int categoryId, String text, List<Option> options) throws SQLException {
+            ConcurrentSkipListMap<Integer, Question> qs = questionsByCategory.get(categoryId);
+            if (qs == null)
+                throw new SQLIntegrityConstraintViolationException("Unknown category id " + categoryId);
+            int id = questionSeq.incrementAndGet();
+            categoryOfQuestion.put(id, categoryId);
+            qs.put(id, new Question(id, text, withNewIds(options)));
+            return id;
+        }
+
+        @Override
+        public int[] createAll(int categoryId, List<Question> batch) throws SQLException {
+            int[] ids = new int[batch.size()];
+            for (int i = 0; i < ids.length; i++)
+                ids[i] = create(categoryId, batch.get(i).getText(), batch.get(i).getOptions());
+            return ids;
+        }
+
+        @Override
+        public void forEachInCategory(int categoryId, Consumer<Question> action) {
+            ConcurrentSkipListMap<Integer, Question> qs = questionsByCategory.get(categoryId);
+            if (qs != null)
+                qs.values().forEach(action);
+        }
+
+        @Override
+        public int update(int questionId, int expectedVersion, String text, List<Option> options)
+                throws SQLException {
+            ConcurrentSkipListMap<Integer, Question> qs = categoryMapOf(questionId);
+            int[] found = { -1 };
+            Question saved = qs == null ? null : qs.computeIfPresent(questionId, (k, old) -> {
+                found[0] = old.getVersion();
+                if (expectedVersion >= 0 && old.getVersion() != expectedVersion)
+                    return old;
+                return new Question(questionId, text, inPlace(old.getOptions(), options), old.getVersion() + 1);
+            });
+            if (saved == null)
+                throw new SQLException("Question not found for ID: " + questionId);
+            if (saved.getVersion() == found[0])
+                throw new StaleQuestionException(questionId, expectedVersion, found[0]);
+            return saved.getVersion();
+        }
+
+        @Override
+        public void update(int questionId, String text, List<Option> options) throws SQLException {
+            update(questionId, -1, text, options);
+        }
+
+        @Override
+        public void delete(int questionId) {
+            ConcurrentSkipListMap<Integer, Question> qs = categoryMapOf(questionId);
+            categoryOfQuestion.remove(questionId);
+            if (qs != null)
+                qs.remove(questionId);
+        }
+    }
+
+    private class Users implements UserRepository {
+        @Override
+        public UserCredentials findByUsername(String username) {
+            return users.get(username);
+        }
+
+        @Override
+        public int create(String username, String storedPassword, String role) throws SQLException {
+            int id = userSeq.incrementAndGet();
+            if (users.putIfAbsent(username, new UserCredentials(new User(id, username, role), storedPassword)) != null)
+                throw new SQLIntegrityConstraintViolationException("Duplicate entry '" + username + "' for key 'username'");
+            return id;
+        }
+
+        @Override
+        public void updatePassword(int userId, String storedPassword) {
+            for (Map.Entry<String, UserCredentials> e : users.entrySet()) {
+                if (e.getValue().getUser().getId() == userId)
+                    users.put(e.getKey(), new UserCredentials(e.getValue().getUser(), storedPassword));
+            }
+        }
+    }
+
+    private class Results implements ResultRepository {
+        @Override
+        public void save(ResultRecord result) {
+            results.put(resultSeq.incrementAndGet(), result);
+        }
+
+        @Override
+        public void saveBatch(List<ResultRecord> batch) {
+            for (ResultRecord r : batch)
+                save(r);
+        }
+
+        @Override
+        public void forEach(Consumer<ResultRecord> action) {
+            results.values().forEach(action);
+        }
+
+        @Override
+        public void forEachAnswerSheet(int categoryId, SheetConsumer action) {
+            results.forEach((id, r) -> {
+                if (r.getCategoryId() == categoryId && r.getAnswers() != null)
+                    action.accept(id, r.getScore(), r.getAnswers());
+            });
+        }
+
+        @Override
+        public void updateScores(int[] resultIds, int[] scores, int count) {
+            for (int i = 0; i < count; i++) {
+                int score = scores[i];
+                results.computeIfPresent(resultIds[i], (id, r) ->
+                        new ResultRecord(r.getUserId(), r.getCategoryId(), score, r.getAnswers()));
+            }
+        }
+    }
+
+    private ConcurrentSkipListMap<Integer, Question> categoryMapOf(int questionId) {
+        Integer catId = categoryOfQuestion.get(questionId);
+        return catId == null ? null : questionsByCategory.get(catId);
+    }
+
+    // Like the JDBC diff: the i-th option keeps the i-th stored option's id, extra ones get new ids
+    private List<Option> inPlace(List<Option> stored, List<Option> options) {
+        List<Option> copy = new ArrayList<>(options.size());
+        for (int i = 0; i < options.size(); i++) {
+            Option o = options.get(i);
+            int id = i < stored.size() ? stored.get(i).getId() : optionSeq.incrementAndGet();
+            copy.add(new Option(id, o.getText(), o.isCorrect()));
+        }
+        return copy;
+    }
+
+    private List<Option> withNewIds(List<Option> options) {
+        List<Option> copy = new ArrayList<>(options.size());
+        for (Option o : options)
+            copy.add(new Option(optionSeq.incrementAndGet(), o.getText(), o.isCorrect()));
+        return copy;
+    }
+}
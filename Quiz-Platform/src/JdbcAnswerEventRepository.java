@@ -0,0 +1,38 @@
+import java.sql.*;
+
+/**
+ * JdbcAnswerEventRepository - writes telemetry batches into answer_events through DBConnection.
+ */
+public class JdbcAnswerEventRepository implements AnswerEventRepository {
+
+    @Override
+    public void saveBatch(AnswerEvents events) throws SQLException {
+        String sql = "INSERT INTO answer_events (session_id, user_id, question_id, option_id, event_type,"
+                + " time_spent_ms, created_at) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        try (Connection c = DBConnection.getConnection()) {
+            c.setAutoCommit(false);
+            try (PreparedStatement ps = c.prepareStatement(sql)) {
+                for (int i = 0; i < events.size(); i++) {
+                    ps.setLong(1, events.sessionId(i));
+                    ps.setInt(2, events.userId(i));
+                    ps.setInt(3, events.questionId(i));
+                    if (events.optionId(i) == 0)
+                        ps.setNull(4, Types.INTEGER);
+                    else
+                        ps.setInt(4, events.optionId(i));
+                    ps.setString(5, AnswerEvents.typeName(events.type(i)));
+                    ps.setLong(6, events.timeSpentNanos(i) / 1_000_000);
+                    ps.setTimestamp(7, new Timestamp(events.timestampMillis(i)));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                c.commit();
+            } catch (SQLException ex) {
+                c.rollback();
+                throw ex;
+            } finally {
+                c.setAutoCommit(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JdbcCategoryRepository - CategoryRepository backed by MySQL through DBConnection.
+ */
+public class JdbcCategoryRepository implements CategoryRepository {
+
+    @Override
+    public List<Category> findAll() throws SQLException {
+        List<Category> list = new ArrayList<>();
+        try (Connection c = DBConnection.getConnection();
+                Statement s = c.createStatement();
+                ResultSet rs = s.executeQuery("SELECT id, name FROM categories ORDER BY id ASC")) {
+            while (rs.next())
+                list.add(new Category(rs.getInt("id"), rs.getString("name")));
+        }
+        return list;
+    }
+
+    @Override
+    public int create(String name) throws SQLException {
+        try (Connection c = DBConnection.getConnection();
+                PreparedStatement ps = c.prepareStatement("INSERT INTO categories(name) VALUES(?)",
+                        Statement.RETURN_GENERATED_KEYS)) {
+            ps.setString(1, name);
+            ps.executeUpdate();
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                if (keys.next())
+                    return keys.getInt(1);
+                throw new SQLException("Failed to retrieve category id");
+            }
+        }
+    }
+
+    @Override
+    public void rename(int id, String name) throws SQLException {
+        try (Connection c = DBConnection.getConnection();
+                PreparedStatement ps = c.prepareStatement("UPDATE categories SET name = ? WHERE id = ?")) {
+            ps.setString(1, name);
+            ps.setInt(2, id);
+            ps.executeUpdate();
+        }
+    }
+
+    @Override
+    public void delete(int id) throws SQLException {
+        // questions and options go with it through ON DELETE CASCADE
+        try (Connection c = DBConnection.getConnection();
+                PreparedStatement ps = c.prepareStatement("DELETE FROM categories WHERE id = ?")) {
+            ps.setInt(1, id);
+            ps.executeUpdate();
+        }
+    }
+}
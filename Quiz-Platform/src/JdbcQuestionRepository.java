@@ -0,0 +1,403 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * JdbcQuestionRepository - QuestionRepository backed by MySQL through DBConnection.
+ */
+public class JdbcQuestionRepository implements QuestionRepository {
+    // Rows per multi-row INSERT in createAll (options have 3 parameters: 1500 of MySQL's 65535)
+    private static final int ROWS_PER_INSERT = 500;
+    // Ids per IN (...) list in listByIds
+    private static final int IDS_PER_SELECT = 500;
+
+    @Override
+    public List<Question> loadCategory(int categoryId) throws SQLException {
+        return QuestionLoader.loadCategory(categoryId);
+    }
+
+    @Override
+    public List<Question> listQuestions(int categoryId) throws SQLException {
+        List<Question> list = new ArrayList<>();
+        try (Connection c = DBConnection.getConnection();
+                PreparedStatement ps = c.prepareStatement(
+                        "SELECT id, text FROM questions WHERE category_id = ? ORDER BY id ASC")) {
+            ps.setInt(1, categoryId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next())
+                    list.add(new Question(rs.getInt("id"), rs.getString("text"), new ArrayList<>()));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public List<Question> listPage(int categoryId, String search, int afterId, int limit) throws SQLException {
+        List<Question> list = new ArrayList<>(limit);
+        // category_id is fixed, but naming it in ORDER BY lets the planner read the
+        // (category_id, id) index in order and stop after limit rows instead of sorting
+        String sql = "SELECT id, text FROM questions WHERE category_id = ? AND id > ?"
+                + (search != null ? " AND LOWER(text) LIKE ? ESCAPE '!'" : "") + " ORDER BY category_id, id LIMIT ?";
+        try (Connection c = DBConnection.getConnection();
+                PreparedStatement ps = c.prepareStatement(sql)) {
+            int i = bindPageFilter(ps, categoryId, search, afterId);
+            ps.setInt(i, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next())
+                    list.add(new Question(rs.getInt(1), rs.getString(2), new ArrayList<>()));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public int countQuestions(int categoryId, String search) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM questions WHERE category_id = ? AND id > ?"
+                + (search != null ? " AND LOWER(text) LIKE ? ESCAPE '!'" : "");
+        try (Connection c = DBConnection.getConnection();
+                PreparedStatement ps = c.prepareStatement(sql)) {
+            bindPageFilter(ps, categoryId, search, 0);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    @Override
+    public int idAfter(int categoryId, String search, int afterId, int skip) throws SQLException {
+        // walks the (category_id, id) index only; the row data is never read
+        String sql = "SELECT id FROM questions WHERE category_id = ? AND id > ?"
+                + (search != null ? " AND LOWER(text) LIKE ? ESCAPE '!'" : "") + " ORDER BY category_id, id LIMIT 1 OFFSET ?";
+        try (Connection c = DBConnection.getConnection();
+                PreparedStatement ps = c.prepareStatement(sql)) {
+            int i = bindPageFilter(ps, categoryId, search, afterId);
+            ps.setInt(i, skip);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : -1;
+            }
+        }
+    }
+
+    // Binds category, afterId and the LIKE pattern; returns the next parameter index
+    private static int bindPageFilter(PreparedStatement ps, int categoryId, String search, int afterId)
+            throws SQLException {
+        ps.setInt(1, categoryId);
+        ps.setInt(2, afterId);
+        if (search == null)
+            return 3;
+        String escaped = search.toLowerCase().replace("!", "!!").replace("%", "!%").replace("_", "!_");
+        ps.setString(3, "%" + escaped + "%");
+        return 4;
+    }
+
+    @Override
+    public Map<Integer, Long> fingerprints() throws SQLException {
+        // aggregates only: one pass over the (question_id, id) options index, no text is read
+        String sql = "SELECT q.category_id, COUNT(*), SUM(q.id), SUM(q.version), COUNT(o.id), COALESCE(SUM(o.id), 0)"
+                + " FROM questions q LEFT JOIN options o ON o.question_id = q.id GROUP BY q.category_id";
+        Map<Integer, Long> result = new HashMap<>();
+        try (Connection c = DBConnection.getConnection();
+                PreparedStatement ps = c.prepareStatement(sql);
+                ResultSet rs = ps.executeQuery()) {
+            while (rs.next())
+                result.put(rs.getInt(1), QuestionSnapshot.fingerprint(rs.getLong(2), rs.getLong(3), rs.getLong(4),
+                        rs.getLong(5), rs.getLong(6)));
+        }
+        return result;
+    }
+
+    @Override
+    public Question findById(int questionId) throws SQLException {
+        try (Connection c = DBConnection.getConnection();
+                PreparedStatement psQ = c.prepareStatement("SELECT text, version FROM questions WHERE id = ?");
+                PreparedStatement psO = c.prepareStatement(
+                        "SELECT id, text, is_correct FROM options WHERE question_id = ? ORDER BY id")) {
+            String text;
+            int version;
+            psQ.setInt(1, questionId);
+            try (ResultSet rs = psQ.executeQuery()) {
+                if (!rs.next())
+                    return null;
+                text = rs.getString("text");
+                version = rs.getInt("version");
+            }
+            List<Option> options = new ArrayList<>(4);
+            psO.setInt(1, questionId);
+            try (ResultSet rs = psO.executeQuery()) {
+                while (rs.next())
+                    options.add(new Option(rs.getInt("id"), rs.getString("text"), rs.getInt("is_correct") == 1));
+            }
+            return new Question(questionId, text, options, version);
+        }
+    }
+
+    @Override
+    public Map<Integer, Question> listByIds(List<Integer> questionIds) throws SQLException {
+        Map<Integer, Question> result = new HashMap<>();
+        if (questionIds.isEmpty())
+            return result;
+        try (Connection c = DBConnection.getConnection()) {
+            for (int from = 0; from < questionIds.size(); from += IDS_PER_SELECT) {
+                List<Integer> ids = questionIds.subList(from, Math.min(from + IDS_PER_SELECT, questionIds.size()));
+                StringBuilder sql = new StringBuilder("SELECT id, text FROM questions WHERE id IN (");
+                for (int i = 0; i < ids.size(); i++)
+                    sql.append(i == 0 ? "?" : ", ?");
+                try (PreparedStatement ps = c.prepareStatement(sql.append(')').toString())) {
+                    for (int i = 0; i < ids.size(); i++)
+                        ps.setInt(i + 1, ids.get(i));
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next())
+                            result.put(rs.getInt(1), new Question(rs.getInt(1), rs.getString(2), new ArrayList<>()));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int create(int categoryId, String text, List<Option> options) throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int qid;
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "INSERT INTO questions(category_id, text) VALUES(?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+                    ps.setInt(1, categoryId);
+                    ps.setString(2, text);
+                    ps.executeUpdate();
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        if (keys.next())
+                            qid = keys.getInt(1);
+                        else
+                            throw new SQLException("Failed to retrieve question id");
+                    }
+                }
+                insertOptions(conn, qid, options);
+                conn.commit();
+                return qid;
+            } catch (SQLException ex) {
+                conn.rollback();
+                throw ex;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    @Override
+    public int[] createAll(int categoryId, List<Question> questions) throws SQLException {
+        int[] ids = new int[questions.size()];
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                // questions first: their generated ids (in VALUES order) are the options' foreign keys
+                for (int from = 0; from < ids.length; from += ROWS_PER_INSERT) {
+                    int n = Math.min(ROWS_PER_INSERT, ids.length - from);
+                    try (PreparedStatement ps = conn.prepareStatement(
+                            multiRowInsert("questions(category_id, text)", 2, n), Statement.RETURN_GENERATED_KEYS)) {
+                        for (int i = 0; i < n; i++) {
+                            ps.setInt(2 * i + 1, categoryId);
+                            ps.setString(2 * i + 2, questions.get(from + i).getText());
+                        }
+                        ps.executeUpdate();
+                        try (ResultSet keys = ps.getGeneratedKeys()) {
+                            for (int i = 0; i < n; i++) {
+                                if (!keys.next())
+                                    throw new SQLException("Expected " + n + " generated question ids, got " + i);
+                                ids[from + i] = keys.getInt(1);
+                            }
+                        }
+                    }
+                }
+                insertAllOptions(conn, questions, ids);
+                conn.commit();
+                return ids;
+            } catch (SQLException ex) {
+                conn.rollback();
+                throw ex;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    @Override
+    public void forEachInCategory(int categoryId, Consumer<Question> action) throws SQLException {
+        try (Connection c = DBConnection.getConnection()) {
+            QuestionLoader.streamCategory(c, categoryId, action);
+        }
+    }
+
+    @Override
+    public int update(int questionId, int expectedVersion, String text, List<Option> options) throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                // 1. Text and version first: the row lock this takes queues other saves of the question,
+                //    and a save that read an older version matches no row
+                String sql = "UPDATE questions SET text = ?, version = version + 1 WHERE id = ?"
+                        + (expectedVersion >= 0 ? " AND version = ?" : "");
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setString(1, text);
+                    ps.setInt(2, questionId);
+                    if (expectedVersion >= 0)
+                        ps.setInt(3, expectedVersion);
+                    if (ps.executeUpdate() == 0) {
+                        int current = version(conn, questionId);
+                        if (current < 0)
+                            throw new SQLException("Question not found for ID: " + questionId);
+                        throw new StaleQuestionException(questionId, expectedVersion, current);
+                    }
+                }
+                // 2. Options: only the rows that differ are written
+                saveOptions(conn, questionId, options);
+                int version = version(conn, questionId);
+                conn.commit();
+                return version;
+            } catch (SQLException ex) {
+                conn.rollback();
+                throw ex;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    @Override
+    public void update(int questionId, String text, List<Option> options) throws SQLException {
+        update(questionId, -1, text, options);
+    }
+
+    // The question's version, or -1 if it does not exist
+    private static int version(Connection conn, int questionId) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT version FROM questions WHERE id = ?")) {
+            ps.setInt(1, questionId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : -1;
+            }
+        }
+    }
+
+    // Pairs the options with the stored ones by position (id order): changed rows are updated in
+    // place and keep their ids, so answers recorded against them stay attached; the rest are
+    // inserted or deleted
+    private static void saveOptions(Connection conn, int questionId, List<Option> options) throws SQLException {
+        List<Option> stored = new ArrayList<>(options.size());
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT id, text, is_correct FROM options WHERE question_id = ? ORDER BY id")) {
+            ps.setInt(1, questionId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next())
+                    stored.add(new Option(rs.getInt(1), rs.getString(2), rs.getInt(3) == 1));
+            }
+        }
+        int changed = 0;
+        try (PreparedStatement ps = conn.prepareStatement("UPDATE options SET text = ?, is_correct = ? WHERE id = ?")) {
+            for (int i = 0; i < Math.min(stored.size(), options.size()); i++) {
+                Option was = stored.get(i), now = options.get(i);
+                if (was.getText().equals(now.getText()) && was.isCorrect() == now.isCorrect())
+                    continue;
+                ps.setString(1, now.getText());
+                ps.setInt(2, now.isCorrect() ? 1 : 0);
+                ps.setInt(3, was.getId());
+                ps.addBatch();
+                changed++;
+            }
+            if (changed > 0)
+                ps.executeBatch();
+        }
+        if (options.size() > stored.size())
+            insertOptions(conn, questionId, options.subList(stored.size(), options.size()));
+        if (stored.size() > options.size()) {
+            try (PreparedStatement ps = conn.prepareStatement("DELETE FROM options WHERE id = ?")) {
+                for (Option o : stored.subList(options.size(), stored.size())) {
+                    ps.setInt(1, o.getId());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+    }
+
+    @Override
+    public void delete(int questionId) throws SQLException {
+        try (Connection c = DBConnection.getConnection();
+                PreparedStatement ps = c.prepareStatement("DELETE FROM questions WHERE id = ?")) {
+            ps.setInt(1, questionId);
+            ps.executeUpdate();
+        }
+    }
+
+    private static void insertOptions(Connection conn, int questionId, List<Option> options) throws SQLException {
+        try (PreparedStatement ps = conn
+                .prepareStatement("INSERT INTO options(question_id, text, is_correct) VALUES(?, ?, ?)")) {
+            for (Option o : options) {
+                ps.setInt(1, questionId);
+                ps.setString(2, o.getText());
+                ps.setInt(3, o.isCorrect() ? 1 : 0);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    // Options of all questions, ROWS_PER_INSERT rows per statement; full-size statements are reused
+    private static void insertAllOptions(Connection conn, List<Question> questions, int[] ids) throws SQLException {
+        PreparedStatement full = null;
+        try {
+            List<Object[]> rows = new ArrayList<>(ROWS_PER_INSERT);
+            for (int q = 0; q < ids.length; q++) {
+                for (Option o : questions.get(q).getOptions()) {
+                    rows.add(new Object[] { ids[q], o.getText(), o.isCorrect() ? 1 : 0 });
+                    if (rows.size() == ROWS_PER_INSERT) {
+                        if (full == null)
+                            full = conn.prepareStatement(multiRowInsert("options(question_id, text, is_correct)", 3,
+                                    ROWS_PER_INSERT));
+                        bindOptions(full, rows);
+                        full.executeUpdate();
+                        rows.clear();
+                    }
+                }
+            }
+            if (!rows.isEmpty()) {
+                try (PreparedStatement last = conn.prepareStatement(
+                        multiRowInsert("options(question_id, text, is_correct)", 3, rows.size()))) {
+                    bindOptions(last, rows);
+                    last.executeUpdate();
+                }
+            }
+        } finally {
+            if (full != null)
+                full.close();
+        }
+    }
+
+    private static void bindOptions(PreparedStatement ps, List<Object[]> rows) throws SQLException {
+        for (int i = 0; i < rows.size(); i++) {
+            Object[] r = rows.get(i);
+            ps.setInt(3 * i + 1, (Integer) r[0]);
+            ps.setString(3 * i + 2, (String) r[1]);
+            ps.setInt(3 * i + 3, (Integer) r[2]);
+        }
+    }
+
+    // "INSERT INTO table(cols) VALUES (?, ?), (?, ?), ..." with rows groups of columns placeholders
+    private static String multiRowInsert(String tableAndColumns, int columns, int rows) {
+        StringBuilder group = new StringBuilder("(?");
+        for (int c = 1; c < columns; c++)
+            group.append(", ?");
+        group.append(')');
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(tableAndColumns).append(" VALUES ");
+        for (int r = 0; r < rows; r++) {
+            if (r > 0)
+                sql.append(", ");
+            sql.append(group);
+        }
+        return sql.toString();
+    }
+}
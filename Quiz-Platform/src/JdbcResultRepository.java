@@ -0,0 +1,104 @@
+import java.sql.*;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * JdbcResultRepository - ResultRepository backed by MySQL through DBConnection.
+ */
+public class JdbcResultRepository implements ResultRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO results (user_id, category_id, score, question_ids, answers) VALUES (?, ?, ?, ?, ?)";
+
+    @Override
+    public void save(ResultRecord result) throws SQLException {
+        try (Connection c = DBConnection.getConnection();
+                PreparedStatement ps = c.prepareStatement(INSERT_SQL)) {
+            bind(ps, result);
+            ps.executeUpdate();
+        }
+    }
+
+    @Override
+    public void saveBatch(List<ResultRecord> results) throws SQLException {
+        try (Connection c = DBConnection.getConnection()) {
+            c.setAutoCommit(false);
+            try (PreparedStatement ps = c.prepareStatement(INSERT_SQL)) {
+                for (ResultRecord r : results) {
+                    bind(ps, r);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                c.commit();
+            } catch (SQLException ex) {
+                c.rollback();
+                throw ex;
+            } finally {
+                c.setAutoCommit(true);
+            }
+        }
+    }
+
+    @Override
+    public void forEach(Consumer<ResultRecord> action) throws SQLException {
+        String sql = "SELECT user_id, category_id, score FROM results ORDER BY id";
+        try (Connection c = DBConnection.getConnection();
+                PreparedStatement ps = c.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            DBConnection.streamResults(c, ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next())
+                    action.accept(new ResultRecord(rs.getInt(1), rs.getInt(2), rs.getInt(3)));
+            }
+        }
+    }
+
+    @Override
+    public void forEachAnswerSheet(int categoryId, SheetConsumer action) throws SQLException {
+        String sql = "SELECT id, score, question_ids, answers FROM results"
+                + " WHERE category_id = ? AND answers IS NOT NULL ORDER BY id";
+        try (Connection c = DBConnection.getConnection();
+                PreparedStatement ps = c.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            DBConnection.streamResults(c, ps);
+            ps.setInt(1, categoryId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next())
+                    action.accept(rs.getInt(1), rs.getInt(2), AnswerSheet.decode(rs.getBytes(3), rs.getBytes(4)));
+            }
+        }
+    }
+
+    @Override
+    public void updateScores(int[] resultIds, int[] scores, int count) throws SQLException {
+        try (Connection c = DBConnection.getConnection()) {
+            c.setAutoCommit(false);
+            try (PreparedStatement ps = c.prepareStatement("UPDATE results SET score = ? WHERE id = ?")) {
+                for (int i = 0; i < count; i++) {
+                    ps.setInt(1, scores[i]);
+                    ps.setInt(2, resultIds[i]);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                c.commit();
+            } catch (SQLException ex) {
+                c.rollback();
+                throw ex;
+            } finally {
+                c.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static void bind(PreparedStatement ps, ResultRecord r) throws SQLException {
+        ps.setInt(1, r.getUserId());
+        ps.setInt(2, r.getCategoryId());
+        ps.setInt(3, r.getScore());
+        AnswerSheet sheet = r.getAnswers();
+        if (sheet == null) {
+            ps.setNull(4, Types.VARBINARY);
+            ps.setNull(5, Types.VARBINARY);
+        } else {
+            ps.setBytes(4, sheet.encodedQuestionIds());
+            ps.setBytes(5, sheet.encodedAnswers());
+        }
+    }
+}
@@ -0,0 +1,48 @@
+import java.sql.*;
+
+/**
+ * JdbcUserRepository - UserRepository backed by MySQL through DBConnection.
+ */
+public class JdbcUserRepository implements UserRepository {
+
+    @Override
+    public UserCredentials findByUsername(String username) throws SQLException {
+        String sql = "SELECT id, role, password FROM users WHERE username = ?";
+        try (Connection c = DBConnection.getConnection();
+                PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, username);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next())
+                    return null;
+                return new UserCredentials(new User(rs.getInt("id"), username, rs.getString("role")),
+                        rs.getString("password"));
+            }
+        }
+    }
+
+    @Override
+    public int create(String username, String storedPassword, String role) throws SQLException {
+        String sql = "INSERT INTO users (username, password, role) VALUES (?, ?, ?)";
+        try (Connection c = DBConnection.getConnection();
+                PreparedStatement ps = c.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            ps.setString(1, username);
+            ps.setString(2, storedPassword);
+            ps.setString(3, role);
+            ps.executeUpdate();
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                return keys.next() ? keys.getInt(1) : 0;
+            }
+        }
+    }
+
+    @Override
+    public void updatePassword(int userId, String storedPassword) throws SQLException {
+        String sql = "UPDATE users SET password = ? WHERE id = ?";
+        try (Connection c = DBConnection.getConnection();
+                PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, storedPassword);
+            ps.setInt(2, userId);
+            ps.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Json - minimal JSON reading and string quoting, enough for the app's own files and messages.
+ *
+ * parse() returns Map (objects, insertion ordered), List, String, Double, Boolean or null;
+ * write() accepts the same types plus any Number.
+ */
+public class Json {
+    private final String s;
+    private int pos;
+
+    private Json(String s) {
+        this.s = s;
+    }
+
+    public static Object parse(String text) {
+        Json p = new Json(text);
+        p.skipWs();
+        Object v = p.value();
+        p.skipWs();
+        if (p.pos != p.s.length())
+            throw p.error("Trailing characters");
+        return v;
+    }
+
+    public static String write(Object value) {
+        StringBuilder sb = new StringBuilder();
+        write(sb, value);
+        return sb.toString();
+    }
+
+    private static void write(StringBuilder sb, Object v) {
+        if (v == null || v instanceof Boolean || v instanceof Number) {
+            sb.append(v);
+        } else if (v instanceof Map) {
+            sb.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) v).entrySet()) {
+                if (!first)
+                    sb.append(',');
+                first = false;
+                sb.append(quote(String.valueOf(e.getKey()))).append(':');
+                write(sb, e.getValue());
+            }
+            sb.append('}');
+        } else if (v instanceof List) {
+            sb.append('[');
+            boolean first = true;
+            for (Object o : (List<?>) v) {
+                if (!first)
+                    sb.append(',');
+                first = false;
+                write(sb, o);
+            }
+            sb.append(']');
+        } else {
+            sb.append(quote(v.toString()));
+        }
+    }
+
+    // Builds an insertion-ordered object from key/value pairs: Json.object("id", 1, "name", "x")
+    public static Map<String, Object> object(Object... kv) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < kv.length; i += 2)
+            m.put(String.valueOf(kv[i]), kv[i + 1]);
+        return m;
+    }
+
+    // "text" with JSON escaping, including the surrounding quotes
+    public static String quote(String text) {
+        if (text == null)
+            return "null";
+        StringBuilder sb = new StringBuilder(text.length() + 2);
+        sb.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20)
+                        sb.append(String.format("\\u%04x", (int) c));
+                    else
+                        sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private Object value() {
+        if (pos >= s.length())
+            throw error("Unexpected end of input");
+        char c = s.charAt(pos);
+        switch (c) {
+            case '{': return object();
+            case '[': return array();
+            case '"': return string();
+            case 't': expect("true"); return Boolean.TRUE;
+            case 'f': expect("false"); return Boolean.FALSE;
+            case 'n': expect("null"); return null;
+            default: return number();
+        }
+    }
+
+    private Map<String, Object> object() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        pos++; // {
+        skipWs();
+        if (peek() == '}') {
+            pos++;
+            return map;
+        }
+        while (true) {
+            skipWs();
+            String key = string();
+            skipWs();
+            if (peek() != ':')
+                throw error("Expected ':'");
+            pos++;
+            skipWs();
+            map.put(key, value());
+            skipWs();
+            char c = peek();
+            pos++;
+            if (c == '}')
+                return map;
+            if (c != ',')
+                throw error("Expected ',' or '}'");
+        }
+    }
+
+    private List<Object> array() {
+        List<Object> list = new ArrayList<>();
+        pos++; // [
+        skipWs();
+        if (peek() == ']') {
+            pos++;
+            return list;
+        }
+        while (true) {
+            skipWs();
+            list.add(value());
+            skipWs();
+            char c = peek();
+            pos++;
+            if (c == ']')
+                return list;
+            if (c != ',')
+                throw error("Expected ',' or ']'");
+        }
+    }
+
+    private String string() {
+        if (peek() != '"')
+            throw error("Expected string");
+        pos++;
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            if (pos >= s.length())
+                throw error("Unterminated string");
+            char c = s.charAt(pos++);
+            if (c == '"')
+                return sb.toString();
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            char e = s.charAt(pos++);
+            switch (e) {
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 't': sb.append('\t'); break;
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'u':
+                    sb.append((char) Integer.parseInt(s.substring(pos, pos + 4), 16));
+                    pos += 4;
+                    break;
+                default: sb.append(e); // \" \\ \/
+            }
+        }
+    }
+
+    private Double number() {
+        int start = pos;
+        while (pos < s.length() && "+-0123456789.eE".indexOf(s.charAt(pos)) >= 0)
+            pos++;
+        if (start == pos)
+            throw error("Unexpected character '" + s.charAt(pos) + "'");
+        return Double.valueOf(s.substring(start, pos));
+    }
+
+    private void expect(String word) {
+        if (!s.startsWith(word, pos))
+            throw error("Expected " + word);
+        pos += word.length();
+    }
+
+    private char peek() {
+        if (pos >= s.length())
+            throw error("Unexpected end of input");
+        return s.charAt(pos);
+    }
+
+    private void skipWs() {
+        while (pos < s.length() && Character.isWhitespace(s.charAt(pos)))
+            pos++;
+    }
+
+    private IllegalArgumentException error(String msg) {
+        return new IllegalArgumentException(msg + " at position " + pos);
+    }
+}
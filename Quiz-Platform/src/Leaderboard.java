@@ -0,0 +1,348 @@
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Leaderboard - rankings and score statistics per category, kept in memory.
+ *
+ * Loaded from the results table on a background thread (load(), or shared() which waits for
+ * it), then updated by QuizEngine on every submission, so queries never scan the table and
+ * submitting never waits for a load. Results submitted while a load runs are replayed onto the
+ * new board by ResultSink sequence number, so none is missed or counted twice. Each category
+ * keeps a Fenwick tree of result counts indexed by score: rank, percentile and median are
+ * O(log maxScore) whatever the number of results.
+ * The best TOP_CAPACITY attempts per category and each user's history are kept alongside.
+ */
+public class Leaderboard {
+    public static final int TOP_CAPACITY = 100;
+
+    // One attempt on a category's top list
+    public static class Entry {
+        private final int userId;
+        private final int score;
+
+        Entry(int userId, int score) {
+            this.userId = userId;
+            this.score = score;
+        }
+
+        public int getUserId() {
+            return userId;
+        }
+
+        public int getScore() {
+            return score;
+        }
+    }
+
+    // Where a score stands within its category
+    public static class Standing {
+        private final long rank;
+        private final long outOf;
+        private final double percentile;
+
+        Standing(long rank, long outOf, double percentile) {
+            this.rank = rank;
+            this.outOf = outOf;
+            this.percentile = percentile;
+        }
+
+        // 1 + the number of strictly better results (ties share a rank)
+        public long getRank() {
+            return rank;
+        }
+
+        public long getOutOf() {
+            return outOf;
+        }
+
+        // Percent of results below the score, counting ties as half
+        public double getPercentile() {
+            return percentile;
+        }
+    }
+
+    public static class CategoryStats {
+        private final long count;
+        private final double mean;
+        private final double median;
+        private final int best;
+
+        CategoryStats(long count, double mean, double median, int best) {
+            this.count = count;
+            this.mean = mean;
+            this.median = median;
+            this.best = best;
+        }
+
+        public long getCount() { return count; }
+        public double getMean() { return mean; }
+        public double getMedian() { return median; }
+        public int getBest() { return best; }
+    }
+
+    private static volatile Leaderboard shared;
+    // the load in progress, the results submitted meanwhile by sequence number, and a counter
+    // that reset() bumps so a load that started before it is not installed
+    private static CompletableFuture<Leaderboard> loading; // guarded by Leaderboard.class
+    private static TreeMap<Long, ResultRecord> submittedWhileLoading;
+    private static int generation;
+
+    // The board, loaded from Repositories.results() first if need be (waits for the load)
+    public static Leaderboard shared() throws SQLException {
+        Leaderboard b = shared;
+        if (b != null)
+            return b;
+        try {
+            return load().get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while loading the leaderboard", ie);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof SQLException)
+                throw (SQLException) ex.getCause();
+            throw new SQLException("Could not load the leaderboard", ex.getCause());
+        }
+    }
+
+    // The shared board if it has been loaded, else null (never touches the database)
+    public static Leaderboard ifLoaded() {
+        return shared;
+    }
+
+    // Starts loading the board in the background unless it is loaded or loading already
+    public static synchronized CompletableFuture<Leaderboard> load() {
+        if (shared != null)
+            return CompletableFuture.completedFuture(shared);
+        if (loading == null) {
+            CompletableFuture<Leaderboard> f = new CompletableFuture<>();
+            loading = f;
+            submittedWhileLoading = new TreeMap<>();
+            int gen = generation;
+            Thread t = new Thread(() -> build(f, gen), "leaderboard-load");
+            t.setDaemon(true);
+            t.start();
+        }
+        return loading;
+    }
+
+    // A result QuizEngine has just handed to ResultSink (seq = what submit returned): recorded on
+    // the loaded board, or kept for the load in progress. Never blocks on a load or the database.
+    public static void submitted(ResultRecord r, long seq) {
+        Leaderboard b;
+        synchronized (Leaderboard.class) {
+            b = shared;
+            if (b == null) {
+                if (submittedWhileLoading != null)
+                    submittedWhileLoading.put(seq, r);
+                return; // no load yet: the one that comes reads it from the table
+            }
+        }
+        if (seq > b.loadedUpTo) // else the load read it from the table (reported late)
+            b.record(r);
+    }
+
+    // Drops the shared board (e.g. after switching data stores or regrading); the next shared()
+    // or load() builds a new one
+    public static synchronized void reset() {
+        shared = null;
+        loading = null;
+        submittedWhileLoading = null;
+        generation++;
+    }
+
+    private static void build(CompletableFuture<Leaderboard> f, int gen) {
+        Leaderboard b = new Leaderboard();
+        long upTo;
+        try {
+            // results queued before the load began must be in the table first; the ones
+            // submitted since are in submittedWhileLoading
+            ResultSink sink = ResultSink.shared();
+            if (!sink.flush(30_000))
+                throw new SQLTimeoutException("Results are still being saved; leaderboard not loaded");
+            // the table holds exactly this sink's results up to upTo: the later ones are replayed
+            upTo = sink.readBetweenBatches(() -> Repositories.results().forEach(b::record));
+        } catch (Exception ex) {
+            synchronized (Leaderboard.class) {
+                if (loading == f) {
+                    loading = null;
+                    submittedWhileLoading = null;
+                }
+            }
+            if (ex instanceof InterruptedException)
+                Thread.currentThread().interrupt();
+            f.completeExceptionally(ex);
+            return;
+        }
+        synchronized (Leaderboard.class) {
+            if (gen != generation) {
+                // reset() while loading: what was read may be out of date, load again
+                load().whenComplete((next, ex) -> {
+                    if (ex != null)
+                        f.completeExceptionally(ex);
+                    else
+                        f.complete(next);
+                });
+                return;
+            }
+            for (ResultRecord r : submittedWhileLoading.tailMap(upTo, false).values())
+                b.record(r);
+            b.loadedUpTo = upTo;
+            shared = b;
+            loading = null;
+            submittedWhileLoading = null;
+        }
+        f.complete(b);
+    }
+
+    // Per-category state
+    private static class Board {
+        long[] tree = new long[64]; // Fenwick tree, 1-based: score s lives at index s + 1
+        long count;
+        long sum;
+        int best = -1;
+        final int[] topUser = new int[TOP_CAPACITY];
+        final int[] topScore = new int[TOP_CAPACITY];
+        int topSize;
+
+        void add(int userId, int score) {
+            if (score + 1 >= tree.length)
+                grow(score + 1);
+            for (int i = score + 1; i < tree.length; i += i & -i)
+                tree[i]++;
+            count++;
+            sum += score;
+            best = Math.max(best, score);
+            addTop(userId, score);
+        }
+
+        // Number of results with a score <= s
+        long atMost(int s) {
+            if (s < 0)
+                return 0;
+            long n = 0;
+            for (int i = Math.min(s + 1, tree.length - 1); i > 0; i -= i & -i)
+                n += tree[i];
+            return n;
+        }
+
+        // The k-th smallest score (1-based), by walking down the tree
+        int kth(long k) {
+            int pos = 0;
+            for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+                int next = pos + step;
+                if (next < tree.length && tree[next] < k) {
+                    pos = next;
+                    k -= tree[next];
+                }
+            }
+            return pos; // index pos + 1 holds the score, which is pos
+        }
+
+        // Doubles the tree until index fits; rebuilds it from the per-score counts in O(size)
+        private void grow(int index) {
+            int size = tree.length;
+            while (size <= index)
+                size <<= 1;
+            long[] t = new long[size];
+            for (int i = 1; i < size; i++) {
+                if (i < tree.length)
+                    t[i] += atMost(i - 1) - atMost(i - 2);
+                int parent = i + (i & -i);
+                if (parent < size)
+                    t[parent] += t[i];
+            }
+            tree = t;
+        }
+
+        // Keeps the top list sorted by score, earlier attempts first among equal scores
+        private void addTop(int userId, int score) {
+            if (topSize == TOP_CAPACITY && score <= topScore[topSize - 1])
+                return;
+            int lo = 0, hi = topSize;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (topScore[mid] >= score)
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+            int moved = Math.min(topSize, TOP_CAPACITY - 1) - lo;
+            System.arraycopy(topUser, lo, topUser, lo + 1, moved);
+            System.arraycopy(topScore, lo, topScore, lo + 1, moved);
+            topUser[lo] = userId;
+            topScore[lo] = score;
+            if (topSize < TOP_CAPACITY)
+                topSize++;
+        }
+    }
+
+    // A user's attempts in submission order, packed as (categoryId << 32 | score)
+    private static class History {
+        long[] attempts = new long[4];
+        int size;
+    }
+
+    private long loadedUpTo; // ResultSink sequence number of the last result read from the table
+    private final Map<Integer, Board> boards = new HashMap<>();
+    private final Map<Integer, History> histories = new HashMap<>();
+
+    // Adds one result; called for every row at load time and for each new submission
+    public synchronized void record(ResultRecord r) {
+        if (r.getScore() < 0)
+            return;
+        boards.computeIfAbsent(r.getCategoryId(), id -> new Board()).add(r.getUserId(), r.getScore());
+
+        History h = histories.computeIfAbsent(r.getUserId(), id -> new History());
+        if (h.size == h.attempts.length)
+            h.attempts = Arrays.copyOf(h.attempts, h.size * 2);
+        h.attempts[h.size++] = ((long) r.getCategoryId() << 32) | r.getScore();
+    }
+
+    // The best attempts in a category, highest score first (at most TOP_CAPACITY)
+    public synchronized List<Entry> top(int categoryId, int n) {
+        Board b = boards.get(categoryId);
+        List<Entry> list = new ArrayList<>();
+        if (b == null)
+            return list;
+        for (int i = 0; i < Math.min(n, b.topSize); i++)
+            list.add(new Entry(b.topUser[i], b.topScore[i]));
+        return list;
+    }
+
+    public synchronized Standing standing(int categoryId, int score) {
+        Board b = boards.get(categoryId);
+        if (b == null || b.count == 0)
+            return new Standing(1, 0, 100.0);
+        long below = b.atMost(score - 1);
+        long atMost = b.atMost(score);
+        long above = b.count - atMost;
+        double percentile = 100.0 * (below + (atMost - below) / 2.0) / b.count;
+        return new Standing(above + 1, b.count, percentile);
+    }
+
+    public synchronized CategoryStats stats(int categoryId) {
+        Board b = boards.get(categoryId);
+        if (b == null || b.count == 0)
+            return new CategoryStats(0, 0, 0, 0);
+        double median = b.count % 2 == 1 ? b.kth(b.count / 2 + 1)
+                : (b.kth(b.count / 2) + b.kth(b.count / 2 + 1)) / 2.0;
+        return new CategoryStats(b.count, (double) b.sum / b.count, median, b.best);
+    }
+
+    // A user's attempts across all categories, oldest first
+    public synchronized List<ResultRecord> history(int userId) {
+        History h = histories.get(userId);
+        List<ResultRecord> list = new ArrayList<>(h == null ? 0 : h.size);
+        for (int i = 0; h != null && i < h.size; i++)
+            list.add(new ResultRecord(userId, (int) (h.attempts[i] >>> 32), (int) h.attempts[i]));
+        return list;
+    }
+}
@@ -0,0 +1,42 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * LocalFiles - where the client keeps its local state (journals, snapshots).
+ *
+ * Defaults to ~/.quiz-platform; override with -Dquiz.dataDir=...
+ */
+public class LocalFiles {
+
+    public static File dataDir() {
+        File dir = new File(System.getProperty("quiz.dataDir",
+                System.getProperty("user.home") + File.separator + ".quiz-platform"));
+        if (!dir.isDirectory() && !dir.mkdirs())
+            System.err.println("Could not create data directory " + dir);
+        return dir;
+    }
+
+    public static File file(String name) {
+        return new File(dataDir(), name);
+    }
+
+    // Replaces file's contents so a crash leaves either the old or the new contents: writes a
+    // temp file next to it, syncs it and renames it over the file. The file must not be open.
+    public static void replace(File file, byte[] contents) throws IOException {
+        Path tmp = file.toPath().resolveSibling(file.getName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.wrap(contents);
+            while (buf.hasRemaining())
+                ch.write(buf);
+            ch.force(true);
+        }
+        Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -1,10 +1,10 @@
 import javax.swing.*;
 import java.awt.*;
-import java.sql.*;
 
 public class LoginWindow extends JFrame {
     private JTextField usernameField;
     private JPasswordField passwordField;
+    private JButton loginBtn, registerBtn;
 
     public LoginWindow() {
         setTitle("Quiz - Login");
@@ -24,8 +24,8 @@ public class LoginWindow extends JFrame {
         passwordField = new JPasswordField();
         p.add(passwordField);
 
-        JButton loginBtn = new JButton("Login");
-        JButton registerBtn = new JButton("Register");
+        loginBtn = new JButton("Login");
+        registerBtn = new JButton("Register");
         p.add(loginBtn);
         p.add(registerBtn);
         add(p);
@@ -36,59 +36,62 @@ public class LoginWindow extends JFrame {
 
     private void attemptLogin() {
         String user = usernameField.getText().trim();
-        String pass = new String(passwordField.getPassword());
-        if (user.isEmpty() || pass.isEmpty()) {
+        char[] pass = passwordField.getPassword();
+        if (user.isEmpty() || pass.length == 0) {
             JOptionPane.showMessageDialog(this, "Enter both fields");
             return;
         }
 
-        // Query username/password and role from DB
-        String sql = "SELECT id, role FROM users WHERE username = ? AND password = ?";
-        try (Connection c = DBConnection.getConnection();
-                PreparedStatement ps = c.prepareStatement(sql)) {
-
-            ps.setString(1, user);
-            ps.setString(2, pass);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    int userId = rs.getInt("id");
-                    String role = rs.getString("role");
-                    dispose();
-                    if ("admin".equalsIgnoreCase(role)) {
-                        // open admin UI for admin role
-                        new AdminWindow().setVisible(true);
-                    } else {
-                        // normal user flow
-                        new CategoryWindow(userId, user).setVisible(true);
-                    }
+        // Look the user up and verify the password hash (off the EDT), once the schema is migrated
+        setButtonsEnabled(false);
+        DbWorker.run(this, () -> {
+            SchemaMigrator.awaitStartup();
+            return Authenticator.shared().authenticate(user, pass);
+        }, found -> {
+            setButtonsEnabled(true);
+            if (found != null) {
+                dispose();
+                if (found.isAdmin()) {
+                    // open admin UI for admin role
+                    new AdminWindow().setVisible(true);
                 } else {
-                    JOptionPane.showMessageDialog(this, "Invalid credentials");
+                    // normal user flow
+                    new CategoryWindow(found.getId(), found.getUsername()).setVisible(true);
                 }
+            } else {
+                JOptionPane.showMessageDialog(this, "Invalid credentials");
             }
-        } catch (SQLException ex) {
+        }, ex -> {
+            setButtonsEnabled(true);
             ex.printStackTrace();
             JOptionPane.showMessageDialog(this, "DB error: " + ex.getMessage());
-        }
+        });
     }
 
     private void attemptRegister() {
         String user = usernameField.getText().trim();
-        String pass = new String(passwordField.getPassword());
-        if (user.isEmpty() || pass.isEmpty()) {
+        char[] pass = passwordField.getPassword();
+        if (user.isEmpty() || pass.length == 0) {
             JOptionPane.showMessageDialog(this, "Enter both fields");
             return;
         }
 
-        String sql = "INSERT INTO users (username, password, role) VALUES (?, ?, 'user')";
-        try (Connection c = DBConnection.getConnection();
-                PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, user);
-            ps.setString(2, pass);
-            ps.executeUpdate();
+        setButtonsEnabled(false);
+        DbWorker.run(this, () -> {
+            SchemaMigrator.awaitStartup();
+            Authenticator.shared().register(user, pass, "user");
+        }, () -> {
+            setButtonsEnabled(true);
             JOptionPane.showMessageDialog(this, "Registered. Now login.");
-        } catch (SQLException ex) {
+        }, ex -> {
+            setButtonsEnabled(true);
             JOptionPane.showMessageDialog(this, "Register failed: " + ex.getMessage());
-        }
+        });
+    }
+
+    private void setButtonsEnabled(boolean enabled) {
+        loginBtn.setEnabled(enabled);
+        registerBtn.setEnabled(enabled);
     }
 
     // optional quick main for testing the login window alone
@@ -0,0 +1,239 @@
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics - process-wide named timers and counters, dumped as JSON or Prometheus text.
+ *
+ * A Timer keeps a log-linear latency histogram (HDR-style: 16 sub-buckets per power of two,
+ * about 6% precision from 1 ns to hours) in an AtomicLongArray, so recording is a handful of
+ * atomic adds and never locks. ConnectionPool times every JDBC call through it and logs
+ * statements slower than -Dquiz.metrics.slowQueryMillis. Served on 127.0.0.1 by
+ * startEndpoint (QuizApp --metrics-port) or printed at exit (QuizApp --metrics-dump).
+ */
+public class Metrics {
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+    static final long SLOW_QUERY_NANOS = Long.getLong("quiz.metrics.slowQueryMillis", 200) * 1_000_000;
+
+    public static class Timer {
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        public void record(long nanos) {
+            if (nanos < 0)
+                nanos = 0;
+            buckets.incrementAndGet(bucket(nanos));
+            count.increment();
+            totalNanos.add(nanos);
+            if (nanos > maxNanos.get())
+                maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        // A failed operation: timed like the others and counted as an error
+        public void recordError(long nanos) {
+            errors.increment();
+            record(nanos);
+        }
+
+        public long count() {
+            return count.sum();
+        }
+
+        public long errors() {
+            return errors.sum();
+        }
+
+        public double meanMillis() {
+            long n = count.sum();
+            return n == 0 ? 0 : totalNanos.sum() / 1e6 / n;
+        }
+
+        public double maxMillis() {
+            return maxNanos.get() / 1e6;
+        }
+
+        // Upper bound of the bucket holding the q-th quantile (0 < q <= 1), in milliseconds
+        public double quantileMillis(double q) {
+            long[] snapshot = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                snapshot[i] = buckets.get(i);
+                total += snapshot[i];
+            }
+            if (total == 0)
+                return 0;
+            long rank = (long) Math.ceil(q * total);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += snapshot[i];
+                if (seen >= rank)
+                    return Math.min(upperBound(i), maxNanos.get()) / 1e6;
+            }
+            return maxMillis();
+        }
+    }
+
+    public static class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long n) {
+            value.add(n);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    private static final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private static final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public static Timer timer(String name) {
+        Timer t = timers.get(name);
+        return t != null ? t : timers.computeIfAbsent(name, n -> new Timer());
+    }
+
+    public static Counter counter(String name) {
+        Counter c = counters.get(name);
+        return c != null ? c : counters.computeIfAbsent(name, n -> new Counter());
+    }
+
+    // Logs a statement that took longer than the slow-query threshold
+    public static void slowQuery(String sql, long nanos) {
+        if (nanos < SLOW_QUERY_NANOS)
+            return;
+        counter("db.slowQueries").increment();
+        System.err.printf("Slow query (%.1f ms): %s%n", nanos / 1e6, sql == null ? "?" : sql.replaceAll("\\s+", " "));
+    }
+
+    // --- Output ---
+
+    public static String json() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        Map<String, Object> t = new LinkedHashMap<>();
+        for (Map.Entry<String, Timer> e : new TreeMap<>(timers).entrySet()) {
+            Timer timer = e.getValue();
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("count", timer.count());
+            m.put("errors", timer.errors());
+            m.put("meanMs", round(timer.meanMillis()));
+            for (double q : QUANTILES)
+                m.put("p" + quantileLabel(q) + "Ms", round(timer.quantileMillis(q)));
+            m.put("maxMs", round(timer.maxMillis()));
+            t.put(e.getKey(), m);
+        }
+        Map<String, Object> c = new LinkedHashMap<>();
+        for (Map.Entry<String, Counter> e : new TreeMap<>(counters).entrySet())
+            c.put(e.getKey(), e.getValue().get());
+        out.put("timers", t);
+        out.put("counters", c);
+        return Json.write(out);
+    }
+
+    // Prometheus text exposition format: timers as summaries in seconds, counters as counters
+    public static String prometheus() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Timer> e : new TreeMap<>(timers).entrySet()) {
+            String name = "quiz_" + e.getKey().replace('.', '_') + "_seconds";
+            Timer timer = e.getValue();
+            sb.append("# TYPE ").append(name).append(" summary\n");
+            for (double q : QUANTILES)
+                sb.append(name).append("{quantile=\"").append(q).append("\"} ")
+                        .append(timer.quantileMillis(q) / 1000).append('\n');
+            sb.append(name).append("_sum ").append(timer.totalNanos.sum() / 1e9).append('\n');
+            sb.append(name).append("_count ").append(timer.count()).append('\n');
+            String errors = "quiz_" + e.getKey().replace('.', '_') + "_errors_total";
+            sb.append("# TYPE ").append(errors).append(" counter\n");
+            sb.append(errors).append(' ').append(timer.errors()).append('\n');
+        }
+        for (Map.Entry<String, Counter> e : new TreeMap<>(counters).entrySet()) {
+            String name = "quiz_" + e.getKey().replace('.', '_') + "_total";
+            sb.append("# TYPE ").append(name).append(" counter\n");
+            sb.append(name).append(' ').append(e.getValue().get()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    // One line per timer, for status areas and logs
+    public static List<String> summary() {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, Timer> e : new TreeMap<>(timers).entrySet()) {
+            Timer t = e.getValue();
+            lines.add(String.format("%s count=%d errors=%d mean=%.2fms p99=%.2fms max=%.2fms", e.getKey(),
+                    t.count(), t.errors(), t.meanMillis(), t.quantileMillis(0.99), t.maxMillis()));
+        }
+        for (Map.Entry<String, Counter> e : new TreeMap<>(counters).entrySet())
+            lines.add(e.getKey() + "=" + e.getValue().get());
+        return lines;
+    }
+
+    // Serves /metrics (Prometheus text) and /metrics.json on the loopback interface only
+    public static HttpServer startEndpoint(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 16);
+        server.createContext("/metrics", ex -> {
+            boolean json = ex.getRequestURI().getPath().endsWith(".json");
+            byte[] body = (json ? json() : prometheus()).getBytes(StandardCharsets.UTF_8);
+            ex.getResponseHeaders().set("Content-Type",
+                    json ? "application/json" : "text/plain; version=0.0.4; charset=utf-8");
+            ex.sendResponseHeaders(200, body.length);
+            try (OutputStream out = ex.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    // --- Histogram layout ---
+
+    // Values below 16 get their own bucket; above, 16 buckets per power of two
+    static int bucket(long v) {
+        if (v < SUB_BUCKETS)
+            return (int) v;
+        int exp = 63 - Long.numberOfLeadingZeros(v);
+        int sub = (int) (v >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exp - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int exp = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        long width = 1L << (exp - SUB_BITS);
+        return ((SUB_BUCKETS + sub) << (exp - SUB_BITS)) + width - 1;
+    }
+
+    private static String quantileLabel(double q) {
+        String s = Double.toString(q * 100);
+        return s.endsWith(".0") ? s.substring(0, s.length() - 2) : s;
+    }
+
+    private static double round(double ms) {
+        return Math.round(ms * 1000) / 1000.0;
+    }
+}
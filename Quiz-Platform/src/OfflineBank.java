@@ -0,0 +1,133 @@
+import java.io.File;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientConnectionException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * OfflineBank - where QuestionBankCache loads categories and questions from: the repositories,
+ * or the local QuestionSnapshot while the database cannot be reached.
+ *
+ * After a connection failure the snapshot answers, and for the next retryMillis the database
+ * is not tried at all, so an offline client does not wait for a failed connect on every click.
+ * start() (QuizApp) opens the snapshot and delta-refreshes it in the background; until then,
+ * and wherever it is never called (server, benchmarks), everything goes to the database as before.
+ * Results taken offline wait in ResultSink's journal, which retries until the database is back.
+ */
+public class OfflineBank {
+
+    private interface Loader<T> {
+        T load() throws SQLException;
+    }
+
+    private interface Local<T> {
+        T read(QuestionSnapshot s);
+    }
+
+    private static final OfflineBank SHARED = new OfflineBank(LocalFiles.file("questions.snapshot"),
+            Long.getLong("quiz.offline.retryMillis", 15_000));
+
+    public static OfflineBank shared() {
+        return SHARED;
+    }
+
+    private final File file;
+    private final long retryMillis;
+    private volatile QuestionSnapshot snapshot; // null until start()
+    private volatile long offlineUntil; // System.currentTimeMillis() before which the database is skipped
+
+    private final AtomicLong servedOffline = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+
+    public OfflineBank(File file, long retryMillis) {
+        this.file = file;
+        this.retryMillis = retryMillis;
+    }
+
+    // Opens the snapshot file now and refreshes it from the database on a background thread
+    public void start() {
+        snapshot = QuestionSnapshot.open(file);
+        Thread t = new Thread(this::refresh, "snapshot-refresh");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    // Brings the snapshot up to date with the database; false if the database was unreachable
+    public boolean refresh() {
+        long t0 = System.nanoTime();
+        try {
+            QuestionSnapshot old = snapshot;
+            snapshot = QuestionSnapshot.refresh(file, old);
+            refreshes.incrementAndGet();
+            offlineUntil = 0;
+            System.err.printf("Question snapshot refreshed in %.0f ms: %s%n", (System.nanoTime() - t0) / 1e6, snapshot);
+            return true;
+        } catch (SQLException ex) {
+            if (isConnectionFailure(ex))
+                offlineUntil = System.currentTimeMillis() + retryMillis;
+            System.err.println("Question snapshot not refreshed: " + ex.getMessage());
+        } catch (Exception ex) {
+            System.err.println("Question snapshot not refreshed: " + ex);
+        }
+        return false;
+    }
+
+    public List<Category> categories() throws SQLException {
+        return load(() -> Repositories.categories().findAll(), s -> s.categories());
+    }
+
+    public List<Question> questions(int categoryId) throws SQLException {
+        return load(() -> Repositories.questions().loadCategory(categoryId), s -> s.questions(categoryId));
+    }
+
+    // The snapshot as last opened or refreshed, or null
+    public QuestionSnapshot snapshot() {
+        return snapshot;
+    }
+
+    // True while answers come from the snapshot because the database could not be reached
+    public boolean isOffline() {
+        return offlineUntil > System.currentTimeMillis();
+    }
+
+    public String stats() {
+        QuestionSnapshot s = snapshot;
+        return String.format("offline=%b servedOffline=%d refreshes=%d snapshot=[%s]", isOffline(),
+                servedOffline.get(), refreshes.get(), s == null ? "none" : s);
+    }
+
+    private <T> T load(Loader<T> database, Local<T> local) throws SQLException {
+        QuestionSnapshot s = snapshot;
+        if (s != null && isOffline()) {
+            T value = local.read(s);
+            if (value != null) {
+                servedOffline.incrementAndGet();
+                return value;
+            }
+        }
+        try {
+            T value = database.load();
+            offlineUntil = 0;
+            return value;
+        } catch (SQLException ex) {
+            if (s == null || !isConnectionFailure(ex))
+                throw ex;
+            offlineUntil = System.currentTimeMillis() + retryMillis;
+            T value = local.read(s);
+            if (value == null)
+                throw ex;
+            servedOffline.incrementAndGet();
+            return value;
+        }
+    }
+
+    static boolean isConnectionFailure(SQLException ex) {
+        if (ex instanceof SQLNonTransientConnectionException || ex instanceof SQLTransientConnectionException
+                || ex instanceof SQLRecoverableException)
+            return true;
+        String state = ex.getSQLState();
+        return state != null && state.startsWith("08"); // connection exception
+    }
+}
@@ -0,0 +1,169 @@
+import javax.swing.table.AbstractTableModel;
+import java.awt.Window;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * PagedQuestionModel - lazy table model over a category's questions (ID, Question).
+ *
+ * Only the row count is fetched up front; rows arrive in pages of PAGE_SIZE as the table
+ * asks for them, read with keyset pagination (id > last id of the previous page) through
+ * QuestionRepository.listPage. Each loaded page also prefetches the next one, and at most
+ * MAX_PAGES pages are kept (least recently used are dropped and refetched if needed).
+ * A page far ahead of the known ones is located with idAfter (an index-only skip).
+ * Rows not loaded yet read as null id / "Loading...". All state is touched on the EDT only;
+ * fetches run through DbWorker, and answers for an older category or search are ignored.
+ */
+public class PagedQuestionModel extends AbstractTableModel {
+    static final int PAGE_SIZE = 200;
+    static final int MAX_PAGES = 25;
+    private static final String[] COLUMNS = { "ID", "Question" };
+
+    private final Window owner;
+    private int categoryId = -1;
+    private String search;
+    private int rowCount;
+    private int generation; // bumped on every show(); stale fetches compare against it
+
+    // page index -> rows, in access order so the eldest is the least recently used
+    private final LinkedHashMap<Integer, List<Question>> pages = new LinkedHashMap<>(16, 0.75f, true);
+    // page index -> id of the last row before the page (0 for page 0), learned as pages load
+    private final Map<Integer, Integer> startAfter = new HashMap<>();
+    private final Set<Integer> loading = new HashSet<>();
+
+    public PagedQuestionModel(Window owner) {
+        this.owner = owner;
+    }
+
+    // Switches to a category (and optional text filter); the old rows are dropped at once
+    public void show(int categoryId, String search) {
+        this.categoryId = categoryId;
+        this.search = search == null || search.trim().isEmpty() ? null : search.trim();
+        int gen = ++generation;
+        pages.clear();
+        startAfter.clear();
+        loading.clear();
+        rowCount = 0;
+        fireTableDataChanged();
+        if (categoryId < 0)
+            return;
+        startAfter.put(0, 0);
+        String filter = this.search;
+        DbWorker.run(owner, () -> Repositories.questions().countQuestions(categoryId, filter), count -> {
+            if (gen != generation)
+                return;
+            rowCount = count;
+            fireTableDataChanged();
+            requestPage(0, true);
+        }, ex -> ex.printStackTrace());
+    }
+
+    public void clear() {
+        show(-1, null);
+    }
+
+    // Reloads the current category and filter (after an add, edit or delete)
+    public void refresh() {
+        show(categoryId, search);
+    }
+
+    public int getCategoryId() {
+        return categoryId;
+    }
+
+    // The question id on this row, or null while its page is still loading
+    public Integer idAt(int row) {
+        Question q = question(row);
+        return q == null ? null : q.getId();
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int col) {
+        return COLUMNS[col];
+    }
+
+    @Override
+    public Object getValueAt(int row, int col) {
+        Question q = question(row);
+        if (q == null)
+            return col == 0 ? null : "Loading...";
+        return col == 0 ? (Object) q.getId() : q.getText();
+    }
+
+    private Question question(int row) {
+        if (row < 0 || row >= rowCount)
+            return null;
+        int page = row / PAGE_SIZE;
+        List<Question> rows = pages.get(page);
+        if (rows == null) {
+            requestPage(page, true);
+            return null;
+        }
+        int i = row % PAGE_SIZE;
+        return i < rows.size() ? rows.get(i) : null;
+    }
+
+    // prefetchNext: also load the following page once this one arrives (not done for prefetches)
+    private void requestPage(int page, boolean prefetchNext) {
+        if (page * PAGE_SIZE >= rowCount || pages.containsKey(page) || !loading.add(page))
+            return;
+        int gen = generation;
+        int cat = categoryId;
+        String filter = search;
+        Integer knownAfter = startAfter.get(page);
+        // nearest page before this one whose starting point is known
+        int base = page;
+        while (knownAfter == null && base > 0)
+            knownAfter = startAfter.get(--base);
+        int from = base;
+        int after = knownAfter == null ? 0 : knownAfter;
+        DbWorker.run(owner, () -> {
+            int start = after;
+            if (from < page) {
+                start = Repositories.questions().idAfter(cat, filter, after, (page - from) * PAGE_SIZE - 1);
+                if (start < 0)
+                    return null; // rows were deleted meanwhile
+            }
+            return Repositories.questions().listPage(cat, filter, start, PAGE_SIZE);
+        }, rows -> {
+            loading.remove(page);
+            if (gen != generation || rows == null)
+                return;
+            pages.put(page, rows);
+            if (!rows.isEmpty())
+                startAfter.put(page + 1, rows.get(rows.size() - 1).getId());
+            evict(page);
+            int first = page * PAGE_SIZE;
+            fireTableRowsUpdated(first, Math.min(rowCount, first + PAGE_SIZE) - 1);
+            if (prefetchNext)
+                requestPage(page + 1, false); // the user is most likely scrolling down
+        }, ex -> {
+            loading.remove(page);
+            ex.printStackTrace();
+        });
+    }
+
+    // Drops the least recently used pages beyond MAX_PAGES (never the one just loaded)
+    private void evict(int keep) {
+        Iterator<Integer> it = pages.keySet().iterator();
+        while (pages.size() > MAX_PAGES && it.hasNext()) {
+            if (it.next() != keep)
+                it.remove();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * PasswordHasher - salted PBKDF2-HMAC-SHA256 password hashes.
+ *
+ * Stored as "pbkdf2$iterations$salt$hash" (Base64), so the cost can be raised later
+ * (-Dquiz.password.iterations) and older hashes still verify; needsRehash() tells the
+ * caller when a stored value is plaintext or below the current cost.
+ */
+public class PasswordHasher {
+    private static final String PREFIX = "pbkdf2$";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final int iterations;
+
+    public PasswordHasher(int iterations) {
+        if (iterations < 1)
+            throw new IllegalArgumentException("iterations must be positive");
+        this.iterations = iterations;
+    }
+
+    public int iterations() {
+        return iterations;
+    }
+
+    public String hash(char[] password) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        Base64.Encoder b64 = Base64.getEncoder().withoutPadding();
+        return PREFIX + iterations + "$" + b64.encodeToString(salt) + "$"
+                + b64.encodeToString(pbkdf2(password, salt, iterations));
+    }
+
+    // Checks a password against a stored hash, or a legacy plaintext value (in constant time)
+    public boolean verify(char[] password, String stored) {
+        if (!isHash(stored))
+            return MessageDigest.isEqual(new String(password).getBytes(StandardCharsets.UTF_8),
+                    stored.getBytes(StandardCharsets.UTF_8));
+        String[] parts = stored.split("\\$");
+        try {
+            int n = Integer.parseInt(parts[1]);
+            Base64.Decoder b64 = Base64.getDecoder();
+            byte[] expected = b64.decode(parts[3]);
+            return MessageDigest.isEqual(expected, pbkdf2(password, b64.decode(parts[2]), n));
+        } catch (RuntimeException malformed) {
+            return false;
+        }
+    }
+
+    // True for plaintext and for hashes made with fewer iterations than this hasher uses
+    public boolean needsRehash(String stored) {
+        if (!isHash(stored))
+            return true;
+        try {
+            return Integer.parseInt(stored.split("\\$")[1]) < iterations;
+        } catch (RuntimeException malformed) {
+            return true;
+        }
+    }
+
+    public static boolean isHash(String stored) {
+        return stored.startsWith(PREFIX) && stored.split("\\$").length == 4;
+    }
+
+    private static byte[] pbkdf2(char[] password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2WithHmacSHA256 unavailable", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
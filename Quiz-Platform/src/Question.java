@@ -0,0 +1,41 @@
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Question - a quiz question with its options, as loaded from the questions/options tables.
+ * Immutable so a loaded category can be shared between quiz windows; the taker's
+ * selected answers are kept by the quiz, not here.
+ */
+public class Question {
+    private final int id;
+    private final String text;
+    private final List<Option> options;
+    private final int version; // bumped by every save; only read where it matters (findById)
+
+    public Question(int id, String text, List<Option> options) {
+        this(id, text, options, 0);
+    }
+
+    public Question(int id, String text, List<Option> options, int version) {
+        this.id = id;
+        this.text = text;
+        this.options = Collections.unmodifiableList(options);
+        this.version = version;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public List<Option> getOptions() {
+        return options;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+}
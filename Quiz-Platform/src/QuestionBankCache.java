@@ -0,0 +1,228 @@
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * QuestionBankCache - process-wide, read-mostly cache of the question bank.
+ *
+ * Holds each category's (immutable) question list keyed by category id, plus the
+ * category list itself. Bounded by the total number of cached questions; when the bound
+ * is exceeded the least recently used categories are evicted. Concurrent misses for the
+ * same category share one load. AdminWindow invalidates entries after every write.
+ * The shared cache loads through OfflineBank, which falls back to the local snapshot offline.
+ * Categories of at least compactThreshold questions are kept as a CompactQuestionBank.
+ */
+public class QuestionBankCache {
+
+    public interface CategoriesSource {
+        List<Category> load() throws SQLException;
+    }
+
+    public interface QuestionsSource {
+        List<Question> load(int categoryId) throws SQLException;
+    }
+
+    public static class Stats {
+        public final long hits, misses, evictions, invalidations;
+        public final int categories, questions;
+
+        Stats(long hits, long misses, long evictions, long invalidations, int categories, int questions) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.invalidations = invalidations;
+            this.categories = categories;
+            this.questions = questions;
+        }
+
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d misses=%d hitRate=%.2f evictions=%d invalidations=%d cached=%d categories/%d questions",
+                    hits, misses, hitRate(), evictions, invalidations, categories, questions);
+        }
+    }
+
+    private static class Entry {
+        final CompletableFuture<List<Question>> value;
+        volatile long lastAccess;
+        int weight; // number of questions, known once loaded
+        boolean counted; // weight included in the total; guarded by the cache's monitor
+
+        Entry(CompletableFuture<List<Question>> value, long now) {
+            this.value = value;
+            this.lastAccess = now;
+        }
+    }
+
+    private static final QuestionBankCache SHARED = new QuestionBankCache(
+            Integer.getInteger("quiz.cache.maxQuestions", 50_000),
+            Integer.getInteger("quiz.cache.compactThreshold", 10_000),
+            () -> OfflineBank.shared().categories(),
+            categoryId -> OfflineBank.shared().questions(categoryId));
+
+    public static QuestionBankCache shared() {
+        return SHARED;
+    }
+
+    private final int maxQuestions;
+    private final int compactThreshold;
+    private final CategoriesSource categoriesSource;
+    private final QuestionsSource questionsSource;
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private volatile List<Category> categories; // null until loaded or after invalidation
+    private final AtomicLong categoriesGeneration = new AtomicLong();
+
+    // access "clock" for LRU ordering; cheaper than reordering a linked map on every read
+    private final AtomicLong tick = new AtomicLong();
+    private final AtomicLong weight = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public QuestionBankCache(int maxQuestions, CategoriesSource categoriesSource, QuestionsSource questionsSource) {
+        this(maxQuestions, Integer.MAX_VALUE, categoriesSource, questionsSource);
+    }
+
+    public QuestionBankCache(int maxQuestions, int compactThreshold, CategoriesSource categoriesSource,
+            QuestionsSource questionsSource) {
+        this.maxQuestions = maxQuestions;
+        this.compactThreshold = compactThreshold;
+        this.categoriesSource = categoriesSource;
+        this.questionsSource = questionsSource;
+    }
+
+    public List<Question> questions(int categoryId) throws SQLException {
+        Entry e = entries.get(categoryId);
+        if (e != null) {
+            hits.incrementAndGet();
+        } else {
+            Entry fresh = new Entry(new CompletableFuture<>(), tick.incrementAndGet());
+            e = entries.putIfAbsent(categoryId, fresh);
+            if (e == null) {
+                misses.incrementAndGet();
+                load(categoryId, fresh);
+                e = fresh;
+            } else {
+                hits.incrementAndGet(); // another thread is already loading it
+            }
+        }
+        e.lastAccess = tick.incrementAndGet();
+        try {
+            return e.value.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while loading category " + categoryId, ie);
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof SQLException)
+                throw (SQLException) cause;
+            throw new SQLException("Failed to load category " + categoryId, cause);
+        }
+    }
+
+    public List<Category> categories() throws SQLException {
+        List<Category> list = categories;
+        if (list != null) {
+            hits.incrementAndGet();
+            return list;
+        }
+        misses.incrementAndGet();
+        long gen = categoriesGeneration.get();
+        list = Collections.unmodifiableList(categoriesSource.load());
+        synchronized (this) {
+            if (categoriesGeneration.get() == gen) // skip if invalidated while we were loading
+                categories = list;
+        }
+        return list;
+    }
+
+    // Call after any write touching this category's questions or options
+    public void invalidate(int categoryId) {
+        Entry e = entries.remove(categoryId);
+        if (e != null) {
+            uncount(e);
+            invalidations.incrementAndGet();
+        }
+    }
+
+    // Call after adding, renaming or deleting a category
+    public synchronized void invalidateCategories() {
+        categoriesGeneration.incrementAndGet();
+        categories = null;
+        invalidations.incrementAndGet();
+    }
+
+    public void invalidateAll() {
+        for (Integer id : new ArrayList<>(entries.keySet()))
+            invalidate(id);
+        invalidateCategories();
+    }
+
+    public Stats stats() {
+        return new Stats(hits.get(), misses.get(), evictions.get(), invalidations.get(), entries.size(),
+                (int) weight.get());
+    }
+
+    private void load(int categoryId, Entry e) throws SQLException {
+        List<Question> loaded;
+        try {
+            loaded = questionsSource.load(categoryId);
+            loaded = loaded.size() >= compactThreshold ? CompactQuestionBank.of(loaded)
+                    : Collections.unmodifiableList(loaded);
+        } catch (SQLException | RuntimeException ex) {
+            entries.remove(categoryId, e); // do not cache failures
+            e.value.completeExceptionally(ex);
+            throw ex;
+        }
+        synchronized (this) {
+            e.weight = loaded.size();
+            if (entries.get(categoryId) == e) {
+                e.counted = true;
+                weight.addAndGet(e.weight);
+                evictIfNeeded(categoryId);
+            }
+        }
+        e.value.complete(loaded);
+    }
+
+    private synchronized void uncount(Entry e) {
+        if (e.counted) {
+            e.counted = false;
+            weight.addAndGet(-e.weight);
+        }
+    }
+
+    // Drop least recently used categories until the total fits; the just-loaded one is kept
+    private synchronized void evictIfNeeded(int keep) {
+        while (weight.get() > maxQuestions && entries.size() > 1) {
+            Integer victim = null;
+            long oldest = Long.MAX_VALUE;
+            for (Map.Entry<Integer, Entry> me : entries.entrySet()) {
+                Entry e = me.getValue();
+                if (me.getKey() != keep && e.counted && e.lastAccess < oldest) {
+                    oldest = e.lastAccess;
+                    victim = me.getKey();
+                }
+            }
+            if (victim == null)
+                return;
+            Entry removed = entries.remove(victim);
+            if (removed != null) {
+                uncount(removed);
+                evictions.incrementAndGet();
+            }
+        }
+    }
+}
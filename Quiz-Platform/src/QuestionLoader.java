@@ -0,0 +1,67 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * QuestionLoader - loads a category's questions together with their options.
+ *
+ * Uses a single LEFT JOIN ordered by question id, then option id, and builds the
+ * Question/Option graph in one pass over the ResultSet: a new Question starts whenever
+ * the question id changes. One round trip per category instead of one per question.
+ * streamCategory() hands each question on as soon as it is complete (bulk export).
+ */
+public class QuestionLoader {
+    static final String JOIN_SQL = "SELECT q.id AS qid, q.text AS qtext, o.id AS oid, o.text AS otext, o.is_correct"
+            + " FROM questions q LEFT JOIN options o ON o.question_id = q.id"
+            + " WHERE q.category_id = ? ORDER BY q.id, o.id";
+
+    public static List<Question> loadCategory(int categoryId) throws SQLException {
+        try (Connection c = DBConnection.getConnection()) {
+            return loadCategory(c, categoryId);
+        }
+    }
+
+    public static List<Question> loadCategory(Connection c, int categoryId) throws SQLException {
+        List<Question> questions = new ArrayList<>();
+        try (PreparedStatement ps = c.prepareStatement(JOIN_SQL)) {
+            ps.setInt(1, categoryId);
+            ps.setFetchSize(500);
+            read(ps, questions::add);
+        }
+        return questions;
+    }
+
+    // Streams the category row by row; only the question being assembled is held in memory
+    public static void streamCategory(Connection c, int categoryId, Consumer<Question> action) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(JOIN_SQL, ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY)) {
+            ps.setInt(1, categoryId);
+            DBConnection.streamResults(c, ps);
+            read(ps, action);
+        }
+    }
+
+    private static void read(PreparedStatement ps, Consumer<Question> action) throws SQLException {
+        try (ResultSet rs = ps.executeQuery()) {
+            int currentId = 0;
+            String currentText = null;
+            List<Option> currentOptions = null;
+            while (rs.next()) {
+                int qid = rs.getInt("qid");
+                if (currentOptions == null || qid != currentId) {
+                    if (currentOptions != null)
+                        action.accept(new Question(currentId, currentText, currentOptions));
+                    currentId = qid;
+                    currentText = rs.getString("qtext");
+                    currentOptions = new ArrayList<>(4);
+                }
+                int oid = rs.getInt("oid");
+                if (!rs.wasNull()) // LEFT JOIN: a question without options yields one row of NULLs
+                    currentOptions.add(new Option(oid, rs.getString("otext"), rs.getInt("is_correct") == 1));
+            }
+            if (currentOptions != null)
+                action.accept(new Question(currentId, currentText, currentOptions));
+        }
+    }
+}
@@ -0,0 +1,59 @@
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * QuestionRepository - data access for the questions and options tables.
+ */
+public interface QuestionRepository {
+    // All questions of a category with their options, ordered by question id then option id
+    List<Question> loadCategory(int categoryId) throws SQLException;
+
+    // Id and text only (options left empty), for listings such as the admin table
+    List<Question> listQuestions(int categoryId) throws SQLException;
+
+    // Keyset paging for large listings (id and text only). search, when not null, keeps the
+    // questions whose text contains it (case-insensitive)
+
+    // Up to limit questions with id > afterId, in id order
+    List<Question> listPage(int categoryId, String search, int afterId, int limit) throws SQLException;
+
+    int countQuestions(int categoryId, String search) throws SQLException;
+
+    // The id skip positions past afterId (skip 0 = the next one), or -1 if there is none;
+    // lets a pager jump ahead without reading the pages in between
+    int idAfter(int categoryId, String search, int afterId, int skip) throws SQLException;
+
+    // Category id -> a value that changes whenever the category's questions or options change
+    // (built from ids, counts and question versions with QuestionSnapshot.fingerprint; every save
+    // bumps the version). Categories without questions are left out.
+    Map<Integer, Long> fingerprints() throws SQLException;
+
+    // One question with its options and version, or null if it does not exist
+    Question findById(int questionId) throws SQLException;
+
+    // Id and text only (options left empty) of those of questionIds that exist, by id; one query
+    // for the lot, for listings of search hits
+    Map<Integer, Question> listByIds(List<Integer> questionIds) throws SQLException;
+
+    // Inserts the question and its options in one transaction; option ids are ignored. Returns the new id.
+    int create(int categoryId, String text, List<Option> options) throws SQLException;
+
+    // Inserts many questions with their options in one transaction (bulk import); returns the new ids in order
+    int[] createAll(int categoryId, List<Question> questions) throws SQLException;
+
+    // Streams a category's questions with their options in id order, without holding them all in memory
+    void forEachInCategory(int categoryId, Consumer<Question> action) throws SQLException;
+
+    // Saves the question text and options in one transaction if the question is still at
+    // expectedVersion, else throws StaleQuestionException; returns the new version. Only option
+    // rows that differ are written: options pair up by position with the stored ones in id
+    // order and keep their ids, extra ones are inserted or deleted (incoming option ids are ignored).
+    int update(int questionId, int expectedVersion, String text, List<Option> options) throws SQLException;
+
+    // The same diff-based save whatever the current version (the last save wins)
+    void update(int questionId, String text, List<Option> options) throws SQLException;
+
+    void delete(int questionId) throws SQLException;
+}
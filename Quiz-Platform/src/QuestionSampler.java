@@ -0,0 +1,310 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * QuestionSampler - draws the questions of one quiz from a category's bank.
+ *
+ * Picks questionsPerQuiz positions with a partial Fisher-Yates shuffle over the bank's
+ * index (swaps kept in a small primitive map), so a draw costs O(N) however large the bank
+ * is, and shuffles each question's options. Everything comes from one seeded
+ * SplittableRandom: the same bank, seed and exclusions give the same quiz. Optionally the
+ * bank is split into strata by a Stratifier (difficulty, tag, ...) and each stratum gets
+ * its proportional share of the quiz. Questions a user saw in their last noRepeatWindow
+ * draws are skipped while unseen ones remain (within the stratum).
+ */
+public class QuestionSampler {
+
+    // Groups questions for stratified draws; equal values form one stratum
+    public interface Stratifier {
+        int stratumOf(Question q);
+    }
+
+    public static class Config {
+        int questionsPerQuiz = Integer.getInteger("quiz.questionsPerQuiz", 20); // 0 = the whole bank
+        boolean shuffleOptions = !"false".equalsIgnoreCase(System.getProperty("quiz.shuffleOptions"));
+        int noRepeatWindow = Integer.getInteger("quiz.noRepeatWindow", 100); // questions remembered per user
+        int maxUsers = 10_000;
+        Stratifier stratifier;
+
+        public Config questionsPerQuiz(int v) { questionsPerQuiz = v; return this; }
+        public Config shuffleOptions(boolean v) { shuffleOptions = v; return this; }
+        public Config noRepeatWindow(int v) { noRepeatWindow = v; return this; }
+        public Config maxUsers(int v) { maxUsers = v; return this; }
+        public Config stratifier(Stratifier v) { stratifier = v; return this; }
+    }
+
+    // A bank's positions grouped by stratum, rebuilt when the cached bank list is replaced
+    private static class Strata {
+        final List<Question> bank;
+        final int[][] positions;
+
+        Strata(List<Question> bank, int[][] positions) {
+            this.bank = bank;
+            this.positions = positions;
+        }
+    }
+
+    // The last ids drawn for one user, as a ring
+    private static class Recent {
+        final int[] ids;
+        int next;
+        int size;
+
+        Recent(int window) {
+            ids = new int[window];
+        }
+    }
+
+    private final Config config;
+    private final Map<Integer, Strata> strata = new ConcurrentHashMap<>();
+    private final LinkedHashMap<Integer, Recent> recent;
+
+    private final AtomicLong draws = new AtomicLong();
+    private final AtomicLong repeats = new AtomicLong();
+
+    public QuestionSampler(Config config) {
+        this.config = config;
+        this.recent = new LinkedHashMap<Integer, Recent>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Recent> eldest) {
+                return size() > config.maxUsers;
+            }
+        };
+    }
+
+    // Draws a quiz for the user and remembers its questions for the no-repeat window. The draw
+    // depends on the user's history too: pass exclusionsFor(userId) to sample() to repeat it.
+    public List<Question> draw(int userId, int categoryId, List<Question> bank, long seed) {
+        List<Question> quiz = sample(categoryId, bank, seed, exclusionsFor(userId));
+        remember(userId, quiz);
+        return quiz;
+    }
+
+    // The question ids a draw for the user would skip now (sorted), or null if none
+    public int[] exclusionsFor(int userId) {
+        return config.noRepeatWindow > 0 ? recentIds(userId) : null;
+    }
+
+    // Deterministic: the same bank, seed and excluded ids (sorted, may be null) give the same quiz.
+    // Excluded questions are only used when a stratum has too few others.
+    public List<Question> sample(int categoryId, List<Question> bank, long seed, int[] excluded) {
+        draws.incrementAndGet();
+        int n = bank.size();
+        int k = config.questionsPerQuiz <= 0 ? n : Math.min(config.questionsPerQuiz, n);
+        SplittableRandom rnd = new SplittableRandom(seed);
+        int[] picked = new int[k];
+        if (config.stratifier == null) {
+            pick(bank, null, n, k, rnd, excluded, picked, 0);
+        } else {
+            int[][] groups = strata(categoryId, bank).positions;
+            int[] quota = quotas(groups, n, k);
+            int at = 0;
+            for (int s = 0; s < groups.length; s++) {
+                pick(bank, groups[s], groups[s].length, quota[s], rnd, excluded, picked, at);
+                at += quota[s];
+            }
+            shuffle(picked, k, rnd); // interleave the strata
+        }
+        List<Question> quiz = new ArrayList<>(k);
+        for (int p : picked)
+            quiz.add(config.shuffleOptions ? withShuffledOptions(bank.get(p), rnd) : bank.get(p));
+        return quiz;
+    }
+
+    public String stats() {
+        synchronized (recent) {
+            return String.format("draws=%d repeats=%d users=%d", draws.get(), repeats.get(), recent.size());
+        }
+    }
+
+    // Partial Fisher-Yates over positions[0..m) (or 0..m itself when positions is null): writes
+    // `count` distinct bank positions to out[at..]. Only the swapped slots are stored, so the
+    // cost follows the number of draws, not m.
+    private void pick(List<Question> bank, int[] positions, int m, int count, SplittableRandom rnd,
+            int[] excluded, int[] out, int at) {
+        if (count == 0)
+            return;
+        SwapMap swaps = new SwapMap(count);
+        int[] deferred = null;
+        int deferredSize = 0;
+        int taken = 0;
+        for (int i = 0; i < m && taken < count; i++) {
+            int j = i + rnd.nextInt(m - i);
+            int chosen = swaps.get(j);
+            swaps.put(j, swaps.get(i)); // slot i is never read again
+            int pos = positions == null ? chosen : positions[chosen];
+            if (excluded != null && Arrays.binarySearch(excluded, idAt(bank, pos)) >= 0) {
+                if (deferred == null)
+                    deferred = new int[Math.min(count, m)];
+                if (deferredSize < deferred.length)
+                    deferred[deferredSize++] = pos;
+                continue;
+            }
+            out[at + taken++] = pos;
+        }
+        // not enough unseen questions: fall back to recently seen ones, in draw order
+        for (int d = 0; taken < count; d++) {
+            out[at + taken++] = deferred[d];
+            repeats.incrementAndGet();
+        }
+    }
+
+    // A compact bank answers without building the Question
+    private static int idAt(List<Question> bank, int pos) {
+        return bank instanceof CompactQuestionBank ? ((CompactQuestionBank) bank).idAt(pos) : bank.get(pos).getId();
+    }
+
+    // Each stratum's share of k, proportional to its size (largest remainder)
+    private static int[] quotas(int[][] groups, int n, int k) {
+        int[] quota = new int[groups.length];
+        long[] remainder = new long[groups.length];
+        int assigned = 0;
+        for (int s = 0; s < groups.length; s++) {
+            long exact = (long) k * groups[s].length;
+            quota[s] = (int) (exact / n);
+            remainder[s] = exact % n;
+            assigned += quota[s];
+        }
+        while (assigned < k) {
+            int best = 0;
+            for (int s = 1; s < groups.length; s++) {
+                if (remainder[s] > remainder[best])
+                    best = s;
+            }
+            quota[best]++;
+            remainder[best] = -1;
+            assigned++;
+        }
+        return quota;
+    }
+
+    private Strata strata(int categoryId, List<Question> bank) {
+        Strata cached = strata.get(categoryId);
+        if (cached != null && cached.bank == bank)
+            return cached;
+        // group positions by stratum, strata in key order so draws do not depend on hashing
+        TreeMap<Integer, int[]> groups = new TreeMap<>(); // key -> {size, slot}
+        int[] keys = new int[bank.size()];
+        for (int i = 0; i < bank.size(); i++) {
+            keys[i] = config.stratifier.stratumOf(bank.get(i));
+            groups.computeIfAbsent(keys[i], key -> new int[2])[0]++;
+        }
+        int[][] positions = new int[groups.size()][];
+        int s = 0;
+        for (int[] g : groups.values()) {
+            g[1] = s;
+            positions[s++] = new int[g[0]];
+        }
+        int[] fill = new int[positions.length];
+        for (int i = 0; i < keys.length; i++) {
+            int g = groups.get(keys[i])[1];
+            positions[g][fill[g]++] = i;
+        }
+        Strata built = new Strata(bank, positions);
+        strata.put(categoryId, built);
+        return built;
+    }
+
+    private static void shuffle(int[] a, int length, SplittableRandom rnd) {
+        for (int i = length - 1; i > 0; i--) {
+            int j = rnd.nextInt(i + 1);
+            int t = a[i];
+            a[i] = a[j];
+            a[j] = t;
+        }
+    }
+
+    private static Question withShuffledOptions(Question q, SplittableRandom rnd) {
+        List<Option> options = new ArrayList<>(q.getOptions());
+        if (options.size() < 2)
+            return q;
+        for (int i = options.size() - 1; i > 0; i--)
+            Collections.swap(options, i, rnd.nextInt(i + 1));
+        return new Question(q.getId(), q.getText(), options);
+    }
+
+    // The user's recent question ids, sorted for binary search; null if none
+    private int[] recentIds(int userId) {
+        synchronized (recent) {
+            Recent r = recent.get(userId);
+            if (r == null || r.size == 0)
+                return null;
+            int[] ids = Arrays.copyOf(r.ids, r.size);
+            Arrays.sort(ids);
+            return ids;
+        }
+    }
+
+    // Adds a quiz's questions to the user's no-repeat window
+    public void remember(int userId, List<Question> quiz) {
+        if (config.noRepeatWindow <= 0)
+            return;
+        synchronized (recent) {
+            Recent r = recent.computeIfAbsent(userId, id -> new Recent(config.noRepeatWindow));
+            for (Question q : quiz) {
+                r.ids[r.next] = q.getId();
+                r.next = (r.next + 1) % r.ids.length;
+                r.size = Math.min(r.size + 1, r.ids.length);
+            }
+        }
+    }
+
+    // int -> int open-addressing map for the shuffle's swapped slots; absent keys map to themselves
+    private static class SwapMap {
+        private int[] keys; // key + 1, 0 = empty
+        private int[] values;
+        private int size;
+
+        SwapMap(int expected) {
+            int cap = Integer.highestOneBit(Math.max(4, expected * 4) - 1) << 1;
+            keys = new int[cap];
+            values = new int[cap];
+        }
+
+        int get(int key) {
+            int mask = keys.length - 1;
+            for (int i = mix(key) & mask; keys[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == key + 1)
+                    return values[i];
+            }
+            return key;
+        }
+
+        void put(int key, int value) {
+            if ((size + 1) * 2 > keys.length)
+                rehash();
+            int mask = keys.length - 1;
+            int i = mix(key) & mask;
+            while (keys[i] != 0 && keys[i] != key + 1)
+                i = (i + 1) & mask;
+            if (keys[i] == 0)
+                size++;
+            keys[i] = key + 1;
+            values[i] = value;
+        }
+
+        private void rehash() {
+            int[] oldKeys = keys, oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0)
+                    put(oldKeys[i] - 1, oldValues[i]);
+            }
+        }
+
+        private static int mix(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
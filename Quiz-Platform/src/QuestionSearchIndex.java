@@ -0,0 +1,744 @@
+import java.sql.SQLException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * QuestionSearchIndex - in-process full-text index over question and option text, across all
+ * categories, for the admin search and for duplicate detection when a question is saved.
+ *
+ * Text is folded to lower case without accents and split into words; common English words are
+ * not indexed. Each word has a posting list of question ids (sorted int array) with a weighted
+ * term frequency (2 per occurrence in the question, 1 in an option). The dictionary is sorted,
+ * so every query word also matches as a prefix ("photo" finds "photosynthesis"). All query
+ * words must match; hits are ranked by BM25 (no length normalisation, questions are all short),
+ * prefix matches counting half.
+ *
+ * Lookups run a block of 128 question ids at a time, led by the query word with the fewest
+ * postings; the other words' lists are skipped forward to the block. Frequent words keep the
+ * highest frequency per block, so once the top hits are full, blocks that cannot beat them
+ * are skipped unread, and prefix terms too weak to matter are dropped: a word found in most
+ * of the bank costs little more than a rare one.
+ *
+ * sync() builds the index from the repositories and later re-reads only categories whose
+ * fingerprint changed; AdminWindow keeps it current between syncs with put/remove.
+ */
+public class QuestionSearchIndex {
+    private static final double K1 = 1.2;
+    private static final float PREFIX_WEIGHT = 0.5f;
+    private static final int BLOCK_BITS = 7;
+    private static final int BLOCK = 1 << BLOCK_BITS;
+    private static final int BLOCK_MAX_DF = 1024; // terms this frequent keep per-block maxima
+    private static final float[] TF_SCORE = new float[256]; // BM25 term-frequency saturation
+    static {
+        for (int tf = 0; tf < 256; tf++)
+            TF_SCORE[tf] = (float) (tf * (K1 + 1) / (tf + K1));
+    }
+    private static final Set<String> STOP_WORDS = Set.of("a", "an", "and", "are", "as", "at", "be", "by", "for",
+            "from", "in", "is", "it", "of", "on", "or", "that", "the", "this", "to", "was", "what", "which",
+            "who", "with");
+
+    public static class Config {
+        int maxExpansions = 16;
+        int minPrefix = 3;
+        double duplicateThreshold = 0.8;
+
+        // Prefix terms tried per query word (the most frequent ones)
+        public Config maxExpansions(int v) { maxExpansions = v; return this; }
+        // Shorter query words only match whole words
+        public Config minPrefix(int v) { minPrefix = v; return this; }
+        // Word-set (Jaccard) similarity from which similar() reports a question
+        public Config duplicateThreshold(double v) { duplicateThreshold = v; return this; }
+    }
+
+    public static class Hit {
+        public final int questionId, categoryId;
+        public final double score;
+
+        Hit(int questionId, int categoryId, double score) {
+            this.questionId = questionId;
+            this.categoryId = categoryId;
+            this.score = score;
+        }
+    }
+
+    public static class Match {
+        public final int questionId, categoryId;
+        public final double similarity; // 1.0 = the same words
+
+        Match(int questionId, int categoryId, double similarity) {
+            this.questionId = questionId;
+            this.categoryId = categoryId;
+            this.similarity = similarity;
+        }
+    }
+
+    private static class Doc {
+        final int categoryId;
+        final int[] terms; // sorted term ids
+
+        Doc(int categoryId, int[] terms) {
+            this.categoryId = categoryId;
+            this.terms = terms;
+        }
+    }
+
+    private static volatile QuestionSearchIndex shared;
+
+    public static QuestionSearchIndex shared() {
+        QuestionSearchIndex s = shared;
+        if (s == null) {
+            synchronized (QuestionSearchIndex.class) {
+                s = shared;
+                if (s == null)
+                    shared = s = new QuestionSearchIndex(new Config());
+            }
+        }
+        return s;
+    }
+
+    private final Config config;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // guarded by lock
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private final NavigableMap<String, Integer> dictionary = new TreeMap<>(); // the same, sorted for prefixes
+    private int[][] postings = new int[1024][];
+    private byte[][] frequencies = new byte[1024][];
+    private int[] df = new int[1024];
+    // upper bounds for skipping: highest frequency per term, and per block for frequent terms
+    // (raised as postings are added, left as they are on removal)
+    private byte[] maxTf = new byte[1024];
+    private byte[][] blockMax = new byte[1024][];
+    private final Map<Integer, Doc> docs = new HashMap<>();
+    private long postingCount;
+
+    private Map<Integer, Long> synced; // category fingerprints at the last sync, null before the first
+    private volatile boolean ready;
+
+    public QuestionSearchIndex(Config config) {
+        this.config = config;
+    }
+
+    // True once the first sync() has finished
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Brings the index up to date with the repositories: the first call reads every category,
+    // later calls only those whose questions changed since (or were deleted)
+    public synchronized void sync() throws SQLException {
+        Map<Integer, Long> now = Repositories.questions().fingerprints();
+        if (synced != null)
+            for (Integer categoryId : synced.keySet())
+                if (!now.containsKey(categoryId))
+                    removeCategory(categoryId);
+        for (Map.Entry<Integer, Long> e : now.entrySet())
+            if (synced == null)
+                load(e.getKey()); // nothing indexed yet, except what put() added, which load replaces
+            else if (!e.getValue().equals(synced.get(e.getKey())))
+                reindexCategory(e.getKey());
+        synced = now;
+        ready = true;
+    }
+
+    // Re-reads one category (after a bulk import, say), streaming it in chunks
+    public void reindexCategory(int categoryId) throws SQLException {
+        removeCategory(categoryId);
+        load(categoryId);
+    }
+
+    private void load(int categoryId) throws SQLException {
+        List<Question> chunk = new ArrayList<>(10_000);
+        Repositories.questions().forEachInCategory(categoryId, q -> {
+            chunk.add(q);
+            if (chunk.size() == 10_000) {
+                putAll(categoryId, chunk);
+                chunk.clear();
+            }
+        });
+        putAll(categoryId, chunk);
+    }
+
+    // Adds the question, or replaces what was indexed under its id
+    public void put(int categoryId, Question question) {
+        putAll(categoryId, Collections.singletonList(question));
+    }
+
+    public void putAll(int categoryId, List<Question> questions) {
+        if (questions.isEmpty())
+            return;
+        List<Map<String, Integer>> counts = new ArrayList<>(questions.size());
+        for (Question q : questions)
+            counts.add(termCounts(q.getText(), q.getOptions()));
+        lock.writeLock().lock();
+        try {
+            int[] ids = new int[questions.size()];
+            for (int i = 0; i < ids.length; i++)
+                ids[i] = questions.get(i).getId();
+            removeLocked(ids);
+            // new postings per term, packed as id << 8 | frequency so a sort orders them by id
+            Map<Integer, long[]> added = new HashMap<>();
+            for (int i = 0; i < ids.length; i++) {
+                Map<String, Integer> tf = counts.get(i);
+                int[] terms = new int[tf.size()];
+                int t = 0;
+                for (Map.Entry<String, Integer> e : tf.entrySet()) {
+                    int term = termId(e.getKey());
+                    terms[t++] = term;
+                    long[] list = added.get(term); // [0] = count
+                    if (list == null || list.length == list[0] + 1)
+                        added.put(term, list = Arrays.copyOf(list == null ? new long[1] : list,
+                                list == null ? 4 : list.length * 2));
+                    list[(int) ++list[0]] = (long) ids[i] << 8 | Math.min(255, e.getValue());
+                }
+                Arrays.sort(terms);
+                docs.put(ids[i], new Doc(categoryId, terms));
+            }
+            for (Map.Entry<Integer, long[]> e : added.entrySet())
+                merge(e.getKey(), e.getValue());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int questionId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(new int[] { questionId });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeCategory(int categoryId) {
+        lock.writeLock().lock();
+        try {
+            int[] ids = docs.entrySet().stream().filter(e -> e.getValue().categoryId == categoryId)
+                    .mapToInt(Map.Entry::getKey).toArray();
+            removeLocked(ids);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // The best limit questions containing every word of the query (the words as prefixes), best first
+    public List<Hit> search(String query, int limit) {
+        List<String> words = new ArrayList<>();
+        for (String w : tokens(query))
+            if (!STOP_WORDS.contains(w) && !words.contains(w))
+                words.add(w);
+        if (words.isEmpty() || limit <= 0)
+            return Collections.emptyList();
+        long start = System.nanoTime();
+        lock.readLock().lock();
+        try {
+            int n = docs.size();
+            List<int[]> wordTerms = new ArrayList<>(words.size());
+            List<float[]> wordWeights = new ArrayList<>(words.size());
+            for (String word : words) {
+                int[] terms = expand(word);
+                if (terms.length == 0)
+                    return Collections.emptyList();
+                float[] weights = new float[terms.length];
+                for (int t = 0; t < terms.length; t++) {
+                    weights[t] = (float) idf(df[terms[t]], n);
+                    if (!dictionaryTerm(terms[t], word))
+                        weights[t] *= PREFIX_WEIGHT;
+                }
+                wordTerms.add(terms);
+                wordWeights.add(weights);
+            }
+            return top(wordTerms.toArray(new int[0][]), wordWeights.toArray(new float[0][]), limit);
+        } finally {
+            lock.readLock().unlock();
+            Metrics.timer("search.query").record(System.nanoTime() - start);
+        }
+    }
+
+    // Indexed questions whose words overlap the given question's by at least the duplicate
+    // threshold, most similar first; excludeId (the question being edited) is left out
+    public List<Match> similar(String text, List<Option> options, int excludeId) {
+        Set<String> words = termCounts(text, options).keySet();
+        if (words.isEmpty())
+            return Collections.emptyList();
+        lock.readLock().lock();
+        try {
+            int size = words.size();
+            int[] known = new int[size];
+            int k = 0;
+            for (String w : words) {
+                Integer term = termIds.get(w);
+                if (term != null && df[term] > 0)
+                    known[k++] = term;
+            }
+            // a question at least threshold similar shares one of the size - ceil(threshold * size) + 1
+            // rarest words (prefix filtering), so only their postings need reading
+            int probe = size - (int) Math.ceil(config.duplicateThreshold * size) + 1;
+            if (k < size - probe + 1)
+                return Collections.emptyList(); // too many new words to reach the threshold
+            Integer[] byDf = new Integer[k];
+            for (int i = 0; i < k; i++)
+                byDf[i] = known[i];
+            Arrays.sort(byDf, (a, b) -> Integer.compare(df[a], df[b]));
+            int[] mine = Arrays.copyOf(known, k);
+            Arrays.sort(mine);
+
+            BitSet seen = new BitSet();
+            List<Match> matches = new ArrayList<>();
+            for (int p = 0; p < probe - (size - k); p++) { // the new words were the rarest
+                int term = byDf[p];
+                int[] list = postings[term];
+                for (int i = 0; i < df[term]; i++) {
+                    int id = list[i];
+                    if (id == excludeId || seen.get(id))
+                        continue;
+                    seen.set(id);
+                    Doc doc = docs.get(id);
+                    int common = intersectionSize(mine, doc.terms);
+                    double jaccard = (double) common / (size + doc.terms.length - common);
+                    if (jaccard >= config.duplicateThreshold)
+                        matches.add(new Match(id, doc.categoryId, jaccard));
+                }
+            }
+            matches.sort((a, b) -> Double.compare(b.similarity, a.similarity));
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public String stats() {
+        lock.readLock().lock();
+        try {
+            return String.format("questions=%d terms=%d postings=%d ready=%s", docs.size(), dictionary.size(),
+                    postingCount, ready);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Lower-cased words of the text, accents dropped (decomposed, then the marks skipped)
+    static List<String> tokens(String text) {
+        List<String> out = new ArrayList<>();
+        if (text == null)
+            return out;
+        String folded = text.chars().allMatch(c -> c < 128) ? text : Normalizer.normalize(text, Normalizer.Form.NFKD);
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= folded.length(); i++) {
+            char c = i < folded.length() ? folded.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word.append(c);
+            } else if (Character.getType(c) != Character.NON_SPACING_MARK && word.length() > 0) {
+                out.add(word.toString().toLowerCase(Locale.ROOT));
+                word.setLength(0);
+            }
+        }
+        return out;
+    }
+
+    private static Map<String, Integer> termCounts(String text, List<Option> options) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String w : tokens(text))
+            if (!STOP_WORDS.contains(w))
+                counts.merge(w, 2, Integer::sum);
+        for (Option o : options)
+            for (String w : tokens(o.getText()))
+                if (!STOP_WORDS.contains(w))
+                    counts.merge(w, 1, Integer::sum);
+        return counts;
+    }
+
+    private static double idf(int df, int n) {
+        return Math.log(1 + (n - df + 0.5) / (df + 0.5));
+    }
+
+    // Terms a query word matches: itself, and as a prefix the maxExpansions most frequent others
+    private int[] expand(String word) {
+        Integer exact = termIds.get(word);
+        List<Integer> terms = new ArrayList<>();
+        if (word.length() >= config.minPrefix) {
+            for (Integer term : dictionary.subMap(word, false, word + Character.MAX_VALUE, false).values())
+                if (df[term] > 0)
+                    terms.add(term);
+            if (terms.size() > config.maxExpansions) {
+                terms.sort((a, b) -> Integer.compare(df[b], df[a]));
+                terms = terms.subList(0, config.maxExpansions);
+            }
+        }
+        if (exact != null && df[exact] > 0)
+            terms.add(exact);
+        return terms.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private boolean dictionaryTerm(int term, String word) {
+        Integer exact = termIds.get(word);
+        return exact != null && exact == term;
+    }
+
+    // Block-at-a-time AND over the words (each the best of its terms), keeping the limit best.
+    // Blocks come from the cheapest word's lists; a block is read only if every word has a
+    // posting in it and its upper bound beats the worst hit kept. Once the hits are full, a
+    // term that cannot lift a question past them even with every other word at its best is
+    // dropped (MaxScore), which soon leaves only the rare terms of a prefix. Ids ascend, so on
+    // equal scores the lower id, met first, stays.
+    private List<Hit> top(int[][] terms, float[][] weights, int limit) {
+        int words = terms.length;
+        int[] active = new int[words]; // terms[w][0 .. active[w]) are still searched
+        float[][] ceiling = new float[words][]; // best score each term can give
+        int[][] cursor = new int[words][];
+        int[][] nextId = new int[words][]; // postings[term][cursor], kept at hand so idle terms cost no reads
+        for (int w = 0; w < words; w++) {
+            active[w] = terms[w].length;
+            cursor[w] = new int[terms[w].length];
+            nextId[w] = new int[terms[w].length];
+            for (int t = 0; t < terms[w].length; t++)
+                nextId[w][t] = postings[terms[w][t]][0]; // expand() only returns terms with postings
+            ceiling[w] = new float[terms[w].length];
+            for (int t = 0; t < terms[w].length; t++)
+                ceiling[w][t] = weights[w][t] * TF_SCORE[maxTf[terms[w][t]] & 0xff];
+        }
+        float[][] best = new float[words][BLOCK];
+        BitSet present = new BitSet(BLOCK);
+        int[] heapIds = new int[limit];
+        float[] heapScores = new float[limit]; // min-heap on score
+        int size = 0;
+        int lead = cheapest(terms, active);
+        int done = 0; // ids below this have been dealt with
+        while (lead >= 0) {
+            int next = Integer.MAX_VALUE;
+            for (int t = 0; t < active[lead]; t++) {
+                if (nextId[lead][t] < done)
+                    advance(terms[lead][t], cursor[lead], nextId[lead], t, done);
+                next = Math.min(next, nextId[lead][t]);
+            }
+            if (next == Integer.MAX_VALUE)
+                break;
+            int block = next >>> BLOCK_BITS;
+            int from = block << BLOCK_BITS, to = from + BLOCK;
+            done = to;
+            float bound = 0;
+            for (int w = 0; w < words && bound >= 0; w++) {
+                float wordBound = 0;
+                for (int t = 0; t < active[w]; t++) {
+                    if (nextId[w][t] < from)
+                        advance(terms[w][t], cursor[w], nextId[w], t, from);
+                    if (nextId[w][t] < to)
+                        wordBound = Math.max(wordBound, weights[w][t] * TF_SCORE[bound(terms[w][t], block)]);
+                }
+                bound = wordBound == 0 ? -1 : bound + wordBound; // -1: a word is missing from the block
+            }
+            if (bound < 0 || (size == limit && bound <= heapScores[0]))
+                continue;
+            for (int w = 0; w < words; w++) {
+                for (int t = 0; t < active[w]; t++) {
+                    if (nextId[w][t] >= to)
+                        continue;
+                    int term = terms[w][t];
+                    int[] list = postings[term];
+                    byte[] freq = frequencies[term];
+                    int c = cursor[w][t];
+                    for (; c < df[term] && list[c] < to; c++) {
+                        int slot = list[c] - from;
+                        float score = weights[w][t] * TF_SCORE[freq[c] & 0xff];
+                        if (score > best[w][slot])
+                            best[w][slot] = score;
+                        if (w == lead)
+                            present.set(slot);
+                    }
+                    cursor[w][t] = c;
+                    nextId[w][t] = c < df[term] ? list[c] : Integer.MAX_VALUE;
+                }
+            }
+            // only questions with the lead word can match
+            boolean raised = false;
+            for (int slot = present.nextSetBit(0); slot >= 0; slot = present.nextSetBit(slot + 1)) {
+                float total = 0;
+                for (int w = 0; w < words && total >= 0; w++)
+                    total = best[w][slot] == 0 ? -1 : total + best[w][slot];
+                if (total <= 0) {
+                    continue;
+                } else if (size < limit) {
+                    heapIds[size] = from + slot;
+                    heapScores[size] = total;
+                    siftUp(heapIds, heapScores, size++);
+                    raised = size == limit;
+                } else if (total > heapScores[0]) {
+                    heapIds[0] = from + slot;
+                    heapScores[0] = total;
+                    siftDown(heapIds, heapScores, size);
+                    raised = true;
+                }
+            }
+            present.clear();
+            for (int w = 0; w < words; w++)
+                Arrays.fill(best[w], 0);
+            if (raised && prune(terms, weights, ceiling, cursor, nextId, active, heapScores[0]))
+                lead = cheapest(terms, active);
+        }
+        Hit[] hits = new Hit[size];
+        for (int i = 0; i < size; i++)
+            hits[i] = new Hit(heapIds[i], docs.get(heapIds[i]).categoryId, heapScores[i]);
+        Arrays.sort(hits, (a, b) -> a.score != b.score ? Double.compare(b.score, a.score)
+                : Integer.compare(a.questionId, b.questionId));
+        return Arrays.asList(hits);
+    }
+
+    // Drops the terms that can no longer reach the threshold; true if any went
+    private static boolean prune(int[][] terms, float[][] weights, float[][] ceiling, int[][] cursor,
+            int[][] nextId, int[] active, float threshold) {
+        int words = terms.length;
+        float[] wordCeiling = new float[words];
+        float sum = 0;
+        for (int w = 0; w < words; w++) {
+            for (int t = 0; t < active[w]; t++)
+                wordCeiling[w] = Math.max(wordCeiling[w], ceiling[w][t]);
+            sum += wordCeiling[w];
+        }
+        boolean dropped = false;
+        for (int w = 0; w < words; w++) {
+            float others = sum - wordCeiling[w];
+            for (int t = 0; t < active[w]; t++) {
+                if (ceiling[w][t] + others <= threshold) {
+                    int last = --active[w]; // swap the term out of the active range
+                    swap(terms[w], t, last);
+                    swap(cursor[w], t, last);
+                    swap(nextId[w], t, last);
+                    swap(weights[w], t, last);
+                    swap(ceiling[w], t, last);
+                    t--;
+                    dropped = true;
+                }
+            }
+        }
+        return dropped;
+    }
+
+    // The word whose remaining terms have the fewest postings, or -1 if one has none left
+    private int cheapest(int[][] terms, int[] active) {
+        int lead = -1;
+        long leadCost = Long.MAX_VALUE;
+        for (int w = 0; w < terms.length; w++) {
+            if (active[w] == 0)
+                return -1;
+            long cost = 0;
+            for (int t = 0; t < active[w]; t++)
+                cost += df[terms[w][t]];
+            if (cost < leadCost) {
+                lead = w;
+                leadCost = cost;
+            }
+        }
+        return lead;
+    }
+
+    // Highest frequency the term can have in the block
+    private int bound(int term, int block) {
+        byte[] maxima = blockMax[term];
+        return (maxima != null && block < maxima.length ? maxima[block] : maxTf[term]) & 0xff;
+    }
+
+    // Moves term t's cursor to the first posting >= target
+    private void advance(int term, int[] cursor, int[] nextId, int t, int target) {
+        int c = cursor[t] = seek(term, cursor[t], target);
+        nextId[t] = c < df[term] ? postings[term][c] : Integer.MAX_VALUE;
+    }
+
+    // First position at or after from whose id is >= target (galloping, as cursors only move forward)
+    private int seek(int term, int from, int target) {
+        int[] list = postings[term];
+        int size = df[term];
+        if (from >= size || list[from] >= target)
+            return from;
+        int lo = from, step = 1;
+        while (lo + step < size && list[lo + step] < target) {
+            lo += step;
+            step <<= 1;
+        }
+        int at = Arrays.binarySearch(list, lo + 1, Math.min(size, lo + step + 1), target);
+        return at >= 0 ? at : -at - 1;
+    }
+
+    private static void siftUp(int[] ids, float[] scores, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (scores[parent] <= scores[i])
+                break;
+            swap(ids, scores, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(int[] ids, float[] scores, int size) {
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size)
+                break;
+            if (child + 1 < size && scores[child + 1] < scores[child])
+                child++;
+            if (scores[i] <= scores[child])
+                break;
+            swap(ids, scores, i, child);
+            i = child;
+        }
+    }
+
+    private static void swap(int[] ids, float[] scores, int a, int b) {
+        swap(ids, a, b);
+        swap(scores, a, b);
+    }
+
+    private static void swap(int[] a, int i, int j) {
+        int v = a[i];
+        a[i] = a[j];
+        a[j] = v;
+    }
+
+    private static void swap(float[] a, int i, int j) {
+        float v = a[i];
+        a[i] = a[j];
+        a[j] = v;
+    }
+
+    private static int intersectionSize(int[] a, int[] b) {
+        int i = 0, j = 0, common = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                common++;
+                i++;
+                j++;
+            }
+        }
+        return common;
+    }
+
+    private int termId(String word) {
+        Integer term = termIds.get(word);
+        if (term != null)
+            return term;
+        int id = termIds.size();
+        if (id == df.length) {
+            postings = Arrays.copyOf(postings, id * 2);
+            frequencies = Arrays.copyOf(frequencies, id * 2);
+            df = Arrays.copyOf(df, id * 2);
+            maxTf = Arrays.copyOf(maxTf, id * 2);
+            blockMax = Arrays.copyOf(blockMax, id * 2);
+        }
+        postings[id] = new int[0];
+        frequencies[id] = new byte[0];
+        termIds.put(word, id);
+        dictionary.put(word, id);
+        return id;
+    }
+
+    // Merges packed postings (add[0] = how many follow) into the term's list; from the back, so
+    // the existing postings move once, in runs
+    private void merge(int term, long[] add) {
+        int n = (int) add[0];
+        Arrays.sort(add, 1, n + 1);
+        int[] list = postings[term];
+        byte[] freq = frequencies[term];
+        int size = df[term];
+        if (size + n > list.length) {
+            int capacity = Math.max(size + n, size + (size >> 1));
+            list = Arrays.copyOf(list, capacity);
+            freq = Arrays.copyOf(freq, capacity);
+        }
+        int end = size; // list[0 .. end) not yet moved
+        for (int j = n; j >= 1; j--) {
+            int id = (int) (add[j] >>> 8);
+            int at = Arrays.binarySearch(list, 0, end, id);
+            at = at >= 0 ? at : -at - 1;
+            System.arraycopy(list, at, list, at + j, end - at);
+            System.arraycopy(freq, at, freq, at + j, end - at);
+            list[at + j - 1] = id;
+            freq[at + j - 1] = (byte) add[j];
+            end = at;
+            int tf = (int) add[j] & 0xff;
+            if (tf > (maxTf[term] & 0xff))
+                maxTf[term] = (byte) tf;
+        }
+        postings[term] = list;
+        frequencies[term] = freq;
+        df[term] = size + n;
+        postingCount += n;
+        if (blockMax[term] != null || df[term] >= BLOCK_MAX_DF)
+            raiseBlockMax(term, add, n);
+    }
+
+    private void raiseBlockMax(int term, long[] add, int n) {
+        byte[] maxima = blockMax[term];
+        int blocks = (postings[term][df[term] - 1] >>> BLOCK_BITS) + 1;
+        if (maxima == null || maxima.length < blocks) {
+            boolean fresh = maxima == null;
+            maxima = blockMax[term] = Arrays.copyOf(fresh ? new byte[0] : maxima, Math.max(blocks + blocks / 2, 64));
+            if (fresh) { // first time over BLOCK_MAX_DF: cover what is already there
+                for (int i = 0; i < df[term]; i++) {
+                    int block = postings[term][i] >>> BLOCK_BITS;
+                    if ((frequencies[term][i] & 0xff) > (maxima[block] & 0xff))
+                        maxima[block] = frequencies[term][i];
+                }
+                return;
+            }
+        }
+        for (int j = 1; j <= n; j++) {
+            int block = (int) (add[j] >>> (8 + BLOCK_BITS));
+            if (((int) add[j] & 0xff) > (maxima[block] & 0xff))
+                maxima[block] = (byte) add[j];
+        }
+    }
+
+    private void removeLocked(int[] ids) {
+        BitSet gone = new BitSet();
+        BitSet touched = new BitSet();
+        for (int id : ids) {
+            Doc doc = docs.remove(id);
+            if (doc == null)
+                continue;
+            gone.set(id);
+            for (int term : doc.terms)
+                touched.set(term);
+        }
+        int removed = gone.cardinality();
+        for (int term = touched.nextSetBit(0); term >= 0; term = touched.nextSetBit(term + 1)) {
+            int[] list = postings[term];
+            byte[] freq = frequencies[term];
+            int kept = 0;
+            if (removed <= 16) { // an edit or delete: find each, close the gap
+                kept = df[term];
+                for (int id = gone.nextSetBit(0); id >= 0; id = gone.nextSetBit(id + 1)) {
+                    int at = Arrays.binarySearch(list, 0, kept, id);
+                    if (at >= 0) {
+                        System.arraycopy(list, at + 1, list, at, kept - at - 1);
+                        System.arraycopy(freq, at + 1, freq, at, kept - at - 1);
+                        kept--;
+                    }
+                }
+            } else {
+                for (int i = 0; i < df[term]; i++) {
+                    if (!gone.get(list[i])) {
+                        list[kept] = list[i];
+                        freq[kept++] = freq[i];
+                    }
+                }
+            }
+            postingCount -= df[term] - kept;
+            df[term] = kept;
+        }
+    }
+}
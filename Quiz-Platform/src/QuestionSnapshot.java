@@ -0,0 +1,297 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * QuestionSnapshot - the question bank (categories, questions, options) in a local binary
+ * file, read through a memory mapping.
+ *
+ * Opening reads only the header and the category directory; a category's questions are
+ * decoded from the mapping when asked for. refresh() writes a new file from the repositories
+ * and copies the bytes of every category whose fingerprint (QuestionRepository.fingerprints)
+ * has not changed from the previous snapshot, so only edited categories are read from the
+ * database. Each refresh writes a new generation, base.N, and switches to it; a file still
+ * mapped cannot be replaced or deleted on Windows (and Java cannot unmap it), so older
+ * generations are deleted when that is possible, else by open() on the next start. A file
+ * with another magic or format is ignored.
+ *
+ * Layout (big-endian, strings as int length + UTF-8):
+ *   header     magic, format, bank version, written at (millis), directory offset
+ *   data       per category, per question: id, text, option count, per option: id, correct, text
+ *   directory  count, per category: id, name, question count, fingerprint, data offset, data length
+ */
+public class QuestionSnapshot {
+    private static final int MAGIC = 0x515A534E; // "QZSN"
+    private static final int FORMAT = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 8;
+
+    private final File file;
+    private final long generation; // N of base.N; 0 for a file without the suffix
+    private final MappedByteBuffer data;
+    private final long version;
+    private final long writtenAt;
+    private final List<Category> categories;
+    private final Map<Integer, int[]> sections = new HashMap<>(); // id -> {offset, length, questions}
+    private final Map<Integer, Long> fingerprints = new HashMap<>();
+
+    private QuestionSnapshot(File file, long generation, MappedByteBuffer data) {
+        this.file = file;
+        this.generation = generation;
+        this.data = data;
+        ByteBuffer b = data.duplicate();
+        if (b.getInt() != MAGIC || b.getInt() != FORMAT)
+            throw new IllegalArgumentException("not a question snapshot (format " + FORMAT + ")");
+        version = b.getLong();
+        writtenAt = b.getLong();
+        b.position((int) b.getLong());
+        int count = b.getInt();
+        List<Category> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int id = b.getInt();
+            list.add(new Category(id, getString(b)));
+            int questions = b.getInt();
+            fingerprints.put(id, b.getLong());
+            int offset = (int) b.getLong();
+            int length = b.getInt();
+            if (offset < HEADER_SIZE || offset + length > data.limit())
+                throw new IllegalArgumentException("category " + id + " lies outside the file");
+            sections.put(id, new int[] { offset, length, questions });
+        }
+        categories = Collections.unmodifiableList(list);
+    }
+
+    // The newest usable generation of the snapshot named base, or null if there is none (logged).
+    // Meant for start-up: the other generations and unfinished writes are deleted.
+    public static QuestionSnapshot open(File base) {
+        QuestionSnapshot found = null;
+        for (Map.Entry<Long, File> g : generations(base).descendingMap().entrySet()) {
+            if (found == null)
+                found = map(g.getValue(), g.getKey());
+            else
+                g.getValue().delete();
+        }
+        File dir = base.getAbsoluteFile().getParentFile();
+        File[] partial = dir.listFiles((d, name) -> name.startsWith(base.getName() + ".") && name.endsWith(".tmp"));
+        for (File f : partial == null ? new File[0] : partial)
+            f.delete();
+        return found;
+    }
+
+    private static QuestionSnapshot map(File file, long generation) {
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            return new QuestionSnapshot(file, generation, ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+        } catch (IOException | RuntimeException ex) {
+            System.err.println("Ignoring question snapshot " + file + ": " + ex);
+            return null;
+        }
+    }
+
+    // Generation -> file of the snapshot named base: base.N, and base itself (from before
+    // generations) as 0
+    private static TreeMap<Long, File> generations(File base) {
+        TreeMap<Long, File> found = new TreeMap<>();
+        File dir = base.getAbsoluteFile().getParentFile();
+        String prefix = base.getName() + ".";
+        String[] names = dir.list();
+        for (String name : names == null ? new String[0] : names) {
+            if (name.equals(base.getName()) && new File(dir, name).length() > 0) {
+                found.put(0L, new File(dir, name));
+            } else if (name.startsWith(prefix)) {
+                try {
+                    found.put(Long.parseLong(name.substring(prefix.length())), new File(dir, name));
+                } catch (NumberFormatException notOurs) {
+                    // base.N.tmp, or some other file
+                }
+            }
+        }
+        return found;
+    }
+
+    // Writes a new generation of the snapshot named base from the repositories, reusing
+    // previous (may be null) for unchanged categories, and opens it
+    public static QuestionSnapshot refresh(File base, QuestionSnapshot previous) throws SQLException, IOException {
+        List<Category> categories = Repositories.categories().findAll();
+        Map<Integer, Long> current = Repositories.questions().fingerprints();
+        boolean changed = previous == null || previous.categories.size() != categories.size();
+        TreeMap<Long, File> existing = generations(base);
+        long generation = Math.max(previous == null ? 0 : previous.generation,
+                existing.isEmpty() ? 0 : existing.lastKey()) + 1;
+        File file = new File(base.getAbsoluteFile().getParentFile(), base.getName() + "." + generation);
+        File tmp = new File(file.getPath() + ".tmp");
+        List<long[]> directory = new ArrayList<>(categories.size()); // {questions, fingerprint, offset, length}
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeLong(0); // version and directory offset are patched in below
+            out.writeLong(System.currentTimeMillis());
+            out.writeLong(0);
+            for (Category cat : categories) {
+                long fingerprint = current.getOrDefault(cat.getId(), 0L);
+                long offset = out.size();
+                int questions;
+                int[] old = previous == null ? null : previous.sections.get(cat.getId());
+                if (old != null && previous.fingerprints.get(cat.getId()) == fingerprint) {
+                    ByteBuffer section = previous.section(old);
+                    byte[] bytes = new byte[section.remaining()];
+                    section.get(bytes);
+                    out.write(bytes);
+                    questions = old[2];
+                } else {
+                    List<Question> loaded = Repositories.questions().loadCategory(cat.getId());
+                    for (Question q : loaded)
+                        writeQuestion(out, q);
+                    questions = loaded.size();
+                    changed = true;
+                }
+                directory.add(new long[] { questions, fingerprint, offset, out.size() - offset });
+            }
+            long directoryOffset = out.size();
+            out.writeInt(categories.size());
+            for (int i = 0; i < categories.size(); i++) {
+                long[] d = directory.get(i);
+                out.writeInt(categories.get(i).getId());
+                writeString(out, categories.get(i).getName());
+                out.writeInt((int) d[0]);
+                out.writeLong(d[1]);
+                out.writeLong(d[2]);
+                out.writeInt((int) d[3]);
+            }
+            if (out.size() < 0)
+                throw new IOException("Question snapshot larger than 2 GB");
+            out.flush();
+            try (RandomAccessFile raf = new RandomAccessFile(tmp, "rw")) {
+                raf.seek(8);
+                raf.writeLong(previous == null ? 1 : changed ? previous.version + 1 : previous.version);
+                raf.seek(24);
+                raf.writeLong(directoryOffset);
+                raf.getFD().sync();
+            }
+        } catch (IOException | SQLException | RuntimeException ex) {
+            tmp.delete();
+            throw ex;
+        }
+        // a new name, so nothing maps it even on Windows
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        QuestionSnapshot fresh = map(file, generation);
+        if (fresh == null)
+            throw new IOException("Question snapshot " + file + " unreadable after writing");
+        // previous stays (its reader may still be on it); older ones go unless still mapped,
+        // which only Windows refuses: open() deletes those on the next start
+        for (Map.Entry<Long, File> g : existing.entrySet()) {
+            if (previous == null || g.getKey() < previous.generation)
+                g.getValue().delete();
+        }
+        return fresh;
+    }
+
+    // How a repository turns a category's contents into a fingerprint (see QuestionRepository.fingerprints):
+    // rows of questions LEFT JOIN options, the sums of the question id and version over those rows,
+    // options, option id sum. Versions only grow, so any edit moves the version sum.
+    static long fingerprint(long rows, long questionIdSum, long versionSum, long options, long optionIdSum) {
+        long h = rows;
+        h = h * 0x9E3779B97F4A7C15L + questionIdSum;
+        h = h * 0x9E3779B97F4A7C15L + versionSum;
+        h = h * 0x9E3779B97F4A7C15L + options;
+        h = h * 0x9E3779B97F4A7C15L + optionIdSum;
+        return h ^ (h >>> 29);
+    }
+
+    public List<Category> categories() {
+        return categories;
+    }
+
+    // The category's questions with their options in id order, or null if it is not in the snapshot
+    public List<Question> questions(int categoryId) {
+        int[] s = sections.get(categoryId);
+        if (s == null)
+            return null;
+        ByteBuffer b = section(s);
+        List<Question> questions = new ArrayList<>(s[2]);
+        try {
+            for (int i = 0; i < s[2]; i++) {
+                int id = b.getInt();
+                String text = getString(b);
+                int n = b.getInt();
+                List<Option> options = new ArrayList<>(n);
+                for (int o = 0; o < n; o++) {
+                    int optionId = b.getInt();
+                    boolean correct = b.get() != 0;
+                    options.add(new Option(optionId, getString(b), correct));
+                }
+                questions.add(new Question(id, text, options));
+            }
+        } catch (BufferUnderflowException ex) {
+            throw new IllegalStateException("Question snapshot " + file + " is damaged (category " + categoryId + ")");
+        }
+        return questions;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public long writtenAt() {
+        return writtenAt;
+    }
+
+    public int questionCount() {
+        int n = 0;
+        for (int[] s : sections.values())
+            n += s[2];
+        return n;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("version=%d categories=%d questions=%d bytes=%d written=%tF %<tT", version,
+                categories.size(), questionCount(), data.limit(), writtenAt);
+    }
+
+    private ByteBuffer section(int[] s) {
+        ByteBuffer b = data.duplicate();
+        b.position(s[0]).limit(s[0] + s[1]);
+        return b;
+    }
+
+    private static void writeQuestion(DataOutputStream out, Question q) throws IOException {
+        out.writeInt(q.getId());
+        writeString(out, q.getText());
+        out.writeInt(q.getOptions().size());
+        for (Option o : q.getOptions()) {
+            out.writeInt(o.getId());
+            out.writeByte(o.isCorrect() ? 1 : 0);
+            writeString(out, o.getText());
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String getString(ByteBuffer b) {
+        byte[] bytes = new byte[b.getInt()];
+        b.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
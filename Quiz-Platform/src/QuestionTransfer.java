@@ -0,0 +1,297 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * QuestionTransfer - streaming bulk import and export of a category's questions.
+ *
+ * Two formats, one question per record, correct = 1-based index of the right option:
+ *   CSV         question,correct,option1,option2[,option3[,option4]]   (RFC 4180 quoting, optional header)
+ *   JSON_LINES  {"question":"...","correct":1,"options":["...","..."]}  one object per line
+ * A question has two to MAX_OPTIONS options, as many as the editor and the quiz show.
+ * Import reads the stream record by record and saves chunkSize questions per transaction
+ * through QuestionRepository.createAll (multi-row INSERTs), so memory stays at one chunk
+ * whatever the file size; chunks committed before an error stay committed. Export streams
+ * the category out of the database the same way.
+ */
+public class QuestionTransfer {
+    public static final int MAX_OPTIONS = 4;
+
+    public enum Format {
+        CSV, JSON_LINES;
+
+        // By file extension: .csv, otherwise JSON lines (.json, .jsonl, .ndjson)
+        public static Format forFile(String name) {
+            return name.toLowerCase().endsWith(".csv") ? CSV : JSON_LINES;
+        }
+    }
+
+    // Called after every committed chunk (import) or every chunkSize questions (export)
+    public interface Progress {
+        void update(long questions);
+    }
+
+    private final int chunkSize;
+
+    // -Dquiz.import.chunkSize sets the default
+    public QuestionTransfer() {
+        this(Integer.getInteger("quiz.import.chunkSize", 1000));
+    }
+
+    public QuestionTransfer(int chunkSize) {
+        if (chunkSize < 1)
+            throw new IllegalArgumentException("chunkSize must be positive");
+        this.chunkSize = chunkSize;
+    }
+
+    // Imports every record into the category; returns the number of questions saved
+    public long importQuestions(Reader in, Format format, int categoryId, Progress progress)
+            throws IOException, SQLException {
+        RecordReader records = format == Format.CSV ? new CsvReader(in) : new JsonLinesReader(in);
+        List<Question> chunk = new ArrayList<>(chunkSize);
+        long saved = 0;
+        Question q;
+        while ((q = records.next()) != null) {
+            chunk.add(q);
+            if (chunk.size() == chunkSize)
+                saved += save(categoryId, chunk, progress, saved);
+        }
+        if (!chunk.isEmpty())
+            saved += save(categoryId, chunk, progress, saved);
+        return saved;
+    }
+
+    // Writes the category's questions; returns how many were written
+    public long exportCategory(int categoryId, Writer out, Format format, Progress progress)
+            throws IOException, SQLException {
+        long[] count = { 0 };
+        if (format == Format.CSV)
+            out.write("question,correct,option1,option2,option3,option4\n");
+        try {
+            Repositories.questions().forEachInCategory(categoryId, q -> {
+                try {
+                    if (format == Format.CSV)
+                        writeCsv(out, q);
+                    else
+                        writeJson(out, q);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (++count[0] % chunkSize == 0 && progress != null)
+                    progress.update(count[0]);
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+        if (progress != null)
+            progress.update(count[0]);
+        return count[0];
+    }
+
+    private static long save(int categoryId, List<Question> chunk, Progress progress, long before)
+            throws SQLException {
+        int n = Repositories.questions().createAll(categoryId, chunk).length;
+        chunk.clear();
+        if (progress != null)
+            progress.update(before + n);
+        return n;
+    }
+
+    private static int correctIndex(Question q) {
+        List<Option> options = q.getOptions();
+        for (int i = 0; i < options.size(); i++) {
+            if (options.get(i).isCorrect())
+                return i + 1;
+        }
+        return 0;
+    }
+
+    // --- Writing ---
+
+    private static void writeCsv(Writer out, Question q) throws IOException {
+        out.write(csvField(q.getText()));
+        out.write(',');
+        out.write(Integer.toString(correctIndex(q)));
+        for (Option o : q.getOptions()) {
+            out.write(',');
+            out.write(csvField(o.getText()));
+        }
+        out.write('\n');
+    }
+
+    private static String csvField(String s) {
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0)
+            return s;
+        return '"' + s.replace("\"", "\"\"") + '"';
+    }
+
+    private static void writeJson(Writer out, Question q) throws IOException {
+        List<Object> options = new ArrayList<>(q.getOptions().size());
+        for (Option o : q.getOptions())
+            options.add(o.getText());
+        out.write(Json.write(Json.object("question", q.getText(), "correct", correctIndex(q), "options", options)));
+        out.write('\n');
+    }
+
+    // --- Reading ---
+
+    private interface RecordReader {
+        // The next question, or null at the end of the input
+        Question next() throws IOException;
+    }
+
+    // Builds a question from its text, the 1-based correct index and the option texts
+    private static Question question(long record, String text, int correct, List<String> optionTexts)
+            throws IOException {
+        if (text.trim().isEmpty())
+            throw new IOException("Record " + record + ": empty question text");
+        if (optionTexts.size() < 2)
+            throw new IOException("Record " + record + ": at least two options required");
+        if (optionTexts.size() > MAX_OPTIONS)
+            throw new IOException("Record " + record + ": at most " + MAX_OPTIONS + " options allowed, found "
+                    + optionTexts.size());
+        if (correct < 1 || correct > optionTexts.size())
+            throw new IOException("Record " + record + ": correct must be between 1 and " + optionTexts.size());
+        List<Option> options = new ArrayList<>(optionTexts.size());
+        for (int i = 0; i < optionTexts.size(); i++)
+            options.add(new Option(0, optionTexts.get(i), i + 1 == correct));
+        return new Question(0, text, options);
+    }
+
+    private static class CsvReader implements RecordReader {
+        private final Reader in;
+        private long record = 0;
+        private int peeked = -2; // -2 = nothing peeked
+
+        CsvReader(Reader in) {
+            this.in = in instanceof BufferedReader ? in : new BufferedReader(in);
+        }
+
+        @Override
+        public Question next() throws IOException {
+            List<String> fields;
+            do {
+                fields = readRecord();
+                if (fields == null)
+                    return null;
+                record++;
+                // skip blank lines and the header
+            } while ((fields.size() == 1 && fields.get(0).isEmpty())
+                    || (record == 1 && fields.get(0).equalsIgnoreCase("question")));
+            if (fields.size() < 4)
+                throw new IOException("Record " + record + ": expected question,correct,option1,option2[,...]");
+            int correct;
+            try {
+                correct = Integer.parseInt(fields.get(1).trim());
+            } catch (NumberFormatException e) {
+                throw new IOException("Record " + record + ": correct is not a number: " + fields.get(1));
+            }
+            List<String> options = new ArrayList<>(fields.subList(2, fields.size()));
+            while (!options.isEmpty() && options.get(options.size() - 1).isEmpty())
+                options.remove(options.size() - 1); // trailing empty columns
+            return question(record, fields.get(0), correct, options);
+        }
+
+        // One record (which may span lines inside quotes), or null at end of input
+        private List<String> readRecord() throws IOException {
+            int c = read();
+            if (c == -1)
+                return null;
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1)
+                        throw new IOException("Record " + (record + 1) + ": unterminated quoted field");
+                    if (c == '"') {
+                        int d = read();
+                        if (d == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            c = d;
+                            continue;
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == '\r' || c == -1) {
+                    if (c == '\r') {
+                        int d = read();
+                        if (d != '\n')
+                            peeked = d;
+                    }
+                    fields.add(field.toString());
+                    return fields;
+                } else {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+        }
+
+        private int read() throws IOException {
+            if (peeked != -2) {
+                int c = peeked;
+                peeked = -2;
+                return c;
+            }
+            return in.read();
+        }
+    }
+
+    private static class JsonLinesReader implements RecordReader {
+        private final BufferedReader in;
+        private long record = 0;
+
+        JsonLinesReader(Reader in) {
+            this.in = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Question next() throws IOException {
+            String line;
+            do {
+                line = in.readLine();
+                if (line == null)
+                    return null;
+                record++;
+            } while (line.trim().isEmpty());
+            Object parsed;
+            try {
+                parsed = Json.parse(line);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Record " + record + ": " + e.getMessage());
+            }
+            if (!(parsed instanceof Map))
+                throw new IOException("Record " + record + ": JSON object expected");
+            Map<String, Object> m = (Map<String, Object>) parsed;
+            Object text = m.get("question");
+            Object correct = m.get("correct");
+            Object options = m.get("options");
+            if (!(text instanceof String) || !(correct instanceof Double) || !(options instanceof List))
+                throw new IOException("Record " + record + ": \"question\", \"correct\" and \"options\" required");
+            List<String> optionTexts = new ArrayList<>();
+            for (Object o : (List<Object>) options) {
+                if (!(o instanceof String))
+                    throw new IOException("Record " + record + ": options must be strings");
+                optionTexts.add((String) o);
+            }
+            return question(record, (String) text, ((Double) correct).intValue(), optionTexts);
+        }
+    }
+}
@@ -1,11 +1,67 @@
 import javax.swing.SwingUtilities;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 public class QuizApp {
-    public static void main(String[] args) {
+    public static void main(String[] argv) throws Exception {
+        List<String> args = new ArrayList<>(Arrays.asList(argv));
+        // --metrics-port N: serve /metrics (Prometheus) and /metrics.json on 127.0.0.1:N
+        String metricsPort = option(args, "--metrics-port");
+        if (metricsPort != null)
+            Metrics.startEndpoint(Integer.parseInt(metricsPort));
+        // --metrics-dump json|prometheus: print all metrics to stdout on exit
+        String dump = option(args, "--metrics-dump");
+        if (dump != null) {
+            boolean json = "json".equalsIgnoreCase(dump);
+            Runtime.getRuntime().addShutdownHook(new Thread(
+                    () -> System.out.println(json ? Metrics.json() : Metrics.prometheus()), "metrics-dump"));
+        }
+
+        // open the pool's first connections while the login window is shown
+        Thread warmUp = new Thread(DBConnection::warmUp, "db-pool-warmup");
+        warmUp.setDaemon(true);
+        warmUp.start();
+
+        // create or upgrade the schema before anything queries it (-Dquiz.db.migrate=false skips this)
+        boolean migrate = !"false".equalsIgnoreCase(System.getProperty("quiz.db.migrate"));
+
+        // --server [port]: run the HTTP/JSON quiz server instead of the Swing client
+        if (args.size() > 0 && "--server".equals(args.get(0))) {
+            if (migrate)
+                SchemaMigrator.migrateAtStartup();
+            int port = args.size() > 1 ? Integer.parseInt(args.get(1)) : 8080;
+            QuizServer server = new QuizServer(QuizEngine.shared());
+            server.start(port);
+            System.out.println("Quiz server listening on port " + server.port());
+            return;
+        }
+
+        // the client migrates in the background (logins wait for it) so an offline start
+        // shows the login window at once
+        if (migrate)
+            SchemaMigrator.migrateInBackground();
+
+        // map the local question snapshot so quizzes can start without the database, and
+        // bring it up to date in the background
+        OfflineBank.shared().start();
+        // the last user to log in can log in again while the database is unreachable
+        Authenticator.shared().rememberLastLogin(LocalFiles.file("last.login"));
+
         SwingUtilities.invokeLater(() -> {
             LoginWindow w = new LoginWindow();
             w.setVisible(true);
         });
     }
-}
 
+    // Removes "name value" from args and returns the value (null if absent)
+    private static String option(List<String> args, String name) {
+        int i = args.indexOf(name);
+        if (i < 0)
+            return null;
+        if (i + 1 >= args.size())
+            throw new IllegalArgumentException(name + " needs a value");
+        args.remove(i);
+        return args.remove(i);
+    }
+}
@@ -0,0 +1,431 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * QuizAutosave - keeps the answers of quizzes in progress in a local journal, so a quiz can be
+ * resumed after the client crashed or was closed.
+ *
+ * answered() and moved() only note the change in the session's slot (atomic arrays, a dirty
+ * bit per question) and queue the slot once; they never wait or touch the disk, so they are
+ * safe on the EDT. A writer thread wakes every intervalMillis and appends, per queued slot,
+ * the latest answer of each question that changed since its last pass - ten clicks on one
+ * question are one line - then syncs the file once. ended() (submitted or given up) is
+ * written through at once, so a submitted quiz is never offered for resuming.
+ *
+ * Journal lines, keyed by a number that outlives the process (session ids do not):
+ *   S,key,userId,categoryId,quizDeadline,questionId;questionId;...   quiz started
+ *   A,key,questionIndex,optionId                                      answer (0 = cleared)
+ *   C,key,cursor                                                      current question
+ *   E,key                                                             submitted or abandoned
+ * Reopening replays the journal, keeps the quizzes without an E line and rewrites it with
+ * just those; the file is emptied whenever no quiz is open.
+ */
+public class QuizAutosave {
+
+    public static class Config {
+        long intervalMillis = Long.getLong("quiz.autosave.intervalMillis", 500);
+
+        public Config intervalMillis(long v) { intervalMillis = v; return this; }
+    }
+
+    // A quiz left unfinished, as the journal had it
+    public static class Saved {
+        final long key;
+        final int userId;
+        final int categoryId;
+        final long quizDeadline;
+        final int[] questionIds;
+        final int[] optionIds; // 0 = unanswered
+        int cursor;
+
+        Saved(long key, int userId, int categoryId, long quizDeadline, int[] questionIds) {
+            this.key = key;
+            this.userId = userId;
+            this.categoryId = categoryId;
+            this.quizDeadline = quizDeadline;
+            this.questionIds = questionIds;
+            this.optionIds = new int[questionIds.length];
+        }
+
+        public int getCategoryId() {
+            return categoryId;
+        }
+
+        public int size() {
+            return questionIds.length;
+        }
+
+        public int answered() {
+            int n = 0;
+            for (int id : optionIds) {
+                if (id != 0)
+                    n++;
+            }
+            return n;
+        }
+    }
+
+    // A tracked session: written by the clicking thread, read by the writer
+    private static class Slot {
+        final long key;
+        final QuizSession session;
+        final AtomicIntegerArray optionIds;
+        final AtomicLongArray dirty; // bit per question changed since the writer's last pass
+        final AtomicInteger cursor = new AtomicInteger();
+        final AtomicBoolean queued = new AtomicBoolean();
+        volatile boolean ended;
+        boolean started; // S line written (writer only)
+        int writtenCursor; // writer only
+
+        Slot(long key, QuizSession session) {
+            this.key = key;
+            this.session = session;
+            this.optionIds = new AtomicIntegerArray(session.size());
+            this.dirty = new AtomicLongArray((session.size() + 63) >>> 6);
+        }
+    }
+
+    private static volatile QuizAutosave shared;
+
+    // Opened on first use with the journal in LocalFiles.dataDir(); if the journal cannot be
+    // opened the error is logged and quizzes run without autosave
+    public static QuizAutosave shared() {
+        QuizAutosave a = shared;
+        if (a == null) {
+            synchronized (QuizAutosave.class) {
+                a = shared;
+                if (a == null) {
+                    try {
+                        a = new QuizAutosave(LocalFiles.file("quiz.autosave"), new Config());
+                    } catch (IOException | RuntimeException e) {
+                        System.err.println("Cannot open quiz autosave journal, quizzes will not be saved: " + e);
+                        shared = a = new QuizAutosave();
+                        return a;
+                    }
+                    shared = a;
+                    QuizAutosave started = a;
+                    Runtime.getRuntime().addShutdownHook(new Thread(started::close, "quiz-autosave-shutdown"));
+                }
+            }
+        }
+        return a;
+    }
+
+    private static final Metrics.Timer WRITE = Metrics.timer("autosave.write");
+    private static final Metrics.Timer CLICK = Metrics.timer("autosave.click"); // what answered() costs the caller
+
+    private final Config config;
+    private final File file;
+    private final FileChannel journal; // null: autosave is off
+    private final Map<QuizSession, Slot> slots = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Slot> queue = new ConcurrentLinkedQueue<>();
+    private final Map<Long, Saved> unfinished = new ConcurrentHashMap<>(); // from earlier runs
+    private final AtomicLong nextKey = new AtomicLong(1);
+    private final Object writeLock = new Object();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final AtomicLong changes = new AtomicLong();
+    private final AtomicLong linesWritten = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+
+    public QuizAutosave(File file, Config config) throws IOException {
+        this.config = config;
+        this.file = file;
+        recover();
+        this.journal = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        writer = new Thread(this::writeLoop, "quiz-autosave-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Autosave turned off: tracks nothing and has nothing to resume
+    private QuizAutosave() {
+        this.config = new Config();
+        this.file = null;
+        this.journal = null;
+        this.writer = null;
+        this.running = false;
+    }
+
+    // --- Called from the UI ---
+
+    // Starts saving the session's answers
+    public void track(QuizSession session) {
+        if (journal == null)
+            return;
+        Slot slot = new Slot(nextKey.getAndIncrement(), session);
+        for (int i = 0; i < session.size(); i++)
+            slot.optionIds.set(i, optionId(session, i));
+        slot.cursor.set(session.cursor());
+        slots.put(session, slot);
+        enqueue(slot);
+    }
+
+    // The answer to question index changed (never blocks)
+    public void answered(QuizSession session, int index) {
+        long t0 = System.nanoTime();
+        Slot slot = slots.get(session);
+        if (slot == null)
+            return;
+        slot.optionIds.set(index, optionId(session, index));
+        long bit = 1L << (index & 63);
+        int word = index >>> 6;
+        long bits;
+        do {
+            bits = slot.dirty.get(word);
+        } while ((bits & bit) == 0 && !slot.dirty.compareAndSet(word, bits, bits | bit));
+        slot.cursor.set(session.cursor());
+        changes.incrementAndGet();
+        enqueue(slot);
+        CLICK.record(System.nanoTime() - t0);
+    }
+
+    // The cursor moved (never blocks)
+    public void moved(QuizSession session) {
+        Slot slot = slots.get(session);
+        if (slot == null)
+            return;
+        slot.cursor.set(session.cursor());
+        enqueue(slot);
+    }
+
+    // Submitted or abandoned: forget it, on disk at once (call off the EDT)
+    public void ended(QuizSession session) {
+        Slot slot = slots.remove(session);
+        if (slot == null)
+            return;
+        slot.ended = true;
+        synchronized (writeLock) {
+            if (slot.started)
+                append(List.of("E," + slot.key));
+        }
+    }
+
+    // --- Resuming ---
+
+    // The user's unfinished quizzes from earlier runs, newest first
+    public List<Saved> unfinished(int userId) {
+        List<Saved> list = new ArrayList<>();
+        for (Saved s : unfinished.values()) {
+            if (s.userId == userId)
+                list.add(s);
+        }
+        list.sort((a, b) -> Long.compare(b.key, a.key));
+        return list;
+    }
+
+    // Drops a saved quiz (resumed under a new key, or declined); call off the EDT
+    public void discard(Saved saved) {
+        if (unfinished.remove(saved.key) == null)
+            return;
+        synchronized (writeLock) {
+            append(List.of("E," + saved.key));
+        }
+    }
+
+    // Opens the saved quiz again on the engine with its answers and position, and tracks it
+    public QuizSession resume(QuizEngine engine, Saved saved) throws SQLException {
+        QuizSession s = engine.resume(saved.userId, saved.categoryId, saved.questionIds, saved.optionIds, saved.cursor,
+                saved.quizDeadline);
+        track(s);
+        discard(saved);
+        return s;
+    }
+
+    // Writes everything pending now (normally the writer does it every intervalMillis)
+    public void flush() {
+        if (journal == null)
+            return;
+        synchronized (writeLock) {
+            writePending();
+        }
+    }
+
+    public void close() {
+        if (journal == null)
+            return;
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(2_000);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        try {
+            journal.close();
+        } catch (IOException ignore) {
+        }
+    }
+
+    public String stats() {
+        return String.format("tracked=%d unfinished=%d changes=%d lines=%d writes=%d", slots.size(), unfinished.size(),
+                changes.get(), linesWritten.get(), writes.get());
+    }
+
+    private void enqueue(Slot slot) {
+        if (slot.queued.compareAndSet(false, true))
+            queue.add(slot);
+    }
+
+    private static int optionId(QuizSession session, int index) {
+        int chosen = session.selected(index);
+        return chosen < 0 ? 0 : session.question(index).getOptions().get(chosen).getId();
+    }
+
+    // --- Writer ---
+
+    private void writeLoop() {
+        while (running) {
+            LockSupport.parkNanos(config.intervalMillis * 1_000_000L);
+            synchronized (writeLock) {
+                writePending();
+            }
+        }
+    }
+
+    private void writePending() {
+        List<String> lines = new ArrayList<>();
+        for (Slot slot = queue.poll(); slot != null; slot = queue.poll()) {
+            slot.queued.set(false); // clicks from here on queue it again
+            if (slot.ended)
+                continue;
+            if (!slot.started) {
+                StringBuilder ids = new StringBuilder();
+                for (int i = 0; i < slot.session.size(); i++)
+                    ids.append(i == 0 ? "" : ";").append(slot.session.question(i).getId());
+                lines.add("S," + slot.key + "," + slot.session.getUserId() + "," + slot.session.getCategoryId() + ","
+                        + slot.session.quizDeadline() + "," + ids);
+                slot.started = true;
+                for (int i = 0; i < slot.optionIds.length(); i++) {
+                    if (slot.optionIds.get(i) != 0)
+                        lines.add("A," + slot.key + "," + i + "," + slot.optionIds.get(i));
+                }
+                slot.writtenCursor = 0;
+            }
+            for (int w = 0; w < slot.dirty.length(); w++) {
+                long bits = slot.dirty.getAndSet(w, 0);
+                for (; bits != 0; bits &= bits - 1) {
+                    int i = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    lines.add("A," + slot.key + "," + i + "," + slot.optionIds.get(i));
+                }
+            }
+            int cursor = slot.cursor.get();
+            if (cursor != slot.writtenCursor) {
+                lines.add("C," + slot.key + "," + cursor);
+                slot.writtenCursor = cursor;
+            }
+        }
+        if (!lines.isEmpty())
+            append(lines);
+        else if (slots.isEmpty() && unfinished.isEmpty())
+            truncateIfNotEmpty();
+    }
+
+    // Appends and syncs; failures are logged - autosave must never break the quiz
+    private void append(List<String> lines) {
+        long t0 = System.nanoTime();
+        StringBuilder sb = new StringBuilder();
+        for (String line : lines)
+            sb.append(line).append('\n');
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+            journal.position(journal.size());
+            while (buf.hasRemaining())
+                journal.write(buf);
+            journal.force(false);
+            linesWritten.addAndGet(lines.size());
+            writes.incrementAndGet();
+            WRITE.record(System.nanoTime() - t0);
+        } catch (IOException ex) {
+            WRITE.recordError(System.nanoTime() - t0);
+            System.err.println("Quiz autosave failed: " + ex.getMessage());
+        }
+    }
+
+    private void truncateIfNotEmpty() {
+        try {
+            if (journal.size() > 0) {
+                journal.truncate(0);
+                journal.force(false);
+            }
+        } catch (IOException ex) {
+            System.err.println("Quiz autosave truncate failed: " + ex.getMessage());
+        }
+    }
+
+    // Replays the journal into unfinished, then replaces it with just those quizzes (before the
+    // journal is opened, so a crash here leaves the old journal or the new one, never neither)
+    private void recover() throws IOException {
+        if (!file.exists())
+            return;
+        Map<Long, Saved> live = new LinkedHashMap<>();
+        long maxKey = 0;
+        for (String line : new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).split("\n")) {
+            String[] f = line.split(",");
+            try {
+                long key = f.length > 1 ? Long.parseLong(f[1]) : 0;
+                maxKey = Math.max(maxKey, key);
+                if (f[0].equals("S") && f.length == 6) {
+                    String[] ids = f[5].split(";");
+                    int[] questionIds = new int[ids.length];
+                    for (int i = 0; i < ids.length; i++)
+                        questionIds[i] = Integer.parseInt(ids[i]);
+                    live.put(key, new Saved(key, Integer.parseInt(f[2]), Integer.parseInt(f[3]), Long.parseLong(f[4]),
+                            questionIds));
+                } else if (f[0].equals("A") && f.length == 4 && live.containsKey(key)) {
+                    Saved s = live.get(key);
+                    int index = Integer.parseInt(f[2]);
+                    if (index >= 0 && index < s.optionIds.length)
+                        s.optionIds[index] = Integer.parseInt(f[3]);
+                } else if (f[0].equals("C") && f.length == 3 && live.containsKey(key)) {
+                    live.get(key).cursor = Integer.parseInt(f[2]);
+                } else if (f[0].equals("E") && f.length == 2) {
+                    live.remove(key);
+                }
+            } catch (NumberFormatException torn) {
+                // a line cut short by a crash
+            }
+        }
+        nextKey.set(maxKey + 1);
+        unfinished.putAll(live);
+
+        StringBuilder lines = new StringBuilder();
+        for (Saved s : live.values()) {
+            StringBuilder ids = new StringBuilder();
+            for (int i = 0; i < s.questionIds.length; i++)
+                ids.append(i == 0 ? "" : ";").append(s.questionIds[i]);
+            lines.append("S,").append(s.key).append(',').append(s.userId).append(',').append(s.categoryId)
+                    .append(',').append(s.quizDeadline).append(',').append(ids).append('\n');
+            for (int i = 0; i < s.optionIds.length; i++) {
+                if (s.optionIds[i] != 0)
+                    lines.append("A,").append(s.key).append(',').append(i).append(',').append(s.optionIds[i])
+                            .append('\n');
+            }
+            lines.append("C,").append(s.key).append(',').append(s.cursor).append('\n');
+        }
+        LocalFiles.replace(file, lines.toString().getBytes(StandardCharsets.UTF_8));
+        if (!live.isEmpty())
+            System.err.println("Quiz autosave: " + live.size() + " unfinished quiz(zes) in " + file);
+    }
+}
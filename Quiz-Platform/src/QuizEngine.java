@@ -0,0 +1,185 @@
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * QuizEngine - starts, tracks and submits quiz sessions without any UI.
+ *
+ * Sessions draw their questions from the immutable lists in QuestionBankCache through
+ * QuestionSampler, so loading a category is shared by all its takers; each session holds
+ * only its own draw (with options shuffled, its own Question copies). Used by QuizWindow
+ * today and by anything headless (server, load tests).
+ * Time limits (-Dquiz.timeLimitSeconds for the whole quiz, -Dquiz.questionTimeSeconds per
+ * question, or timeLimits()) are kept on the shared DeadlineScheduler. When one runs out the
+ * engine moves the session to its next question or submits it through submit(), the same
+ * call the Submit button and the server make, then tells the session's onTimeout listener.
+ */
+public class QuizEngine {
+    private static final QuizEngine SHARED = new QuizEngine(QuestionBankCache.shared());
+
+    public static QuizEngine shared() {
+        return SHARED;
+    }
+
+    private final QuestionBankCache bank;
+    private final QuestionSampler sampler;
+    private final Map<Long, QuizSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+    private volatile long quizTimeMillis = TimeUnit.SECONDS.toMillis(Long.getLong("quiz.timeLimitSeconds", 0));
+    private volatile long questionTimeMillis = TimeUnit.SECONDS.toMillis(Long.getLong("quiz.questionTimeSeconds", 0));
+
+    public QuizEngine(QuestionBankCache bank) {
+        this(bank, new QuestionSampler(new QuestionSampler.Config()));
+    }
+
+    public QuizEngine(QuestionBankCache bank, QuestionSampler sampler) {
+        this.bank = bank;
+        this.sampler = sampler;
+    }
+
+    // Loads (or reuses) the category's questions and opens a new session on a random draw
+    public QuizSession start(int userId, int categoryId) throws SQLException {
+        return start(userId, categoryId, ThreadLocalRandom.current().nextLong());
+    }
+
+    // Same as start(userId, categoryId) with the given seed. The draw also skips the user's recent
+    // questions, so the same seed gives another quiz next time: replay() repeats a draw.
+    public QuizSession start(int userId, int categoryId, long seed) throws SQLException {
+        int[] excluded = sampler.exclusionsFor(userId);
+        List<Question> questions = sampler.sample(categoryId, bank.questions(categoryId), seed, excluded);
+        sampler.remember(userId, questions);
+        return open(new QuizSession(ids.incrementAndGet(), userId, categoryId, questions, seed, excluded));
+    }
+
+    // Opens a session on the same questions, in the same order with the same option order, as the
+    // session drawn with this seed and exclusions (QuizSession.getSeed/getExcluded), provided the
+    // category's bank has not changed since. The user's no-repeat history is left as it is.
+    public QuizSession replay(int userId, int categoryId, long seed, int[] excluded) throws SQLException {
+        List<Question> questions = sampler.sample(categoryId, bank.questions(categoryId), seed, excluded);
+        return open(new QuizSession(ids.incrementAndGet(), userId, categoryId, questions, seed, excluded));
+    }
+
+    private QuizSession open(QuizSession s) {
+        sessions.put(s.getId(), s);
+        if (quizTimeMillis > 0 || questionTimeMillis > 0)
+            s.limitTime(DeadlineScheduler.shared(), quizTimeMillis, questionTimeMillis, this::deadlineReached);
+        return s;
+    }
+
+    // Opens a session on questions drawn earlier (QuizAutosave): questions no longer in the bank
+    // are left out, optionIds[i] (0 = none) are chosen again, and a whole-quiz deadline
+    // (0 = none) is kept rather than restarted
+    public QuizSession resume(int userId, int categoryId, int[] questionIds, int[] optionIds, int cursor,
+            long quizDeadline) throws SQLException {
+        Map<Integer, Question> byId = new HashMap<>();
+        for (int id : questionIds)
+            byId.put(id, null);
+        for (Question q : bank.questions(categoryId)) {
+            if (byId.containsKey(q.getId()))
+                byId.put(q.getId(), q);
+        }
+        List<Question> questions = new ArrayList<>(questionIds.length);
+        int[] chosen = new int[questionIds.length];
+        int position = cursor;
+        for (int i = 0; i < questionIds.length; i++) {
+            Question q = byId.get(questionIds[i]);
+            if (q == null) {
+                if (i < cursor)
+                    position--;
+                continue;
+            }
+            int option = -1;
+            for (int o = 0; o < q.getOptions().size(); o++) {
+                if (q.getOptions().get(o).getId() == optionIds[i])
+                    option = o;
+            }
+            chosen[questions.size()] = option;
+            questions.add(q);
+        }
+        QuizSession s = new QuizSession(ids.incrementAndGet(), userId, categoryId, questions);
+        s.restore(Arrays.copyOf(chosen, questions.size()), Math.min(Math.max(position, 0), questions.size() - 1));
+        sessions.put(s.getId(), s);
+        long quizMillis = quizDeadline > 0 ? Math.max(1, quizDeadline - System.currentTimeMillis()) : quizTimeMillis;
+        if (quizMillis > 0 || questionTimeMillis > 0)
+            s.limitTime(DeadlineScheduler.shared(), quizMillis, questionTimeMillis, this::deadlineReached);
+        return s;
+    }
+
+    // Limits for sessions started from now on; 0 = no limit
+    public void timeLimits(long quizMillis, long questionMillis) {
+        quizTimeMillis = quizMillis;
+        questionTimeMillis = questionMillis;
+    }
+
+    // question = the index whose time ran out, or -1 for the whole quiz
+    private void deadlineReached(QuizSession s, int question) {
+        try {
+            if (question < 0 ? !s.isSubmitted() : s.questionExpired(question))
+                submit(s);
+        } catch (SQLException | RuntimeException ex) {
+            System.err.println("Auto-submit of quiz session " + s.getId() + " failed: " + ex);
+        }
+        s.timedOut();
+    }
+
+    public QuestionSampler sampler() {
+        return sampler;
+    }
+
+    // The open session with this id, or null
+    public QuizSession get(long sessionId) {
+        return sessions.get(sessionId);
+    }
+
+    // Scores the session, hands the result to the write-behind ResultSink once and closes the
+    // session. If the sink refuses it (queue full, closed) the session stays open and a later
+    // call tries again.
+    public ResultRecord submit(QuizSession session) throws SQLException {
+        ResultRecord r = session.submit();
+        if (session.markPersisted()) {
+            long seq;
+            try {
+                seq = ResultSink.shared().submit(r);
+            } catch (SQLException | RuntimeException ex) {
+                session.persistFailed();
+                throw ex;
+            }
+            // the board never loads here (see Leaderboard.submitted); the result is safe by now,
+            // so a board problem must not fail the submission
+            try {
+                Leaderboard.submitted(r, seq);
+            } catch (RuntimeException ex) {
+                System.err.println("Leaderboard update for quiz session " + session.getId() + " failed: " + ex);
+            }
+        }
+        sessions.remove(session.getId());
+        return r;
+    }
+
+    // Drops a session without saving anything (window closed, taker gave up)
+    public void abandon(long sessionId) {
+        QuizSession s = sessions.remove(sessionId);
+        if (s != null)
+            s.cancelTimers();
+    }
+
+    // Drops untimed sessions with no activity for maxIdleMillis (timed ones end at their deadline);
+    // returns how many were removed
+    public int expireIdle(long maxIdleMillis) {
+        long cutoff = System.currentTimeMillis() - maxIdleMillis;
+        int before = sessions.size();
+        sessions.values().removeIf(s -> !s.isTimed() && s.lastActivity() < cutoff);
+        return before - sessions.size();
+    }
+
+    public int openSessions() {
+        return sessions.size();
+    }
+}
@@ -0,0 +1,363 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * QuizServer - HTTP/JSON front end for the quiz, started with "QuizApp --server [port]".
+ *
+ * Runs on the JDK HttpServer with one (virtual, where available) thread per request and
+ * reuses the desktop flows: login through Authenticator as LoginWindow does, the
+ * category list from QuestionBankCache as CategoryWindow does, and quizzes through QuizEngine
+ * as QuizWindow does. Only the server talks to the database.
+ *
+ *   POST /api/login          {"username","password"}               -> {"token","userId","role"}
+ *   POST /api/logout                                               -> {"ok"}
+ *   GET  /api/categories                                           -> [{"id","name"}]
+ *   POST /api/quiz/start     {"categoryId"}          -> {"sessionId","remainingMillis","forwardOnly","questions":[...]}
+ *   POST /api/quiz/answer    {"sessionId","questionIndex","optionIndex"}     -> {"ok","remainingMillis"}
+ *   POST /api/quiz/submit    {"sessionId"}                          -> {"score","total","rank","outOf"}
+ *                            (rank and outOf are null until the leaderboard has loaded)
+ *   GET  /api/results?sessionId=N                                  -> {"score","total"}
+ *   GET  /api/leaderboard?categoryId=N[&top=10]    -> {"count","mean","median","best","top":[{"userId","score"}]}
+ *                            (503 while the leaderboard loads)
+ *
+ * Every call except login needs "Authorization: Bearer <token>". A token unused for
+ * -Dquiz.server.tokenIdleMinutes (30) expires; untimed quiz sessions with no activity for
+ * -Dquiz.server.sessionIdleMinutes (30) are dropped. A housekeeping thread sweeps both.
+ * Timed quizzes (remainingMillis >= 0) run on the server's clock: late answers get 400, and
+ * when time runs out the server submits the quiz itself; its result is then under /api/results.
+ */
+public class QuizServer {
+    private static final int MAX_REMEMBERED_RESULTS = 100_000;
+    private static final long TOKEN_IDLE_MILLIS = TimeUnit.MINUTES.toMillis(Long.getLong("quiz.server.tokenIdleMinutes", 30));
+    private static final long SESSION_IDLE_MILLIS = TimeUnit.MINUTES.toMillis(Long.getLong("quiz.server.sessionIdleMinutes", 30));
+
+    static {
+        // without TCP_NODELAY small JSON responses sit out the 40 ms Nagle/delayed-ACK stall;
+        // read once by the JDK server config, so it must be set before the first HttpServer.create
+        if (System.getProperty("sun.net.httpserver.nodelay") == null)
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    // A submitted attempt, kept so clients can fetch it again
+    private static class Submitted {
+        final int userId, score, total;
+
+        Submitted(int userId, int score, int total) {
+            this.userId = userId;
+            this.score = score;
+            this.total = total;
+        }
+    }
+
+    // A logged-in user behind a bearer token
+    private static class Login {
+        final User user;
+        volatile long lastUsed = System.currentTimeMillis();
+
+        Login(User user) {
+            this.user = user;
+        }
+    }
+
+    // Thrown by handlers to answer with an error status and message
+    private static class HttpError extends RuntimeException {
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private interface Handler {
+        Object handle(HttpExchange ex, User user) throws Exception;
+    }
+
+    private final QuizEngine engine;
+    private final Map<String, Login> tokens = new ConcurrentHashMap<>();
+    private final Map<Long, Submitted> results = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Long> resultOrder = new ConcurrentLinkedQueue<>();
+    private final SecureRandom random = new SecureRandom();
+    private HttpServer server;
+    private ExecutorService executor;
+    private ScheduledExecutorService housekeeper;
+
+    public QuizServer(QuizEngine engine) {
+        this.engine = engine;
+    }
+
+    public synchronized void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), 1024);
+        executor = VirtualThreads.newPerTaskExecutor("http");
+        server.setExecutor(executor);
+        route("/api/login", "POST", false, this::login);
+        route("/api/logout", "POST", true, this::logout);
+        route("/api/categories", "GET", true, (ex, user) -> categories());
+        route("/api/quiz/start", "POST", true, this::startQuiz);
+        route("/api/quiz/answer", "POST", true, this::answer);
+        route("/api/quiz/submit", "POST", true, this::submit);
+        route("/api/results", "GET", true, this::result);
+        route("/api/leaderboard", "GET", true, this::leaderboard);
+        Leaderboard.load(); // in the background, so the first submissions do not wait for it
+        server.start();
+        housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "quiz-server-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long every = Math.max(1_000, Math.min(TOKEN_IDLE_MILLIS, SESSION_IDLE_MILLIS) / 4);
+        housekeeper.scheduleWithFixedDelay(this::housekeep, every, every, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            housekeeper.shutdownNow();
+            server = null;
+        }
+    }
+
+    // Drops expired tokens and abandoned quiz sessions
+    private void housekeep() {
+        try {
+            long cutoff = System.currentTimeMillis() - TOKEN_IDLE_MILLIS;
+            tokens.values().removeIf(l -> l.lastUsed < cutoff);
+            int expired = engine.expireIdle(SESSION_IDLE_MILLIS);
+            if (expired > 0)
+                System.out.println("Dropped " + expired + " idle quiz session(s)");
+        } catch (RuntimeException ex) {
+            ex.printStackTrace(); // keep the schedule alive
+        }
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    // --- Handlers ---
+
+    private Object login(HttpExchange ex, User ignored) throws Exception {
+        Map<String, Object> body = body(ex);
+        User user = Authenticator.shared().authenticate(str(body, "username"), str(body, "password").toCharArray());
+        if (user == null)
+            throw new HttpError(401, "Invalid credentials");
+        byte[] raw = new byte[24];
+        random.nextBytes(raw);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+        tokens.put(token, new Login(user));
+        return Json.object("token", token, "userId", user.getId(), "role", user.getRole());
+    }
+
+    private Object logout(HttpExchange ex, User user) {
+        tokens.remove(bearer(ex));
+        return Json.object("ok", true);
+    }
+
+    private Object categories() throws Exception {
+        List<Object> list = new ArrayList<>();
+        for (Category c : QuestionBankCache.shared().categories())
+            list.add(Json.object("id", c.getId(), "name", c.getName()));
+        return list;
+    }
+
+    private Object startQuiz(HttpExchange ex, User user) throws Exception {
+        QuizSession s = engine.start(user.getId(), num(body(ex), "categoryId"));
+        s.onTimeout(() -> {
+            if (s.isSubmitted())
+                remember(s.getId(), new Submitted(user.getId(), s.submit().getScore(), s.size()));
+        });
+        List<Object> questions = new ArrayList<>(s.size());
+        for (int i = 0; i < s.size(); i++) {
+            Question q = s.question(i);
+            List<Object> options = new ArrayList<>(q.getOptions().size());
+            for (Option o : q.getOptions())
+                options.add(o.getText()); // never send is_correct to the client
+            questions.add(Json.object("index", i, "id", q.getId(), "text", q.getText(), "options", options));
+        }
+        return Json.object("sessionId", s.getId(), "remainingMillis", s.remainingMillis(),
+                "forwardOnly", s.isForwardOnly(), "questions", questions);
+    }
+
+    private Object answer(HttpExchange ex, User user) {
+        Map<String, Object> body = body(ex);
+        QuizSession s = ownSession(user, num(body, "sessionId"));
+        try {
+            s.answer(num(body, "questionIndex"), num(body, "optionIndex"));
+        } catch (IndexOutOfBoundsException | IllegalArgumentException | IllegalStateException e) {
+            throw new HttpError(400, e.getMessage());
+        }
+        return Json.object("ok", true, "remainingMillis", s.remainingMillis());
+    }
+
+    private Object submit(HttpExchange ex, User user) throws Exception {
+        QuizSession s = ownSession(user, num(body(ex), "sessionId"));
+        ResultRecord r = engine.submit(s);
+        remember(s.getId(), new Submitted(user.getId(), r.getScore(), s.size()));
+        Leaderboard board = Leaderboard.ifLoaded(); // rank and outOf are null while it loads
+        Leaderboard.Standing standing = board == null ? null : board.standing(r.getCategoryId(), r.getScore());
+        return Json.object("score", r.getScore(), "total", s.size(), "rank", standing == null ? null : standing.getRank(),
+                "outOf", standing == null ? null : standing.getOutOf());
+    }
+
+    private Object result(HttpExchange ex, User user) {
+        long sessionId = query(ex, "sessionId", -1);
+        Submitted r = results.get(sessionId);
+        if (r == null || r.userId != user.getId())
+            throw new HttpError(404, "No result for session " + sessionId);
+        return Json.object("score", r.score, "total", r.total);
+    }
+
+    private Object leaderboard(HttpExchange ex, User user) throws Exception {
+        int categoryId = (int) query(ex, "categoryId", -1);
+        int n = (int) Math.min(query(ex, "top", 10), Leaderboard.TOP_CAPACITY);
+        Leaderboard board = Leaderboard.ifLoaded();
+        if (board == null) {
+            Leaderboard.load();
+            throw new SQLTransientException("The leaderboard is loading, try again shortly");
+        }
+        List<Object> top = new ArrayList<>();
+        for (Leaderboard.Entry e : board.top(categoryId, n))
+            top.add(Json.object("userId", e.getUserId(), "score", e.getScore()));
+        Leaderboard.CategoryStats stats = board.stats(categoryId);
+        return Json.object("count", stats.getCount(), "mean", stats.getMean(), "median", stats.getMedian(),
+                "best", stats.getBest(), "top", top);
+    }
+
+    // --- Plumbing ---
+
+    private void route(String path, String method, boolean authenticated, Handler handler) {
+        server.createContext(path, ex -> {
+            int status = 200;
+            Object response;
+            try {
+                if (!method.equals(ex.getRequestMethod()))
+                    throw new HttpError(405, "Use " + method);
+                if (!path.equals(ex.getRequestURI().getPath()))
+                    throw new HttpError(404, "Not found");
+                User user = authenticated ? authenticate(ex) : null;
+                response = handler.handle(ex, user);
+            } catch (HttpError e) {
+                status = e.status;
+                response = Json.object("error", e.getMessage());
+            } catch (SQLTransientException e) {
+                status = 503; // overloaded (login queue, result queue): the client may retry
+                response = Json.object("error", e.getMessage());
+            } catch (Exception e) {
+                e.printStackTrace();
+                status = 500;
+                response = Json.object("error", "Internal error");
+            }
+            send(ex, status, Json.write(response));
+        });
+    }
+
+    private User authenticate(HttpExchange ex) {
+        String token = bearer(ex);
+        Login login = token == null ? null : tokens.get(token);
+        long now = System.currentTimeMillis();
+        if (login != null && login.lastUsed < now - TOKEN_IDLE_MILLIS) {
+            tokens.remove(token); // expired, the housekeeper just has not got to it yet
+            login = null;
+        }
+        if (login == null)
+            throw new HttpError(401, "Login required");
+        login.lastUsed = now;
+        return login.user;
+    }
+
+    private static String bearer(HttpExchange ex) {
+        String auth = ex.getRequestHeaders().getFirst("Authorization");
+        return auth != null && auth.startsWith("Bearer ") ? auth.substring(7) : null;
+    }
+
+    private QuizSession ownSession(User user, long sessionId) {
+        QuizSession s = engine.get(sessionId);
+        if (s == null || s.getUserId() != user.getId())
+            throw new HttpError(404, "No open quiz session " + sessionId);
+        return s;
+    }
+
+    private void remember(long sessionId, Submitted r) {
+        results.put(sessionId, r);
+        resultOrder.add(sessionId);
+        while (results.size() > MAX_REMEMBERED_RESULTS) {
+            Long oldest = resultOrder.poll();
+            if (oldest == null)
+                break;
+            results.remove(oldest);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> body(HttpExchange ex) {
+        try (InputStream in = ex.getRequestBody()) {
+            Object parsed = Json.parse(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            if (!(parsed instanceof Map))
+                throw new HttpError(400, "JSON object expected");
+            return (Map<String, Object>) parsed;
+        } catch (IOException | IllegalArgumentException e) {
+            throw new HttpError(400, "Bad request body: " + e.getMessage());
+        }
+    }
+
+    private static String str(Map<String, Object> body, String key) {
+        Object v = body.get(key);
+        if (!(v instanceof String))
+            throw new HttpError(400, "\"" + key + "\" (string) required");
+        return (String) v;
+    }
+
+    private static int num(Map<String, Object> body, String key) {
+        Object v = body.get(key);
+        if (!(v instanceof Double))
+            throw new HttpError(400, "\"" + key + "\" (number) required");
+        return ((Double) v).intValue();
+    }
+
+    // A numeric query parameter; fallback -1 means it is required
+    private static long query(HttpExchange ex, String name, long fallback) {
+        String query = ex.getRequestURI().getQuery();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                if (pair.startsWith(name + "=")) {
+                    try {
+                        return Long.parseLong(pair.substring(name.length() + 1));
+                    } catch (NumberFormatException e) {
+                        break;
+                    }
+                }
+            }
+        }
+        if (fallback < 0)
+            throw new HttpError(400, name + " query parameter required");
+        return fallback;
+    }
+
+    private static void send(HttpExchange ex, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        ex.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
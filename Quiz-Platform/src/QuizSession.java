@@ -0,0 +1,311 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * QuizSession - one user's attempt at a category: the questions, the cursor and the answers.
+ *
+ * Holds no Swing state, so it can back QuizWindow or run headless on a server. The question
+ * list is this taker's draw from QuestionSampler (immutable); only the per-taker answers live here.
+ * Methods are synchronized so a session can be driven from any thread. Answers and Prev/Next
+ * moves are reported to AnswerTelemetry with the time spent on the question.
+ * A timed session (QuizEngine.timeLimits) refuses answers once its deadline has passed, so the
+ * clock is the server's; with a per-question limit the questions are taken in order only.
+ */
+public class QuizSession {
+    private final long id;
+    private final long attemptId = newAttemptId(); // session_id in answer_events
+    private final int userId;
+    private final int categoryId;
+    private final List<Question> questions;
+    private final long seed; // QuestionSampler seed the questions were drawn with
+    private final int[] excluded; // question ids the draw skipped (sorted), or null
+    private final int[] selected; // chosen option index per question, -1 = unanswered
+    private int cursor = 0;
+    private ResultRecord result; // set once submitted
+    private boolean persisted = false;
+    private volatile long lastActivity = System.currentTimeMillis();
+    private long arrivedAt = System.nanoTime(); // when the cursor reached the current question
+
+    // time limits, set by QuizEngine; 0 = untimed
+    private long quizDeadline; // System.currentTimeMillis() when the whole quiz ends
+    private long questionMillis; // time per question
+    private long questionDeadline; // when the current question ends
+    private DeadlineScheduler scheduler;
+    private DeadlineScheduler.Timeout quizTimer, questionTimer;
+    private ObjIntConsumer<QuizSession> onDeadline; // (session, question index, or -1 for the whole quiz)
+    private volatile Runnable timeoutListener;
+
+    public QuizSession(long id, int userId, int categoryId, List<Question> questions) {
+        this(id, userId, categoryId, questions, 0);
+    }
+
+    public QuizSession(long id, int userId, int categoryId, List<Question> questions, long seed) {
+        this(id, userId, categoryId, questions, seed, null);
+    }
+
+    public QuizSession(long id, int userId, int categoryId, List<Question> questions, long seed, int[] excluded) {
+        this.id = id;
+        this.userId = userId;
+        this.categoryId = categoryId;
+        this.questions = questions;
+        this.seed = seed;
+        this.excluded = excluded;
+        this.selected = new int[questions.size()];
+        Arrays.fill(selected, -1);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    // Unlike getId() (a counter per QuizEngine), unique across processes and restarts
+    public long getAttemptId() {
+        return attemptId;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public int getCategoryId() {
+        return categoryId;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    // With getSeed(), what QuizEngine.replay needs to draw the same quiz again
+    public int[] getExcluded() {
+        return excluded == null ? null : excluded.clone();
+    }
+
+    public int size() {
+        return questions.size();
+    }
+
+    public Question question(int index) {
+        return questions.get(index);
+    }
+
+    public synchronized int cursor() {
+        return cursor;
+    }
+
+    public synchronized Question current() {
+        return questions.isEmpty() ? null : questions.get(cursor);
+    }
+
+    // --- Answering ---
+
+    // optionIndex -1 clears the answer
+    public synchronized void answer(int questionIndex, int optionIndex) {
+        checkOpen();
+        if (questionIndex < 0 || questionIndex >= questions.size())
+            throw new IndexOutOfBoundsException("No question " + questionIndex);
+        if (optionIndex < -1 || optionIndex >= questions.get(questionIndex).getOptions().size())
+            throw new IllegalArgumentException("No option " + optionIndex + " for question " + questionIndex);
+        checkTime(questionIndex);
+        if (questionIndex > cursor && isForwardOnly())
+            goTo(questionIndex);
+        selected[questionIndex] = optionIndex;
+        touch();
+        emit(AnswerEvents.ANSWER, questionIndex, System.nanoTime());
+    }
+
+    public synchronized void answerCurrent(int optionIndex) {
+        answer(cursor, optionIndex);
+    }
+
+    public synchronized int selected(int questionIndex) {
+        return selected[questionIndex];
+    }
+
+    // Puts back answers and position saved by QuizAutosave, without telemetry events
+    synchronized void restore(int[] chosen, int cursor) {
+        System.arraycopy(chosen, 0, selected, 0, Math.min(chosen.length, selected.length));
+        if (cursor >= 0 && cursor < questions.size())
+            this.cursor = cursor;
+    }
+
+    // --- Navigation (returns false when the move is not possible) ---
+
+    public synchronized boolean next() {
+        return goTo(cursor + 1);
+    }
+
+    public synchronized boolean prev() {
+        return goTo(cursor - 1);
+    }
+
+    public synchronized boolean goTo(int index) {
+        if (index < 0 || index >= questions.size() || (index < cursor && isForwardOnly()))
+            return false;
+        if (index != cursor) {
+            long now = System.nanoTime();
+            emit(index > cursor ? AnswerEvents.NEXT : AnswerEvents.PREV, cursor, now);
+            arrivedAt = now;
+            cursor = index;
+            if (result == null)
+                startQuestionTimer();
+        }
+        touch();
+        return true;
+    }
+
+    // --- Time limits ---
+
+    // Starts the clocks; onDeadline runs on the scheduler's pool when one of them runs out
+    synchronized void limitTime(DeadlineScheduler scheduler, long quizMillis, long questionMillis,
+            ObjIntConsumer<QuizSession> onDeadline) {
+        this.scheduler = scheduler;
+        this.onDeadline = onDeadline;
+        this.questionMillis = questionMillis;
+        if (quizMillis > 0) {
+            quizDeadline = System.currentTimeMillis() + quizMillis;
+            quizTimer = scheduler.schedule(quizMillis, () -> onDeadline.accept(this, -1));
+        }
+        startQuestionTimer();
+    }
+
+    // When the whole quiz ends (System.currentTimeMillis()), 0 if it has no overall limit
+    synchronized long quizDeadline() {
+        return quizDeadline;
+    }
+
+    public synchronized boolean isTimed() {
+        return quizDeadline != 0 || questionMillis > 0;
+    }
+
+    // With a per-question limit there is no going back to an earlier question
+    public synchronized boolean isForwardOnly() {
+        return questionMillis > 0;
+    }
+
+    // Until the nearer deadline (0 once passed), or -1 if untimed
+    public synchronized long remainingMillis() {
+        long end = quizDeadline;
+        if (questionDeadline != 0 && (end == 0 || questionDeadline < end))
+            end = questionDeadline;
+        return end == 0 ? -1 : Math.max(0, end - System.currentTimeMillis());
+    }
+
+    // Called (on the scheduler's pool) after a deadline moved the cursor on or submitted the quiz
+    public void onTimeout(Runnable listener) {
+        timeoutListener = listener;
+    }
+
+    // QuizEngine, when question index ran out of time: moves on, or true if that was the last one
+    synchronized boolean questionExpired(int index) {
+        if (result != null || index != cursor)
+            return false; // already moved on
+        if (index == questions.size() - 1)
+            return true;
+        goTo(index + 1);
+        return false;
+    }
+
+    void timedOut() {
+        Runnable l = timeoutListener;
+        if (l != null)
+            l.run();
+    }
+
+    synchronized void cancelTimers() {
+        if (quizTimer != null)
+            quizTimer.cancel();
+        if (questionTimer != null)
+            questionTimer.cancel();
+    }
+
+    private void startQuestionTimer() {
+        if (questionMillis <= 0 || questions.isEmpty())
+            return;
+        if (questionTimer != null)
+            questionTimer.cancel();
+        int index = cursor;
+        questionDeadline = System.currentTimeMillis() + questionMillis;
+        questionTimer = scheduler.schedule(questionMillis, () -> onDeadline.accept(this, index));
+    }
+
+    private void checkTime(int questionIndex) {
+        long now = System.currentTimeMillis();
+        if (quizDeadline != 0 && now >= quizDeadline)
+            throw new IllegalStateException("Time is up");
+        if (isForwardOnly() && (questionIndex < cursor || (questionIndex == cursor && now >= questionDeadline)))
+            throw new IllegalStateException("Time is up for question " + (questionIndex + 1));
+    }
+
+    // --- Submission ---
+
+    // Scores the attempt; later calls return the same result
+    public synchronized ResultRecord submit() {
+        if (result == null) {
+            result = new ResultRecord(userId, categoryId, computeScore(questions, selected),
+                    AnswerSheet.of(questions, selected));
+            if (!questions.isEmpty())
+                emit(AnswerEvents.SUBMIT, cursor, System.nanoTime());
+            cancelTimers();
+        }
+        touch();
+        return result;
+    }
+
+    public synchronized boolean isSubmitted() {
+        return result != null;
+    }
+
+    // True exactly once, for whoever gets to save the submitted result (until persistFailed())
+    synchronized boolean markPersisted() {
+        if (result == null || persisted)
+            return false;
+        persisted = true;
+        return true;
+    }
+
+    // The save claimed by markPersisted() did not happen; the next markPersisted() claims it again
+    synchronized void persistFailed() {
+        persisted = false;
+    }
+
+    long lastActivity() {
+        return lastActivity;
+    }
+
+    // Number of questions whose selected option is the correct one
+    public static int computeScore(List<Question> questions, int[] selected) {
+        int score = 0;
+        for (int i = 0; i < questions.size(); i++) {
+            List<Option> options = questions.get(i).getOptions();
+            if (selected[i] >= 0 && selected[i] < options.size()) {
+                if (options.get(selected[i]).isCorrect())
+                    score++;
+            }
+        }
+        return score;
+    }
+
+    private void checkOpen() {
+        if (result != null)
+            throw new IllegalStateException("Quiz already submitted");
+    }
+
+    // Event about the question at index, timed from when the cursor arrived there
+    private void emit(byte type, int index, long now) {
+        Question q = questions.get(index);
+        int option = selected[index] >= 0 ? q.getOptions().get(selected[index]).getId() : 0;
+        AnswerTelemetry.shared().record(attemptId, userId, q.getId(), option, type, now - arrivedAt);
+    }
+
+    // 63 random bits from a random UUID (SecureRandom), so clients and server restarts never collide
+    private static long newAttemptId() {
+        UUID u = UUID.randomUUID();
+        return (u.getMostSignificantBits() ^ u.getLeastSignificantBits()) & Long.MAX_VALUE;
+    }
+
+    private void touch() {
+        lastActivity = System.currentTimeMillis();
+    }
+}
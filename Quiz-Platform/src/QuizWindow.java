@@ -1,53 +1,78 @@
 import javax.swing.*;
 import java.awt.*;
-import java.sql.*;
-import java.util.*;
+import java.util.function.Consumer;
 
+/**
+ * QuizWindow - Swing view over a QuizSession; all quiz state lives in the session.
+ * A timed quiz shows a countdown; the deadline itself is enforced by QuizEngine, which also
+ * submits when time runs out, after which the window finishes as if Submit had been pressed.
+ * Answers and moves go to QuizAutosave as they happen, so an unfinished quiz can be resumed.
+ */
 public class QuizWindow extends JFrame {
     private int userId, categoryId;
     private String categoryName;
-    private java.util.List<Question> questions = new ArrayList<>();
-    private int cursor = 0;
-    private int score = 0;
+    private QuizSession session; // null until the questions are loaded
+    private QuizAutosave autosave; // set with session
+    private final QuizAutosave.Saved resume; // quiz to continue, or null for a new one
 
-    private JLabel qLabel;
+    private JLabel qLabel, timeLabel;
+    private Timer countdown; // repaints timeLabel only
     private JRadioButton[] optionButtons = new JRadioButton[4];
     private ButtonGroup group;
+    private JButton prev, next, submit;
 
     // Make constructor accept userId, categoryId, categoryName
     public QuizWindow(int userId, int categoryId, String categoryName) {
+        this(userId, categoryId, categoryName, null);
+    }
+
+    // Continues a quiz QuizAutosave kept from an earlier run
+    public QuizWindow(int userId, int categoryId, String categoryName, QuizAutosave.Saved resume) {
         this.userId = userId; this.categoryId = categoryId; this.categoryName = categoryName;
+        this.resume = resume;
         setTitle("Quiz - " + categoryName);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setSize(600,250);
         setLocationRelativeTo(null);
-        loadQuestions();
         initUI();
-        showQuestion(0);
+        loadQuestions();
     }
 
+    // Questions are fetched in the background; navigation stays disabled until they arrive
     private void loadQuestions() {
-        String qSql = "SELECT id, text FROM questions WHERE category_id = ?";
-        String oSql = "SELECT id, text, is_correct FROM options WHERE question_id = ?";
-        try (Connection c = DBConnection.getConnection();
-             PreparedStatement qp = c.prepareStatement(qSql);
-             PreparedStatement op = c.prepareStatement(oSql)) {
-            qp.setInt(1, categoryId);
-            try (ResultSet qrs = qp.executeQuery()) {
-                while (qrs.next()) {
-                    int qid = qrs.getInt("id");
-                    String text = qrs.getString("text");
-                    Question q = new Question(qid, text);
-                    op.setInt(1, qid);
-                    try (ResultSet ors = op.executeQuery()) {
-                        while (ors.next()) {
-                            q.options.add(new Option(ors.getInt("id"), ors.getString("text"), ors.getInt("is_correct")==1));
-                        }
-                    }
-                    questions.add(q);
-                }
+        setNavigationEnabled(false);
+        qLabel.setText("Loading questions...");
+        DbWorker.run(this, () -> {
+            QuizAutosave saves = QuizAutosave.shared(); // opening it reads the journal: not on the EDT
+            if (resume != null)
+                return saves.resume(QuizEngine.shared(), resume);
+            QuizSession s = QuizEngine.shared().start(userId, categoryId);
+            saves.track(s);
+            return s;
+        }, started -> {
+            session = started;
+            autosave = QuizAutosave.shared();
+            if (OfflineBank.shared().isOffline())
+                setTitle("Quiz - " + categoryName + " (offline)");
+            setNavigationEnabled(true);
+            prev.setEnabled(!session.isForwardOnly());
+            if (session.isTimed()) {
+                session.onTimeout(() -> SwingUtilities.invokeLater(this::timedOut));
+                countdown = new Timer(250, e -> showTimeLeft());
+                countdown.start();
+                showTimeLeft();
             }
-        } catch (SQLException e) { e.printStackTrace(); }
+            showQuestion(session.cursor());
+        }, e -> {
+            e.printStackTrace();
+            qLabel.setText("Could not load questions: " + e.getMessage());
+        });
+    }
+
+    private void setNavigationEnabled(boolean enabled) {
+        prev.setEnabled(enabled);
+        next.setEnabled(enabled);
+        submit.setEnabled(enabled);
     }
 
     private void initUI() {
@@ -62,44 +87,90 @@ public class QuizWindow extends JFrame {
             optionButtons[i] = new JRadioButton();
             group.add(optionButtons[i]);
             opts.add(optionButtons[i]);
+            // saved on every click, so an answer given just before the deadline still counts
+            optionButtons[i].addActionListener(e -> saveAnswer());
         }
         p.add(opts, BorderLayout.CENTER);
 
         JPanel bottom = new JPanel();
-        JButton prev = new JButton("Prev");
-        JButton next = new JButton("Next");
-        JButton submit = new JButton("Submit");
-        bottom.add(prev); bottom.add(next); bottom.add(submit);
+        prev = new JButton("Prev");
+        next = new JButton("Next");
+        submit = new JButton("Submit");
+        timeLabel = new JLabel();
+        bottom.add(prev); bottom.add(next); bottom.add(submit); bottom.add(timeLabel);
         p.add(bottom, BorderLayout.SOUTH);
         add(p);
 
+        JProgressBar loading = DbWorker.loadingBar("Loading...");
+        bottom.add(loading);
+        DbWorker.setLoadingIndicator(this, loading);
+
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosed(java.awt.event.WindowEvent e) {
+                if (countdown != null) countdown.stop();
+                if (session != null && !session.isSubmitted()) {
+                    QuizEngine.shared().abandon(session.getId());
+                    QuizSession abandoned = session;
+                    DbWorker.run(null, () -> autosave.ended(abandoned), () -> {}, ex -> ex.printStackTrace());
+                }
+            }
+        });
+
         prev.addActionListener(e -> {
-            if (cursor>0) { saveAnswer(); cursor--; showQuestion(cursor); }
+            saveAnswer();
+            if (session.prev()) { autosave.moved(session); showQuestion(session.cursor()); }
         });
         next.addActionListener(e -> {
-            if (cursor < questions.size()-1) { saveAnswer(); cursor++; showQuestion(cursor); }
-        });
-        submit.addActionListener(e -> {
             saveAnswer();
-            computeScoreAndSave();
+            if (session.next()) { autosave.moved(session); showQuestion(session.cursor()); }
+        });
+        submit.addActionListener(e -> submitQuiz());
+    }
+
+    private void submitQuiz() {
+        saveAnswer();
+        setNavigationEnabled(false);
+        // the result window opens once the result is queued; the leaderboard counts it whether it
+        // was loaded then or loads later, so the rank includes it
+        submitAndSave(result -> {
             dispose();
-            new ResultWindow(userId, categoryId, score, questions.size()).setVisible(true);
+            new ResultWindow(userId, categoryId, result.getScore(), session.size()).setVisible(true);
         });
     }
 
+    // A deadline passed: the engine has moved to the next question or submitted the quiz
+    private void timedOut() {
+        if (!isDisplayable())
+            return;
+        if (session.isSubmitted()) {
+            if (submit.isEnabled())
+                submitQuiz();
+        } else {
+            autosave.moved(session);
+            showQuestion(session.cursor());
+        }
+    }
+
+    private void showTimeLeft() {
+        long left = session.remainingMillis();
+        long seconds = (left + 999) / 1000;
+        timeLabel.setText(left < 0 ? "" : String.format("Time left %d:%02d", seconds / 60, seconds % 60));
+    }
+
    private void showQuestion(int idx) {
-        if (questions.isEmpty()) { JOptionPane.showMessageDialog(this,"No questions"); return; }
+        if (session.size() == 0) { JOptionPane.showMessageDialog(this,"No questions"); return; }
         
-        Question q = questions.get(idx);
+        Question q = session.question(idx);
         
-        qLabel.setText("<html><b>Q" + (idx+1) + ":</b> " + q.text + "</html>");
+        qLabel.setText("<html><b>Q" + (idx+1) + ":</b> " + q.getText() + "</html>");
         
         // --- FIX START: Explicitly clear the selection in the ButtonGroup ---
         group.clearSelection();
         // --- FIX END ---
         
         for (int i=0;i<4;i++){
-            if (i < q.options.size()) optionButtons[i].setText(q.options.get(i).text);
+            if (i < q.getOptions().size()) optionButtons[i].setText(q.getOptions().get(i).getText());
             else optionButtons[i].setText("");
             
             // This line is technically correct but less effective than group.clearSelection()
@@ -107,44 +178,44 @@ public class QuizWindow extends JFrame {
         }
         
         // Check if the current question has a previously saved answer and restore it
-        if (q.selectedIndex >= 0 && q.selectedIndex < 4) {
-            optionButtons[q.selectedIndex].setSelected(true);
+        int chosen = session.selected(idx);
+        if (chosen >= 0 && chosen < 4) {
+            optionButtons[chosen].setSelected(true);
         }
     }
 
     private void saveAnswer() {
-        Question q = questions.get(cursor);
+        if (session.size() == 0 || session.isSubmitted()) return;
+        int chosen = -1;
         for (int i=0;i<4;i++){
-            if (optionButtons[i].isSelected()) { q.selectedIndex = i; return; }
+            if (optionButtons[i].isSelected()) { chosen = i; break; }
         }
-        q.selectedIndex = -1;
-    }
-
-    private void computeScoreAndSave() {
-        score = 0;
-        for (Question q : questions) {
-            if (q.selectedIndex >=0 && q.selectedIndex < q.options.size()) {
-                if (q.options.get(q.selectedIndex).isCorrect) score++;
-            }
+        if (chosen >= session.current().getOptions().size()) chosen = -1; // blank radio button
+        try {
+            if (chosen == session.selected(session.cursor())) return;
+            session.answerCurrent(chosen);
+            autosave.answered(session, session.cursor());
+        } catch (IllegalStateException late) {
+            // past the deadline (or submitted meanwhile): the engine moves on by itself
         }
-        String sql = "INSERT INTO results (user_id, category_id, score) VALUES (?, ?, ?)";
-        try (Connection c = DBConnection.getConnection();
-             PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setInt(1, userId);
-            ps.setInt(2, categoryId);
-            ps.setInt(3, score);
-            ps.executeUpdate();
-        } catch (SQLException e) { e.printStackTrace(); }
     }
 
-    private static class Question {
-        int id; String text; java.util.List<Option> options = new ArrayList<>();
-        int selectedIndex = -1;
-        Question(int id, String text){ this.id=id; this.text=text; }
-    }
-
-    private static class Option {
-        int id; String text; boolean isCorrect;
-        Option(int id, String text, boolean isCorrect){ this.id=id; this.text=text; this.isCorrect=isCorrect;}
+    private void submitAndSave(Consumer<ResultRecord> then) {
+        ResultRecord result = session.submit();
+        // saved in the background with no owner window, so closing this window does not cancel it
+        DbWorker.run(null, () -> {
+            QuizEngine.shared().submit(session);
+            autosave.ended(session);
+        }, () -> then.accept(result), e -> {
+            e.printStackTrace();
+            // the session is still open and journaled by autosave: retry now, or resume it later
+            int retry = JOptionPane.showConfirmDialog(isDisplayable() ? this : null,
+                    "Your result could not be saved: " + e.getMessage() + "\nTry again?", "Save Failed",
+                    JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+            if (retry == JOptionPane.YES_OPTION)
+                submitAndSave(then);
+            else
+                then.accept(result);
+        });
     }
 }
@@ -0,0 +1,62 @@
+/**
+ * Repositories - the data access objects the windows use.
+ *
+ * Defaults to the JDBC implementations; run with -Dquiz.datastore=memory (or call
+ * useInMemory) to swap in InMemoryDataStore, e.g. for benchmarks on a machine without MySQL.
+ */
+public class Repositories {
+    private static volatile CategoryRepository categories;
+    private static volatile QuestionRepository questions;
+    private static volatile UserRepository users;
+    private static volatile ResultRepository results;
+    private static volatile AnswerEventRepository answerEvents;
+
+    static {
+        if ("memory".equalsIgnoreCase(System.getProperty("quiz.datastore")))
+            useInMemory(new InMemoryDataStore());
+        else
+            useJdbc();
+    }
+
+    public static CategoryRepository categories() {
+        return categories;
+    }
+
+    public static QuestionRepository questions() {
+        return questions;
+    }
+
+    public static UserRepository users() {
+        return users;
+    }
+
+    public static ResultRepository results() {
+        return results;
+    }
+
+    public static AnswerEventRepository answerEvents() {
+        return answerEvents;
+    }
+
+    public static synchronized void useJdbc() {
+        categories = new JdbcCategoryRepository();
+        questions = new JdbcQuestionRepository();
+        users = new JdbcUserRepository();
+        results = new JdbcResultRepository();
+        answerEvents = new JdbcAnswerEventRepository();
+        QuestionBankCache.shared().invalidateAll();
+        Leaderboard.reset();
+        Authenticator.reset();
+    }
+
+    public static synchronized void useInMemory(InMemoryDataStore store) {
+        categories = store.categories();
+        questions = store.questions();
+        users = store.users();
+        results = store.results();
+        answerEvents = store.answerEvents();
+        QuestionBankCache.shared().invalidateAll();
+        Leaderboard.reset();
+        Authenticator.reset();
+    }
+}
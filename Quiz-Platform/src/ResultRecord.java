@@ -0,0 +1,38 @@
+/**
+ * ResultRecord - one finished quiz attempt (row of the results table), with its answer sheet
+ * when one was kept (results saved before sheets were stored have none).
+ */
+public class ResultRecord {
+    private final int userId;
+    private final int categoryId;
+    private final int score;
+    private final AnswerSheet answers;
+
+    public ResultRecord(int userId, int categoryId, int score) {
+        this(userId, categoryId, score, null);
+    }
+
+    public ResultRecord(int userId, int categoryId, int score, AnswerSheet answers) {
+        this.userId = userId;
+        this.categoryId = categoryId;
+        this.score = score;
+        this.answers = answers;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public int getCategoryId() {
+        return categoryId;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    // null when the attempt was saved without one
+    public AnswerSheet getAnswers() {
+        return answers;
+    }
+}
@@ -0,0 +1,27 @@
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * ResultRepository - data access for the results table.
+ */
+public interface ResultRepository {
+
+    interface SheetConsumer {
+        void accept(int resultId, int score, AnswerSheet sheet);
+    }
+
+    void save(ResultRecord result) throws SQLException;
+
+    // Saves all results in one transaction (all or nothing)
+    void saveBatch(List<ResultRecord> results) throws SQLException;
+
+    // Streams every saved result, oldest first, without holding the table in memory
+    void forEach(Consumer<ResultRecord> action) throws SQLException;
+
+    // Streams the category's results that kept an answer sheet, in id order (for BatchGrader)
+    void forEachAnswerSheet(int categoryId, SheetConsumer action) throws SQLException;
+
+    // Sets score of result resultIds[i] to scores[i] for i < count, in one transaction
+    void updateScores(int[] resultIds, int[] scores, int count) throws SQLException;
+}
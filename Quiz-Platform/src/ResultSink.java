@@ -0,0 +1,390 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ResultSink - write-behind persistence of quiz results.
+ *
+ * submit() appends the result to a local journal and fsyncs it (so the score survives a crash),
+ * then queues it and returns; a background flusher writes queued results to the database in
+ * JDBC batches of up to batchSize, or whatever arrived within maxDelayMillis.
+ * - Backpressure: the queue is bounded; submit() waits up to maxBlockMillis for space, then fails.
+ * - Retries: transient failures (lost connection, timeouts, deadlocks) are retried with backoff.
+ * - Recovery: at start-up, journaled results not marked as flushed are queued again.
+ * Delivery is at-least-once: a crash between a batch commit and its journal mark replays it.
+ */
+public class ResultSink {
+
+    public static class Config {
+        int capacity = 10_000;
+        int batchSize = 200;
+        long maxDelayMillis = 200;
+        long maxBlockMillis = 5_000;
+        int maxRetries = 5;
+        long retryBackoffMillis = 100;
+
+        public Config capacity(int v) { capacity = v; return this; }
+        public Config batchSize(int v) { batchSize = v; return this; }
+        public Config maxDelayMillis(long v) { maxDelayMillis = v; return this; }
+        public Config maxBlockMillis(long v) { maxBlockMillis = v; return this; }
+        public Config maxRetries(int v) { maxRetries = v; return this; }
+    }
+
+    // Runs with the flusher held between batches (see readBetweenBatches)
+    public interface Reader {
+        void read() throws SQLException;
+    }
+
+    // Journal entry: the result plus its sequence number
+    private static class Entry {
+        final long seq;
+        final ResultRecord result;
+
+        Entry(long seq, ResultRecord result) {
+            this.seq = seq;
+            this.result = result;
+        }
+    }
+
+    private static volatile ResultSink shared;
+
+    // Started on first use with the journal in LocalFiles.dataDir()
+    public static ResultSink shared() {
+        ResultSink s = shared;
+        if (s == null) {
+            synchronized (ResultSink.class) {
+                s = shared;
+                if (s == null) {
+                    try {
+                        s = new ResultSink(LocalFiles.file("results.journal"), new Config(), null);
+                    } catch (IOException e) {
+                        throw new IllegalStateException("Cannot open result journal", e);
+                    }
+                    shared = s;
+                    ResultSink started = s;
+                    DBConnection.beforeShutdown(() -> started.close(10_000));
+                }
+            }
+        }
+        return s;
+    }
+
+    private final Config config;
+    private final ResultRepository target; // null = whatever Repositories.results() is at flush time
+    private final BlockingQueue<Entry> queue;
+    private final Semaphore slots;
+    private final File journalFile;
+    private final FileChannel journal;
+    private final Object journalLock = new Object();
+    private final Object forceLock = new Object();
+    private final Object storeLock = new Object(); // held while a batch is written and marked
+    private final Thread flusher;
+    private long nextSeq = 1;         // guarded by journalLock
+    private long lastJournaledSeq = 0; // guarded by journalLock
+    private long forcedPosition = 0;   // guarded by forceLock
+    private volatile boolean running = true;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong flushed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile long lastFlushedSeq = 0;
+
+    public ResultSink(File journalFile, Config config, ResultRepository target) throws IOException {
+        this.config = config;
+        this.target = target;
+        this.journalFile = journalFile;
+        List<Entry> pending = recover();
+        // more recovered results than capacity are all queued anyway; submit() waits until they drain
+        this.queue = new ArrayBlockingQueue<>(Math.max(config.capacity, pending.size()));
+        this.slots = new Semaphore(config.capacity - pending.size());
+        queue.addAll(pending);
+        this.journal = FileChannel.open(journalFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        journal.position(journal.size());
+        flusher = new Thread(this::flushLoop, "result-sink-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    // Durably records the result and queues it for the database; blocks while the queue is full.
+    // Returns the result's sequence number (increasing in submission order).
+    public long submit(ResultRecord r) throws SQLException {
+        if (!running)
+            throw new SQLException("Result sink is closed");
+        try {
+            if (!slots.tryAcquire(config.maxBlockMillis, TimeUnit.MILLISECONDS))
+                throw new SQLTransientException("Result queue full for " + config.maxBlockMillis + " ms");
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for result queue space", ie);
+        }
+        long seq;
+        try {
+            seq = append(r);
+        } catch (IOException ex) {
+            slots.release();
+            throw new SQLException("Could not journal result", ex);
+        }
+        submitted.incrementAndGet();
+        return seq;
+    }
+
+    // Waits until everything submitted so far has reached the database (or the timeout passes)
+    public boolean flush(long timeoutMillis) throws InterruptedException {
+        long target;
+        synchronized (journalLock) {
+            target = lastJournaledSeq;
+        }
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (lastFlushedSeq < target) {
+            if (System.currentTimeMillis() > deadline)
+                return false;
+            Thread.sleep(5);
+        }
+        return true;
+    }
+
+    // Runs reader while no batch is being written and returns the sequence number of the last
+    // result written: of this sink's results the reader saw exactly those up to it
+    public long readBetweenBatches(Reader reader) throws SQLException {
+        synchronized (storeLock) {
+            reader.read();
+            return lastFlushedSeq;
+        }
+    }
+
+    public void close(long timeoutMillis) {
+        try {
+            flush(timeoutMillis);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        running = false;
+        flusher.interrupt();
+        try {
+            flusher.join(timeoutMillis);
+            journal.close();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ignore) {
+        }
+    }
+
+    public String stats() {
+        return String.format("submitted=%d flushed=%d batches=%d retries=%d rejected=%d queued=%d",
+                submitted.get(), flushed.get(), batches.get(), retries.get(), rejected.get(), queue.size());
+    }
+
+    // --- Journal ---
+    // One line per event: "R,seq,userId,categoryId,score" for a result, "F,seq" once results up
+    // to seq are in the database. The file is truncated whenever everything journaled is flushed.
+
+    // Journals and queues under one lock so the queue stays in sequence order
+    private long append(ResultRecord r) throws IOException {
+        long end;
+        Entry e;
+        synchronized (journalLock) {
+            e = new Entry(nextSeq++, r);
+            write(journalLine(e));
+            lastJournaledSeq = e.seq;
+            end = journal.position();
+            queue.add(e); // cannot fail: the caller reserved a slot
+        }
+        // group commit: one fsync covers every record written before it started
+        // (journalLock is never taken inside forceLock: markFlushed nests them the other way round)
+        synchronized (forceLock) {
+            if (forcedPosition < end) {
+                long upTo = journal.position(); // FileChannel guards its own position
+                journal.force(false);
+                forcedPosition = upTo;
+            }
+        }
+        return e.seq;
+    }
+
+    private void markFlushed(long seq) {
+        synchronized (journalLock) {
+            try {
+                if (seq == lastJournaledSeq) {
+                    // nothing outstanding: start the journal over
+                    journal.truncate(0);
+                    journal.position(0);
+                    journal.force(false);
+                    synchronized (forceLock) {
+                        forcedPosition = 0;
+                    }
+                } else {
+                    write("F," + seq + "\n"); // not forced: losing it only means a replay
+                }
+            } catch (IOException ex) {
+                System.err.println("Result journal update failed: " + ex.getMessage());
+            }
+        }
+        lastFlushedSeq = seq;
+    }
+
+    // R,seq,user,category,score[,question ids,answers] - the sheet as two Base64 fields
+    private static String journalLine(Entry e) {
+        ResultRecord r = e.result;
+        String line = "R," + e.seq + "," + r.getUserId() + "," + r.getCategoryId() + "," + r.getScore();
+        AnswerSheet sheet = r.getAnswers();
+        if (sheet != null)
+            line += "," + Base64.getEncoder().encodeToString(sheet.encodedQuestionIds())
+                    + "," + Base64.getEncoder().encodeToString(sheet.encodedAnswers());
+        return line + "\n";
+    }
+
+    private void write(String line) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+        while (buf.hasRemaining())
+            journal.write(buf);
+    }
+
+    // Results journaled by an earlier run that never reached the database, for the queue. The
+    // journal is replaced with just those (atomically, so a crash here loses nothing).
+    private List<Entry> recover() throws IOException {
+        List<Entry> pending = new ArrayList<>();
+        if (!journalFile.exists())
+            return pending;
+        long flushedUpTo = 0;
+        long maxSeq = 0;
+        for (String line : new String(Files.readAllBytes(journalFile.toPath()), StandardCharsets.UTF_8).split("\n")) {
+            String[] f = line.split(",");
+            try {
+                if ((f.length == 5 || f.length == 7) && f[0].equals("R")) {
+                    long seq = Long.parseLong(f[1]);
+                    AnswerSheet sheet = f.length == 7 ? AnswerSheet.decode(Base64.getDecoder().decode(f[5]),
+                            Base64.getDecoder().decode(f[6])) : null;
+                    pending.add(new Entry(seq, new ResultRecord(Integer.parseInt(f[2]), Integer.parseInt(f[3]),
+                            Integer.parseInt(f[4]), sheet)));
+                    maxSeq = Math.max(maxSeq, seq);
+                } else if (f.length == 2 && f[0].equals("F")) {
+                    flushedUpTo = Math.max(flushedUpTo, Long.parseLong(f[1]));
+                }
+            } catch (IllegalArgumentException torn) { // NumberFormatException, bad Base64, short sheet
+                // a line cut short by a crash; it was never acknowledged
+            }
+        }
+        long done = flushedUpTo;
+        pending.removeIf(e -> e.seq <= done);
+
+        StringBuilder survivors = new StringBuilder();
+        for (Entry e : pending)
+            survivors.append(journalLine(e));
+        LocalFiles.replace(journalFile, survivors.toString().getBytes(StandardCharsets.UTF_8));
+        nextSeq = maxSeq + 1;
+        lastFlushedSeq = done;
+        lastJournaledSeq = pending.isEmpty() ? nextSeq - 1 : pending.get(pending.size() - 1).seq;
+        if (pending.isEmpty())
+            lastFlushedSeq = lastJournaledSeq;
+        else
+            System.err.println("Recovered " + pending.size() + " unsaved result(s) from " + journalFile);
+        return pending;
+    }
+
+    // --- Flusher ---
+
+    private void flushLoop() {
+        List<Entry> batch = new ArrayList<>(config.batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry first = queue.poll(config.maxDelayMillis, TimeUnit.MILLISECONDS);
+                if (first == null)
+                    continue;
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.maxDelayMillis);
+                while (batch.size() < config.batchSize) {
+                    queue.drainTo(batch, config.batchSize - batch.size());
+                    long wait = deadline - System.nanoTime();
+                    if (batch.size() >= config.batchSize || wait <= 0)
+                        break;
+                    Entry next = queue.poll(wait, TimeUnit.NANOSECONDS);
+                    if (next == null)
+                        break;
+                    batch.add(next);
+                }
+                synchronized (storeLock) {
+                    store(batch);
+                    markFlushed(batch.get(batch.size() - 1).seq);
+                }
+                flushed.addAndGet(batch.size());
+                batches.incrementAndGet();
+                slots.release(batch.size());
+                batch.clear();
+            } catch (InterruptedException ie) {
+                if (!running && queue.isEmpty() && batch.isEmpty())
+                    return;
+            }
+        }
+    }
+
+    // Writes one batch, retrying transient failures; gives up on a batch only for non-transient errors
+    private void store(List<Entry> batch) throws InterruptedException {
+        List<ResultRecord> records = new ArrayList<>(batch.size());
+        for (Entry e : batch)
+            records.add(e.result);
+        long backoff = config.retryBackoffMillis;
+        for (int attempt = 0; ; attempt++) {
+            try {
+                repository().saveBatch(records);
+                return;
+            } catch (SQLException ex) {
+                if (!isTransient(ex)) {
+                    saveOneByOne(records, ex);
+                    return;
+                }
+                retries.incrementAndGet();
+                if (attempt >= config.maxRetries)
+                    System.err.println("Result batch still failing after " + attempt + " retries: " + ex.getMessage());
+                // keep trying: the results are in the journal and the queue applies backpressure meanwhile
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, 10_000);
+            }
+        }
+    }
+
+    // A non-transient batch failure: save what can be saved and log the rest
+    private void saveOneByOne(List<ResultRecord> records, SQLException batchError) {
+        for (ResultRecord r : records) {
+            try {
+                repository().save(r);
+            } catch (SQLException ex) {
+                rejected.incrementAndGet();
+                System.err.println("Dropping result user=" + r.getUserId() + " category=" + r.getCategoryId()
+                        + " score=" + r.getScore() + ": " + ex.getMessage() + " (batch error: "
+                        + batchError.getMessage() + ")");
+            }
+        }
+    }
+
+    private ResultRepository repository() {
+        return target != null ? target : Repositories.results();
+    }
+
+    static boolean isTransient(SQLException ex) {
+        if (ex instanceof SQLTransientException || ex instanceof SQLRecoverableException
+                || ex instanceof SQLTimeoutException)
+            return true;
+        String state = ex.getSQLState();
+        // 08 = connection exception, 40 = transaction rollback (deadlock, serialization failure)
+        return state != null && (state.startsWith("08") || state.startsWith("40"));
+    }
+}
@@ -4,17 +4,23 @@ import java.awt.*;
 public class ResultWindow extends JFrame {
     public ResultWindow(int userId, int categoryId, int score, int total) {
         setTitle("Result");
-        setSize(300, 180);
+        setSize(300, 210);
         setLocationRelativeTo(null);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        init(score, total);
+        init(categoryId, score, total);
     }
 
-    private void init(int score, int total) {
-        JPanel p = new JPanel(new GridLayout(3, 1, 6, 6));
+    private void init(int categoryId, int score, int total) {
+        JPanel p = new JPanel(new GridLayout(4, 1, 6, 6));
         p.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
         p.add(new JLabel("Your Score: " + score + " / " + total, SwingConstants.CENTER));
         p.add(new JLabel("Percentage: " + (total == 0 ? 0 : (score * 100 / total)) + "%", SwingConstants.CENTER));
+        JLabel rank = new JLabel("Rank: ...", SwingConstants.CENTER);
+        p.add(rank);
+        // the leaderboard may still need loading on first use, so ask for the rank in the background
+        DbWorker.run(this, () -> Leaderboard.shared().standing(categoryId, score), s -> rank.setText(String.format(
+                "Rank: #%d of %d (top %.0f%%)", s.getRank(), s.getOutOf(), Math.max(1, 100 - s.getPercentile()))),
+                ex -> rank.setText("Rank: unavailable"));
         JButton close = new JButton("Close");
         close.addActionListener(e -> System.exit(0));
         p.add(close);
@@ -0,0 +1,389 @@
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * SchemaMigrator - creates and upgrades the database schema at startup.
+ *
+ * Migrations are numbered and applied in order, once each; applied versions are recorded
+ * in schema_version. Every step is safe on a database set up by hand before migrations
+ * existed: tables use IF NOT EXISTS, and indexes, foreign keys and unique constraints are
+ * only added when the metadata shows them missing. checkQueryPlans() EXPLAINs the hot
+ * queries and reports any that would scan a whole table.
+ */
+public class SchemaMigrator {
+
+    private interface Step {
+        void apply(Connection c) throws SQLException;
+    }
+
+    private static class Migration {
+        final int version;
+        final String description;
+        final Step step;
+
+        Migration(int version, String description, Step step) {
+            this.version = version;
+            this.description = description;
+            this.step = step;
+        }
+    }
+
+    private static final List<Migration> MIGRATIONS = Arrays.asList(
+            new Migration(1, "base tables", SchemaMigrator::createTables),
+            new Migration(2, "indexes for the hot lookups", SchemaMigrator::createIndexes),
+            new Migration(3, "foreign keys with ON DELETE CASCADE", SchemaMigrator::createForeignKeys),
+            new Migration(4, "unique usernames",
+                    c -> addIndex(c, "users", "uq_users_username", true, "username")),
+            new Migration(5, "answer sheets on results", SchemaMigrator::addAnswerSheetColumns),
+            new Migration(6, "question versions for optimistic locking", SchemaMigrator::addQuestionVersion),
+            new Migration(7, "password column wide enough for hashes", SchemaMigrator::widenPasswordColumn));
+
+    // FROM/JOIN "SCHEMA"."TABLE" [alias] followed by the access-path comment
+    private static final Pattern H2_ACCESS = Pattern.compile("(?:FROM|JOIN) \"\\w+\"\\.\"(\\w+)\"[^\\n]*\\n\\s*/\\* ([^*]*?) \\*/");
+
+    private static volatile CompletableFuture<Void> startup = CompletableFuture.completedFuture(null);
+
+    // label -> { sql, sample parameters... }; the queries run on every quiz, login and admin page
+    private static final Map<String, Object[]> HOT_QUERIES = new LinkedHashMap<>();
+
+    static {
+        HOT_QUERIES.put("category with options", new Object[] { QuestionLoader.JOIN_SQL, 1 });
+        HOT_QUERIES.put("question listing", new Object[] {
+                "SELECT id, text FROM questions WHERE category_id = ? ORDER BY id ASC", 1 });
+        HOT_QUERIES.put("question page", new Object[] {
+                "SELECT id, text FROM questions WHERE category_id = ? AND id > ? ORDER BY category_id, id LIMIT ?",
+                1, 0, 200 });
+        HOT_QUERIES.put("options of a question", new Object[] {
+                "SELECT id, text, is_correct FROM options WHERE question_id = ? ORDER BY id", 1 });
+        HOT_QUERIES.put("login", new Object[] { "SELECT id, role, password FROM users WHERE username = ?", "admin" });
+        HOT_QUERIES.put("results of a user", new Object[] {
+                "SELECT category_id, score FROM results WHERE user_id = ?", 1 });
+        HOT_QUERIES.put("rank in a category", new Object[] {
+                "SELECT COUNT(*) FROM results WHERE category_id = ? AND score > ?", 1, 0 });
+    }
+
+    // Applies the pending migrations; returns how many were applied
+    public static int migrate() throws SQLException {
+        try (Connection c = DBConnection.getConnection()) {
+            return migrate(c);
+        }
+    }
+
+    public static int migrate(Connection c) throws SQLException {
+        exec(c, "CREATE TABLE IF NOT EXISTS schema_version (version INT PRIMARY KEY,"
+                + " description VARCHAR(200) NOT NULL, applied_at TIMESTAMP NOT NULL)");
+        Set<Integer> applied = new HashSet<>();
+        try (Statement s = c.createStatement(); ResultSet rs = s.executeQuery("SELECT version FROM schema_version")) {
+            while (rs.next())
+                applied.add(rs.getInt(1));
+        }
+        int count = 0;
+        for (Migration m : MIGRATIONS) {
+            if (applied.contains(m.version))
+                continue;
+            // DDL commits on its own in MySQL, so a step is not atomic; being idempotent,
+            // a step that failed halfway is simply run again on the next start
+            m.step.apply(c);
+            try (PreparedStatement ps = c.prepareStatement(
+                    "INSERT INTO schema_version (version, description, applied_at) VALUES (?, ?, CURRENT_TIMESTAMP)")) {
+                ps.setInt(1, m.version);
+                ps.setString(2, m.description);
+                ps.executeUpdate();
+            }
+            System.out.println("Schema: applied v" + m.version + " (" + m.description + ")");
+            count++;
+        }
+        return count;
+    }
+
+    public static int currentVersion(Connection c) throws SQLException {
+        try (Statement s = c.createStatement();
+                ResultSet rs = s.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    // Startup entry point: migrates, then logs any hot query that would scan a table.
+    // Failures are logged, not thrown, so the client can still start and show its own errors;
+    // an unreachable database (an offline start) is one line, and the next start migrates.
+    public static void migrateAtStartup() {
+        try (Connection c = DBConnection.getConnection()) {
+            migrate(c);
+            for (String warning : checkQueryPlans(c))
+                System.err.println("Query plan: " + warning);
+        } catch (SQLException e) {
+            if (OfflineBank.isConnectionFailure(e)) {
+                System.err.println("Schema migration skipped, database unreachable: " + e.getMessage());
+                return;
+            }
+            System.err.println("Schema migration failed: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    // migrateAtStartup() on a background thread, so the client's window does not wait for the
+    // database; whatever must not run before it calls awaitStartup()
+    public static void migrateInBackground() {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        startup = done;
+        Thread t = new Thread(() -> {
+            try {
+                migrateAtStartup();
+            } finally {
+                done.complete(null);
+            }
+        }, "schema-migrate");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    // Waits for migrateInBackground() to finish (returns at once if it never ran)
+    public static void awaitStartup() {
+        startup.join();
+    }
+
+    // One message per hot query that reads a whole table instead of an index (MySQL and H2)
+    public static List<String> checkQueryPlans(Connection c) throws SQLException {
+        List<String> warnings = new ArrayList<>();
+        boolean mysql = isMySql(c);
+        for (Map.Entry<String, Object[]> q : HOT_QUERIES.entrySet()) {
+            Object[] query = q.getValue();
+            try (PreparedStatement ps = c.prepareStatement("EXPLAIN " + query[0])) {
+                for (int i = 1; i < query.length; i++)
+                    ps.setObject(i, query[i]);
+                try (ResultSet rs = ps.executeQuery()) {
+                    String scanned = mysql ? mysqlFullScan(rs) : h2FullScan(rs);
+                    if (scanned != null)
+                        warnings.add(q.getKey() + ": full scan of " + scanned + " in " + query[0]);
+                }
+            }
+        }
+        return warnings;
+    }
+
+    // EXPLAIN rows: a table read with type ALL and no key is a full scan
+    private static String mysqlFullScan(ResultSet rs) throws SQLException {
+        while (rs.next()) {
+            if ("ALL".equalsIgnoreCase(rs.getString("type")) && rs.getString("key") == null)
+                return rs.getString("table");
+        }
+        return null;
+    }
+
+    // H2 prints the plan as SQL with the access path of each table in a comment, e.g.
+    // /* PUBLIC.IDX_QUESTIONS_CATEGORY: CATEGORY_ID = 1 */. A path without a condition
+    // (PUBLIC.QUESTIONS.tableScan, or a bare index name) walks the whole table.
+    private static String h2FullScan(ResultSet rs) throws SQLException {
+        while (rs.next()) {
+            Matcher m = H2_ACCESS.matcher(rs.getString(1));
+            while (m.find()) {
+                if (m.group(2).endsWith(".tableScan") || m.group(2).indexOf(':') < 0)
+                    return m.group(1).toLowerCase();
+            }
+        }
+        return null;
+    }
+
+    // --- Migrations ---
+
+    private static void createTables(Connection c) throws SQLException {
+        exec(c, "CREATE TABLE IF NOT EXISTS categories (id INT AUTO_INCREMENT PRIMARY KEY,"
+                + " name VARCHAR(255) NOT NULL)");
+        exec(c, "CREATE TABLE IF NOT EXISTS questions (id INT AUTO_INCREMENT PRIMARY KEY,"
+                + " category_id INT NOT NULL, text TEXT NOT NULL)");
+        exec(c, "CREATE TABLE IF NOT EXISTS options (id INT AUTO_INCREMENT PRIMARY KEY,"
+                + " question_id INT NOT NULL, text TEXT NOT NULL, is_correct TINYINT NOT NULL DEFAULT 0)");
+        exec(c, "CREATE TABLE IF NOT EXISTS users (id INT AUTO_INCREMENT PRIMARY KEY,"
+                + " username VARCHAR(100) NOT NULL, password VARCHAR(255) NOT NULL,"
+                + " role VARCHAR(20) NOT NULL DEFAULT 'user')");
+        exec(c, "CREATE TABLE IF NOT EXISTS results (id INT AUTO_INCREMENT PRIMARY KEY,"
+                + " user_id INT NOT NULL, category_id INT NOT NULL, score INT NOT NULL)");
+        exec(c, "CREATE TABLE IF NOT EXISTS answer_events (id BIGINT AUTO_INCREMENT PRIMARY KEY,"
+                + " session_id BIGINT NOT NULL, user_id INT NOT NULL, question_id INT NOT NULL, option_id INT NULL,"
+                + " event_type VARCHAR(10) NOT NULL, time_spent_ms BIGINT NOT NULL, created_at TIMESTAMP NOT NULL)");
+    }
+
+    // Created before the foreign keys so those reuse them rather than adding their own.
+    // results keep no foreign keys: they outlive deleted categories and users as history.
+    private static void createIndexes(Connection c) throws SQLException {
+        addIndex(c, "questions", "idx_questions_category", false, "category_id", "id"); // quiz load, keyset paging
+        addIndex(c, "options", "idx_options_question", false, "question_id", "id"); // join and per-question reads
+        addIndex(c, "results", "idx_results_user", false, "user_id");
+        addIndex(c, "results", "idx_results_category_score", false, "category_id", "score"); // rank counts
+    }
+
+    // deleteCategory and deleteQuestion rely on these to remove the dependent rows
+    private static void createForeignKeys(Connection c) throws SQLException {
+        addCascadingForeignKey(c, "questions", "category_id", "categories");
+        addCascadingForeignKey(c, "options", "question_id", "questions");
+    }
+
+    // Nullable: results saved before this version have no sheet and are left out of regrading
+    private static void addAnswerSheetColumns(Connection c) throws SQLException {
+        String type = isMySql(c) ? "BLOB" : "VARBINARY"; // a LOB in H2 would be read through a separate stream
+        for (String column : new String[] { "question_ids", "answers" }) {
+            if (!hasColumn(c, "results", column))
+                exec(c, "ALTER TABLE results ADD COLUMN " + column + " " + type + " NULL");
+        }
+    }
+
+    private static void addQuestionVersion(Connection c) throws SQLException {
+        if (!hasColumn(c, "questions", "version"))
+            exec(c, "ALTER TABLE questions ADD COLUMN version INT NOT NULL DEFAULT 0");
+    }
+
+    // v1 only creates missing tables, so a users table made by hand may still be too narrow for
+    // the hashes (about 80 characters) that replace plaintext passwords
+    private static void widenPasswordColumn(Connection c) throws SQLException {
+        int size = columnSize(c, "users", "password");
+        if (size < 0 || size >= 255)
+            return;
+        exec(c, isMySql(c) ? "ALTER TABLE users MODIFY password VARCHAR(255) NOT NULL"
+                : "ALTER TABLE users ALTER COLUMN password SET DATA TYPE VARCHAR(255)");
+    }
+
+    // --- Metadata helpers ---
+
+    private static boolean hasColumn(Connection c, String table, String column) throws SQLException {
+        DatabaseMetaData md = c.getMetaData();
+        try (ResultSet rs = md.getColumns(c.getCatalog(), null, identifier(md, table), identifier(md, column))) {
+            return rs.next();
+        }
+    }
+
+    // Declared size (characters for VARCHAR), or -1 if the column does not exist
+    private static int columnSize(Connection c, String table, String column) throws SQLException {
+        DatabaseMetaData md = c.getMetaData();
+        try (ResultSet rs = md.getColumns(c.getCatalog(), null, identifier(md, table), identifier(md, column))) {
+            return rs.next() ? rs.getInt("COLUMN_SIZE") : -1;
+        }
+    }
+
+    // Adds the index unless one already starts with these columns (and is unique, if asked)
+    private static void addIndex(Connection c, String table, String name, boolean unique, String... columns)
+            throws SQLException {
+        if (hasIndex(c, table, unique, columns))
+            return;
+        exec(c, "CREATE " + (unique ? "UNIQUE " : "") + "INDEX " + name + " ON " + table
+                + " (" + String.join(", ", columns) + ")");
+    }
+
+    private static boolean hasIndex(Connection c, String table, boolean unique, String... columns)
+            throws SQLException {
+        DatabaseMetaData md = c.getMetaData();
+        Map<String, List<String>> indexes = new LinkedHashMap<>();
+        Set<String> uniqueIndexes = new HashSet<>();
+        // rows come ordered by index name, then column position
+        try (ResultSet rs = md.getIndexInfo(c.getCatalog(), null, identifier(md, table), false, false)) {
+            while (rs.next()) {
+                String index = rs.getString("INDEX_NAME");
+                String column = rs.getString("COLUMN_NAME");
+                if (index == null || column == null)
+                    continue;
+                indexes.computeIfAbsent(index, k -> new ArrayList<>()).add(column);
+                if (!rs.getBoolean("NON_UNIQUE"))
+                    uniqueIndexes.add(index);
+            }
+        }
+        for (Map.Entry<String, List<String>> e : indexes.entrySet()) {
+            List<String> cols = e.getValue();
+            if (cols.size() < columns.length || (unique && !uniqueIndexes.contains(e.getKey())))
+                continue;
+            boolean prefix = true;
+            for (int i = 0; i < columns.length && prefix; i++)
+                prefix = cols.get(i).equalsIgnoreCase(columns[i]);
+            if (prefix && (!unique || cols.size() == columns.length))
+                return true;
+        }
+        return false;
+    }
+
+    // Adds table(column) -> refTable(id) ON DELETE CASCADE. An existing key without the cascade
+    // is replaced. Rows pointing at missing parents would block the key; they are only deleted
+    // when an admin asks for it with -Dquiz.db.deleteOrphans=true, otherwise the migration fails
+    // (before changing anything) and says how many there are.
+    private static void addCascadingForeignKey(Connection c, String table, String column, String refTable)
+            throws SQLException {
+        DatabaseMetaData md = c.getMetaData();
+        List<String> withoutCascade = new ArrayList<>();
+        try (ResultSet rs = md.getImportedKeys(c.getCatalog(), null, identifier(md, table))) {
+            while (rs.next()) {
+                if (!rs.getString("FKCOLUMN_NAME").equalsIgnoreCase(column)
+                        || !rs.getString("PKTABLE_NAME").equalsIgnoreCase(refTable))
+                    continue;
+                if (rs.getShort("DELETE_RULE") == DatabaseMetaData.importedKeyCascade)
+                    return;
+                withoutCascade.add(rs.getString("FK_NAME"));
+            }
+        }
+        String orphanFilter = " FROM " + table + " WHERE " + column + " NOT IN (SELECT id FROM " + refTable + ")";
+        try (Statement s = c.createStatement()) {
+            int orphans;
+            try (ResultSet rs = s.executeQuery("SELECT COUNT(*)" + orphanFilter)) {
+                rs.next();
+                orphans = rs.getInt(1);
+            }
+            if (orphans > 0) {
+                if (!Boolean.getBoolean("quiz.db.deleteOrphans"))
+                    throw new SQLException(orphans + " " + table + " rows have a " + column + " with no "
+                            + refTable + " row; fix or delete them, or start once with -Dquiz.db.deleteOrphans=true"
+                            + " to have them deleted");
+                s.executeUpdate("DELETE" + orphanFilter);
+                System.out.println("Schema: deleted " + orphans + " " + table + " rows without a " + refTable + " row");
+            }
+        }
+        for (String fk : withoutCascade)
+            exec(c, "ALTER TABLE " + table + (isMySql(c) ? " DROP FOREIGN KEY " : " DROP CONSTRAINT ") + fk);
+        exec(c, "ALTER TABLE " + table + " ADD CONSTRAINT fk_" + table + "_" + column + " FOREIGN KEY (" + column
+                + ") REFERENCES " + refTable + "(id) ON DELETE CASCADE");
+    }
+
+    // Table names as the metadata calls expect them (H2 folds to upper case, MySQL keeps them)
+    private static String identifier(DatabaseMetaData md, String name) throws SQLException {
+        if (md.storesUpperCaseIdentifiers())
+            return name.toUpperCase();
+        if (md.storesLowerCaseIdentifiers())
+            return name.toLowerCase();
+        return name;
+    }
+
+    private static boolean isMySql(Connection c) throws SQLException {
+        return c.getMetaData().getDatabaseProductName().toLowerCase().contains("mysql");
+    }
+
+    private static void exec(Connection c, String sql) throws SQLException {
+        try (Statement s = c.createStatement()) {
+            s.execute(sql);
+        }
+    }
+
+    // Migrates the configured database and prints the query-plan check
+    public static void main(String[] args) {
+        try (Connection c = DBConnection.getConnection()) {
+            migrate(c);
+            System.out.println("Schema version: " + currentVersion(c));
+            List<String> warnings = checkQueryPlans(c);
+            for (String w : warnings)
+                System.out.println("Query plan: " + w);
+            if (warnings.isEmpty())
+                System.out.println("Query plans: every hot query uses an index");
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+import java.sql.SQLException;
+
+/**
+ * StaleQuestionException - a versioned question save lost the race: someone else saved the
+ * question after it was read (see QuestionRepository.update with an expected version).
+ */
+public class StaleQuestionException extends SQLException {
+    private final int questionId, expectedVersion, currentVersion;
+
+    public StaleQuestionException(int questionId, int expectedVersion, int currentVersion) {
+        super("Question " + questionId + " was changed by someone else (version " + currentVersion + ", edited "
+                + expectedVersion + ")");
+        this.questionId = questionId;
+        this.expectedVersion = expectedVersion;
+        this.currentVersion = currentVersion;
+    }
+
+    public int getQuestionId() {
+        return questionId;
+    }
+
+    public int getExpectedVersion() {
+        return expectedVersion;
+    }
+
+    public int getCurrentVersion() {
+        return currentVersion;
+    }
+}
@@ -0,0 +1,21 @@
+/**
+ * UserCredentials - a user together with the stored password (a PasswordHasher hash, or
+ * plaintext for accounts created before hashing was introduced).
+ */
+public class UserCredentials {
+    private final User user;
+    private final String storedPassword;
+
+    public UserCredentials(User user, String storedPassword) {
+        this.user = user;
+        this.storedPassword = storedPassword;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public String getStoredPassword() {
+        return storedPassword;
+    }
+}
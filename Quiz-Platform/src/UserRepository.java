@@ -0,0 +1,15 @@
+import java.sql.SQLException;
+
+/**
+ * UserRepository - data access for the users table. Passwords are stored as given;
+ * Authenticator hashes them before they get here.
+ */
+public interface UserRepository {
+    // The user and stored password, or null when the username is unknown
+    UserCredentials findByUsername(String username) throws SQLException;
+
+    // Throws SQLIntegrityConstraintViolationException if the username is taken
+    int create(String username, String storedPassword, String role) throws SQLException;
+
+    void updatePassword(int userId, String storedPassword) throws SQLException;
+}
@@ -0,0 +1,44 @@
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * VirtualThreads - a thread-per-task executor that uses virtual threads when the JVM has them.
+ *
+ * The build targets Java 17, so Executors.newVirtualThreadPerTaskExecutor (Java 21) is looked up
+ * reflectively; on older runtimes this falls back to a cached pool of daemon platform threads.
+ */
+public class VirtualThreads {
+    private static final Method NEW_VIRTUAL_EXECUTOR = find();
+
+    public static ExecutorService newPerTaskExecutor(String namePrefix) {
+        if (NEW_VIRTUAL_EXECUTOR != null) {
+            try {
+                return (ExecutorService) NEW_VIRTUAL_EXECUTOR.invoke(null);
+            } catch (ReflectiveOperationException ignore) {
+                // fall through to platform threads
+            }
+        }
+        AtomicInteger n = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, namePrefix + "-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        return Executors.newCachedThreadPool(factory);
+    }
+
+    public static boolean available() {
+        return NEW_VIRTUAL_EXECUTOR != null;
+    }
+
+    private static Method find() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}